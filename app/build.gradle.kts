@@ -53,6 +53,11 @@ android {
         targetCompatibility = JavaVersion.VERSION_21
     }
 
+    // Stored uncompressed so they can be memory-mapped straight out of the APK
+    androidResources {
+        noCompress += listOf("ktx", "qmesh")
+    }
+
     packaging {
         resources {
             excludes += "/META-INF/{AL2.0,LGPL2.1}"
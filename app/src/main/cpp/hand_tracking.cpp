@@ -0,0 +1,167 @@
+/**
+ * Hand Tracking - simulated joint source
+ *
+ * Forward kinematics over a rest skeleton: each joint keeps its rest offset
+ * from its parent, rotated by the parent's orientation, and flexes about its
+ * local X axis by the curl of its finger. HandJoints.java holds the same
+ * rest skeleton for the hand mesh's bind pose, and the benchmark's Java
+ * bridge stand-in ports this file.
+ */
+
+#include "hand_tracking.h"
+
+#include <cmath>
+
+namespace {
+
+constexpr int WRIST = 1;
+constexpr float TWO_PI = 6.28318530718f;
+
+// Curl cycle, and the largest bend of a fully flexed joint
+constexpr float CURL_PERIOD_SECONDS = 3.0f;
+constexpr float MAX_CURL_RADIANS = 1.3f;
+
+// Rest pose of a right hand in wrist space: palm down, fingers along -Z,
+// thumb toward -X. The left hand mirrors X.
+const float REST_POSITION[HAND_JOINT_COUNT][3] = {
+    {0.000f, 0.000f, -0.045f},                                  // palm
+    {0.000f, 0.000f, 0.000f},                                   // wrist
+    {-0.020f, -0.010f, -0.012f}, {-0.045f, -0.015f, -0.040f},   // thumb
+    {-0.060f, -0.017f, -0.068f}, {-0.070f, -0.018f, -0.092f},
+    {-0.012f, 0.000f, -0.010f}, {-0.022f, 0.000f, -0.075f},     // index
+    {-0.025f, 0.000f, -0.115f}, {-0.027f, 0.000f, -0.140f}, {-0.028f, 0.000f, -0.160f},
+    {0.000f, 0.000f, -0.010f}, {0.000f, 0.000f, -0.078f},       // middle
+    {0.000f, 0.000f, -0.123f}, {0.000f, 0.000f, -0.151f}, {0.000f, 0.000f, -0.173f},
+    {0.010f, 0.000f, -0.010f}, {0.020f, 0.000f, -0.072f},       // ring
+    {0.024f, 0.000f, -0.114f}, {0.026f, 0.000f, -0.140f}, {0.027f, 0.000f, -0.160f},
+    {0.018f, 0.000f, -0.010f}, {0.037f, 0.000f, -0.065f},       // little
+    {0.043f, 0.000f, -0.098f}, {0.046f, 0.000f, -0.118f}, {0.048f, 0.000f, -0.136f},
+};
+
+const int PARENT[HAND_JOINT_COUNT] = {
+    WRIST, -1,
+    WRIST, 2, 3, 4,
+    WRIST, 6, 7, 8, 9,
+    WRIST, 11, 12, 13, 14,
+    WRIST, 16, 17, 18, 19,
+    WRIST, 21, 22, 23, 24,
+};
+
+const float RADIUS[HAND_JOINT_COUNT] = {
+    0.020f, 0.020f,
+    0.012f, 0.010f, 0.009f, 0.008f,
+    0.011f, 0.010f, 0.009f, 0.008f, 0.007f,
+    0.011f, 0.010f, 0.009f, 0.008f, 0.007f,
+    0.010f, 0.009f, 0.008f, 0.007f, 0.006f,
+    0.009f, 0.008f, 0.007f, 0.006f, 0.005f,
+};
+
+// Finger each joint belongs to (0 = thumb), and its share of the finger's curl
+const int FINGER[HAND_JOINT_COUNT] = {
+    -1, -1,
+    0, 0, 0, 0,
+    1, 1, 1, 1, 1,
+    2, 2, 2, 2, 2,
+    3, 3, 3, 3, 3,
+    4, 4, 4, 4, 4,
+};
+
+const float FLEX[HAND_JOINT_COUNT] = {
+    0.0f, 0.0f,
+    0.3f, 0.5f, 0.5f, 0.0f,
+    0.0f, 1.0f, 1.1f, 0.7f, 0.0f,
+    0.0f, 1.0f, 1.1f, 0.7f, 0.0f,
+    0.0f, 1.0f, 1.1f, 0.7f, 0.0f,
+    0.0f, 1.0f, 1.1f, 0.7f, 0.0f,
+};
+
+inline void quatAxisAngle(float ax, float ay, float az, float angle, float out[4]) {
+    float s = std::sin(angle * 0.5f);
+    out[0] = ax * s;
+    out[1] = ay * s;
+    out[2] = az * s;
+    out[3] = std::cos(angle * 0.5f);
+}
+
+// out = a * b; out may alias neither input
+inline void quatMul(const float a[4], const float b[4], float out[4]) {
+    out[0] = a[3] * b[0] + a[0] * b[3] + a[1] * b[2] - a[2] * b[1];
+    out[1] = a[3] * b[1] - a[0] * b[2] + a[1] * b[3] + a[2] * b[0];
+    out[2] = a[3] * b[2] + a[0] * b[1] - a[1] * b[0] + a[2] * b[3];
+    out[3] = a[3] * b[3] - a[0] * b[0] - a[1] * b[1] - a[2] * b[2];
+}
+
+// out = q * v * q^-1
+inline void quatRotate(const float q[4], const float v[3], float out[3]) {
+    float tx = 2.0f * (q[1] * v[2] - q[2] * v[1]);
+    float ty = 2.0f * (q[2] * v[0] - q[0] * v[2]);
+    float tz = 2.0f * (q[0] * v[1] - q[1] * v[0]);
+    out[0] = v[0] + q[3] * tx + (q[1] * tz - q[2] * ty);
+    out[1] = v[1] + q[3] * ty + (q[2] * tx - q[0] * tz);
+    out[2] = v[2] + q[3] * tz + (q[0] * ty - q[1] * tx);
+}
+
+} // namespace
+
+void simulateHandJoints(int hand, const float wrist[3], int64_t timeNanos, HandJointPose out[HAND_JOINT_COUNT]) {
+    float t = static_cast<float>(static_cast<double>(timeNanos) * 1e-9);
+    float mirror = hand == 0 ? -1.0f : 1.0f;
+    float phase = hand == 0 ? TWO_PI * 0.5f : 0.0f;
+
+    // Slow sway of the whole hand, palms turned slightly inward
+    float yaw[4], pitch[4], roll[4], yawPitch[4], handRotation[4];
+    quatAxisAngle(0.0f, 1.0f, 0.0f, 0.25f * std::sin(0.5f * t + phase), yaw);
+    quatAxisAngle(1.0f, 0.0f, 0.0f, 0.2f * std::sin(0.7f * t), pitch);
+    quatAxisAngle(0.0f, 0.0f, 1.0f, -0.3f * mirror, roll);
+    quatMul(yaw, pitch, yawPitch);
+    quatMul(yawPitch, roll, handRotation);
+
+    float curl[5];
+    for (int finger = 0; finger < 5; finger++) {
+        float wave = TWO_PI * t / CURL_PERIOD_SECONDS + 0.5f * static_cast<float>(finger) + phase;
+        curl[finger] = (0.5f - 0.5f * std::cos(wave)) * MAX_CURL_RADIANS;
+    }
+
+    HandJointPose& root = out[WRIST];
+    for (int i = 0; i < 3; i++) {
+        root.position[i] = wrist[i];
+    }
+    for (int i = 0; i < 4; i++) {
+        root.orientation[i] = handRotation[i];
+    }
+    root.radius = RADIUS[WRIST];
+
+    // Parents precede children in XrHandJointEXT order, except the palm's parent, the wrist
+    for (int joint = 0; joint < HAND_JOINT_COUNT; joint++) {
+        if (joint == WRIST) {
+            continue;
+        }
+        const HandJointPose& parent = out[PARENT[joint]];
+        const float* rest = REST_POSITION[joint];
+        const float* parentRest = REST_POSITION[PARENT[joint]];
+        float offset[3] = {
+            (rest[0] - parentRest[0]) * mirror,
+            rest[1] - parentRest[1],
+            rest[2] - parentRest[2],
+        };
+        float rotated[3];
+        quatRotate(parent.orientation, offset, rotated);
+
+        HandJointPose& pose = out[joint];
+        for (int i = 0; i < 3; i++) {
+            pose.position[i] = parent.position[i] + rotated[i];
+        }
+        int finger = FINGER[joint];
+        if (finger >= 0 && FLEX[joint] != 0.0f) {
+            // Flexing turns the bone from -Z toward the palm, a negative turn about X
+            float flex[4];
+            quatAxisAngle(1.0f, 0.0f, 0.0f, -curl[finger] * FLEX[joint], flex);
+            quatMul(parent.orientation, flex, pose.orientation);
+        } else {
+            for (int i = 0; i < 4; i++) {
+                pose.orientation[i] = parent.orientation[i];
+            }
+        }
+        pose.radius = RADIUS[joint];
+    }
+}
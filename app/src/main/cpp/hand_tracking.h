@@ -0,0 +1,59 @@
+/**
+ * Hand Tracking - bulk joint transfer to Java
+ *
+ * Both hands' 26 joint poses are written into one direct ByteBuffer that
+ * Java registers once, so a frame costs a single JNI call however many
+ * joints there are. Joint order follows XR_EXT_hand_tracking
+ * (XrHandJointEXT), so poses from xrLocateHandJointsEXT can be copied in
+ * unchanged.
+ *
+ * Buffer layout, native byte order (HandJoints.java mirrors it):
+ *   int32  sequence      incremented on every publish
+ *   int32  trackedMask   bit 0 = left hand, bit 1 = right hand
+ *   int64  timeNanos     time the poses were predicted for
+ *   then for each hand (left, right) and each of its 26 joints, 8 floats:
+ *     position x, y, z; orientation quaternion x, y, z, w; radius
+ *
+ * Positions are in tracking space, in meters. Joint orientations look down
+ * -Z along the bone toward the fingertip with +Y out of the back of the hand.
+ *
+ * Without hand-tracking hardware, simulateHandJoints() generates hands
+ * anchored at the controller positions, fingers curling in a slow wave.
+ */
+
+#ifndef QUESTVR_HAND_TRACKING_H
+#define QUESTVR_HAND_TRACKING_H
+
+#include <cstdint>
+
+constexpr int HAND_JOINT_COUNT = 26;
+constexpr int HAND_JOINT_FLOATS = 8;
+constexpr int HAND_JOINT_HEADER_BYTES = 16;
+constexpr int HAND_JOINT_BUFFER_BYTES =
+        HAND_JOINT_HEADER_BYTES + 2 * HAND_JOINT_COUNT * HAND_JOINT_FLOATS * 4;
+
+struct HandJointPose {
+    float position[3];
+    float orientation[4];   // unit quaternion x, y, z, w
+    float radius;
+};
+
+struct HandJointBuffer {
+    int32_t sequence;
+    int32_t trackedMask;
+    int64_t timeNanos;
+    HandJointPose joints[2][HAND_JOINT_COUNT];
+};
+
+static_assert(sizeof(HandJointBuffer) == HAND_JOINT_BUFFER_BYTES, "hand joint buffer layout");
+
+/**
+ * Simulated hand for testing without hardware.
+ * @param hand       0 = left, 1 = right
+ * @param wrist      wrist position in tracking space
+ * @param timeNanos  animation time
+ * @param out        receives the 26 joint poses
+ */
+void simulateHandJoints(int hand, const float wrist[3], int64_t timeNanos, HandJointPose out[HAND_JOINT_COUNT]);
+
+#endif // QUESTVR_HAND_TRACKING_H
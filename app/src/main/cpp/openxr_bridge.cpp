@@ -14,6 +14,8 @@
 #include <string>
 #include <cmath>
 
+#include "hand_tracking.h"
+
 #define LOG_TAG "OpenXRBridge"
 #define LOGI(...) __android_log_print(ANDROID_LOG_INFO, LOG_TAG, __VA_ARGS__)
 #define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, __VA_ARGS__)
@@ -51,6 +53,9 @@ struct VRState {
 
 static VRState vrState;
 
+// Java-owned direct buffer that hand joints are published into, see hand_tracking.h
+static HandJointBuffer* handJointBuffer = nullptr;
+
 extern "C" {
 
 /**
@@ -195,6 +200,18 @@ Java_com_quest_helloworld_vr_OpenXRBridge_nativeIsTriggerPressed(
     return hand == 0 ? vrState.triggerLeft : vrState.triggerRight;
 }
 
+/**
+ * Check if grip is pressed
+ */
+JNIEXPORT jboolean JNICALL
+Java_com_quest_helloworld_vr_OpenXRBridge_nativeIsGripPressed(
+        JNIEnv *env,
+        jobject thiz,
+        jint hand) {
+    
+    return hand == 0 ? vrState.gripLeft : vrState.gripRight;
+}
+
 /**
  * Get thumbstick values (returns float array: x, y)
  */
@@ -237,6 +254,90 @@ Java_com_quest_helloworld_vr_OpenXRBridge_nativeUpdateHeadPose(
     vrState.headRotZ = rz;
 }
 
+/**
+ * Update controller state from external source (for testing/simulation/replay)
+ */
+JNIEXPORT void JNICALL
+Java_com_quest_helloworld_vr_OpenXRBridge_nativeUpdateControllerState(
+        JNIEnv *env,
+        jobject thiz,
+        jint hand,
+        jfloat px, jfloat py, jfloat pz,
+        jboolean trigger, jboolean grip,
+        jfloat thumbX, jfloat thumbY) {
+    
+    if (hand == 0) {  // Left
+        vrState.leftHandPosX = px;
+        vrState.leftHandPosY = py;
+        vrState.leftHandPosZ = pz;
+        vrState.triggerLeft = trigger;
+        vrState.gripLeft = grip;
+        vrState.thumbstickLeftX = thumbX;
+        vrState.thumbstickLeftY = thumbY;
+    } else {  // Right
+        vrState.rightHandPosX = px;
+        vrState.rightHandPosY = py;
+        vrState.rightHandPosZ = pz;
+        vrState.triggerRight = trigger;
+        vrState.gripRight = grip;
+        vrState.thumbstickRightX = thumbX;
+        vrState.thumbstickRightY = thumbY;
+    }
+}
+
+/**
+ * Register the direct ByteBuffer hand joints are published into. Java keeps
+ * the buffer alive for as long as it is registered; pass null to unregister.
+ */
+JNIEXPORT jboolean JNICALL
+Java_com_quest_helloworld_vr_OpenXRBridge_nativeSetHandJointBuffer(
+        JNIEnv *env,
+        jobject thiz,
+        jobject buffer) {
+    
+    handJointBuffer = nullptr;
+    if (buffer == nullptr) {
+        return JNI_TRUE;
+    }
+    
+    void* address = env->GetDirectBufferAddress(buffer);
+    if (address == nullptr || env->GetDirectBufferCapacity(buffer) < HAND_JOINT_BUFFER_BYTES) {
+        LOGE("Hand joint buffer must be direct and at least %d bytes", HAND_JOINT_BUFFER_BYTES);
+        return JNI_FALSE;
+    }
+    handJointBuffer = static_cast<HandJointBuffer*>(address);
+    return JNI_TRUE;
+}
+
+/**
+ * Publish both hands' joints into the registered buffer - one call per frame
+ * 
+ * In a full implementation this would call xrLocateHandJointsEXT for each
+ * hand at the predicted display time and copy the joint locations across.
+ * Returns the tracked-hand mask also written to the buffer header.
+ */
+JNIEXPORT jint JNICALL
+Java_com_quest_helloworld_vr_OpenXRBridge_nativeUpdateHandJoints(
+        JNIEnv *env,
+        jobject thiz,
+        jlong timeNanos) {
+    
+    if (!vrState.initialized || handJointBuffer == nullptr) {
+        return 0;
+    }
+    
+    // Simulated hands hang where the controllers are
+    const float left[3] = {vrState.leftHandPosX, vrState.leftHandPosY, vrState.leftHandPosZ};
+    const float right[3] = {vrState.rightHandPosX, vrState.rightHandPosY, vrState.rightHandPosZ};
+    simulateHandJoints(0, left, timeNanos, handJointBuffer->joints[0]);
+    simulateHandJoints(1, right, timeNanos, handJointBuffer->joints[1]);
+    
+    handJointBuffer->trackedMask = 0x3;
+    handJointBuffer->timeNanos = timeNanos;
+    handJointBuffer->sequence++;
+    return handJointBuffer->trackedMask;
+}
+
 /**
  * Check if VR is initialized
  */
@@ -0,0 +1,112 @@
+/**
+ * Program binaries - lets the shader warm-up save linked GL programs to disk
+ * with glGetProgramBinary and recreate them with glProgramBinary, skipping
+ * shader compilation on later launches.
+ *
+ * All functions must be called on the GL thread with a current context.
+ */
+
+#include <jni.h>
+#include <android/log.h>
+#include <GLES3/gl3.h>
+#include <string>
+#include <vector>
+
+#define LOG_TAG "ProgramBinaries"
+#define LOGW(...) __android_log_print(ANDROID_LOG_WARN, LOG_TAG, __VA_ARGS__)
+
+static std::string glString(GLenum name) {
+    const GLubyte *value = glGetString(name);
+    return value != nullptr ? reinterpret_cast<const char *>(value) : "";
+}
+
+extern "C" {
+
+/**
+ * Vendor, renderer and version strings of the current context, joined by
+ * newlines - a driver update changes the version string
+ */
+JNIEXPORT jstring JNICALL
+Java_com_quest_helloworld_shader_ProgramBinaries_nativeGetDriverInfo(
+        JNIEnv *env,
+        jclass clazz) {
+    std::string info = glString(GL_VENDOR) + "\n" + glString(GL_RENDERER) + "\n" + glString(GL_VERSION);
+    return env->NewStringUTF(info.c_str());
+}
+
+/**
+ * Number of program binary formats the driver supports; 0 means binaries
+ * can't be saved
+ */
+JNIEXPORT jint JNICALL
+Java_com_quest_helloworld_shader_ProgramBinaries_nativeGetBinaryFormatCount(
+        JNIEnv *env,
+        jclass clazz) {
+    GLint count = 0;
+    glGetIntegerv(GL_NUM_PROGRAM_BINARY_FORMATS, &count);
+    return count;
+}
+
+/**
+ * Retrieve a linked program's binary. Writes the binary format to
+ * formatOut[0]; returns null if the driver has none for this program
+ */
+JNIEXPORT jbyteArray JNICALL
+Java_com_quest_helloworld_shader_ProgramBinaries_nativeGetProgramBinary(
+        JNIEnv *env,
+        jclass clazz,
+        jint program,
+        jintArray formatOut) {
+    GLint length = 0;
+    glGetProgramiv(static_cast<GLuint>(program), GL_PROGRAM_BINARY_LENGTH, &length);
+    if (length <= 0) {
+        return nullptr;
+    }
+
+    std::vector<jbyte> binary(static_cast<size_t>(length));
+    GLsizei written = 0;
+    GLenum format = 0;
+    glGetProgramBinary(static_cast<GLuint>(program), length, &written, &format, binary.data());
+    if (glGetError() != GL_NO_ERROR || written <= 0) {
+        LOGW("glGetProgramBinary failed for program %d", program);
+        return nullptr;
+    }
+
+    jint formatValue = static_cast<jint>(format);
+    env->SetIntArrayRegion(formatOut, 0, 1, &formatValue);
+    jbyteArray result = env->NewByteArray(written);
+    env->SetByteArrayRegion(result, 0, written, binary.data());
+    return result;
+}
+
+/**
+ * Create a program from a saved binary. Returns the program name, or 0 if
+ * the driver rejected the binary - it does after a driver update - in which
+ * case the caller compiles from source instead
+ */
+JNIEXPORT jint JNICALL
+Java_com_quest_helloworld_shader_ProgramBinaries_nativeCreateProgram(
+        JNIEnv *env,
+        jclass clazz,
+        jint format,
+        jbyteArray binary) {
+    jsize length = env->GetArrayLength(binary);
+    jbyte *data = env->GetByteArrayElements(binary, nullptr);
+
+    GLuint program = glCreateProgram();
+    glProgramBinary(program, static_cast<GLenum>(format), data, length);
+    env->ReleaseByteArrayElements(binary, data, JNI_ABORT);
+
+    GLint linked = GL_FALSE;
+    glGetProgramiv(program, GL_LINK_STATUS, &linked);
+    if (linked != GL_TRUE) {
+        glDeleteProgram(program);
+        // Clear the error glProgramBinary may have raised so jME's checks don't trip on it
+        while (glGetError() != GL_NO_ERROR) {
+        }
+        return 0;
+    }
+    return static_cast<jint>(program);
+}
+
+} // extern "C"
@@ -0,0 +1,241 @@
+/**
+ * Stereo Math - batched eye matrix computation
+ *
+ * Must be compiled with floating-point contraction disabled
+ * (-ffp-contract=off) so the compiler never fuses a multiply and an add in
+ * one path but not the other; the NEON and reference paths then perform
+ * the same IEEE operations in the same order and agree bit for bit.
+ */
+
+#include "stereo_math.h"
+
+#if defined(__aarch64__)
+#include <arm_neon.h>
+#define STEREO_MATH_NEON 1
+#endif
+
+namespace {
+
+// ---------------------------------------------------------------------------
+// 4-lane float vector: NEON on arm64, scalar emulation elsewhere
+// ---------------------------------------------------------------------------
+
+#ifdef STEREO_MATH_NEON
+
+typedef float32x4_t vec4;
+
+inline vec4 vLoad(const float* p) { return vld1q_f32(p); }
+inline void vStore(float* p, vec4 v) { vst1q_f32(p, v); }
+inline vec4 vSet(float a, float b, float c, float d) {
+    const float lanes[4] = {a, b, c, d};
+    return vld1q_f32(lanes);
+}
+inline vec4 vAdd(vec4 a, vec4 b) { return vaddq_f32(a, b); }
+inline vec4 vSub(vec4 a, vec4 b) { return vsubq_f32(a, b); }
+inline vec4 vMul(vec4 a, vec4 b) { return vmulq_f32(a, b); }
+inline vec4 vScale(vec4 a, float s) { return vmulq_n_f32(a, s); }
+inline vec4 vDiv(vec4 a, vec4 b) { return vdivq_f32(a, b); }
+inline vec4 vNeg(vec4 a) { return vnegq_f32(a); }
+
+#else
+
+struct vec4 {
+    float v[4];
+};
+
+inline vec4 vLoad(const float* p) { return vec4{{p[0], p[1], p[2], p[3]}}; }
+inline void vStore(float* p, const vec4& a) { p[0] = a.v[0]; p[1] = a.v[1]; p[2] = a.v[2]; p[3] = a.v[3]; }
+inline vec4 vSet(float a, float b, float c, float d) { return vec4{{a, b, c, d}}; }
+inline vec4 vAdd(const vec4& a, const vec4& b) {
+    return vec4{{a.v[0] + b.v[0], a.v[1] + b.v[1], a.v[2] + b.v[2], a.v[3] + b.v[3]}};
+}
+inline vec4 vSub(const vec4& a, const vec4& b) {
+    return vec4{{a.v[0] - b.v[0], a.v[1] - b.v[1], a.v[2] - b.v[2], a.v[3] - b.v[3]}};
+}
+inline vec4 vMul(const vec4& a, const vec4& b) {
+    return vec4{{a.v[0] * b.v[0], a.v[1] * b.v[1], a.v[2] * b.v[2], a.v[3] * b.v[3]}};
+}
+inline vec4 vScale(const vec4& a, float s) {
+    return vec4{{a.v[0] * s, a.v[1] * s, a.v[2] * s, a.v[3] * s}};
+}
+inline vec4 vDiv(const vec4& a, const vec4& b) {
+    return vec4{{a.v[0] / b.v[0], a.v[1] / b.v[1], a.v[2] / b.v[2], a.v[3] / b.v[3]}};
+}
+inline vec4 vNeg(const vec4& a) { return vec4{{-a.v[0], -a.v[1], -a.v[2], -a.v[3]}}; }
+
+#endif
+
+/**
+ * Rotation matrix of a unit quaternion, row-major m[row][col].
+ */
+void quatToRotation(const float q[4], float m[3][3]) {
+    const float x = q[0], y = q[1], z = q[2], w = q[3];
+    const float xx = x * x, yy = y * y, zz = z * z;
+    const float xy = x * y, xz = x * z, yz = y * z;
+    const float wx = w * x, wy = w * y, wz = w * z;
+
+    m[0][0] = 1.0f - 2.0f * (yy + zz);
+    m[0][1] = 2.0f * (xy - wz);
+    m[0][2] = 2.0f * (xz + wy);
+    m[1][0] = 2.0f * (xy + wz);
+    m[1][1] = 1.0f - 2.0f * (xx + zz);
+    m[1][2] = 2.0f * (yz - wx);
+    m[2][0] = 2.0f * (xz - wy);
+    m[2][1] = 2.0f * (yz + wx);
+    m[2][2] = 1.0f - 2.0f * (xx + yy);
+}
+
+/**
+ * out = a * b for column-major 4x4 matrices, one output column per iteration.
+ */
+inline void mat4Multiply(const float* a, const float* b, float* out) {
+    const vec4 c0 = vLoad(a);
+    const vec4 c1 = vLoad(a + 4);
+    const vec4 c2 = vLoad(a + 8);
+    const vec4 c3 = vLoad(a + 12);
+
+    for (int j = 0; j < 4; j++) {
+        const float* bc = b + j * 4;
+        vec4 r = vScale(c0, bc[0]);
+        r = vAdd(r, vScale(c1, bc[1]));
+        r = vAdd(r, vScale(c2, bc[2]));
+        r = vAdd(r, vScale(c3, bc[3]));
+        vStore(out + j * 4, r);
+    }
+}
+
+/**
+ * Depth terms of an OpenGL perspective projection.
+ */
+inline void depthTerms(float nearClip, float farClip, float& a, float& b) {
+    const float range = farClip - nearClip;
+    a = -(farClip + nearClip) / range;
+    b = -(2.0f * farClip * nearClip) / range;
+}
+
+} // namespace
+
+void computeStereoMatrices(const HeadPose& pose, const StereoParams& params, EyeMatrices out[2]) {
+    float m[3][3];
+    quatToRotation(pose.orientation, m);
+
+    // Columns 0..2 of every view matrix are the rows of the head rotation (R transposed)
+    const vec4 viewCol0 = vSet(m[0][0], m[0][1], m[0][2], 0.0f);
+    const vec4 viewCol1 = vSet(m[1][0], m[1][1], m[1][2], 0.0f);
+    const vec4 viewCol2 = vSet(m[2][0], m[2][1], m[2][2], 0.0f);
+
+    // Eyes sit along the head's local X axis (column 0 of R)
+    const vec4 headRight = vSet(m[0][0], m[1][0], m[2][0], 0.0f);
+    const vec4 headPos = vSet(pose.position[0], pose.position[1], pose.position[2], 0.0f);
+    const float halfIpd = params.ipd * 0.5f;
+
+    for (int eye = 0; eye < 2; eye++) {
+        float eyePos[4];
+        vStore(eyePos, vAdd(headPos, vScale(headRight, eye == 0 ? -halfIpd : halfIpd)));
+
+        // Translation = -R^T * eyePos
+        vec4 t = vScale(viewCol0, eyePos[0]);
+        t = vAdd(t, vScale(viewCol1, eyePos[1]));
+        t = vAdd(t, vScale(viewCol2, eyePos[2]));
+        t = vNeg(t);
+
+        float* view = out[eye].view;
+        vStore(view, viewCol0);
+        vStore(view + 4, viewCol1);
+        vStore(view + 8, viewCol2);
+        vStore(view + 12, t);
+        view[15] = 1.0f;
+    }
+
+    // Horizontal and vertical terms for both eyes in one vector: (x0, y0, x1, y1)
+    const EyeFov& l = params.fov[0];
+    const EyeFov& r = params.fov[1];
+    const vec4 positive = vSet(l.right, l.up, r.right, r.up);
+    const vec4 negative = vSet(l.left, l.down, r.left, r.down);
+    const vec4 extent = vAdd(positive, negative);
+    float scale[4], offset[4];
+    vStore(scale, vDiv(vSet(2.0f, 2.0f, 2.0f, 2.0f), extent));
+    vStore(offset, vDiv(vSub(positive, negative), extent));
+
+    float depthA, depthB;
+    depthTerms(params.nearClip, params.farClip, depthA, depthB);
+
+    const vec4 zero = vSet(0.0f, 0.0f, 0.0f, 0.0f);
+    for (int eye = 0; eye < 2; eye++) {
+        float* proj = out[eye].projection;
+        vStore(proj, vSet(scale[eye * 2], 0.0f, 0.0f, 0.0f));
+        vStore(proj + 4, vSet(0.0f, scale[eye * 2 + 1], 0.0f, 0.0f));
+        vStore(proj + 8, vSet(offset[eye * 2], offset[eye * 2 + 1], depthA, -1.0f));
+        vStore(proj + 12, zero);
+        proj[14] = depthB;
+
+        mat4Multiply(proj, out[eye].view, out[eye].viewProjection);
+    }
+}
+
+void computeStereoMatricesReference(const HeadPose& pose, const StereoParams& params, EyeMatrices out[2]) {
+    float m[3][3];
+    quatToRotation(pose.orientation, m);
+
+    const float halfIpd = params.ipd * 0.5f;
+    float depthA, depthB;
+    depthTerms(params.nearClip, params.farClip, depthA, depthB);
+
+    for (int eye = 0; eye < 2; eye++) {
+        const float offset = eye == 0 ? -halfIpd : halfIpd;
+        float eyePos[3];
+        for (int i = 0; i < 3; i++) {
+            eyePos[i] = pose.position[i] + m[i][0] * offset;
+        }
+
+        // View: inverse of the rigid eye transform
+        float* view = out[eye].view;
+        for (int c = 0; c < 3; c++) {
+            for (int r = 0; r < 3; r++) {
+                view[c * 4 + r] = m[c][r];
+            }
+            view[c * 4 + 3] = 0.0f;
+        }
+        for (int r = 0; r < 3; r++) {
+            float sum = m[0][r] * eyePos[0];
+            sum = sum + m[1][r] * eyePos[1];
+            sum = sum + m[2][r] * eyePos[2];
+            view[12 + r] = -sum;
+        }
+        view[15] = 1.0f;
+
+        // Projection from FOV tangents
+        const EyeFov& fov = params.fov[eye];
+        float* proj = out[eye].projection;
+        for (int i = 0; i < 16; i++) {
+            proj[i] = 0.0f;
+        }
+        proj[0] = 2.0f / (fov.right + fov.left);
+        proj[5] = 2.0f / (fov.up + fov.down);
+        proj[8] = (fov.right - fov.left) / (fov.right + fov.left);
+        proj[9] = (fov.up - fov.down) / (fov.up + fov.down);
+        proj[10] = depthA;
+        proj[11] = -1.0f;
+        proj[14] = depthB;
+
+        // View-projection = projection * view
+        float* vp = out[eye].viewProjection;
+        for (int j = 0; j < 4; j++) {
+            for (int i = 0; i < 4; i++) {
+                float sum = proj[i] * view[j * 4];
+                sum = sum + proj[4 + i] * view[j * 4 + 1];
+                sum = sum + proj[8 + i] * view[j * 4 + 2];
+                sum = sum + proj[12 + i] * view[j * 4 + 3];
+                vp[j * 4 + i] = sum;
+            }
+        }
+    }
+}
+
+const char* stereoMathBackend() {
+#ifdef STEREO_MATH_NEON
+    return "neon";
+#else
+    return "scalar";
+#endif
+}
@@ -0,0 +1,59 @@
+/**
+ * Stereo Math - batched eye matrix computation
+ *
+ * Computes view, projection and view-projection matrices for both eyes
+ * from a single head pose in one call. All matrices are 4x4, column-major
+ * (OpenGL convention).
+ *
+ * The optimized path uses NEON on arm64 and a portable 4-lane scalar
+ * emulation elsewhere. Both produce results bit-for-bit identical to
+ * computeStereoMatricesReference(), which is a straightforward per-element
+ * implementation kept for verification.
+ */
+
+#ifndef QUESTVR_STEREO_MATH_H
+#define QUESTVR_STEREO_MATH_H
+
+// Head pose in tracking space
+struct HeadPose {
+    float position[3];      // meters
+    float orientation[4];   // unit quaternion x, y, z, w
+};
+
+// Tangents of the half-angles of an eye's field of view, all positive
+struct EyeFov {
+    float left;
+    float right;
+    float up;
+    float down;
+};
+
+struct StereoParams {
+    float ipd;              // meters
+    float nearClip;
+    float farClip;
+    EyeFov fov[2];          // 0 = left eye, 1 = right eye
+};
+
+struct EyeMatrices {
+    float view[16];
+    float projection[16];
+    float viewProjection[16];
+};
+
+/**
+ * Compute both eyes' matrices. out[0] is the left eye, out[1] the right eye.
+ */
+void computeStereoMatrices(const HeadPose& pose, const StereoParams& params, EyeMatrices out[2]);
+
+/**
+ * Scalar reference implementation of computeStereoMatrices().
+ */
+void computeStereoMatricesReference(const HeadPose& pose, const StereoParams& params, EyeMatrices out[2]);
+
+/**
+ * Name of the SIMD backend compiled into computeStereoMatrices() ("neon" or "scalar").
+ */
+const char* stereoMathBackend();
+
+#endif // QUESTVR_STEREO_MATH_H
@@ -0,0 +1,138 @@
+/**
+ * Host check and benchmark for stereo_math
+ *
+ * Built only for non-Android targets. Verifies computeStereoMatrices()
+ * against computeStereoMatricesReference() bit for bit over a large set of
+ * pseudo-random poses and FOVs, then times both.
+ *
+ * Usage: questvr_stereo_math_bench [iterations]
+ * Exit code is non-zero if any output differs.
+ */
+
+#include "stereo_math.h"
+
+#include <chrono>
+#include <cmath>
+#include <cstdint>
+#include <cstdio>
+#include <cstdlib>
+#include <cstring>
+#include <vector>
+
+namespace {
+
+// Small deterministic generator so runs are reproducible across machines
+struct Lcg {
+    uint64_t state;
+    explicit Lcg(uint64_t seed) : state(seed) {}
+    float next() {
+        state = state * 6364136223846793005ULL + 1442695040888963407ULL;
+        return static_cast<float>((state >> 40) & 0xFFFFFF) / static_cast<float>(0x1000000);
+    }
+    float range(float lo, float hi) { return lo + (hi - lo) * next(); }
+};
+
+void randomCase(Lcg& rng, HeadPose& pose, StereoParams& params) {
+    pose.position[0] = rng.range(-50.0f, 50.0f);
+    pose.position[1] = rng.range(0.0f, 3.0f);
+    pose.position[2] = rng.range(-50.0f, 50.0f);
+
+    float q[4];
+    float lengthSq = 0.0f;
+    for (int i = 0; i < 4; i++) {
+        q[i] = rng.range(-1.0f, 1.0f);
+        lengthSq += q[i] * q[i];
+    }
+    const float inv = 1.0f / std::sqrt(lengthSq > 1e-6f ? lengthSq : 1.0f);
+    for (int i = 0; i < 4; i++) {
+        pose.orientation[i] = q[i] * inv;
+    }
+
+    params.ipd = rng.range(0.054f, 0.074f);
+    params.nearClip = rng.range(0.01f, 0.5f);
+    params.farClip = rng.range(50.0f, 1000.0f);
+    for (int eye = 0; eye < 2; eye++) {
+        params.fov[eye].left = std::tan(rng.range(0.6f, 0.9f));
+        params.fov[eye].right = std::tan(rng.range(0.6f, 0.9f));
+        params.fov[eye].up = std::tan(rng.range(0.7f, 0.95f));
+        params.fov[eye].down = std::tan(rng.range(0.7f, 0.95f));
+    }
+}
+
+bool sameBits(const EyeMatrices a[2], const EyeMatrices b[2]) {
+    return std::memcmp(a, b, sizeof(EyeMatrices) * 2) == 0;
+}
+
+void printMismatch(const EyeMatrices a[2], const EyeMatrices b[2]) {
+    const float* fa = reinterpret_cast<const float*>(a);
+    const float* fb = reinterpret_cast<const float*>(b);
+    const int count = static_cast<int>(sizeof(EyeMatrices) * 2 / sizeof(float));
+    for (int i = 0; i < count; i++) {
+        if (std::memcmp(&fa[i], &fb[i], sizeof(float)) != 0) {
+            std::printf("  element %d: optimized %.9g, reference %.9g\n", i, fa[i], fb[i]);
+        }
+    }
+}
+
+template <typename Fn>
+double timeNanosPerCall(Fn fn, const std::vector<HeadPose>& poses, const StereoParams& params,
+                        int iterations, float& sink) {
+    EyeMatrices out[2];
+    const auto start = std::chrono::steady_clock::now();
+    for (int i = 0; i < iterations; i++) {
+        fn(poses[i % poses.size()], params, out);
+        sink += out[i & 1].viewProjection[i & 15];
+    }
+    const auto end = std::chrono::steady_clock::now();
+    return std::chrono::duration<double, std::nano>(end - start).count() / iterations;
+}
+
+} // namespace
+
+int main(int argc, char** argv) {
+    const int iterations = argc > 1 ? std::atoi(argv[1]) : 2000000;
+    std::printf("stereo_math backend: %s\n", stereoMathBackend());
+
+    // Correctness
+    Lcg rng(0x5EED);
+    int mismatches = 0;
+    const int cases = 100000;
+    for (int i = 0; i < cases; i++) {
+        HeadPose pose;
+        StereoParams params;
+        randomCase(rng, pose, params);
+
+        EyeMatrices optimized[2];
+        EyeMatrices reference[2];
+        computeStereoMatrices(pose, params, optimized);
+        computeStereoMatricesReference(pose, params, reference);
+
+        if (!sameBits(optimized, reference)) {
+            if (mismatches < 5) {
+                std::printf("Mismatch in case %d:\n", i);
+                printMismatch(optimized, reference);
+            }
+            mismatches++;
+        }
+    }
+    std::printf("bit-exact check: %d/%d cases match\n", cases - mismatches, cases);
+
+    // Benchmark
+    std::vector<HeadPose> poses(1024);
+    StereoParams params;
+    for (HeadPose& pose : poses) {
+        randomCase(rng, pose, params);
+    }
+
+    float sink = 0.0f;
+    // Warm up caches and branch predictors
+    timeNanosPerCall(computeStereoMatrices, poses, params, iterations / 10 + 1, sink);
+    const double optimizedNs = timeNanosPerCall(computeStereoMatrices, poses, params, iterations, sink);
+    const double referenceNs = timeNanosPerCall(computeStereoMatricesReference, poses, params, iterations, sink);
+
+    std::printf("computeStereoMatrices:          %8.2f ns/call (both eyes)\n", optimizedNs);
+    std::printf("computeStereoMatricesReference: %8.2f ns/call (both eyes)\n", referenceNs);
+    std::printf("speedup: %.2fx (checksum %g)\n", referenceNs / optimizedNs, sink);
+
+    return mismatches == 0 ? 0 : 1;
+}
@@ -11,6 +11,9 @@
 #include <android/log.h>
 #include <GLES3/gl3.h>
 #include <cmath>
+#include <cstdio>
+
+#include "stereo_math.h"
 
 #define LOG_TAG "VRRenderer"
 #define LOGI(...) __android_log_print(ANDROID_LOG_INFO, LOG_TAG, __VA_ARGS__)
@@ -22,12 +25,50 @@ static const int EYE_HEIGHT = 1760;
 // IPD (Inter-Pupillary Distance) in meters
 static const float IPD = 0.063f;
 
+// Floats per eye in nativeComputeEyeMatrices' output, VRRenderer.EYE_MATRICES_STRIDE
+static const int EYE_MATRICES_FLOATS = sizeof(EyeMatrices) / sizeof(float);
+
 // Field of view
 static const float FOV_LEFT = 45.0f;   // degrees
 static const float FOV_RIGHT = 45.0f;
 static const float FOV_UP = 50.0f;
 static const float FOV_DOWN = 55.0f;
 
+/**
+ * FOV tangents for an eye, matching the frustum of nativeGetProjectionMatrix
+ */
+static EyeFov eyeFovTangents(int eye) {
+    const float DEG_TO_RAD = 3.14159265f / 180.0f;
+    EyeFov fov;
+    fov.left = tanf(FOV_LEFT * DEG_TO_RAD);
+    fov.right = tanf(FOV_RIGHT * DEG_TO_RAD);
+    fov.up = tanf(FOV_UP * DEG_TO_RAD);
+    fov.down = tanf(FOV_DOWN * DEG_TO_RAD);
+    
+    // Slightly less toward the nose
+    if (eye == 0) {
+        fov.right *= 0.9f;
+    } else {
+        fov.left *= 0.9f;
+    }
+    return fov;
+}
+
+/**
+ * Throw IllegalArgumentException unless the array holds at least the given
+ * number of floats. Returns false if it threw.
+ */
+static bool checkLength(JNIEnv *env, jfloatArray array, jsize required, const char* name) {
+    jsize length = array != nullptr ? env->GetArrayLength(array) : 0;
+    if (length >= required) {
+        return true;
+    }
+    char message[96];
+    snprintf(message, sizeof(message), "%s needs %d floats, got %d", name, (int) required, (int) length);
+    env->ThrowNew(env->FindClass("java/lang/IllegalArgumentException"), message);
+    return false;
+}
+
 extern "C" {
 
 /**
@@ -107,6 +148,68 @@ Java_com_quest_helloworld_vr_VRRenderer_nativeGetProjectionMatrix(
     return result;
 }
 
+/**
+ * Get FOV tangents for both eyes
+ * Fills an 8-element float array: left eye (left, right, up, down), then right eye
+ */
+JNIEXPORT void JNICALL
+Java_com_quest_helloworld_vr_VRRenderer_nativeGetFovTangents(
+        JNIEnv *env,
+        jobject thiz,
+        jfloatArray out) {
+    
+    if (!checkLength(env, out, 8, "out")) {
+        return;
+    }
+    EyeFov fov[2] = {eyeFovTangents(0), eyeFovTangents(1)};
+    env->SetFloatArrayRegion(out, 0, 8, reinterpret_cast<const float*>(fov));
+}
+
+/**
+ * Compute view, projection and view-projection matrices for both eyes in one call
+ * 
+ * headPose:    7 floats - position x, y, z and orientation quaternion x, y, z, w
+ * fovTangents: 8 floats - as returned by nativeGetFovTangents
+ * out:         96 floats - per eye (left, then right): view, projection, view-projection,
+ *              each a 4x4 column-major matrix
+ * Throws IllegalArgumentException if an array is shorter than that.
+ */
+JNIEXPORT void JNICALL
+Java_com_quest_helloworld_vr_VRRenderer_nativeComputeEyeMatrices(
+        JNIEnv *env,
+        jobject thiz,
+        jfloatArray headPose,
+        jfloat ipd,
+        jfloatArray fovTangents,
+        jfloat nearClip,
+        jfloat farClip,
+        jfloatArray out) {
+    
+    // The critical section below writes all 96 floats unchecked
+    if (!checkLength(env, headPose, 7, "headPose")
+            || !checkLength(env, fovTangents, 8, "fovTangents")
+            || !checkLength(env, out, 2 * EYE_MATRICES_FLOATS, "out")) {
+        return;
+    }
+    
+    HeadPose pose;
+    StereoParams params;
+    env->GetFloatArrayRegion(headPose, 0, 3, pose.position);
+    env->GetFloatArrayRegion(headPose, 3, 4, pose.orientation);
+    env->GetFloatArrayRegion(fovTangents, 0, 8, reinterpret_cast<float*>(params.fov));
+    params.ipd = ipd;
+    params.nearClip = nearClip;
+    params.farClip = farClip;
+    
+    // Write straight into the Java array - no intermediate copy of the 96 floats
+    void* outData = env->GetPrimitiveArrayCritical(out, nullptr);
+    if (outData == nullptr) {
+        return;
+    }
+    computeStereoMatrices(pose, params, static_cast<EyeMatrices*>(outData));
+    env->ReleasePrimitiveArrayCritical(out, outData, 0);
+}
+
 /**
  * Get IPD (Inter-Pupillary Distance)
  */
@@ -1,5 +1,6 @@
 package com.quest.helloworld;
 
+import android.content.Intent;
 import android.opengl.GLSurfaceView;
 import android.os.Bundle;
 import android.util.Log;
@@ -8,6 +9,13 @@ import android.view.WindowManager;
 import android.widget.FrameLayout;
 
 import com.jme3.app.AndroidHarness;
+import com.quest.helloworld.startup.StartupTrace;
+import com.quest.helloworld.post.PostProcessMode;
+import com.quest.helloworld.shadow.StereoShadowMode;
+import com.quest.helloworld.trace.PoseTracePlayer;
+
+import java.io.File;
+import java.util.Locale;
 
 /**
  * Main Activity that hosts the jMonkeyEngine VR application.
@@ -16,6 +24,21 @@ import com.jme3.app.AndroidHarness;
 public class MainActivity extends AndroidHarness {
 
     private static final String TAG = "QuestMainActivity";
+    
+    // Intent extras, e.g. adb shell am start -n ... --es pose_trace_replay /sdcard/walk.qpt
+    public static final String EXTRA_POSE_TRACE_RECORD = "pose_trace_record";
+    public static final String EXTRA_POSE_TRACE_REPLAY = "pose_trace_replay";
+    public static final String EXTRA_POSE_TRACE_FAST = "pose_trace_fast";
+    public static final String EXTRA_SIMULATION_THREAD = "simulation_thread";
+    public static final String EXTRA_PERF_HUD = "perf_hud";
+    public static final String EXTRA_HAND_TRACKING = "hand_tracking";
+    public static final String EXTRA_PARTICLES = "particles";
+    public static final String EXTRA_SHADOWS = "shadows";
+    public static final String EXTRA_POST = "post";
+    public static final String EXTRA_OCCLUSION = "occlusion";
+    public static final String EXTRA_BROADPHASE = "broadphase";
+    public static final String EXTRA_MESH_COMPRESSION = "mesh_compression";
+    public static final String EXTRA_STREAMING = "streaming";
 
     public MainActivity() {
         // Configure jME3 application class - instantiated via reflection
@@ -44,11 +67,35 @@ public class MainActivity extends AndroidHarness {
         // Keep screen on
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         
-        // Call parent which creates the jME view
+        QuestHelloWorldApp application = QuestHelloWorldApp.getInstance();
+        StartupTrace trace = application != null ? application.getStartupTrace() : null;
+        
+        // Call parent which creates the jME view, instantiating the app class
+        StartupTrace.Span span = trace != null ? trace.begin("AndroidHarness.onCreate") : null;
         super.onCreate(savedInstanceState);
+        if (span != null) {
+            span.close();
+        }
         
         Log.i(TAG, "MainActivity created");
         
+        // Before simpleInitApp, which runs once the GL surface exists
+        if (application != null && app instanceof QuestVRApplication) {
+            application.getAppComponent().inject((QuestVRApplication) app);
+            ((QuestVRApplication) app).setStartupTrace(trace);
+        }
+        
+        configurePoseTrace();
+        configureFeatures();
+        
+        if (app instanceof QuestVRApplication) {
+            ((QuestVRApplication) app).setShaderCacheDir(new File(getCacheDir(), "program-binaries"));
+            ((QuestVRApplication) app).setMappedAssets(getAssets(), findObb());
+            // Only a recreated activity picks up where the last process left off
+            ((QuestVRApplication) app).setSnapshotFile(new File(getCacheDir(), "scene-snapshot.bin"),
+                    savedInstanceState != null);
+        }
+        
         // Log the view hierarchy for debugging
         if (view != null) {
             Log.i(TAG, "jME view created: " + view.getClass().getSimpleName());
@@ -73,6 +120,153 @@ public class MainActivity extends AndroidHarness {
         }
     }
 
+    /**
+     * The main expansion file, main.&lt;version&gt;.&lt;package&gt;.obb, or null if none was installed.
+     */
+    private File findObb() {
+        File[] files = getObbDir().listFiles((dir, name) -> name.startsWith("main.") && name.endsWith(".obb"));
+        return files != null && files.length > 0 ? files[0] : null;
+    }
+
+    /**
+     * Pass pose trace options from the launch intent to the application.
+     */
+    private void configurePoseTrace() {
+        if (!(app instanceof QuestVRApplication) || getIntent() == null) {
+            return;
+        }
+        QuestVRApplication vrApp = (QuestVRApplication) app;
+        
+        String record = getIntent().getStringExtra(EXTRA_POSE_TRACE_RECORD);
+        String replay = getIntent().getStringExtra(EXTRA_POSE_TRACE_REPLAY);
+        if (replay != null) {
+            PoseTracePlayer.Mode mode = getIntent().getBooleanExtra(EXTRA_POSE_TRACE_FAST, false)
+                    ? PoseTracePlayer.Mode.AS_FAST_AS_POSSIBLE
+                    : PoseTracePlayer.Mode.REAL_TIME;
+            vrApp.setPoseTraceReplay(this, new File(replay), mode);
+            Log.i(TAG, "Pose trace replay: " + replay + " (" + mode + ")");
+        } else if (record != null) {
+            vrApp.setPoseTraceRecord(this, new File(record));
+            Log.i(TAG, "Pose trace record: " + record);
+        }
+    }
+
+    /**
+     * Turn on the optional features the launch intent asks for, e.g.
+     * adb shell am start -n ... --ez perf_hud true --ei particles 50000
+     */
+    private void configureFeatures() {
+        if (!(app instanceof QuestVRApplication) || getIntent() == null) {
+            return;
+        }
+        QuestVRApplication vrApp = (QuestVRApplication) app;
+        Intent intent = getIntent();
+        
+        configureSimulationThread(vrApp, intent);
+        configurePerfHud(vrApp, intent);
+        configureHandTracking(vrApp, intent);
+        configureParticles(vrApp, intent);
+        configureShadows(vrApp, intent);
+        configurePost(vrApp, intent);
+        configureOcclusion(vrApp, intent);
+        configureBroadphase(vrApp, intent);
+        configureMeshCompression(vrApp, intent);
+        configureStreaming(vrApp, intent);
+    }
+
+    /** Simulation on its own fixed-tick thread (--ez simulation_thread true). */
+    private void configureSimulationThread(QuestVRApplication vrApp, Intent intent) {
+        if (intent.getBooleanExtra(EXTRA_SIMULATION_THREAD, false)) {
+            vrApp.setSimulationThreadEnabled(true);
+            Log.i(TAG, "Simulation thread enabled");
+        }
+    }
+
+    /** Performance HUD shown from launch (--ez perf_hud true). */
+    private void configurePerfHud(QuestVRApplication vrApp, Intent intent) {
+        if (intent.getBooleanExtra(EXTRA_PERF_HUD, false)) {
+            vrApp.setPerfHudVisible(true);
+            Log.i(TAG, "Performance HUD shown");
+        }
+    }
+
+    /** Tracked hands (--ez hand_tracking true). */
+    private void configureHandTracking(QuestVRApplication vrApp, Intent intent) {
+        if (intent.getBooleanExtra(EXTRA_HAND_TRACKING, false)) {
+            vrApp.setHandTrackingEnabled(this, true);
+            Log.i(TAG, "Hand tracking enabled");
+        }
+    }
+
+    /** Ambient particles filling the room (--ei particles 50000). */
+    private void configureParticles(QuestVRApplication vrApp, Intent intent) {
+        int particles = intent.getIntExtra(EXTRA_PARTICLES, 0);
+        if (particles > 0) {
+            vrApp.setAmbientParticles(particles);
+            Log.i(TAG, "Ambient particles: " + particles);
+        }
+    }
+
+    /** Sun shadows (--es shadows shared or per_viewport). */
+    private void configureShadows(QuestVRApplication vrApp, Intent intent) {
+        String shadows = intent.getStringExtra(EXTRA_SHADOWS);
+        if (shadows == null) {
+            return;
+        }
+        try {
+            vrApp.setShadowMode(StereoShadowMode.valueOf(shadows.toUpperCase(Locale.ROOT)));
+            Log.i(TAG, "Shadows: " + shadows);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Unknown shadow mode: " + shadows);
+        }
+    }
+
+    /** Post-processing (--es post fused or per_viewport). */
+    private void configurePost(QuestVRApplication vrApp, Intent intent) {
+        String post = intent.getStringExtra(EXTRA_POST);
+        if (post == null) {
+            return;
+        }
+        try {
+            vrApp.setPostProcessMode(PostProcessMode.valueOf(post.toUpperCase(Locale.ROOT)));
+            Log.i(TAG, "Post-processing: " + post);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Unknown post-processing mode: " + post);
+        }
+    }
+
+    /** Culling what's hidden behind walls (--ez occlusion true). */
+    private void configureOcclusion(QuestVRApplication vrApp, Intent intent) {
+        if (intent.getBooleanExtra(EXTRA_OCCLUSION, false)) {
+            vrApp.setOcclusionCulling(true);
+            Log.i(TAG, "Occlusion culling enabled");
+        }
+    }
+
+    /** Grab range and overlaps from a spatial hash grid (--ez broadphase true). */
+    private void configureBroadphase(QuestVRApplication vrApp, Intent intent) {
+        if (intent.getBooleanExtra(EXTRA_BROADPHASE, false)) {
+            vrApp.setBroadphase(true);
+            Log.i(TAG, "Broadphase enabled");
+        }
+    }
+
+    /** Meshes drawn from compressed vertices (--ez mesh_compression true). */
+    private void configureMeshCompression(QuestVRApplication vrApp, Intent intent) {
+        if (intent.getBooleanExtra(EXTRA_MESH_COMPRESSION, false)) {
+            vrApp.setMeshCompression(true);
+            Log.i(TAG, "Mesh compression enabled");
+        }
+    }
+
+    /** A procedural world streamed around the head (--ez streaming true). */
+    private void configureStreaming(QuestVRApplication vrApp, Intent intent) {
+        if (intent.getBooleanExtra(EXTRA_STREAMING, false)) {
+            vrApp.setChunkStreaming(true);
+            Log.i(TAG, "Chunk streaming enabled");
+        }
+    }
+
     @Override
     public void onWindowFocusChanged(boolean hasFocus) {
         super.onWindowFocusChanged(hasFocus);
@@ -83,6 +277,10 @@ public class MainActivity extends AndroidHarness {
 
     @Override
     protected void onResume() {
+        // Before the GL thread resumes, so the resume is timed from here
+        if (app instanceof QuestVRApplication) {
+            ((QuestVRApplication) app).onActivityResume();
+        }
         super.onResume();
         Log.i(TAG, "MainActivity resumed");
         
@@ -94,6 +292,10 @@ public class MainActivity extends AndroidHarness {
     @Override
     protected void onPause() {
         Log.i(TAG, "MainActivity paused");
+        // Before the GL thread pauses, as the scene is snapshot on it
+        if (app instanceof QuestVRApplication) {
+            ((QuestVRApplication) app).onActivityPause();
+        }
         super.onPause();
     }
 
@@ -1,39 +1,61 @@
 package com.quest.helloworld;
 
 import android.app.Application;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.quest.helloworld.di.AppComponent;
 import com.quest.helloworld.di.DaggerAppComponent;
+import com.quest.helloworld.startup.StartupSteps;
+import com.quest.helloworld.startup.StartupTrace;
 
 /**
  * Main Application class for the Quest Hello World VR experience.
- * Initializes Dagger dependency injection on startup.
+ * Initializes Dagger dependency injection on startup and starts the
+ * startup graph, which builds the heavier subsystems off the main thread
+ * while the activity is created.
  */
 public class QuestHelloWorldApp extends Application {
 
     private static final String TAG = "QuestHelloWorld";
     
+    // Startup steps are few and mostly wait on I/O and the linker
+    private static final int STARTUP_THREADS = 2;
+    
     private static QuestHelloWorldApp instance;
     private AppComponent appComponent;
+    private StartupTrace startupTrace;
 
     @Override
     public void onCreate() {
+        // Measure from the fork, so time spent before any of our code runs shows up too
+        long now = System.nanoTime();
+        long sinceStart = (SystemClock.uptimeMillis() - Process.getStartUptimeMillis()) * 1_000_000L;
+        startupTrace = new StartupTrace(now - sinceStart);
+        startupTrace.record("process start", now - sinceStart, now);
+        
         super.onCreate();
         instance = this;
         
         Log.i(TAG, "Initializing Quest Hello World Application");
         
-        // Initialize Dagger component
-        appComponent = DaggerAppComponent.builder()
-                .build();
-        
-        // Inject dependencies into this application instance
-        appComponent.inject(this);
+        try (StartupTrace.Span span = startupTrace.begin("Application.onCreate")) {
+            // Initialize Dagger component - subsystems are built on demand
+            appComponent = DaggerAppComponent.builder()
+                    .build();
+            
+            // Inject dependencies into this application instance
+            appComponent.inject(this);
+            
+            // Whoever needs a subsystem asks the component, which waits for a step still building it
+            StartupSteps.create(appComponent::sceneConfig, appComponent.vrBridge()::get,
+                    appComponent.vrRenderer()::get).startInBackground(STARTUP_THREADS, startupTrace);
+        }
         
         Log.i(TAG, "Dagger dependency injection initialized successfully");
     }
-
+    
     /**
      * Returns the singleton instance of the application.
      * @return The QuestHelloWorldApp instance
@@ -49,4 +71,11 @@ public class QuestHelloWorldApp extends Application {
     public AppComponent getAppComponent() {
         return appComponent;
     }
+    
+    /**
+     * Timeline of this launch, from process start.
+     */
+    public StartupTrace getStartupTrace() {
+        return startupTrace;
+    }
 }
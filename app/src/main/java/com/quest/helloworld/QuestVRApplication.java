@@ -1,6 +1,7 @@
 package com.quest.helloworld;
 
 import android.app.Activity;
+import android.content.res.AssetManager;
 import android.util.Log;
 
 import com.jme3.app.SimpleApplication;
@@ -13,17 +14,60 @@ import com.jme3.math.ColorRGBA;
 import com.jme3.math.FastMath;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
-import com.jme3.renderer.Camera;
+import com.jme3.post.FilterPostProcessor;
+import com.jme3.post.filters.BloomFilter;
+import com.jme3.post.filters.ToneMapFilter;
 import com.jme3.renderer.RenderManager;
 import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue.ShadowMode;
 import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
 import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
 import com.jme3.scene.shape.Box;
 import com.jme3.scene.shape.Sphere;
+import com.jme3.shadow.DirectionalLightShadowRenderer;
 import com.jme3.texture.FrameBuffer;
+import com.quest.helloworld.asset.MappedAssets;
+import com.quest.helloworld.broadphase.BroadphaseState;
+import com.quest.helloworld.hand.HandTrackingState;
+import com.quest.helloworld.jobs.JobPriority;
+import com.quest.helloworld.jobs.RenderJob;
+import com.quest.helloworld.jobs.RenderJobState;
+import com.quest.helloworld.lifecycle.LifecycleState;
+import com.quest.helloworld.lifecycle.SceneSnapshot;
+import com.quest.helloworld.lifecycle.SnapshotSource;
+import com.quest.helloworld.memory.ResourceBudgetState;
+import com.quest.helloworld.mesh.MeshCompressor;
+import com.quest.helloworld.occlusion.OcclusionCullingState;
+import com.quest.helloworld.particle.ParticleState;
+import com.quest.helloworld.perf.FrameProfilerState;
+import com.quest.helloworld.perf.PerfHudState;
+import com.quest.helloworld.post.FusedPostProcessor;
+import com.quest.helloworld.post.PostProcessMode;
+import com.quest.helloworld.post.PostStackConfig;
+import com.quest.helloworld.post.VignetteFilter;
+import com.quest.helloworld.shader.ShaderWarmupState;
+import com.quest.helloworld.shadow.StereoShadowMode;
+import com.quest.helloworld.shadow.StereoShadowRenderer;
+import com.quest.helloworld.sim.Simulation;
+import com.quest.helloworld.sim.SimulationState;
+import com.quest.helloworld.startup.StartupTrace;
+import com.quest.helloworld.streaming.ChunkStreamingState;
+import com.quest.helloworld.streaming.StreamingConfig;
+import com.quest.helloworld.streaming.SyntheticChunkSource;
+import com.quest.helloworld.trace.PoseTracePlayer;
+import com.quest.helloworld.trace.PoseTraceState;
+import com.quest.helloworld.vr.EyeCamera;
 import com.quest.helloworld.vr.OpenXRBridge;
 import com.quest.helloworld.vr.VRRenderer;
 
+import java.io.File;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
 /**
  * VR-enabled jMonkeyEngine application for Quest 3.
  * Implements stereo rendering with head tracking.
@@ -32,17 +76,108 @@ public class QuestVRApplication extends SimpleApplication {
 
     private static final String TAG = "QuestVRApp";
     
-    // VR components
+    // Mesh and texture memory budget - well below what the OS allows us on an 8 GB device
+    private static final long RESOURCE_BUDGET_BYTES = 256L * 1024 * 1024;
+    
+    // VR components - injected by the app component, whose startup graph
+    // may already have built them; created here when nothing injects them
+    @Inject Provider<OpenXRBridge> vrBridgeProvider;
+    @Inject Provider<VRRenderer> vrRendererProvider;
     private OpenXRBridge vrBridge;
     private VRRenderer vrRenderer;
     private boolean vrEnabled = false;
+    private volatile boolean stereoRequested = false;
     
     // Stereo rendering
-    private Camera leftEyeCam;
-    private Camera rightEyeCam;
+    private EyeCamera leftEyeCam;
+    private EyeCamera rightEyeCam;
     private ViewPort leftEyeVP;
     private ViewPort rightEyeVP;
     
+    // Resource accounting
+    private ResourceBudgetState resourceBudget;
+    
+    // Render-thread work spread over frames within what each frame has left
+    private RenderJobState renderJobs;
+    
+    // Activity the VR bridge initializes with when a trace or hand tracking needs it
+    private volatile Activity bridgeActivity;
+    
+    // Pose trace record/replay - configured by the activity before init
+    private volatile File poseTraceFile;
+    private volatile boolean poseTraceRecord;
+    private volatile PoseTracePlayer.Mode poseTraceMode = PoseTracePlayer.Mode.REAL_TIME;
+    private PoseTraceState poseTrace;
+    
+    // Performance HUD - toggled in the headset with both grips + left trigger
+    private volatile boolean perfHudRequested = false;
+    private PerfHudState perfHud;
+    
+    // Program binaries saved by shader warm-up, configured by the activity before init
+    private volatile File shaderCacheDir;
+    
+    // Memory-mapped asset loading from the APK and expansion file
+    private volatile AssetManager apkAssets;
+    private volatile File obbFile;
+    
+    // Scene animation on a fixed tick, on its own thread if requested
+    private static final float SIMULATION_TICK_RATE = 60f;
+    private volatile boolean simulationThreadRequested = false;
+    private SimulationState simulation;
+    
+    // Tracked hands in place of the controller boxes
+    private volatile boolean handTrackingRequested = false;
+    private HandTrackingState handTracking;
+    
+    // Ambient dust, drawn in one call per eye
+    private volatile int ambientParticleCount = 0;
+    private ParticleState particles;
+    
+    // Sun shadows
+    private static final int SHADOW_MAP_SIZE = 1024;
+    private static final int SHADOW_SPLITS = 2;
+    private static final float SHADOW_DISTANCE = 20f;
+    private volatile StereoShadowMode shadowMode = StereoShadowMode.OFF;
+    private DirectionalLight sun;
+    private StereoShadowRenderer stereoShadows;
+    
+    // Bloom, tone mapping and vignette
+    private final PostStackConfig postStack = new PostStackConfig.Builder().build();
+    private volatile PostProcessMode postProcessMode = PostProcessMode.OFF;
+    private FusedPostProcessor fusedPost;
+    
+    // Software occlusion culling, once for both eyes
+    private static final int OCCLUSION_WIDTH = 256;
+    private static final int OCCLUSION_HEIGHT = 256;
+    private volatile boolean occlusionRequested = false;
+    private OcclusionCullingState occlusion;
+    
+    // Grab range and overlap queries over the interactive objects
+    private static final float BROADPHASE_CELL_SIZE = 0.3f;
+    private static final float GRAB_RADIUS = 0.08f;
+    private volatile boolean broadphaseRequested = false;
+    private BroadphaseState broadphase;
+    
+    // Procedural world chunks streamed in around the head
+    private static final int STREAMING_MAX_OBJECTS = 12;
+    private static final long STREAMING_SEED = 42L;
+    private volatile boolean streamingRequested = false;
+    private ChunkStreamingState streaming;
+    
+    // Quantized vertices and cache-ordered triangles
+    private volatile boolean meshCompressionRequested = false;
+    private MeshCompressor meshCompressor;
+    
+    // Scene snapshot on pause, restored when the activity is recreated -
+    // configured by the activity before init
+    private volatile File snapshotFile;
+    private volatile boolean snapshotRestore = false;
+    private volatile LifecycleState lifecycle;
+    
+    // Launch timeline, configured by the activity before init
+    private volatile StartupTrace startupTrace;
+    private boolean firstFrameTraced = false;
+    
     // Scene objects
     private Geometry cube;
     private Node controllerLeft;
@@ -53,17 +188,208 @@ public class QuestVRApplication extends SimpleApplication {
     // Head tracking
     private Vector3f headPosition = new Vector3f(0, 1.6f, 0);
     private Quaternion headRotation = new Quaternion();
+    
+    // OpenXR views look down -Z but jME cameras look down +Z, so cameras get
+    // the head rotation turned half way around Y
+    private static final Quaternion HEAD_TO_CAMERA = new Quaternion().fromAngleAxis(FastMath.PI, Vector3f.UNIT_Y);
+    private final Quaternion cameraRotation = new Quaternion();
+    
+    // Batched eye matrices - reused every frame to avoid allocation
+    private final float[] headPose = new float[7];
+    private final float[] eyeMatrices = new float[2 * VRRenderer.EYE_MATRICES_STRIDE];
 
     public QuestVRApplication() {
         super();
         Log.i(TAG, "QuestVRApplication constructor");
     }
+    
+    /**
+     * Render side-by-side stereo instead of the mono 2D panel view.
+     * Must be called before the app initializes.
+     */
+    public void setStereoEnabled(boolean stereo) {
+        stereoRequested = stereo;
+    }
+    
+    /**
+     * Run scene animation on a dedicated simulation thread at a fixed tick,
+     * so a slow simulation step can't drop a frame. Head tracking stays on
+     * the render thread either way. Must be called before the app initializes.
+     */
+    public void setSimulationThreadEnabled(boolean enabled) {
+        simulationThreadRequested = enabled;
+    }
+    
+    /**
+     * Show the performance HUD from the start instead of waiting for the
+     * controller combo. Must be called before the app initializes.
+     */
+    public void setPerfHudVisible(boolean visible) {
+        perfHudRequested = visible;
+    }
+    
+    /**
+     * Save compiled shader programs under this directory so later launches
+     * skip compilation. Must be called before the app initializes.
+     */
+    public void setShaderCacheDir(File dir) {
+        shaderCacheDir = dir;
+    }
+    
+    /**
+     * Load assets by memory-mapping them from the APK and, if given, the OBB
+     * expansion file. Must be called before the app initializes.
+     */
+    public void setMappedAssets(AssetManager assets, File obb) {
+        apkAssets = assets;
+        obbFile = obb;
+    }
+    
+    /**
+     * Draw tracked, skinned hands instead of the controller boxes.
+     * Must be called before the app initializes.
+     */
+    public void setHandTrackingEnabled(Activity activity, boolean enabled) {
+        bridgeActivity = activity;
+        handTrackingRequested = enabled;
+    }
+    
+    /**
+     * Fill the room with this many drifting dust particles; 0 for none.
+     * Must be called before the app initializes.
+     */
+    public void setAmbientParticles(int count) {
+        ambientParticleCount = count;
+    }
+    
+    /**
+     * Shadow the sun, rendering the cascades per eye or once for both.
+     * Must be called before the app initializes.
+     */
+    public void setShadowMode(StereoShadowMode mode) {
+        shadowMode = mode;
+    }
+    
+    /**
+     * Bloom, tone map and vignette the view, with filters per eye or in
+     * one fused pass. Must be called before the app initializes.
+     */
+    public void setPostProcessMode(PostProcessMode mode) {
+        postProcessMode = mode;
+    }
+    
+    /**
+     * Hide objects behind the room's walls and furniture before they're
+     * drawn. Must be called before the app initializes.
+     */
+    public void setOcclusionCulling(boolean enabled) {
+        occlusionRequested = enabled;
+    }
+    
+    /**
+     * Keep the interactive objects in a spatial hash grid and find what's
+     * in each controller's grab range and what overlaps, every frame.
+     * Must be called before the app initializes.
+     */
+    public void setBroadphase(boolean enabled) {
+        broadphaseRequested = enabled;
+    }
+    
+    /**
+     * Stream a procedural world in around the tracked head, or the
+     * replayed one when a pose trace drives tracking.
+     * Must be called before the app initializes.
+     */
+    public void setChunkStreaming(boolean enabled) {
+        streamingRequested = enabled;
+    }
+    
+    /**
+     * Draw the scene's meshes from compressed vertex data with their
+     * triangles ordered for the vertex cache.
+     * Must be called before the app initializes.
+     */
+    public void setMeshCompression(boolean enabled) {
+        meshCompressionRequested = enabled;
+    }
+    
+    /**
+     * Save the scene to this file whenever the activity pauses, and restore
+     * it from there first if the activity is being recreated.
+     * Must be called before the app initializes.
+     */
+    public void setSnapshotFile(File file, boolean restore) {
+        snapshotFile = file;
+        snapshotRestore = restore;
+    }
+    
+    /**
+     * Snapshot the scene. Called from the activity's onPause, before the GL
+     * thread pauses.
+     */
+    public void onActivityPause() {
+        LifecycleState lifecycle = this.lifecycle;
+        if (lifecycle != null) {
+            lifecycle.onPause();
+        }
+    }
+    
+    /**
+     * Time the resume to its first frame. Called from the activity's
+     * onResume, before the GL thread resumes.
+     */
+    public void onActivityResume() {
+        LifecycleState lifecycle = this.lifecycle;
+        if (lifecycle != null) {
+            lifecycle.onResume();
+        }
+    }
+    
+    /**
+     * Add initialization and the first frame to a launch's startup trace.
+     * Must be called before the app initializes.
+     */
+    public void setStartupTrace(StartupTrace trace) {
+        startupTrace = trace;
+    }
+    
+    /**
+     * Record tracking to a pose trace file. Must be called before the app initializes.
+     */
+    public void setPoseTraceRecord(Activity activity, File file) {
+        bridgeActivity = activity;
+        poseTraceFile = file;
+        poseTraceRecord = true;
+    }
+    
+    /**
+     * Drive tracking from a recorded pose trace instead of the headset.
+     * Must be called before the app initializes.
+     */
+    public void setPoseTraceReplay(Activity activity, File file, PoseTracePlayer.Mode mode) {
+        bridgeActivity = activity;
+        poseTraceFile = file;
+        poseTraceRecord = false;
+        poseTraceMode = mode;
+    }
 
     @Override
     public void simpleInitApp() {
         Log.i(TAG, "=== simpleInitApp() STARTED ===");
         
+        StartupTrace.Span span = startupTrace != null ? startupTrace.begin("simpleInitApp") : null;
         try {
+            // Profile first so every later state's work is attributed
+            stateManager.attach(new FrameProfilerState());
+            
+            // Early, so the job budget counts from the start of the frame
+            renderJobs = new RenderJobState();
+            stateManager.attach(renderJobs);
+            
+            if (apkAssets != null) {
+                MappedAssets.install(assetManager, apkAssets, obbFile);
+            }
+            
             // Initialize VR
             initializeVR();
             
@@ -87,10 +413,71 @@ public class QuestVRApplication extends SimpleApplication {
                 Log.i(TAG, "Camera set at: " + cam.getLocation() + " looking at (0,1,-2)");
             }
             
+            // Pose trace runs before anything else reads tracking
+            if (poseTraceFile != null) {
+                setupPoseTrace();
+            }
+            
+            // Track mesh and texture memory before the scene allocates any
+            resourceBudget = new ResourceBudgetState(RESOURCE_BUDGET_BYTES);
+            stateManager.attach(resourceBudget);
+            
+            // Before the scene, so its objects are tracked and restored as they're created
+            SceneSnapshot snapshot = snapshotRestore ? LifecycleState.readSnapshot(snapshotFile) : null;
+            lifecycle = new LifecycleState(snapshotFile, new AppSnapshotSource(), rootNode);
+            stateManager.attach(lifecycle);
+            if (snapshot != null) {
+                restoreSnapshot(snapshot);
+            }
+            
+            if (occlusionRequested) {
+                setupOcclusion();
+            }
+            if (broadphaseRequested) {
+                broadphase = new BroadphaseState(BROADPHASE_CELL_SIZE, GRAB_RADIUS);
+                stateManager.attach(broadphase);
+            }
+            if (meshCompressionRequested) {
+                meshCompressor = new MeshCompressor(assetManager);
+                stateManager.attach(meshCompressor);
+            }
+            
             // Setup scene
             setupLighting();
             createScene();
-            createControllerVisuals();
+            if (!handTrackingRequested || !setupHandTracking()) {
+                createControllerVisuals();
+            }
+            if (ambientParticleCount > 0) {
+                particles = new ParticleState(rootNode, ambientParticleCount);
+                stateManager.attach(particles);
+            }
+            if (streamingRequested) {
+                setupStreaming();
+            }
+            
+            if (simulationThreadRequested) {
+                setupSimulation();
+            }
+            
+            perfHud = new PerfHudState(vrBridge, rootNode);
+            // No adaptive quality yet - the render configuration is the only tier
+            perfHud.setQualityTier(vrEnabled ? "fixed, stereo" : "fixed, mono");
+            stateManager.attach(perfHud);
+            if (perfHudRequested) {
+                perfHud.setVisible(true);
+            }
+            
+            if (shadowMode != StereoShadowMode.OFF) {
+                setupShadows();
+            }
+            // After shadows, so the shadowed scene is what gets post-processed
+            if (postProcessMode != PostProcessMode.OFF) {
+                setupPostProcessing();
+            }
+            
+            // Compile every shader the scene uses before the first frame, not on first sight
+            stateManager.attach(new ShaderWarmupState(shaderCacheDir, rootNode));
             
             Log.i(TAG, "=== simpleInitApp() COMPLETED ===");
             Log.i(TAG, "VR Enabled: " + vrEnabled);
@@ -98,6 +485,10 @@ public class QuestVRApplication extends SimpleApplication {
         } catch (Exception e) {
             Log.e(TAG, "ERROR in simpleInitApp: " + e.getMessage(), e);
             e.printStackTrace();
+        } finally {
+            if (span != null) {
+                span.close();
+            }
         }
     }
     
@@ -107,13 +498,74 @@ public class QuestVRApplication extends SimpleApplication {
     private void initializeVR() {
         Log.i(TAG, "Initializing VR system...");
         
-        vrBridge = new OpenXRBridge();
-        vrRenderer = new VRRenderer();
+        vrBridge = vrBridgeProvider != null ? vrBridgeProvider.get() : new OpenXRBridge();
+        vrRenderer = vrRendererProvider != null ? vrRendererProvider.get() : new VRRenderer();
+        
+        // Mono rendering for 2D panel display unless stereo was requested -
+        // stereo VR requires proper OpenXR integration which we don't have yet
+        vrEnabled = stereoRequested;
+        if (vrEnabled) {
+            Log.i(TAG, "Running in side-by-side stereo mode");
+        } else {
+            Log.i(TAG, "Running in 2D panel mode - mono rendering");
+        }
+    }
+    
+    /**
+     * Attach pose trace recording or replay. The bridge must be initialized
+     * so recorded frames reflect real tracking and replayed frames reach it.
+     */
+    private void setupPoseTrace() {
+        if (!vrBridge.isInitialized() && !vrBridge.initialize(bridgeActivity)) {
+            Log.e(TAG, "Pose trace disabled - VR bridge failed to initialize");
+            return;
+        }
+        
+        if (poseTraceRecord) {
+            poseTrace = PoseTraceState.record(vrBridge, poseTraceFile);
+        } else {
+            poseTrace = PoseTraceState.replay(vrBridge, poseTraceFile, poseTraceMode, false);
+        }
+        stateManager.attach(poseTrace);
+    }
+    
+    /**
+     * Attach tracked hands. Like pose traces they need an initialized bridge.
+     * @return false if the bridge failed, so controllers should be shown instead
+     */
+    private boolean setupHandTracking() {
+        if (!vrBridge.isInitialized() && !vrBridge.initialize(bridgeActivity)) {
+            Log.e(TAG, "Hand tracking disabled - VR bridge failed to initialize");
+            return false;
+        }
         
-        // Force mono rendering mode for 2D panel display
-        // Stereo VR requires proper OpenXR integration which we don't have yet
-        vrEnabled = false;
-        Log.i(TAG, "Running in 2D panel mode - mono rendering");
+        handTracking = new HandTrackingState(vrBridge, rootNode);
+        stateManager.attach(handTracking);
+        return true;
+    }
+    
+    /**
+     * Pick up the animation and head pose where a killed process left them.
+     * Objects are put back as the scene tracks them.
+     */
+    private void restoreSnapshot(SceneSnapshot snapshot) {
+        time = snapshot.getAnimationTime();
+        float[] pos = snapshot.getHeadPosition();
+        float[] rot = snapshot.getHeadRotation();
+        headPosition.set(pos[0], pos[1], pos[2]);
+        headRotation.fromAngles(rot[0], rot[1], rot[2]);
+        headRotation.mult(HEAD_TO_CAMERA, cameraRotation);
+        vrBridge.updateHeadPose(pos[0], pos[1], pos[2], rot[0], rot[1], rot[2]);
+        lifecycle.restore(snapshot);
+    }
+    
+    /**
+     * Move the cube animation onto the simulation thread.
+     */
+    private void setupSimulation() {
+        simulation = new SimulationState(new CubeAnimation(time), SIMULATION_TICK_RATE, SimulationState.Mode.THREADED);
+        simulation.bind(0, cube);
+        stateManager.attach(simulation);
     }
     
     /**
@@ -124,11 +576,11 @@ public class QuestVRApplication extends SimpleApplication {
         float eyeOffset = ipd / 2.0f;
         
         // Create left eye camera
-        leftEyeCam = cam.clone();
+        leftEyeCam = new EyeCamera(cam);
         leftEyeCam.setName("LeftEye");
         
         // Create right eye camera
-        rightEyeCam = cam.clone();
+        rightEyeCam = new EyeCamera(cam);
         rightEyeCam.setName("RightEye");
         
         // Setup viewports for side-by-side rendering
@@ -149,9 +601,44 @@ public class QuestVRApplication extends SimpleApplication {
         leftEyeCam.setViewPort(0f, 0.5f, 0f, 1f);
         rightEyeCam.setViewPort(0.5f, 1f, 0f, 1f);
         
+        // Asymmetric per-eye frustums from the headset FOV tangents
+        float[] fov = vrRenderer.getFovTangents();
+        float near = cam.getFrustumNear();
+        float far = cam.getFrustumFar();
+        leftEyeCam.setFrustum(near, far, -fov[0] * near, fov[1] * near, fov[2] * near, -fov[3] * near);
+        rightEyeCam.setFrustum(near, far, -fov[4] * near, fov[5] * near, fov[6] * near, -fov[7] * near);
+        
         Log.i(TAG, "Stereo cameras configured - IPD: " + ipd);
     }
     
+    /**
+     * Cull from one camera around both eyes, or the main camera in mono.
+     * Before the scene, so it can register occluders and occludees.
+     */
+    private void setupOcclusion() {
+        occlusion = new OcclusionCullingState(vrEnabled ? leftEyeVP : viewPort, vrEnabled ? rightEyeVP : null,
+                OCCLUSION_WIDTH, OCCLUSION_HEIGHT);
+        stateManager.attach(occlusion);
+    }
+    
+    /**
+     * Stream synthetic chunks around the head. A replayed pose trace
+     * drives the bridge, so the bridge's head position is the replayed
+     * one too. The material is made here, as chunks are built on loader
+     * threads.
+     */
+    private void setupStreaming() {
+        StreamingConfig config = new StreamingConfig.Builder().build();
+        Material chunkMat = new Material(assetManager, "Common/MatDefs/Light/Lighting.j3md");
+        chunkMat.setBoolean("UseMaterialColors", true);
+        chunkMat.setColor("Diffuse", new ColorRGBA(0.35f, 0.4f, 0.3f, 1f));
+        chunkMat.setColor("Ambient", new ColorRGBA(0.12f, 0.14f, 0.1f, 1f));
+        SyntheticChunkSource source = new SyntheticChunkSource(config.getChunkSize(), STREAMING_MAX_OBJECTS,
+                STREAMING_SEED, 0L, chunkMat);
+        streaming = new ChunkStreamingState(config, source, vrBridge::getHeadPosition);
+        stateManager.attach(streaming);
+    }
+    
     /**
      * Setup scene lighting
      */
@@ -162,7 +649,7 @@ public class QuestVRApplication extends SimpleApplication {
         rootNode.addLight(ambient);
         
         // Main directional light
-        DirectionalLight sun = new DirectionalLight();
+        sun = new DirectionalLight();
         sun.setDirection(new Vector3f(-0.5f, -1f, -0.5f).normalizeLocal());
         sun.setColor(ColorRGBA.White.mult(1.2f));
         rootNode.addLight(sun);
@@ -176,6 +663,65 @@ public class QuestVRApplication extends SimpleApplication {
         Log.i(TAG, "Lighting configured");
     }
     
+    /**
+     * Shadow the sun on the eye viewports, or the main one in mono.
+     */
+    private void setupShadows() {
+        ViewPort left = vrEnabled ? leftEyeVP : viewPort;
+        ViewPort right = vrEnabled ? rightEyeVP : null;
+        if (shadowMode == StereoShadowMode.SHARED) {
+            stereoShadows = new StereoShadowRenderer(assetManager, SHADOW_MAP_SIZE, SHADOW_SPLITS);
+            stereoShadows.setLight(sun);
+            stereoShadows.setShadowZExtend(SHADOW_DISTANCE);
+            stereoShadows.attach(left, right);
+        } else {
+            // Each renderer fits and draws its own cascades
+            addShadowRenderer(left);
+            if (right != null) {
+                addShadowRenderer(right);
+            }
+        }
+        Log.i(TAG, "Shadows: " + shadowMode);
+    }
+    
+    private void addShadowRenderer(ViewPort eye) {
+        DirectionalLightShadowRenderer shadows =
+                new DirectionalLightShadowRenderer(assetManager, SHADOW_MAP_SIZE, SHADOW_SPLITS);
+        shadows.setLight(sun);
+        shadows.setShadowZExtend(SHADOW_DISTANCE);
+        eye.addProcessor(shadows);
+    }
+    
+    /**
+     * Post-process the eye viewports, or the main one in mono.
+     */
+    private void setupPostProcessing() {
+        ViewPort left = vrEnabled ? leftEyeVP : viewPort;
+        ViewPort right = vrEnabled ? rightEyeVP : null;
+        if (postProcessMode == PostProcessMode.FUSED) {
+            fusedPost = new FusedPostProcessor(assetManager, postStack);
+            fusedPost.attach(left, right);
+        } else {
+            addFilterPostProcessor(left);
+            if (right != null) {
+                addFilterPostProcessor(right);
+            }
+        }
+        Log.i(TAG, "Post-processing: " + postProcessMode);
+    }
+    
+    private void addFilterPostProcessor(ViewPort eye) {
+        FilterPostProcessor filters = new FilterPostProcessor(assetManager);
+        BloomFilter bloom = new BloomFilter(BloomFilter.GlowMode.Scene);
+        bloom.setExposureCutOff(postStack.getBloomThreshold());
+        bloom.setBloomIntensity(postStack.getBloomIntensity());
+        filters.addFilter(bloom);
+        float white = postStack.getWhitePoint();
+        filters.addFilter(new ToneMapFilter(new Vector3f(white, white, white)));
+        filters.addFilter(new VignetteFilter(postStack.getVignetteStrength(), postStack.getVignetteRadius()));
+        eye.addProcessor(filters);
+    }
+    
     /**
      * Create the 3D scene
      */
@@ -189,7 +735,13 @@ public class QuestVRApplication extends SimpleApplication {
         floorMat.setColor("Ambient", new ColorRGBA(0.1f, 0.1f, 0.12f, 1f));
         floor.setMaterial(floorMat);
         floor.setLocalTranslation(0, 0, 0);
+        floor.setShadowMode(ShadowMode.Receive);
         rootNode.attachChild(floor);
+        if (occlusion != null) {
+            occlusion.addOccluder(floor);
+        }
+        // After the occluder took its positions
+        compress(floor);
         
         // Create central cube
         Box box = new Box(0.3f, 0.3f, 0.3f);
@@ -202,21 +754,34 @@ public class QuestVRApplication extends SimpleApplication {
         cubeMat.setColor("Ambient", new ColorRGBA(0.3f, 0.1f, 0.03f, 1f));
         cube.setMaterial(cubeMat);
         cube.setLocalTranslation(0, 1f, -2f);
+        cube.setShadowMode(ShadowMode.CastAndReceive);
         rootNode.attachChild(cube);
+        if (occlusion != null) {
+            // Inset, so the frame-old transform of a bobbing, spinning cube stays inside it
+            occlusion.addOccluder(cube, new Box(0.25f, 0.25f, 0.25f));
+        }
+        compress(cube);
+        if (broadphase != null) {
+            broadphase.add(cube);
+        }
+        lifecycle.track("Cube", cube);
         
-        // Create floating spheres
-        createSphere(-1.5f, 1.2f, -2.5f, 0.15f, new ColorRGBA(0.2f, 0.8f, 0.3f, 1f));  // Green
-        createSphere(1.5f, 0.8f, -1.8f, 0.12f, new ColorRGBA(0.8f, 0.2f, 0.5f, 1f));   // Pink
-        createSphere(0.5f, 1.5f, -3f, 0.1f, new ColorRGBA(0.3f, 0.5f, 1.0f, 1f));      // Blue
-        createSphere(-0.8f, 0.6f, -1.5f, 0.08f, new ColorRGBA(1.0f, 0.9f, 0.2f, 1f));  // Yellow
-        
-        // Create text
-        createText();
+        // Floating spheres and text are built by render jobs over the first
+        // frames rather than all before the first one
+        renderJobs.submit(JobPriority.NORMAL, "Green sphere", RenderJob.of(() ->
+                createSphere("Green sphere", -1.5f, 1.2f, -2.5f, 0.15f, new ColorRGBA(0.2f, 0.8f, 0.3f, 1f))));
+        renderJobs.submit(JobPriority.NORMAL, "Pink sphere", RenderJob.of(() ->
+                createSphere("Pink sphere", 1.5f, 0.8f, -1.8f, 0.12f, new ColorRGBA(0.8f, 0.2f, 0.5f, 1f))));
+        renderJobs.submit(JobPriority.NORMAL, "Blue sphere", RenderJob.of(() ->
+                createSphere("Blue sphere", 0.5f, 1.5f, -3f, 0.1f, new ColorRGBA(0.3f, 0.5f, 1.0f, 1f))));
+        renderJobs.submit(JobPriority.NORMAL, "Yellow sphere", RenderJob.of(() ->
+                createSphere("Yellow sphere", -0.8f, 0.6f, -1.5f, 0.08f, new ColorRGBA(1.0f, 0.9f, 0.2f, 1f))));
+        renderJobs.submit(JobPriority.LOW, "Title text", RenderJob.of(this::createText));
         
         Log.i(TAG, "Scene created");
     }
     
-    private void createSphere(float x, float y, float z, float radius, ColorRGBA color) {
+    private void createSphere(String name, float x, float y, float z, float radius, ColorRGBA color) {
         Sphere sphere = new Sphere(24, 24, radius);
         Geometry geo = new Geometry("Sphere", sphere);
         Material mat = new Material(assetManager, "Common/MatDefs/Light/Lighting.j3md");
@@ -227,7 +792,30 @@ public class QuestVRApplication extends SimpleApplication {
         mat.setColor("Ambient", color.mult(0.3f));
         geo.setMaterial(mat);
         geo.setLocalTranslation(x, y, z);
-        rootNode.attachChild(geo);
+        geo.setShadowMode(ShadowMode.CastAndReceive);
+        compress(geo);
+        attachFromJob(geo);
+        if (occlusion != null) {
+            occlusion.addOccludee(geo);
+        }
+        if (broadphase != null) {
+            broadphase.add(geo);
+        }
+        lifecycle.track(name, geo);
+        
+        // Spheres are procedural, so their mesh can be evicted and rebuilt
+        Supplier<Mesh> factory = () -> new Sphere(24, 24, radius);
+        resourceBudget.registerMeshFactory(geo, meshCompressor != null ? MeshCompressor.compressing(factory) : factory);
+    }
+    
+    /**
+     * Swap in the geometry's compressed mesh and a material that decodes
+     * it, if compression is on.
+     */
+    private void compress(Geometry geometry) {
+        if (meshCompressor != null) {
+            meshCompressor.apply(geometry);
+        }
     }
     
     private void createText() {
@@ -240,12 +828,24 @@ public class QuestVRApplication extends SimpleApplication {
             
             float textWidth = text.getLineWidth();
             text.setLocalTranslation(-textWidth / 2f, 2.2f, -2f);
-            rootNode.attachChild(text);
+            attachFromJob(text);
         } catch (Exception e) {
             Log.e(TAG, "Error creating text: " + e.getMessage());
         }
     }
     
+    /**
+     * Attach content built by a render job. It appears after the scene was
+     * warmed, so its shaders are warmed now rather than on its first draw.
+     */
+    private void attachFromJob(Spatial content) {
+        rootNode.attachChild(content);
+        ShaderWarmupState warmup = stateManager.getState(ShaderWarmupState.class);
+        if (warmup != null) {
+            warmup.warm(content);
+        }
+    }
+    
     /**
      * Create visual representations of VR controllers
      */
@@ -257,8 +857,10 @@ public class QuestVRApplication extends SimpleApplication {
         Material leftMat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
         leftMat.setColor("Color", new ColorRGBA(0.2f, 0.5f, 1.0f, 1f));
         leftGeo.setMaterial(leftMat);
+        compress(leftGeo);
         controllerLeft.attachChild(leftGeo);
         controllerLeft.setLocalTranslation(-0.3f, 1.0f, -0.5f);
+        controllerLeft.setShadowMode(ShadowMode.Cast);
         rootNode.attachChild(controllerLeft);
         
         // Right controller
@@ -267,8 +869,10 @@ public class QuestVRApplication extends SimpleApplication {
         Material rightMat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
         rightMat.setColor("Color", new ColorRGBA(1.0f, 0.5f, 0.2f, 1f));
         rightGeo.setMaterial(rightMat);
+        compress(rightGeo);
         controllerRight.attachChild(rightGeo);
         controllerRight.setLocalTranslation(0.3f, 1.0f, -0.5f);
+        controllerRight.setShadowMode(ShadowMode.Cast);
         rootNode.attachChild(controllerRight);
         
         Log.i(TAG, "Controller visuals created");
@@ -279,15 +883,32 @@ public class QuestVRApplication extends SimpleApplication {
         time += tpf;
         frameCount++;
         
-        // Only do VR-specific updates if VR is enabled
-        if (vrEnabled && vrBridge != null) {
+        // Only do VR-specific updates if VR is enabled or a trace is driving the bridge
+        boolean replaying = poseTrace != null && !poseTrace.isRecording() && poseTrace.isEnabled();
+        if ((vrEnabled || replaying) && vrBridge != null) {
             vrBridge.beginFrame();
+            // Waiting for the display is not frame time the jobs can use
+            renderJobs.markFrameStart();
             updateHeadTracking();
             updateControllers();
         }
         
-        // Rotate the cube
-        if (cube != null) {
+        // Occluders rasterize while the rest of the scene updates
+        if (occlusion != null) {
+            occlusion.beginFrame();
+        }
+        
+        // HUD follows the freshest head pose
+        if (perfHud != null) {
+            if (vrEnabled) {
+                perfHud.setHeadPose(headPosition, cameraRotation);
+            } else {
+                perfHud.setHeadPose(cam.getLocation(), cam.getRotation());
+            }
+        }
+        
+        // Rotate the cube, unless the simulation thread animates it
+        if (cube != null && simulation == null) {
             cube.rotate(0, tpf * 0.5f, 0);
             // Gentle bob
             float bob = FastMath.sin(time * 2f) * 0.05f;
@@ -297,6 +918,21 @@ public class QuestVRApplication extends SimpleApplication {
         // Log every 300 frames
         if (frameCount % 300 == 0) {
             Log.i(TAG, "Frame " + frameCount + " - Camera at: " + cam.getLocation() + " looking at: " + cam.getDirection());
+            if (stereoShadows != null) {
+                Log.i(TAG, stereoShadows.summary());
+            }
+            if (fusedPost != null) {
+                Log.i(TAG, fusedPost.summary());
+            }
+            if (occlusion != null) {
+                Log.i(TAG, occlusion.summary());
+            }
+            if (broadphase != null) {
+                Log.i(TAG, broadphase.summary());
+            }
+            if (lifecycle.getResumeCount() > 0) {
+                Log.i(TAG, lifecycle.summary());
+            }
         }
     }
     
@@ -310,25 +946,28 @@ public class QuestVRApplication extends SimpleApplication {
         float[] rot = vrBridge.getHeadRotation();
         
         headPosition.set(pos[0], pos[1], pos[2]);
+        // The bridge reports Euler angles; the batch takes a quaternion
         headRotation.fromAngles(rot[0], rot[1], rot[2]);
+        headRotation.mult(HEAD_TO_CAMERA, cameraRotation);
         
         if (vrEnabled && leftEyeCam != null && rightEyeCam != null) {
-            // Update stereo cameras
-            float eyeOffset = vrRenderer.getIPD() / 2.0f;
-            
-            // Left eye
-            Vector3f leftPos = headPosition.add(headRotation.mult(new Vector3f(-eyeOffset, 0, 0)));
-            leftEyeCam.setLocation(leftPos);
-            leftEyeCam.setRotation(headRotation);
+            // Both eyes in one batched native call, whose matrices the cameras use as they are
+            headPose[0] = pos[0];
+            headPose[1] = pos[1];
+            headPose[2] = pos[2];
+            headPose[3] = headRotation.getX();
+            headPose[4] = headRotation.getY();
+            headPose[5] = headRotation.getZ();
+            headPose[6] = headRotation.getW();
+            vrRenderer.computeEyeMatrices(headPose, leftEyeCam.getFrustumNear(),
+                    leftEyeCam.getFrustumFar(), eyeMatrices);
             
-            // Right eye
-            Vector3f rightPos = headPosition.add(headRotation.mult(new Vector3f(eyeOffset, 0, 0)));
-            rightEyeCam.setLocation(rightPos);
-            rightEyeCam.setRotation(headRotation);
+            leftEyeCam.setEyeMatrices(eyeMatrices, 0);
+            rightEyeCam.setEyeMatrices(eyeMatrices, VRRenderer.EYE_MATRICES_STRIDE);
         } else {
             // Mono camera
             cam.setLocation(headPosition);
-            cam.setRotation(headRotation);
+            cam.setRotation(cameraRotation);
         }
     }
     
@@ -349,6 +988,11 @@ public class QuestVRApplication extends SimpleApplication {
         if (controllerRight != null) {
             controllerRight.setLocalTranslation(rightPos[0], rightPos[1], rightPos[2]);
         }
+        
+        if (broadphase != null) {
+            broadphase.setControllerPosition(0, leftPos);
+            broadphase.setControllerPosition(1, rightPos);
+        }
     }
     
     @Override
@@ -357,6 +1001,12 @@ public class QuestVRApplication extends SimpleApplication {
         if (vrEnabled && vrBridge != null) {
             vrBridge.endFrame();
         }
+        
+        if (!firstFrameTraced && startupTrace != null) {
+            firstFrameTraced = true;
+            startupTrace.mark("first frame");
+            Log.i(TAG, startupTrace.summary());
+        }
     }
 
     @Override
@@ -369,4 +1019,64 @@ public class QuestVRApplication extends SimpleApplication {
         
         super.destroy();
     }
+    
+    /**
+     * The cube's spin and bob as a fixed-tick simulation.
+     */
+    private static class CubeAnimation implements Simulation {
+        
+        private final Quaternion rotation = new Quaternion();
+        private float time;
+        private float angle;
+        
+        /**
+         * @param time seconds already played, e.g. restored from a snapshot
+         */
+        CubeAnimation(float time) {
+            this.time = time;
+            this.angle = (time * 0.5f) % FastMath.TWO_PI;
+        }
+        
+        @Override
+        public int getEntityCount() {
+            return 1;
+        }
+        
+        @Override
+        public void step(float dt) {
+            time += dt;
+            angle = (angle + dt * 0.5f) % FastMath.TWO_PI;
+        }
+        
+        @Override
+        public void writeTransforms(float[] positions, float[] rotations) {
+            // Gentle bob
+            positions[0] = 0f;
+            positions[1] = 1f + FastMath.sin(time * 2f) * 0.05f;
+            positions[2] = -2f;
+            
+            rotation.fromAngles(0f, angle, 0f);
+            rotations[0] = rotation.getX();
+            rotations[1] = rotation.getY();
+            rotations[2] = rotation.getZ();
+            rotations[3] = rotation.getW();
+        }
+    }
+    
+    /**
+     * Animation time and the bridge's head pose, for the lifecycle's snapshots.
+     */
+    private class AppSnapshotSource implements SnapshotSource {
+        
+        @Override
+        public float getAnimationTime() {
+            return time;
+        }
+        
+        @Override
+        public void getHeadPose(float[] position, float[] rotation) {
+            System.arraycopy(vrBridge.getHeadPosition(), 0, position, 0, 3);
+            System.arraycopy(vrBridge.getHeadRotation(), 0, rotation, 0, 3);
+        }
+    }
 }
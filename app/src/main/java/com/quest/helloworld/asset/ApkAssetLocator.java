@@ -0,0 +1,88 @@
+package com.quest.helloworld.asset;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetLoadException;
+import com.jme3.asset.AssetLocator;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Locates the APK's own assets, memory-mapping the ones packaged without
+ * compression and streaming the rest - a drop-in replacement for jME's
+ * AndroidLocator.
+ *
+ * Android only hands out a file descriptor and offset for uncompressed
+ * assets; the build keeps .ktx and .qmesh files uncompressed for that
+ * reason. Those become {@link MappedAssetInfo}s over the APK's pages.
+ * The APK can only be mapped read-only, so textures map in place but
+ * meshes get one native copy; the OBB's mappings have neither limit.
+ * Anything compressed falls back to {@link AssetManager#open}, exactly as
+ * before. jME instantiates locators itself, so the Android asset manager
+ * is handed over with {@link #setAssets} first.
+ */
+public class ApkAssetLocator implements AssetLocator {
+
+    private static volatile AssetManager assets;
+
+    private String rootPath = "";
+
+    /**
+     * Must be called before the locator is registered.
+     */
+    public static void setAssets(AssetManager androidAssets) {
+        assets = androidAssets;
+    }
+
+    @Override
+    public void setRootPath(String rootPath) {
+        String root = rootPath.startsWith("/") ? rootPath.substring(1) : rootPath;
+        this.rootPath = root.isEmpty() || root.endsWith("/") ? root : root + "/";
+    }
+
+    @Override
+    public AssetInfo locate(com.jme3.asset.AssetManager manager, AssetKey key) {
+        AssetManager androidAssets = assets;
+        if (androidAssets == null) {
+            throw new AssetLoadException("ApkAssetLocator used before setAssets");
+        }
+        String name = key.getName();
+        String path = rootPath + (name.startsWith("/") ? name.substring(1) : name);
+
+        try (AssetFileDescriptor descriptor = androidAssets.openFd(path);
+             FileInputStream input = new FileInputStream(descriptor.getFileDescriptor())) {
+            ByteBuffer data = input.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength());
+            return new MappedAssetInfo(manager, key, data);
+        } catch (FileNotFoundException e) {
+            // Compressed, or not there at all - openFd doesn't say which
+        } catch (IOException e) {
+            throw new AssetLoadException("Failed to map asset " + path, e);
+        }
+
+        try {
+            // Probe so a missing asset lets the next locator try
+            androidAssets.open(path).close();
+        } catch (IOException e) {
+            return null;
+        }
+        return new AssetInfo(manager, key) {
+            @Override
+            public InputStream openStream() {
+                try {
+                    return androidAssets.open(path);
+                } catch (IOException e) {
+                    throw new AssetLoadException("Failed to open asset " + path, e);
+                }
+            }
+        };
+    }
+}
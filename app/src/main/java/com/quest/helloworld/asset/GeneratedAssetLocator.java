@@ -0,0 +1,65 @@
+package com.quest.helloworld.asset;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetLocator;
+import com.jme3.asset.AssetManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves text assets generated at runtime - material definitions and
+ * shaders assembled from code - so jME loads them like any file and its
+ * own parsers, #import handling and caches apply.
+ *
+ * Content is published with {@link #put} under names below {@link #ROOT},
+ * which no packaged asset uses. Names must change when content does,
+ * since the asset manager caches what it loaded by name.
+ */
+public class GeneratedAssetLocator implements AssetLocator {
+
+    public static final String ROOT = "Generated/";
+
+    private static final Map<String, byte[]> ASSETS = new ConcurrentHashMap<>();
+
+    /**
+     * Publish generated content.
+     * @param name asset name, starting with {@link #ROOT}
+     */
+    public static void put(String name, String text) {
+        if (!name.startsWith(ROOT)) {
+            throw new IllegalArgumentException("Generated asset names start with " + ROOT + ": " + name);
+        }
+        ASSETS.put(name, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Register the locator once per asset manager; repeated calls do nothing.
+     */
+    public static void register(AssetManager assetManager) {
+        assetManager.unregisterLocator("/", GeneratedAssetLocator.class);
+        assetManager.registerLocator("/", GeneratedAssetLocator.class);
+    }
+
+    @Override
+    public void setRootPath(String rootPath) {
+    }
+
+    @Override
+    public AssetInfo locate(AssetManager manager, AssetKey key) {
+        byte[] data = ASSETS.get(key.getName());
+        if (data == null) {
+            return null;
+        }
+        return new AssetInfo(manager, key) {
+            @Override
+            public InputStream openStream() {
+                return new ByteArrayInputStream(data);
+            }
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package com.quest.helloworld.asset;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * An asset whose bytes are memory-mapped rather than streamed.
+ *
+ * Loaders that know about it - {@link MappedMeshLoader} and
+ * {@link MappedKtxLoader} - take slices of {@link #getData()} as their
+ * vertex and image buffers, so the file's pages go to the GPU upload
+ * without ever being copied onto the Java heap. Any other loader still
+ * works through {@link #openStream()}, which reads the mapping directly.
+ *
+ * The slices keep the mapping alive for as long as the mesh or image does.
+ * They must not be freed explicitly, so jME's unsafe native-buffer
+ * deletion has to stay off while mapped assets are in use.
+ */
+public class MappedAssetInfo extends AssetInfo {
+
+    private final ByteBuffer data;
+
+    public MappedAssetInfo(AssetManager manager, AssetKey key, ByteBuffer data) {
+        super(manager, key);
+        this.data = data;
+    }
+
+    /**
+     * The whole asset, position 0, little-endian. Each call returns a new
+     * view sharing the mapping, so callers may move its position freely.
+     */
+    public ByteBuffer getData() {
+        return data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Asset size in bytes. */
+    public int getLength() {
+        return data.capacity();
+    }
+
+    @Override
+    public InputStream openStream() {
+        return new BufferInputStream(getData());
+    }
+
+    /**
+     * Reads a buffer from its position to its limit.
+     */
+    static class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.quest.helloworld.asset;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.plugins.AndroidLocator;
+
+import java.io.File;
+
+/**
+ * Switches an asset manager over to memory-mapped loading: APK assets
+ * through {@link ApkAssetLocator}, the OBB expansion file through
+ * {@link MappedZipLocator}, and .ktx / .qmesh through the loaders that
+ * can use the mappings.
+ */
+public final class MappedAssets {
+
+    private MappedAssets() {
+    }
+
+    /**
+     * @param apkAssets the activity's asset manager
+     * @param obb expansion file, or null if the app has none
+     */
+    public static void install(AssetManager assetManager, android.content.res.AssetManager apkAssets, File obb) {
+        ApkAssetLocator.setAssets(apkAssets);
+        // Locators are tried in registration order; replace jME's rather than queue behind it
+        assetManager.unregisterLocator("/", AndroidLocator.class);
+        assetManager.registerLocator("/", ApkAssetLocator.class);
+        if (obb != null && obb.isFile()) {
+            assetManager.registerLocator(obb.getPath(), MappedZipLocator.class);
+        }
+        assetManager.registerLoader(MappedKtxLoader.class, "ktx");
+        assetManager.registerLoader(MappedMeshLoader.class, MeshFile.EXTENSION);
+    }
+}
@@ -0,0 +1,161 @@
+package com.quest.helloworld.asset;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetLoader;
+import com.jme3.asset.TextureKey;
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.texture.plugins.ktx.KTXLoader;
+import com.jme3.util.BufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Loads KTX 1.1 textures from a {@link MappedAssetInfo} without copying
+ * them onto the heap.
+ *
+ * A texture with a single level is handed to jME as a slice of the mapped
+ * file, so the upload reads straight from the file's pages. With a mip
+ * chain the levels are separated by size fields in the file, so they are
+ * gathered into one direct buffer - a native copy, still nothing on the
+ * heap. jME's own KTXLoader converts pixel by pixel through a heap array.
+ *
+ * 2D RGBA8, RGB8, RGB565, RGBA16F and ETC1 textures are mapped. Anything
+ * else - cube maps, arrays, other formats, big-endian files, rows stored
+ * top-down, or an asset that isn't mapped - goes to jME's KTXLoader.
+ * As there, the image is used as stored; TextureKey.isFlipY is ignored.
+ */
+public class MappedKtxLoader implements AssetLoader {
+
+    private static final byte[] IDENTIFIER = {
+        (byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n', 0x1A, '\n'
+    };
+    private static final int HEADER_BYTES = 64;
+    private static final int ENDIANNESS = 0x04030201;
+
+    private static final int GL_RGBA8 = 0x8058;
+    private static final int GL_SRGB8_ALPHA8 = 0x8C43;
+    private static final int GL_RGB8 = 0x8051;
+    private static final int GL_SRGB8 = 0x8C41;
+    private static final int GL_RGB565 = 0x8D62;
+    private static final int GL_RGBA16F = 0x881A;
+    private static final int GL_ETC1_RGB8_OES = 0x8D64;
+
+    private static final String ORIENTATION_KEY = "KTXorientation";
+
+    @Override
+    public Object load(AssetInfo info) throws IOException {
+        if (!(info.getKey() instanceof TextureKey)) {
+            throw new IllegalArgumentException("Texture assets must be loaded using a TextureKey");
+        }
+        Image image = info instanceof MappedAssetInfo ? loadMapped(((MappedAssetInfo) info).getData()) : null;
+        return image != null ? image : new KTXLoader().load(info);
+    }
+
+    /**
+     * @return null if the file needs jME's loader
+     */
+    private static Image loadMapped(ByteBuffer data) throws IOException {
+        if (data.remaining() < HEADER_BYTES) {
+            throw new IOException("Truncated KTX header");
+        }
+        for (int i = 0; i < IDENTIFIER.length; i++) {
+            if (data.get(i) != IDENTIFIER[i]) {
+                throw new IOException("Not a KTX file");
+            }
+        }
+        if (data.getInt(12) != ENDIANNESS) {
+            return null;
+        }
+        int internalFormat = data.getInt(28);
+        int width = data.getInt(36);
+        int height = data.getInt(40);
+        int depth = data.getInt(44);
+        int arrayElements = data.getInt(48);
+        int faces = data.getInt(52);
+        int levels = Math.max(1, data.getInt(56));
+        int keyValueBytes = data.getInt(60);
+        if (keyValueBytes < 0 || HEADER_BYTES + keyValueBytes > data.limit()) {
+            throw new IOException("Truncated KTX metadata");
+        }
+        if (depth != 0 || arrayElements != 0 || faces != 1 || height == 0) {
+            return null;
+        }
+
+        Image.Format format;
+        ColorSpace colorSpace = ColorSpace.Linear;
+        switch (internalFormat) {
+            case GL_SRGB8_ALPHA8: format = Image.Format.RGBA8; colorSpace = ColorSpace.sRGB; break;
+            case GL_RGBA8: format = Image.Format.RGBA8; break;
+            case GL_SRGB8: format = Image.Format.RGB8; colorSpace = ColorSpace.sRGB; break;
+            case GL_RGB8: format = Image.Format.RGB8; break;
+            case GL_RGB565: format = Image.Format.RGB565; break;
+            case GL_RGBA16F: format = Image.Format.RGBA16F; break;
+            case GL_ETC1_RGB8_OES: format = Image.Format.ETC1; break;
+            default: return null;
+        }
+        if (isTopDown(data, HEADER_BYTES, keyValueBytes)) {
+            return null;
+        }
+
+        int position = HEADER_BYTES + keyValueBytes;
+        ArrayList<ByteBuffer> levelData = new ArrayList<>(levels);
+        int[] mipSizes = new int[levels];
+        int total = 0;
+        for (int level = 0; level < levels; level++) {
+            if (position + 4 > data.limit()) {
+                throw new IOException("Truncated KTX mip level " + level);
+            }
+            int size = data.getInt(position);
+            position += 4;
+            if (size < 0 || position + size > data.limit()) {
+                throw new IOException("Truncated KTX mip level " + level);
+            }
+            ByteBuffer slice = data.duplicate();
+            slice.position(position).limit(position + size);
+            levelData.add(slice.slice());
+            mipSizes[level] = size;
+            total += size;
+            // Levels are padded to 4 bytes
+            position += (size + 3) & ~3;
+        }
+
+        ByteBuffer pixels;
+        if (levels == 1) {
+            pixels = levelData.get(0);
+        } else {
+            pixels = BufferUtils.createByteBuffer(total);
+            for (ByteBuffer level : levelData) {
+                pixels.put(level);
+            }
+            pixels.flip();
+        }
+        return new Image(format, width, height, pixels, levels > 1 ? mipSizes : null, colorSpace);
+    }
+
+    // Like jME's loader, rows are taken as bottom-up unless the orientation metadata says T=d
+    private static boolean isTopDown(ByteBuffer data, int start, int length) {
+        int position = start;
+        int end = start + length;
+        while (position + 4 <= end) {
+            int size = data.getInt(position);
+            int pair = position + 4;
+            if (size < 0 || pair + size > end) {
+                break;
+            }
+            byte[] bytes = new byte[size];
+            ByteBuffer view = data.duplicate();
+            view.position(pair);
+            view.get(bytes);
+            String entry = new String(bytes, StandardCharsets.UTF_8);
+            if (entry.startsWith(ORIENTATION_KEY + "\0")) {
+                return entry.contains("T=d");
+            }
+            position = pair + ((size + 3) & ~3);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+package com.quest.helloworld.asset;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetLoader;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Loads {@link MeshFile .qmesh} meshes, e.g.
+ * {@code (Mesh) assetManager.loadAsset("Models/rock.qmesh")}.
+ *
+ * From a {@link MappedAssetInfo} the vertex buffers are views of the mapped
+ * file and nothing is copied. From any other locator the file is read
+ * straight into one direct buffer, sized from its header, which the
+ * buffers then view - still no whole-file copy on the heap.
+ */
+public class MappedMeshLoader implements AssetLoader {
+
+    @Override
+    public Object load(AssetInfo info) throws IOException {
+        if (info instanceof MappedAssetInfo) {
+            return MeshFile.read(((MappedAssetInfo) info).getData());
+        }
+        try (InputStream in = info.openStream()) {
+            return MeshFile.read(readDirect(in));
+        }
+    }
+
+    private static ByteBuffer readDirect(InputStream in) throws IOException {
+        ReadableByteChannel channel = Channels.newChannel(in);
+        ByteBuffer header = ByteBuffer.allocate(MeshFile.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header);
+        int bufferCount = header.getInt(16);
+        if (header.getInt(0) != MeshFile.MAGIC || bufferCount < 0 || bufferCount > VertexBuffer.Type.values().length) {
+            throw new IOException("Not a qmesh file");
+        }
+        ByteBuffer entries = ByteBuffer.allocate(MeshFile.BUFFER_BYTES * bufferCount).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, entries);
+        long length = header.capacity() + entries.capacity();
+        for (int i = 0; i < bufferCount; i++) {
+            int entry = MeshFile.BUFFER_BYTES * i;
+            length = Math.max(length, (entries.getInt(entry + 16) & 0xFFFFFFFFL) + (entries.getInt(entry + 20) & 0xFFFFFFFFL));
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt qmesh header");
+        }
+
+        ByteBuffer file = BufferUtils.createByteBuffer((int) length);
+        header.clear();
+        entries.clear();
+        file.put(header).put(entries);
+        readFully(channel, file);
+        file.clear();
+        return file;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Truncated qmesh file");
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.quest.helloworld.asset;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetLoadException;
+import com.jme3.asset.AssetLocator;
+import com.jme3.asset.AssetManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Locates assets inside a zip archive, normally the OBB expansion file, by
+ * memory-mapping them instead of inflating them through a stream.
+ *
+ * Register it with the archive's path as the root, e.g.
+ * {@code assetManager.registerLocator(obb.getPath(), MappedZipLocator.class)}.
+ * Stored entries become {@link MappedAssetInfo}s over the archive's own
+ * pages. Deflated entries still load, inflated from the mapped compressed
+ * bytes, but can't be zero-copy - build the OBB with compression off.
+ *
+ * jME creates a locator per thread, so the parsed archive index is shared
+ * between them and kept open for the life of the process.
+ */
+public class MappedZipLocator implements AssetLocator {
+
+    private static final Map<String, ZipIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private ZipIndex index;
+
+    @Override
+    public void setRootPath(String rootPath) {
+        index = INDEXES.computeIfAbsent(new File(rootPath).getAbsolutePath(), path -> {
+            try {
+                return new ZipIndex(new File(path));
+            } catch (IOException e) {
+                throw new AssetLoadException("Failed to open zip file: " + path, e);
+            }
+        });
+    }
+
+    @Override
+    public AssetInfo locate(AssetManager manager, AssetKey key) {
+        String name = key.getName();
+        if (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        ZipIndex.Entry entry = index.get(name);
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer data;
+        try {
+            data = index.map(entry);
+        } catch (IOException e) {
+            throw new AssetLoadException("Failed to map " + name + " from " + index.getFile(), e);
+        }
+        if (entry.method == ZipIndex.STORED) {
+            return new MappedAssetInfo(manager, key, data);
+        }
+        return new DeflatedAssetInfo(manager, key, data);
+    }
+
+    /**
+     * A compressed entry, inflated on every open.
+     */
+    private static class DeflatedAssetInfo extends AssetInfo {
+
+        private final ByteBuffer compressed;
+
+        DeflatedAssetInfo(AssetManager manager, AssetKey key, ByteBuffer compressed) {
+            super(manager, key);
+            this.compressed = compressed;
+        }
+
+        @Override
+        public InputStream openStream() {
+            Inflater inflater = new Inflater(true);
+            return new InflaterInputStream(new MappedAssetInfo.BufferInputStream(compressed.duplicate()), inflater) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    inflater.end();
+                }
+            };
+        }
+    }
+}
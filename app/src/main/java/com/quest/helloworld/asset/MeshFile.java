@@ -0,0 +1,204 @@
+package com.quest.helloworld.asset;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The .qmesh format: a mesh's vertex buffers laid out exactly as the GPU
+ * takes them, so a mapped file can back the buffers directly.
+ *
+ * <pre>
+ *   header   magic "QMSH", version, mode, vertex count, buffer count (int32 each)
+ *   buffers  per buffer: type, format, components, normalized, offset, length (int32 each)
+ *   data     each buffer's bytes, little-endian, at a 16-byte aligned offset
+ * </pre>
+ * Type, format and mode are jME enum ordinals. Interleaved meshes aren't supported.
+ */
+public final class MeshFile {
+
+    public static final String EXTENSION = "qmesh";
+
+    static final int MAGIC = 'Q' | 'M' << 8 | 'S' << 16 | 'H' << 24;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 20;
+    static final int BUFFER_BYTES = 24;
+    private static final int ALIGNMENT = 16;
+
+    private MeshFile() {
+    }
+
+    /**
+     * Write a mesh. Buffers are written from 0 to their limit.
+     */
+    public static void write(Mesh mesh, OutputStream out) throws IOException {
+        if (mesh.getBuffer(VertexBuffer.Type.InterleavedData) != null) {
+            throw new IllegalArgumentException("Interleaved meshes can't be written");
+        }
+        List<VertexBuffer> buffers = new ArrayList<>();
+        List<ByteBuffer> contents = new ArrayList<>();
+        for (VertexBuffer buffer : mesh.getBufferList()) {
+            if (buffer.getData() != null) {
+                buffers.add(buffer);
+                contents.add(toBytes(buffer.getData()));
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + BUFFER_BYTES * buffers.size())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(mesh.getMode().ordinal())
+                .putInt(mesh.getVertexCount()).putInt(buffers.size());
+        int offset = align(header.capacity());
+        for (int i = 0; i < buffers.size(); i++) {
+            VertexBuffer buffer = buffers.get(i);
+            int length = contents.get(i).remaining();
+            header.putInt(buffer.getBufferType().ordinal()).putInt(buffer.getFormat().ordinal())
+                    .putInt(buffer.getNumComponents()).putInt(buffer.isNormalized() ? 1 : 0)
+                    .putInt(offset).putInt(length);
+            offset = align(offset + length);
+        }
+        header.flip();
+
+        WritableByteChannel channel = Channels.newChannel(out);
+        int written = writeFully(channel, header);
+        for (ByteBuffer content : contents) {
+            written += writeFully(channel, ByteBuffer.allocate(align(written) - written));
+            written += writeFully(channel, content);
+        }
+    }
+
+    /**
+     * Build a mesh whose buffers are views of the given data, which must
+     * hold the whole file and stay valid as long as the mesh is used.
+     * jME won't take read-only vertex buffers, so read-only data is first
+     * copied to a direct buffer.
+     */
+    public static Mesh read(ByteBuffer data) throws IOException {
+        ByteBuffer file = data.duplicate();
+        if (file.isReadOnly()) {
+            ByteBuffer copy = BufferUtils.createByteBuffer(file.limit());
+            file.position(0);
+            copy.put(file).clear();
+            file = copy;
+        }
+        file.order(ByteOrder.LITTLE_ENDIAN);
+        if (file.limit() < HEADER_BYTES || file.getInt(0) != MAGIC) {
+            throw new IOException("Not a qmesh file");
+        }
+        if (file.getInt(4) != VERSION) {
+            throw new IOException("Unsupported qmesh version " + file.getInt(4));
+        }
+        Mesh.Mode[] modes = Mesh.Mode.values();
+        VertexBuffer.Type[] types = VertexBuffer.Type.values();
+        VertexBuffer.Format[] formats = VertexBuffer.Format.values();
+        int mode = file.getInt(8);
+        int vertexCount = file.getInt(12);
+        int bufferCount = file.getInt(16);
+        if (mode < 0 || mode >= modes.length || bufferCount < 0
+                || HEADER_BYTES + (long) BUFFER_BYTES * bufferCount > file.limit()) {
+            throw new IOException("Corrupt qmesh header");
+        }
+
+        Mesh mesh = new Mesh();
+        mesh.setMode(modes[mode]);
+        for (int i = 0; i < bufferCount; i++) {
+            int entry = HEADER_BYTES + BUFFER_BYTES * i;
+            int type = file.getInt(entry);
+            int format = file.getInt(entry + 4);
+            int components = file.getInt(entry + 8);
+            boolean normalized = file.getInt(entry + 12) != 0;
+            int offset = file.getInt(entry + 16);
+            int length = file.getInt(entry + 20);
+            if (type < 0 || type >= types.length || format < 0 || format >= formats.length
+                    || offset < 0 || length < 0 || (long) offset + length > file.limit()) {
+                throw new IOException("Corrupt qmesh buffer " + i);
+            }
+            ByteBuffer bytes = file.duplicate();
+            bytes.position(offset).limit(offset + length);
+            bytes = bytes.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+            VertexBuffer buffer = new VertexBuffer(types[type]);
+            buffer.setupData(VertexBuffer.Usage.Static, components, formats[format], view(bytes, formats[format]));
+            buffer.setNormalized(normalized);
+            mesh.setBuffer(buffer);
+        }
+        mesh.updateCounts();
+        if (mesh.getVertexCount() != vertexCount) {
+            throw new IOException("qmesh vertex count " + mesh.getVertexCount() + ", header says " + vertexCount);
+        }
+        mesh.updateBound();
+        return mesh;
+    }
+
+    private static Buffer view(ByteBuffer bytes, VertexBuffer.Format format) {
+        switch (format) {
+            case Float: return bytes.asFloatBuffer();
+            case Double: return bytes.asDoubleBuffer();
+            case Short:
+            case UnsignedShort: return bytes.asShortBuffer();
+            case Int:
+            case UnsignedInt: return bytes.asIntBuffer();
+            default: return bytes;
+        }
+    }
+
+    private static ByteBuffer toBytes(Buffer data) {
+        int limit = data.limit();
+        if (data instanceof ByteBuffer) {
+            ByteBuffer source = ((ByteBuffer) data).duplicate();
+            source.clear().limit(limit);
+            return source;
+        }
+        ByteBuffer bytes;
+        if (data instanceof FloatBuffer) {
+            FloatBuffer source = ((FloatBuffer) data).duplicate();
+            source.clear().limit(limit);
+            bytes = ByteBuffer.allocate(limit * 4).order(ByteOrder.LITTLE_ENDIAN);
+            bytes.asFloatBuffer().put(source);
+        } else if (data instanceof ShortBuffer) {
+            ShortBuffer source = ((ShortBuffer) data).duplicate();
+            source.clear().limit(limit);
+            bytes = ByteBuffer.allocate(limit * 2).order(ByteOrder.LITTLE_ENDIAN);
+            bytes.asShortBuffer().put(source);
+        } else if (data instanceof IntBuffer) {
+            IntBuffer source = ((IntBuffer) data).duplicate();
+            source.clear().limit(limit);
+            bytes = ByteBuffer.allocate(limit * 4).order(ByteOrder.LITTLE_ENDIAN);
+            bytes.asIntBuffer().put(source);
+        } else if (data instanceof DoubleBuffer) {
+            DoubleBuffer source = ((DoubleBuffer) data).duplicate();
+            source.clear().limit(limit);
+            bytes = ByteBuffer.allocate(limit * 8).order(ByteOrder.LITTLE_ENDIAN);
+            bytes.asDoubleBuffer().put(source);
+        } else {
+            throw new IllegalArgumentException("Unsupported buffer " + data.getClass());
+        }
+        return bytes;
+    }
+
+    private static int writeFully(WritableByteChannel channel, ByteBuffer bytes) throws IOException {
+        int count = bytes.remaining();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        return count;
+    }
+
+    private static int align(int offset) {
+        return (offset + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
@@ -0,0 +1,183 @@
+package com.quest.helloworld.asset;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table of contents of a zip archive - an APK or OBB expansion file - read
+ * from its central directory, with each entry's data reachable by offset.
+ *
+ * Stored (uncompressed) entries can be mapped in place, which is why OBB
+ * and APK assets meant for mapping are packaged without compression.
+ * Zip64 archives, over 4 GB or 65535 entries, are not supported.
+ */
+class ZipIndex {
+
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int END_BYTES = 22;
+    private static final int MAX_COMMENT = 0xFFFF;
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_BYTES = 46;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_BYTES = 30;
+    private static final int FLAG_ENCRYPTED = 1;
+
+    static class Entry {
+        final String name;
+        final int method;
+        final long compressedSize;
+        final long size;
+        private final long headerOffset;
+        private volatile long dataOffset = -1;
+
+        Entry(String name, int method, long compressedSize, long size, long headerOffset) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.headerOffset = headerOffset;
+        }
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final FileChannel.MapMode mapMode;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    ZipIndex(File file) throws IOException {
+        this.file = file;
+        // A private (copy-on-write) mapping shares the page cache like a read-only
+        // one but gives writable buffers, which jME's VertexBuffer insists on.
+        // Java only allows it on a channel opened for writing.
+        FileChannel opened;
+        FileChannel.MapMode mode;
+        try {
+            opened = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            mode = FileChannel.MapMode.PRIVATE;
+        } catch (IOException | SecurityException e) {
+            opened = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            mode = FileChannel.MapMode.READ_ONLY;
+        }
+        channel = opened;
+        mapMode = mode;
+        try {
+            readCentralDirectory();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void readCentralDirectory() throws IOException {
+        long length = channel.size();
+        int tailBytes = (int) Math.min(length, END_BYTES + MAX_COMMENT);
+        ByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, length - tailBytes, tailBytes)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int end = -1;
+        for (int i = tailBytes - END_BYTES; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            throw new IOException("Not a zip archive: " + file);
+        }
+
+        int count = tail.getShort(end + 10) & 0xFFFF;
+        long directorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+        long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+        if (count == 0xFFFF || directoryOffset == 0xFFFFFFFFL) {
+            throw new IOException("Zip64 archives are not supported: " + file);
+        }
+        if (directoryOffset + directorySize > length) {
+            throw new IOException("Truncated zip archive: " + file);
+        }
+
+        MappedByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, directorySize);
+        directory.order(ByteOrder.LITTLE_ENDIAN);
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            if (position + CENTRAL_BYTES > directorySize || directory.getInt(position) != CENTRAL_SIGNATURE) {
+                throw new IOException("Corrupt zip central directory: " + file);
+            }
+            int flags = directory.getShort(position + 8) & 0xFFFF;
+            int method = directory.getShort(position + 10) & 0xFFFF;
+            long compressedSize = directory.getInt(position + 20) & 0xFFFFFFFFL;
+            long size = directory.getInt(position + 24) & 0xFFFFFFFFL;
+            int nameLength = directory.getShort(position + 28) & 0xFFFF;
+            int extraLength = directory.getShort(position + 30) & 0xFFFF;
+            int commentLength = directory.getShort(position + 32) & 0xFFFF;
+            long headerOffset = directory.getInt(position + 42) & 0xFFFFFFFFL;
+
+            byte[] nameBytes = new byte[nameLength];
+            directory.position(position + CENTRAL_BYTES);
+            directory.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            boolean usable = (flags & FLAG_ENCRYPTED) == 0 && (method == STORED || method == DEFLATED)
+                    && !name.endsWith("/");
+            if (usable) {
+                entries.put(name, new Entry(name, method, compressedSize, size, headerOffset));
+            }
+            position += CENTRAL_BYTES + nameLength + extraLength + commentLength;
+        }
+    }
+
+    /** Entry for a path inside the archive, or null. */
+    Entry get(String name) {
+        return entries.get(name);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Map an entry's data as stored - the file itself for stored entries,
+     * the compressed stream for deflated ones. The mapping is writable,
+     * copy-on-write, unless the archive couldn't be opened for writing.
+     */
+    MappedByteBuffer map(Entry entry) throws IOException {
+        if (entry.compressedSize > Integer.MAX_VALUE) {
+            throw new IOException("Zip entry " + entry.name + " too large to map: " + entry.compressedSize + " bytes");
+        }
+        return channel.map(mapMode, dataOffset(entry), entry.compressedSize);
+    }
+
+    // The local header's extra field can differ from the central one, so its length is read from there
+    private long dataOffset(Entry entry) throws IOException {
+        long offset = entry.dataOffset;
+        if (offset >= 0) {
+            return offset;
+        }
+        ByteBuffer header = ByteBuffer.allocate(LOCAL_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, entry.headerOffset + header.position()) < 0) {
+                throw new IOException("Truncated zip entry " + entry.name + " in " + file);
+            }
+        }
+        if (header.getInt(0) != LOCAL_SIGNATURE) {
+            throw new IOException("Corrupt zip entry " + entry.name + " in " + file);
+        }
+        int nameLength = header.getShort(26) & 0xFFFF;
+        int extraLength = header.getShort(28) & 0xFFFF;
+        offset = entry.headerOffset + LOCAL_BYTES + nameLength + extraLength;
+        entry.dataOffset = offset;
+        return offset;
+    }
+}
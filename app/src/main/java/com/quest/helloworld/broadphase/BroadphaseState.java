@@ -0,0 +1,200 @@
+package com.quest.helloworld.broadphase;
+
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.renderer.RenderManager;
+import com.jme3.scene.Spatial;
+
+import java.util.Arrays;
+
+/**
+ * App state that keeps the interactive objects in a
+ * {@link SpatialHashGrid} and answers, every frame, which objects are
+ * within each controller's grab range and which objects overlap.
+ *
+ * Objects are bounded by spheres around their world bounds, read just
+ * before rendering, once this frame's transforms are final. Results are
+ * for the frame being rendered and are what the next frame's update sees.
+ * The application hands over the controller positions it got from the
+ * VR bridge with {@link #setControllerPosition}.
+ */
+public class BroadphaseState extends AbstractAppState {
+
+    private static final String TAG = "Broadphase";
+    private static final int HANDS = 2;
+
+    private final SpatialHashGrid grid;
+    private final float grabRadius;
+    private final OverlapPairs pairs = new OverlapPairs();
+
+    // Tracked spatials by grid id
+    private Spatial[] spatials = new Spatial[64];
+
+    private final float[] controllers = new float[HANDS * 3];
+    private final boolean[] controllerTracked = new boolean[HANDS];
+    private final int[] inRange = new int[HANDS];
+    private final Spatial[] nearest = new Spatial[HANDS];
+    private int[] queryResults = new int[64];
+
+    private long frames = 0;
+    private long updateNanos = 0;
+
+    /**
+     * @param cellSize grid cell edge, at least the diameter of most objects
+     * @param grabRadius how far from a controller an object's bounds can be grabbed
+     */
+    public BroadphaseState(float cellSize, float grabRadius) {
+        this.grid = new SpatialHashGrid(cellSize, 64);
+        this.grabRadius = grabRadius;
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        Log.i(TAG, "Broadphase started - " + grid.size() + " objects, "
+                + grid.getCellSize() + " m cells, " + grabRadius + " m grab range");
+    }
+
+    /**
+     * Track a spatial as an interactive object.
+     */
+    public void add(Spatial spatial) {
+        BoundingVolume bound = spatial.getWorldBound();
+        int id = grid.add(bound.getCenter().x, bound.getCenter().y, bound.getCenter().z, radiusOf(bound));
+        if (id >= spatials.length) {
+            spatials = Arrays.copyOf(spatials, Math.max(id + 1, spatials.length * 2));
+        }
+        spatials[id] = spatial;
+    }
+
+    public void remove(Spatial spatial) {
+        for (int id = 0; id < grid.getIdLimit(); id++) {
+            if (spatials[id] == spatial) {
+                grid.remove(id);
+                spatials[id] = null;
+                return;
+            }
+        }
+    }
+
+    private static float radiusOf(BoundingVolume bound) {
+        if (bound instanceof BoundingSphere) {
+            return ((BoundingSphere) bound).getRadius();
+        }
+        if (bound instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) bound;
+            float x = box.getXExtent();
+            float y = box.getYExtent();
+            float z = box.getZExtent();
+            return (float) Math.sqrt(x * x + y * y + z * z);
+        }
+        return 0f;
+    }
+
+    /**
+     * @param hand 0 for left, 1 for right
+     * @param position the controller's position, or null when it isn't tracked
+     */
+    public void setControllerPosition(int hand, float[] position) {
+        controllerTracked[hand] = position != null;
+        if (position != null) {
+            controllers[hand * 3] = position[0];
+            controllers[hand * 3 + 1] = position[1];
+            controllers[hand * 3 + 2] = position[2];
+        }
+    }
+
+    @Override
+    public void render(RenderManager rm) {
+        super.render(rm);
+        long start = System.nanoTime();
+
+        for (int id = 0; id < grid.getIdLimit(); id++) {
+            Spatial spatial = spatials[id];
+            if (spatial != null) {
+                BoundingVolume bound = spatial.getWorldBound();
+                grid.move(id, bound.getCenter().x, bound.getCenter().y, bound.getCenter().z, radiusOf(bound));
+            }
+        }
+        for (int hand = 0; hand < HANDS; hand++) {
+            queryController(hand);
+        }
+        grid.findPairs(pairs);
+
+        updateNanos += System.nanoTime() - start;
+        frames++;
+    }
+
+    private void queryController(int hand) {
+        inRange[hand] = 0;
+        nearest[hand] = null;
+        if (!controllerTracked[hand]) {
+            return;
+        }
+        float cx = controllers[hand * 3];
+        float cy = controllers[hand * 3 + 1];
+        float cz = controllers[hand * 3 + 2];
+        int found = grid.query(cx, cy, cz, grabRadius, queryResults);
+        if (found > queryResults.length) {
+            queryResults = new int[found * 2];
+            found = grid.query(cx, cy, cz, grabRadius, queryResults);
+        }
+        inRange[hand] = found;
+
+        // Nearest by distance to the bounds' surface
+        float best = Float.MAX_VALUE;
+        for (int i = 0; i < found; i++) {
+            int id = queryResults[i];
+            float dx = grid.getX(id) - cx;
+            float dy = grid.getY(id) - cy;
+            float dz = grid.getZ(id) - cz;
+            float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz) - grid.getRadius(id);
+            if (distance < best) {
+                best = distance;
+                nearest[hand] = spatials[id];
+            }
+        }
+    }
+
+    /**
+     * How many objects are within a controller's grab range.
+     */
+    public int getInRangeCount(int hand) {
+        return inRange[hand];
+    }
+
+    /**
+     * The object within a controller's grab range closest to it, or null.
+     */
+    public Spatial getNearestInRange(int hand) {
+        return nearest[hand];
+    }
+
+    /**
+     * Pairs of overlapping objects, as of the last rendered frame.
+     */
+    public int getPairCount() {
+        return pairs.size();
+    }
+
+    public Spatial getPairFirst(int pair) {
+        return spatials[pairs.getFirst(pair)];
+    }
+
+    public Spatial getPairSecond(int pair) {
+        return spatials[pairs.getSecond(pair)];
+    }
+
+    public String summary() {
+        return String.format("Broadphase: %d objects, %d overlapping pairs; in grab range left %d, right %d; "
+                        + "%.3f ms per frame",
+                grid.size(), pairs.size(), inRange[0], inRange[1],
+                frames > 0 ? updateNanos * 1e-6f / frames : 0f);
+    }
+}
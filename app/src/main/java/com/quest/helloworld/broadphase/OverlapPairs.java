@@ -0,0 +1,44 @@
+package com.quest.helloworld.broadphase;
+
+import java.util.Arrays;
+
+/**
+ * Pairs of object ids, reused frame to frame so finding overlaps doesn't
+ * allocate once it has grown to the scene's size.
+ */
+public class OverlapPairs {
+
+    // First and second id of each pair, interleaved
+    private int[] ids = new int[256];
+    private int count = 0;
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Add a pair, lower id first.
+     */
+    public void add(int a, int b) {
+        if (count * 2 == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[count * 2] = Math.min(a, b);
+        ids[count * 2 + 1] = Math.max(a, b);
+        count++;
+    }
+
+    /** The lower id of a pair. */
+    public int getFirst(int pair) {
+        return ids[pair * 2];
+    }
+
+    /** The higher id of a pair. */
+    public int getSecond(int pair) {
+        return ids[pair * 2 + 1];
+    }
+}
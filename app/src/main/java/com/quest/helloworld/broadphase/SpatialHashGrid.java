@@ -0,0 +1,816 @@
+package com.quest.helloworld.broadphase;
+
+import java.util.Arrays;
+
+/**
+ * Spheres in a uniform grid of cubic cells, hashed so the grid covers any
+ * extent, for radius queries and overlapping pairs without testing every
+ * object against every other.
+ *
+ * Cells are grouped into bricks of 4x4x4. A hash table with linear
+ * probing maps the coordinates of each occupied brick to a dense block of
+ * 64 cell heads, so a cell's neighbours are found by index arithmetic and
+ * the hash is only consulted once per brick. Everything lives in
+ * primitive arrays. Per object id: position and radius, the packed
+ * coordinates of its cell, its brick, and links chaining the objects of a
+ * cell into a doubly linked list. Moving an object only relinks it when it
+ * crosses into another cell, so a frame's updates cost little more than
+ * writing the positions. A brick is released when its last object leaves.
+ *
+ * The cell size is at least the diameter of the objects, so two objects
+ * that overlap sit in the same or neighbouring cells. For pairs, the
+ * objects are copied out cell by cell into packed arrays, with occupied
+ * bricks side by side along x laid out as one run, so the cells along x
+ * around an object are one stretch of memory whichever brick they fall
+ * in. Each object is tested against its own row of cells forward along x
+ * and the rows of the forward half of its neighbours. Objects wider
+ * than half a cell are kept in a list of their own and tested against
+ * the cells they reach; there should be few of them.
+ */
+public class SpatialHashGrid {
+
+    private static final int NONE = -1;
+    // Cell keys of ids that aren't in the grid, and brick keys of empty
+    // table slots; real keys are never negative
+    private static final long FREE = -1L;
+    private static final long OVERSIZED = -2L;
+    private static final long EMPTY = -1L;
+
+    // 21 bits per axis, sign-extended when unpacked
+    private static final int AXIS_BITS = 21;
+    private static final long AXIS_MASK = (1L << AXIS_BITS) - 1;
+
+    // 4x4x4 cells per brick
+    private static final int BRICK_SHIFT = 2;
+    private static final int BRICK_CELLS = 64;
+    // Brick coordinates, offset to sort as unsigned in order keys
+    private static final int BRICK_AXIS_BITS = AXIS_BITS - BRICK_SHIFT;
+    private static final long BRICK_AXIS_MASK = (1L << BRICK_AXIS_BITS) - 1;
+    private static final int BRICK_BIAS = 1 << (BRICK_AXIS_BITS - 1);
+
+    private final float cellSize;
+    private final float inverseCellSize;
+    private final float maxRadius;
+
+    // Per object id: x, y, z and radius interleaved, so testing one is one cache line
+    private float[] spheres;
+    private long[] cell;
+    private int[] brickOf;
+    private int[] next, prev;
+    private int highWater = 0;
+    private int count = 0;
+    // Removed ids, chained through next
+    private int freeHead = NONE;
+    private int oversizedHead = NONE;
+    private int oversizedCount = 0;
+
+    // Per brick: the heads of its cells, its coordinates and how many objects it holds
+    private int[] heads = new int[0];
+    private int[] brickX = new int[0], brickY = new int[0], brickZ = new int[0];
+    private int[] brickObjects = new int[0];
+    private int brickHighWater = 0;
+    private int brickCount = 0;
+    // Released bricks, chained through brickObjects as ~next
+    private int freeBrick = NONE;
+
+    // Occupied bricks, at most half the slots in use: key, then brick
+    private long[] table = new long[0];
+    private int slotMask;
+
+    // The grid's objects copied out cell by cell while pairs are found.
+    // Occupied bricks side by side along x make a run, and a run's cells
+    // sharing y and z a row. Every cell of a run has a slot, numbered row
+    // by row along x; slotStart holds where each slot's objects start in
+    // the packed ids, cell x coordinates and spheres.
+    private int[] slotStart = new int[0];
+    private int[] slotOf = new int[0];
+    private int[] packedId = new int[0];
+    private int[] packedX = new int[0];
+    private float[] packed = new float[0];
+    private int packedCount = 0;
+    // Per brick: its first slot in a row, and how many slots a row has
+    private int[] slotBase = new int[0], slotStride = new int[0];
+    // Per run, sorted like bricks: its first brick's order key and
+    // coordinates, its first slot and how many bricks it has
+    private long[] runOrder = new long[0];
+    private int[] runX = new int[0], runY = new int[0], runZ = new int[0];
+    private int[] runSlot = new int[0], runBricks = new int[0];
+    private int runCount = 0;
+    // The runs around one; see nearRuns()
+    private int[] near = new int[0];
+    private final int[] nearFrom = new int[7];
+
+    /**
+     * @param cellSize edge of a cell; objects up to half of it in radius go in the grid
+     * @param capacity objects to allocate for; the grid grows past it
+     */
+    public SpatialHashGrid(float cellSize, int capacity) {
+        if (!(cellSize > 0f)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1f / cellSize;
+        this.maxRadius = cellSize * 0.5f;
+        capacity = Math.max(16, capacity);
+        spheres = new float[capacity * 4];
+        cell = new long[capacity];
+        brickOf = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        resizeTable(64);
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * One past the highest id in use; ids below it may be free.
+     */
+    public int getIdLimit() {
+        return highWater;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < highWater && cell[id] != FREE;
+    }
+
+    public float getX(int id) {
+        return spheres[id * 4];
+    }
+
+    public float getY(int id) {
+        return spheres[id * 4 + 1];
+    }
+
+    public float getZ(int id) {
+        return spheres[id * 4 + 2];
+    }
+
+    public float getRadius(int id) {
+        return spheres[id * 4 + 3];
+    }
+
+    /** Occupied bricks of 4x4x4 cells. */
+    public int getBrickCount() {
+        return brickCount;
+    }
+
+    /**
+     * Add a sphere.
+     * @return its id, which stays the same until it's removed; removed ids are reused
+     */
+    public int add(float px, float py, float pz, float r) {
+        int id;
+        if (freeHead != NONE) {
+            id = freeHead;
+            freeHead = next[id];
+        } else {
+            if (highWater == cell.length) {
+                int capacity = highWater * 2;
+                spheres = Arrays.copyOf(spheres, capacity * 4);
+                cell = Arrays.copyOf(cell, capacity);
+                brickOf = Arrays.copyOf(brickOf, capacity);
+                next = Arrays.copyOf(next, capacity);
+                prev = Arrays.copyOf(prev, capacity);
+            }
+            id = highWater++;
+        }
+        count++;
+        place(id, px, py, pz, r);
+        return id;
+    }
+
+    public void remove(int id) {
+        if (!contains(id)) {
+            return;
+        }
+        unlink(id);
+        cell[id] = FREE;
+        next[id] = freeHead;
+        freeHead = id;
+        count--;
+    }
+
+    /**
+     * Move a sphere. Only relinks it when it changes cell.
+     */
+    public void move(int id, float px, float py, float pz) {
+        long key = cell[id];
+        if (key >= 0) {
+            int cx = cellOf(px);
+            int cy = cellOf(py);
+            int cz = cellOf(pz);
+            if (key(cx, cy, cz) != key) {
+                unlink(id);
+                link(id, cx, cy, cz);
+            }
+        }
+        if (key != FREE) {
+            spheres[id * 4] = px;
+            spheres[id * 4 + 1] = py;
+            spheres[id * 4 + 2] = pz;
+        }
+    }
+
+    /**
+     * Move a sphere and change its radius.
+     */
+    public void move(int id, float px, float py, float pz, float r) {
+        if (!contains(id)) {
+            return;
+        }
+        if (r == spheres[id * 4 + 3]) {
+            move(id, px, py, pz);
+            return;
+        }
+        unlink(id);
+        place(id, px, py, pz, r);
+    }
+
+    private void place(int id, float px, float py, float pz, float r) {
+        spheres[id * 4] = px;
+        spheres[id * 4 + 1] = py;
+        spheres[id * 4 + 2] = pz;
+        spheres[id * 4 + 3] = r;
+        if (r > maxRadius) {
+            cell[id] = OVERSIZED;
+            prev[id] = NONE;
+            next[id] = oversizedHead;
+            if (oversizedHead != NONE) {
+                prev[oversizedHead] = id;
+            }
+            oversizedHead = id;
+            oversizedCount++;
+        } else {
+            link(id, cellOf(px), cellOf(py), cellOf(pz));
+        }
+    }
+
+    /** Put an object at the head of its cell's list, occupying the brick if it was empty. */
+    private void link(int id, int cx, int cy, int cz) {
+        int brick = brick(cx >> BRICK_SHIFT, cy >> BRICK_SHIFT, cz >> BRICK_SHIFT, true);
+        int head = brick * BRICK_CELLS + local(cx, cy, cz);
+        int first = heads[head];
+        cell[id] = key(cx, cy, cz);
+        brickOf[id] = brick;
+        prev[id] = NONE;
+        next[id] = first;
+        if (first != NONE) {
+            prev[first] = id;
+        }
+        heads[head] = id;
+        brickObjects[brick]++;
+    }
+
+    /** Take an object out of its cell's or the oversized list, releasing its brick if it empties. */
+    private void unlink(int id) {
+        long key = cell[id];
+        int before = prev[id];
+        int after = next[id];
+        if (after != NONE) {
+            prev[after] = before;
+        }
+        if (key == OVERSIZED) {
+            if (before != NONE) {
+                next[before] = after;
+            } else {
+                oversizedHead = after;
+            }
+            oversizedCount--;
+            return;
+        }
+        int brick = brickOf[id];
+        if (before != NONE) {
+            next[before] = after;
+        } else {
+            heads[brick * BRICK_CELLS + local(unpackX(key), unpackY(key), unpackZ(key))] = after;
+        }
+        if (--brickObjects[brick] == 0) {
+            release(brick);
+        }
+    }
+
+    private static int local(int cx, int cy, int cz) {
+        return (cx & 3) | (cy & 3) << 2 | (cz & 3) << 4;
+    }
+
+    /**
+     * The brick at these brick coordinates, or NONE if it's empty and not
+     * to be created.
+     */
+    private int brick(int bx, int by, int bz, boolean create) {
+        long key = key(bx, by, bz);
+        int slot = home(bx, by, bz);
+        long at;
+        while ((at = table[slot * 2]) != EMPTY) {
+            if (at == key) {
+                return (int) table[slot * 2 + 1];
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        if (!create) {
+            return NONE;
+        }
+        if ((brickCount + 1) * 2 > slotMask + 1) {
+            resizeTable((slotMask + 1) * 2);
+            return brick(bx, by, bz, true);
+        }
+
+        int brick;
+        if (freeBrick != NONE) {
+            brick = freeBrick;
+            freeBrick = ~brickObjects[brick];
+        } else {
+            if (brickHighWater == brickObjects.length) {
+                int capacity = Math.max(16, brickHighWater * 2);
+                heads = Arrays.copyOf(heads, capacity * BRICK_CELLS);
+                brickX = Arrays.copyOf(brickX, capacity);
+                brickY = Arrays.copyOf(brickY, capacity);
+                brickZ = Arrays.copyOf(brickZ, capacity);
+                brickObjects = Arrays.copyOf(brickObjects, capacity);
+            }
+            brick = brickHighWater++;
+        }
+        Arrays.fill(heads, brick * BRICK_CELLS, (brick + 1) * BRICK_CELLS, NONE);
+        brickX[brick] = bx;
+        brickY[brick] = by;
+        brickZ[brick] = bz;
+        brickObjects[brick] = 0;
+        brickCount++;
+        table[slot * 2] = key;
+        table[slot * 2 + 1] = brick;
+        return brick;
+    }
+
+    private void release(int brick) {
+        int bx = brickX[brick];
+        int by = brickY[brick];
+        int bz = brickZ[brick];
+        long key = key(bx, by, bz);
+        int slot = home(bx, by, bz);
+        while (table[slot * 2] != key) {
+            slot = (slot + 1) & slotMask;
+        }
+        vacate(slot);
+        brickObjects[brick] = ~freeBrick;
+        freeBrick = brick;
+        brickCount--;
+    }
+
+    /**
+     * Empty a slot, moving later bricks of the same probe run back into it
+     * so lookups never stop at a gap short of their brick.
+     */
+    private void vacate(int slot) {
+        int hole = slot;
+        for (int i = (slot + 1) & slotMask; table[i * 2] != EMPTY; i = (i + 1) & slotMask) {
+            // A brick can fill the hole if its home slot isn't between the hole and it
+            long key = table[i * 2];
+            int home = home(unpackX(key), unpackY(key), unpackZ(key));
+            if (((i - home) & slotMask) >= ((i - hole) & slotMask)) {
+                table[hole * 2] = key;
+                table[hole * 2 + 1] = table[i * 2 + 1];
+                hole = i;
+            }
+        }
+        table[hole * 2] = EMPTY;
+    }
+
+    private void resizeTable(int slots) {
+        table = new long[slots * 2];
+        slotMask = slots - 1;
+        for (int slot = 0; slot < slots; slot++) {
+            table[slot * 2] = EMPTY;
+        }
+        for (int brick = 0; brick < brickHighWater; brick++) {
+            if (brickObjects[brick] > 0) {
+                int slot = home(brickX[brick], brickY[brick], brickZ[brick]);
+                while (table[slot * 2] != EMPTY) {
+                    slot = (slot + 1) & slotMask;
+                }
+                table[slot * 2] = key(brickX[brick], brickY[brick], brickZ[brick]);
+                table[slot * 2 + 1] = brick;
+            }
+        }
+    }
+
+    /**
+     * Find the spheres overlapping a query sphere, such as a controller's
+     * grab range.
+     * @param results filled with the ids found, as many as fit
+     * @return how many were found, which may be more than fit
+     */
+    public int query(float px, float py, float pz, float r, int[] results) {
+        int found = 0;
+        float reach = r + maxRadius;
+        int x0 = cellOf(px - reach), x1 = cellOf(px + reach);
+        int y0 = cellOf(py - reach), y1 = cellOf(py + reach);
+        int z0 = cellOf(pz - reach), z1 = cellOf(pz + reach);
+        long cells = (long) (x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1);
+        if (cells > count) {
+            // Fewer objects than cells to look in: test them all
+            for (int id = 0; id < highWater; id++) {
+                if (cell[id] >= 0 && overlaps(id, px, py, pz, r)) {
+                    found = put(results, found, id);
+                }
+            }
+        } else {
+            // Brick by brick, then the brick's cells within the range
+            for (int bx = x0 >> BRICK_SHIFT; bx <= x1 >> BRICK_SHIFT; bx++) {
+                for (int by = y0 >> BRICK_SHIFT; by <= y1 >> BRICK_SHIFT; by++) {
+                    for (int bz = z0 >> BRICK_SHIFT; bz <= z1 >> BRICK_SHIFT; bz++) {
+                        int brick = brick(bx, by, bz, false);
+                        if (brick != NONE) {
+                            found = queryBrick(brick, bx, by, bz, x0, x1, y0, y1, z0, z1, px, py, pz, r, results, found);
+                        }
+                    }
+                }
+            }
+        }
+        for (int id = oversizedHead; id != NONE; id = next[id]) {
+            if (overlaps(id, px, py, pz, r)) {
+                found = put(results, found, id);
+            }
+        }
+        return found;
+    }
+
+    private int queryBrick(int brick, int bx, int by, int bz, int x0, int x1, int y0, int y1, int z0, int z1,
+                           float px, float py, float pz, float r, int[] results, int found) {
+        int base = brick * BRICK_CELLS;
+        for (int cx = Math.max(x0, bx << BRICK_SHIFT); cx <= Math.min(x1, (bx << BRICK_SHIFT) + 3); cx++) {
+            for (int cy = Math.max(y0, by << BRICK_SHIFT); cy <= Math.min(y1, (by << BRICK_SHIFT) + 3); cy++) {
+                for (int cz = Math.max(z0, bz << BRICK_SHIFT); cz <= Math.min(z1, (bz << BRICK_SHIFT) + 3); cz++) {
+                    for (int id = heads[base + local(cx, cy, cz)]; id != NONE; id = next[id]) {
+                        if (overlaps(id, px, py, pz, r)) {
+                            found = put(results, found, id);
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int put(int[] results, int found, int id) {
+        if (found < results.length) {
+            results[found] = id;
+        }
+        return found + 1;
+    }
+
+    private boolean overlaps(int id, float px, float py, float pz, float r) {
+        float[] spheres = this.spheres;
+        float dx = spheres[id * 4] - px;
+        float dy = spheres[id * 4 + 1] - py;
+        float dz = spheres[id * 4 + 2] - pz;
+        float reach = spheres[id * 4 + 3] + r;
+        return dx * dx + dy * dy + dz * dz < reach * reach;
+    }
+
+    /**
+     * Find every pair of overlapping spheres, each once.
+     * @param pairs cleared, then filled
+     * @return how many pairs were found
+     */
+    public int findPairs(OverlapPairs pairs) {
+        pairs.clear();
+        pack();
+        int[] slotStart = this.slotStart;
+        int[] near = this.near;
+        for (int run = 0; run < runCount; run++) {
+            nearRuns(run);
+            int width = runBricks[run] * 4;
+            int shift = runX[run] << BRICK_SHIFT;
+            for (int lz = 0; lz < 4; lz++) {
+                for (int ly = 0; ly < 4; ly++) {
+                    int row = runSlot[run] + ((lz << 2) | ly) * width;
+                    int first = slotStart[row];
+                    int last = slotStart[row + width];
+                    if (first == last) {
+                        continue;
+                    }
+                    // Along the row itself, then the rows a step up that
+                    // the rows before it haven't paired it with: the next
+                    // along y, and the three around y in the next along z
+                    pairRow(first, last, row, width, shift, pairs);
+                    int side = ly < 3 ? 2 : 4;
+                    for (int i = nearFrom[side]; i < nearFrom[side + 1]; i++) {
+                        pairRows(first, last, near[i], (ly + 1) & 3, lz, pairs);
+                    }
+                    int zSide = lz < 3 ? 0 : 1;
+                    for (int y = ly - 1; y <= ly + 1; y++) {
+                        side = (y < 0 ? 0 : y > 3 ? 2 : 1) * 2 + zSide;
+                        for (int i = nearFrom[side]; i < nearFrom[side + 1]; i++) {
+                            pairRows(first, last, near[i], y & 3, (lz + 1) & 3, pairs);
+                        }
+                    }
+                }
+            }
+        }
+        for (int o = oversizedHead; o != NONE; o = next[o]) {
+            pairOversized(o, pairs);
+        }
+        return pairs.size();
+    }
+
+    /**
+     * The runs a run's rows have neighbours in, a step either way in y and
+     * up to a step up in z: into near, those at dy and dz from
+     * nearFrom[(dy + 1) * 2 + dz] up to the next entry's. Runs are sorted,
+     * so each lot is found by a binary search for the first run that might
+     * reach along x, then read on while they still do.
+     */
+    private void nearRuns(int run) {
+        int n = 0;
+        int x0 = runX[run] - 1;
+        int x1 = runX[run] + runBricks[run];
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dz = 0; dz <= 1; dz++) {
+                int side = (dy + 1) * 2 + dz;
+                nearFrom[side] = n;
+                if (dy == 0 && dz == 0) {
+                    // Runs are apart along x, so a row's only neighbours at the same y and z are its own
+                    near[n++] = run;
+                    continue;
+                }
+                long key = order(x0, runY[run] + dy, runZ[run] + dz);
+                long rows = key >>> BRICK_AXIS_BITS;
+                int at = Arrays.binarySearch(runOrder, 0, runCount, key);
+                // Else the run before where it would go, which may reach past x0
+                at = at >= 0 ? at : Math.max(0, -at - 2);
+                if (at < runCount && runOrder[at] >>> BRICK_AXIS_BITS != rows) {
+                    at++;
+                }
+                for (; at < runCount && runOrder[at] >>> BRICK_AXIS_BITS == rows && runX[at] <= x1; at++) {
+                    if (runX[at] + runBricks[at] > x0) {
+                        near[n++] = at;
+                    }
+                }
+            }
+        }
+        nearFrom[6] = n;
+    }
+
+    /**
+     * Pair each object of a row, packed in [first, last), with those after
+     * it in its cell and those in the next cell along x.
+     */
+    private void pairRow(int first, int last, int row, int width, int shift, OverlapPairs pairs) {
+        float[] packed = this.packed;
+        int[] packedX = this.packedX;
+        int[] slotStart = this.slotStart;
+        for (int a = first; a < last; a++) {
+            int to = slotStart[row + Math.min(packedX[a] - shift + 2, width)];
+            float ax = packed[a * 4], ay = packed[a * 4 + 1], az = packed[a * 4 + 2], ar = packed[a * 4 + 3];
+            for (int b = a + 1; b < to; b++) {
+                float dx = packed[b * 4] - ax;
+                float dy = packed[b * 4 + 1] - ay;
+                float dz = packed[b * 4 + 2] - az;
+                float r = ar + packed[b * 4 + 3];
+                if (dx * dx + dy * dy + dz * dz < r * r) {
+                    pairs.add(packedId[a], packedId[b]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pair each object of a row, packed in [first, last), with those in
+     * the three cells around it along x in row ly, lz of another run. The
+     * cells follow each other in the packed arrays, so that's one run of
+     * objects, found without searching.
+     */
+    private void pairRows(int first, int last, int run, int ly, int lz, OverlapPairs pairs) {
+        float[] packed = this.packed;
+        int[] packedX = this.packedX;
+        int[] slotStart = this.slotStart;
+        int width = runBricks[run] * 4;
+        int row = runSlot[run] + ((lz << 2) | ly) * width;
+        int shift = runX[run] << BRICK_SHIFT;
+        for (int a = first; a < last; a++) {
+            // Clamped to the row; past either end the run of objects is empty
+            int x = packedX[a] - shift;
+            int from = slotStart[row + Math.min(Math.max(x - 1, 0), width)];
+            int to = slotStart[row + Math.min(Math.max(x + 2, 0), width)];
+            float ax = packed[a * 4], ay = packed[a * 4 + 1], az = packed[a * 4 + 2], ar = packed[a * 4 + 3];
+            for (int b = from; b < to; b++) {
+                float dx = packed[b * 4] - ax;
+                float dy = packed[b * 4 + 1] - ay;
+                float dz = packed[b * 4 + 2] - az;
+                float r = ar + packed[b * 4 + 3];
+                if (dx * dx + dy * dy + dz * dz < r * r) {
+                    pairs.add(packedId[a], packedId[b]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the grid's objects out cell by cell in row order, so finding
+     * pairs reads each object's neighbours from consecutive memory instead
+     * of chasing ids scattered over the per-id arrays. The bricks are
+     * sorted, split into runs and their cells given slots; then the
+     * objects are counted into their slots and copied there in id order,
+     * which reads the per-id arrays straight through.
+     */
+    private void pack() {
+        if (runOrder.length < brickHighWater) {
+            int capacity = brickObjects.length;
+            runOrder = new long[capacity];
+            slotBase = new int[capacity];
+            slotStride = new int[capacity];
+            runX = new int[capacity];
+            runY = new int[capacity];
+            runZ = new int[capacity];
+            runSlot = new int[capacity];
+            runBricks = new int[capacity];
+            near = new int[capacity + 1];
+        }
+        // Sorted brick keys first, then overwritten by the runs' as they're found
+        long[] order = runOrder;
+        int bricks = 0;
+        for (int brick = 0; brick < brickHighWater; brick++) {
+            if (brickObjects[brick] > 0) {
+                order[bricks++] = order(brickX[brick], brickY[brick], brickZ[brick]);
+            }
+        }
+        Arrays.sort(order, 0, bricks);
+
+        // A run's slots: row by row, and in a row brick by brick along x
+        int runs = 0;
+        int slots = 0;
+        for (int i = 0; i < bricks; ) {
+            long key = order[i];
+            int j = i + 1;
+            while (j < bricks && order[j] == key + (j - i)) {
+                j++;
+            }
+            int width = (j - i) * 4;
+            int bx = unorder(key);
+            int by = unorder(key >>> BRICK_AXIS_BITS);
+            int bz = unorder(key >>> (2 * BRICK_AXIS_BITS));
+            for (int b = i; b < j; b++) {
+                int brick = brick(bx + b - i, by, bz, false);
+                slotBase[brick] = slots + (b - i) * 4;
+                slotStride[brick] = width;
+            }
+            order[runs] = key;
+            runX[runs] = bx;
+            runY[runs] = by;
+            runZ[runs] = bz;
+            runSlot[runs] = slots;
+            runBricks[runs] = j - i;
+            runs++;
+            slots += width * 16;
+            i = j;
+        }
+        runCount = runs;
+
+        // Count into slotStart[slot + 2] and copy through slotStart[slot + 1],
+        // which leaves slotStart[slot] where each slot starts
+        if (slotStart.length < slots + 2) {
+            slotStart = new int[heads.length + 2];
+        }
+        if (packedId.length < count) {
+            packedId = new int[cell.length];
+            packedX = new int[cell.length];
+            packed = new float[cell.length * 4];
+        }
+        if (slotOf.length < highWater) {
+            slotOf = new int[cell.length];
+        }
+        int[] slotStart = this.slotStart;
+        Arrays.fill(slotStart, 0, slots + 2, 0);
+        for (int id = 0; id < highWater; id++) {
+            long key = cell[id];
+            if (key >= 0) {
+                int slot = slotOf(brickOf[id], key);
+                slotOf[id] = slot;
+                slotStart[slot + 2]++;
+            }
+        }
+        for (int slot = 2; slot < slots + 2; slot++) {
+            slotStart[slot] += slotStart[slot - 1];
+        }
+        for (int id = 0; id < highWater; id++) {
+            long key = cell[id];
+            if (key >= 0) {
+                int n = slotStart[slotOf[id] + 1]++;
+                packedId[n] = id;
+                packedX[n] = unpackX(key);
+                packed[n * 4] = spheres[id * 4];
+                packed[n * 4 + 1] = spheres[id * 4 + 1];
+                packed[n * 4 + 2] = spheres[id * 4 + 2];
+                packed[n * 4 + 3] = spheres[id * 4 + 3];
+            }
+        }
+        packedCount = slotStart[slots];
+    }
+
+    /** The slot of the cell with this key, in this brick. */
+    private int slotOf(int brick, long key) {
+        int lx = (int) (key >> (2 * AXIS_BITS)) & 3;
+        int ly = (int) (key >> AXIS_BITS) & 3;
+        int lz = (int) key & 3;
+        return slotBase[brick] + ((lz << 2) | ly) * slotStride[brick] + lx;
+    }
+
+    /**
+     * Pair an oversized object with the grid's objects in the cells it
+     * reaches, and with the oversized objects after it in their list.
+     */
+    private void pairOversized(int o, OverlapPairs pairs) {
+        float px = spheres[o * 4], py = spheres[o * 4 + 1], pz = spheres[o * 4 + 2], r = spheres[o * 4 + 3];
+        float reach = r + maxRadius;
+        int x0 = cellOf(px - reach), x1 = cellOf(px + reach);
+        int y0 = cellOf(py - reach), y1 = cellOf(py + reach);
+        int z0 = cellOf(pz - reach), z1 = cellOf(pz + reach);
+        long cells = (long) (x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1);
+        if (cells > packedCount) {
+            pairPacked(o, 0, packedCount, pairs);
+        } else {
+            for (int bx = x0 >> BRICK_SHIFT; bx <= x1 >> BRICK_SHIFT; bx++) {
+                for (int by = y0 >> BRICK_SHIFT; by <= y1 >> BRICK_SHIFT; by++) {
+                    for (int bz = z0 >> BRICK_SHIFT; bz <= z1 >> BRICK_SHIFT; bz++) {
+                        int brick = brick(bx, by, bz, false);
+                        if (brick == NONE) {
+                            continue;
+                        }
+                        for (int cx = Math.max(x0, bx << BRICK_SHIFT); cx <= Math.min(x1, (bx << BRICK_SHIFT) + 3); cx++) {
+                            for (int cy = Math.max(y0, by << BRICK_SHIFT); cy <= Math.min(y1, (by << BRICK_SHIFT) + 3); cy++) {
+                                for (int cz = Math.max(z0, bz << BRICK_SHIFT); cz <= Math.min(z1, (bz << BRICK_SHIFT) + 3); cz++) {
+                                    int slot = slotOf(brick, key(cx, cy, cz));
+                                    pairPacked(o, slotStart[slot], slotStart[slot + 1], pairs);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        for (int other = next[o]; other != NONE; other = next[other]) {
+            if (overlaps(other, px, py, pz, r)) {
+                pairs.add(o, other);
+            }
+        }
+    }
+
+    private void pairPacked(int o, int first, int last, OverlapPairs pairs) {
+        float[] packed = this.packed;
+        float px = spheres[o * 4], py = spheres[o * 4 + 1], pz = spheres[o * 4 + 2], r = spheres[o * 4 + 3];
+        for (int b = first; b < last; b++) {
+            float dx = packed[b * 4] - px;
+            float dy = packed[b * 4 + 1] - py;
+            float dz = packed[b * 4 + 2] - pz;
+            float reach = packed[b * 4 + 3] + r;
+            if (dx * dx + dy * dy + dz * dz < reach * reach) {
+                pairs.add(o, packedId[b]);
+            }
+        }
+    }
+
+    private int cellOf(float v) {
+        float scaled = v * inverseCellSize;
+        int i = (int) scaled;
+        return scaled < i ? i - 1 : i;
+    }
+
+    private static long key(int cx, int cy, int cz) {
+        return ((cx & AXIS_MASK) << (2 * AXIS_BITS)) | ((cy & AXIS_MASK) << AXIS_BITS) | (cz & AXIS_MASK);
+    }
+
+    private static int unpackX(long key) {
+        return (int) ((key << (64 - 3 * AXIS_BITS)) >> (64 - AXIS_BITS));
+    }
+
+    private static int unpackY(long key) {
+        return (int) ((key << (64 - 2 * AXIS_BITS)) >> (64 - AXIS_BITS));
+    }
+
+    private static int unpackZ(long key) {
+        return (int) ((key << (64 - AXIS_BITS)) >> (64 - AXIS_BITS));
+    }
+
+    /** Brick coordinates as a key that sorts by z, then y, then x. */
+    private static long order(int bx, int by, int bz) {
+        return ((long) ((bz + BRICK_BIAS) & BRICK_AXIS_MASK) << (2 * BRICK_AXIS_BITS))
+                | ((long) ((by + BRICK_BIAS) & BRICK_AXIS_MASK) << BRICK_AXIS_BITS)
+                | ((bx + BRICK_BIAS) & BRICK_AXIS_MASK);
+    }
+
+    /** The coordinate in the lowest bits of an order key. */
+    private static int unorder(long key) {
+        return (int) (key & BRICK_AXIS_MASK) - BRICK_BIAS;
+    }
+
+    private int home(int bx, int by, int bz) {
+        int h = bx * 73856093 ^ by * 19349663 ^ bz * 83492791;
+        return (h ^ (h >>> 16)) & slotMask;
+    }
+}
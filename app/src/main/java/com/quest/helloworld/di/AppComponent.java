@@ -2,10 +2,14 @@ package com.quest.helloworld.di;
 
 import com.quest.helloworld.QuestHelloWorldApp;
 import com.quest.helloworld.QuestVRApplication;
+import com.quest.helloworld.vr.OpenXRBridge;
+import com.quest.helloworld.vr.VRRenderer;
+import com.quest.helloworld.vr.VRSceneConfig;
 
 import javax.inject.Singleton;
 
 import dagger.Component;
+import dagger.Lazy;
 
 /**
  * Main Dagger component for the Quest Hello World application.
@@ -25,6 +29,15 @@ public interface AppComponent {
      */
     void inject(QuestVRApplication vrApp);
 
+    // Subsystems for the startup graph. Nothing is built until asked for,
+    // so building the component costs next to nothing on the main thread.
+
+    VRSceneConfig sceneConfig();
+
+    Lazy<OpenXRBridge> vrBridge();
+
+    Lazy<VRRenderer> vrRenderer();
+
     /**
      * Builder pattern for creating the component.
      */
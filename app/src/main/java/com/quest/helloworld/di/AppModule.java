@@ -1,5 +1,7 @@
 package com.quest.helloworld.di;
 
+import com.quest.helloworld.vr.OpenXRBridge;
+import com.quest.helloworld.vr.VRRenderer;
 import com.quest.helloworld.vr.VRSceneConfig;
 import com.quest.helloworld.vr.HelloWorldScene;
 
@@ -30,5 +32,20 @@ public class AppModule {
     public HelloWorldScene provideHelloWorldScene(VRSceneConfig config) {
         return new HelloWorldScene(config);
     }
-}
 
+    /**
+     * One bridge for the process. Creating it loads libquestvr if startup
+     * hasn't yet.
+     */
+    @Provides
+    @Singleton
+    public OpenXRBridge provideOpenXRBridge() {
+        return new OpenXRBridge();
+    }
+
+    @Provides
+    @Singleton
+    public VRRenderer provideVRRenderer() {
+        return new VRRenderer();
+    }
+}
@@ -0,0 +1,145 @@
+package com.quest.helloworld.hand;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Joint indices, rest skeleton and shared-buffer layout for tracked hands,
+ * matching hand_tracking.h.
+ *
+ * Joints follow XR_EXT_hand_tracking order. The native side publishes all
+ * 52 joints of both hands into one direct buffer per frame: a 16-byte
+ * header (sequence, tracked-hand mask, time) followed by 8 floats per joint
+ * - position, orientation quaternion x, y, z, w and radius.
+ */
+public final class HandJoints {
+
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+
+    public static final int PALM = 0;
+    public static final int WRIST = 1;
+    public static final int THUMB_METACARPAL = 2;
+    public static final int THUMB_PROXIMAL = 3;
+    public static final int THUMB_DISTAL = 4;
+    public static final int THUMB_TIP = 5;
+    public static final int INDEX_METACARPAL = 6;
+    public static final int INDEX_PROXIMAL = 7;
+    public static final int INDEX_INTERMEDIATE = 8;
+    public static final int INDEX_DISTAL = 9;
+    public static final int INDEX_TIP = 10;
+    public static final int MIDDLE_METACARPAL = 11;
+    public static final int MIDDLE_PROXIMAL = 12;
+    public static final int MIDDLE_INTERMEDIATE = 13;
+    public static final int MIDDLE_DISTAL = 14;
+    public static final int MIDDLE_TIP = 15;
+    public static final int RING_METACARPAL = 16;
+    public static final int RING_PROXIMAL = 17;
+    public static final int RING_INTERMEDIATE = 18;
+    public static final int RING_DISTAL = 19;
+    public static final int RING_TIP = 20;
+    public static final int LITTLE_METACARPAL = 21;
+    public static final int LITTLE_PROXIMAL = 22;
+    public static final int LITTLE_INTERMEDIATE = 23;
+    public static final int LITTLE_DISTAL = 24;
+    public static final int LITTLE_TIP = 25;
+
+    /** Joints per hand. */
+    public static final int COUNT = 26;
+
+    /** Floats per joint: position x, y, z, orientation x, y, z, w, radius. */
+    public static final int JOINT_FLOATS = 8;
+    public static final int ORIENTATION_OFFSET = 3;
+    public static final int RADIUS_OFFSET = 7;
+    public static final int HAND_FLOATS = COUNT * JOINT_FLOATS;
+
+    /** Byte offsets of the header fields. */
+    public static final int SEQUENCE_OFFSET = 0;
+    public static final int TRACKED_MASK_OFFSET = 4;
+    public static final int TIME_OFFSET = 8;
+    public static final int HEADER_BYTES = 16;
+
+    public static final int BUFFER_BYTES = HEADER_BYTES + 2 * HAND_FLOATS * Float.BYTES;
+
+    /** Parent of each joint, -1 for the wrist. */
+    private static final int[] PARENT = {
+        WRIST, -1,
+        WRIST, 2, 3, 4,
+        WRIST, 6, 7, 8, 9,
+        WRIST, 11, 12, 13, 14,
+        WRIST, 16, 17, 18, 19,
+        WRIST, 21, 22, 23, 24,
+    };
+
+    /**
+     * Rest pose of a right hand in wrist space, x, y, z per joint: palm down,
+     * fingers along -Z, thumb toward -X. The left hand mirrors X. Rest
+     * orientations are all identity.
+     */
+    private static final float[] REST_POSITION = {
+        0.000f, 0.000f, -0.045f,                                // palm
+        0.000f, 0.000f, 0.000f,                                 // wrist
+        -0.020f, -0.010f, -0.012f, -0.045f, -0.015f, -0.040f,   // thumb
+        -0.060f, -0.017f, -0.068f, -0.070f, -0.018f, -0.092f,
+        -0.012f, 0.000f, -0.010f, -0.022f, 0.000f, -0.075f,     // index
+        -0.025f, 0.000f, -0.115f, -0.027f, 0.000f, -0.140f, -0.028f, 0.000f, -0.160f,
+        0.000f, 0.000f, -0.010f, 0.000f, 0.000f, -0.078f,       // middle
+        0.000f, 0.000f, -0.123f, 0.000f, 0.000f, -0.151f, 0.000f, 0.000f, -0.173f,
+        0.010f, 0.000f, -0.010f, 0.020f, 0.000f, -0.072f,       // ring
+        0.024f, 0.000f, -0.114f, 0.026f, 0.000f, -0.140f, 0.027f, 0.000f, -0.160f,
+        0.018f, 0.000f, -0.010f, 0.037f, 0.000f, -0.065f,       // little
+        0.043f, 0.000f, -0.098f, 0.046f, 0.000f, -0.118f, 0.048f, 0.000f, -0.136f,
+    };
+
+    /** Joint radius in the rest pose. */
+    private static final float[] REST_RADIUS = {
+        0.020f, 0.020f,
+        0.012f, 0.010f, 0.009f, 0.008f,
+        0.011f, 0.010f, 0.009f, 0.008f, 0.007f,
+        0.011f, 0.010f, 0.009f, 0.008f, 0.007f,
+        0.010f, 0.009f, 0.008f, 0.007f, 0.006f,
+        0.009f, 0.008f, 0.007f, 0.006f, 0.005f,
+    };
+
+    private HandJoints() {
+    }
+
+    /**
+     * Allocate a direct buffer in native byte order for both hands' joints.
+     */
+    public static ByteBuffer allocateBuffer() {
+        return ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Index of a joint's first float within the joint data of both hands,
+     * as read from the buffer after its header.
+     */
+    public static int jointOffset(int hand, int joint) {
+        return hand * HAND_FLOATS + joint * JOINT_FLOATS;
+    }
+
+    /**
+     * Rest position of a joint in wrist space, mirrored for the left hand.
+     */
+    public static float restX(int hand, int joint) {
+        float x = REST_POSITION[joint * 3];
+        return hand == LEFT ? -x : x;
+    }
+
+    public static float restY(int joint) {
+        return REST_POSITION[joint * 3 + 1];
+    }
+
+    public static float restZ(int joint) {
+        return REST_POSITION[joint * 3 + 2];
+    }
+
+    public static int parentOf(int joint) {
+        return PARENT[joint];
+    }
+
+    public static float restRadius(int joint) {
+        return REST_RADIUS[joint];
+    }
+}
@@ -0,0 +1,181 @@
+package com.quest.helloworld.hand;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Low-poly hand for GPU skinning: a tapered box per finger bone plus a palm
+ * block, built around the rest skeleton in {@link HandJoints}.
+ *
+ * Every vertex carries HWBoneIndex / HWBoneWeight so jME's skinning shader
+ * code poses it on the GPU from the BoneMatrices array; nothing is
+ * rewritten on the CPU after construction. A bone's far end follows its own
+ * joint and its near end is shared half and half with the parent joint, so
+ * knuckles bend smoothly instead of breaking apart.
+ */
+public class HandMesh extends Mesh {
+
+    // Finger bones drawn as boxes: joint -> next joint along the finger
+    private static final int[] BONES = {
+        HandJoints.THUMB_METACARPAL, HandJoints.THUMB_PROXIMAL, HandJoints.THUMB_DISTAL,
+        HandJoints.INDEX_PROXIMAL, HandJoints.INDEX_INTERMEDIATE, HandJoints.INDEX_DISTAL,
+        HandJoints.MIDDLE_PROXIMAL, HandJoints.MIDDLE_INTERMEDIATE, HandJoints.MIDDLE_DISTAL,
+        HandJoints.RING_PROXIMAL, HandJoints.RING_INTERMEDIATE, HandJoints.RING_DISTAL,
+        HandJoints.LITTLE_PROXIMAL, HandJoints.LITTLE_INTERMEDIATE, HandJoints.LITTLE_DISTAL,
+    };
+
+    private static final int BOXES = BONES.length + 1;
+    private static final int VERTICES_PER_BOX = 24;
+    private static final int INDICES_PER_BOX = 36;
+
+    // Fingers are flatter than they are wide
+    private static final float THICKNESS = 0.8f;
+    private static final float PALM_HALF_THICKNESS = 0.012f;
+
+    // Corner order of a box face, as indices into the 8 corners, wound counter-clockwise from outside
+    private static final int[][] FACES = {
+        {0, 2, 3, 1},   // -side
+        {4, 5, 7, 6},   // +side
+        {0, 1, 5, 4},   // -up
+        {2, 6, 7, 3},   // +up
+        {0, 4, 6, 2},   // near end
+        {1, 3, 7, 5},   // far end
+    };
+
+    private final FloatBuffer positions = BufferUtils.createFloatBuffer(BOXES * VERTICES_PER_BOX * 3);
+    private final FloatBuffer normals = BufferUtils.createFloatBuffer(BOXES * VERTICES_PER_BOX * 3);
+    private final ByteBuffer boneIndices = BufferUtils.createByteBuffer(BOXES * VERTICES_PER_BOX * 4);
+    private final FloatBuffer boneWeights = BufferUtils.createFloatBuffer(BOXES * VERTICES_PER_BOX * 4);
+    private final ShortBuffer indices = BufferUtils.createShortBuffer(BOXES * INDICES_PER_BOX);
+
+    // Scratch for one box
+    private final Vector3f[] corners = new Vector3f[8];
+    private final boolean[] farCorner = new boolean[8];
+    private final Vector3f along = new Vector3f();
+    private final Vector3f side = new Vector3f();
+    private final Vector3f up = new Vector3f();
+    private final Vector3f edgeA = new Vector3f();
+    private final Vector3f edgeB = new Vector3f();
+    private final Vector3f normal = new Vector3f();
+    private int vertexCount = 0;
+
+    /**
+     * @param hand {@link HandJoints#LEFT} or {@link HandJoints#RIGHT}
+     */
+    public HandMesh(int hand) {
+        for (int i = 0; i < corners.length; i++) {
+            corners[i] = new Vector3f();
+        }
+
+        addPalm(hand);
+        for (int joint : BONES) {
+            addBone(hand, joint);
+        }
+
+        positions.flip();
+        normals.flip();
+        boneIndices.flip();
+        boneWeights.flip();
+        indices.flip();
+        setBuffer(VertexBuffer.Type.Position, 3, positions);
+        setBuffer(VertexBuffer.Type.Normal, 3, normals);
+        setBuffer(VertexBuffer.Type.HWBoneIndex, 4, boneIndices);
+        setBuffer(VertexBuffer.Type.HWBoneWeight, 4, boneWeights);
+        setBuffer(VertexBuffer.Type.Index, 3, indices);
+        // Skinning happens on the GPU only, so the weights are uploaded once and never read back
+        getBuffer(VertexBuffer.Type.HWBoneIndex).setUsage(VertexBuffer.Usage.Static);
+        getBuffer(VertexBuffer.Type.HWBoneWeight).setUsage(VertexBuffer.Usage.Static);
+        setMaxNumWeights(2);
+        updateCounts();
+        updateBound();
+    }
+
+    /**
+     * Palm block from the wrist to the knuckles, following the palm joint.
+     */
+    private void addPalm(int hand) {
+        float nearZ = HandJoints.restZ(HandJoints.INDEX_METACARPAL);
+        float farZ = HandJoints.restZ(HandJoints.MIDDLE_PROXIMAL);
+        float thumbSide = HandJoints.restX(hand, HandJoints.INDEX_PROXIMAL);
+        float littleSide = HandJoints.restX(hand, HandJoints.LITTLE_PROXIMAL);
+        float minX = Math.min(thumbSide, littleSide) - 0.006f;
+        float maxX = Math.max(thumbSide, littleSide) + 0.006f;
+
+        for (int c = 0; c < 8; c++) {
+            boolean plusSide = (c & 4) != 0;
+            boolean plusUp = (c & 2) != 0;
+            boolean far = (c & 1) != 0;
+            // Narrower at the wrist
+            float inset = far ? 0f : 0.25f * (maxX - minX);
+            corners[c].set(plusSide ? maxX - inset : minX + inset,
+                    plusUp ? PALM_HALF_THICKNESS : -PALM_HALF_THICKNESS,
+                    far ? farZ : nearZ);
+            farCorner[c] = far;
+        }
+        addBox(HandJoints.PALM, HandJoints.PALM);
+    }
+
+    /**
+     * Tapered box from a joint to the next joint along its finger.
+     */
+    private void addBone(int hand, int joint) {
+        int child = joint + 1;
+        float ax = HandJoints.restX(hand, joint), ay = HandJoints.restY(joint), az = HandJoints.restZ(joint);
+        float bx = HandJoints.restX(hand, child), by = HandJoints.restY(child), bz = HandJoints.restZ(child);
+        float nearRadius = HandJoints.restRadius(joint);
+        float farRadius = HandJoints.restRadius(child);
+
+        along.set(bx - ax, by - ay, bz - az).normalizeLocal();
+        along.cross(Vector3f.UNIT_Y, side).normalizeLocal();
+        side.cross(along, up).normalizeLocal();
+
+        for (int c = 0; c < 8; c++) {
+            boolean plusSide = (c & 4) != 0;
+            boolean plusUp = (c & 2) != 0;
+            boolean far = (c & 1) != 0;
+            float r = far ? farRadius : nearRadius;
+            float s = plusSide ? r : -r;
+            float u = plusUp ? r * THICKNESS : -r * THICKNESS;
+            corners[c].set(far ? bx : ax, far ? by : ay, far ? bz : az)
+                    .addLocal(side.x * s + up.x * u, side.y * s + up.y * u, side.z * s + up.z * u);
+            farCorner[c] = far;
+        }
+        addBox(joint, HandJoints.parentOf(joint));
+    }
+
+    /**
+     * Emit the 8 corners as six flat-shaded quads. Far corners follow the
+     * joint; near corners blend the joint and its parent.
+     */
+    private void addBox(int joint, int parent) {
+        for (int[] face : FACES) {
+            Vector3f a = corners[face[0]];
+            corners[face[1]].subtract(a, edgeA);
+            corners[face[3]].subtract(a, edgeB);
+            edgeA.cross(edgeB, normal).normalizeLocal();
+
+            int base = vertexCount;
+            for (int corner : face) {
+                Vector3f p = corners[corner];
+                positions.put(p.x).put(p.y).put(p.z);
+                normals.put(normal.x).put(normal.y).put(normal.z);
+                if (farCorner[corner] || parent == joint) {
+                    boneIndices.put((byte) joint).put((byte) 0).put((byte) 0).put((byte) 0);
+                    boneWeights.put(1f).put(0f).put(0f).put(0f);
+                } else {
+                    boneIndices.put((byte) joint).put((byte) parent).put((byte) 0).put((byte) 0);
+                    boneWeights.put(0.5f).put(0.5f).put(0f).put(0f);
+                }
+                vertexCount++;
+            }
+            indices.put((short) base).put((short) (base + 1)).put((short) (base + 2));
+            indices.put((short) base).put((short) (base + 2)).put((short) (base + 3));
+        }
+    }
+}
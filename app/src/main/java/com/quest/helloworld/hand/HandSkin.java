@@ -0,0 +1,99 @@
+package com.quest.helloworld.hand;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.Matrix4f;
+
+/**
+ * Skinning matrices for one hand's {@link HandMesh}, computed straight from
+ * published joint poses.
+ *
+ * The mesh is modeled in the rest pose with identity joint orientations, so
+ * each joint's skinning matrix - its pose times the inverse of its bind pose
+ * - is its orientation R with translation p - R * rest. The matrices are
+ * handed to the material once as a Matrix4Array and updated in place; jME
+ * uploads the whole array as one uniform when the hand is drawn.
+ *
+ * Also fits a bounding box around the joints, so the hand culls correctly
+ * wherever it is rather than where the bind-pose mesh would be.
+ */
+public class HandSkin {
+
+    // Room for the mesh around the joint centres - the palm is wider than its joint radius
+    private static final float BOUND_MARGIN = 0.02f;
+
+    private final int hand;
+    private final Matrix4f[] matrices = new Matrix4f[HandJoints.COUNT];
+    private final BoundingBox bound = new BoundingBox();
+
+    public HandSkin(int hand) {
+        this.hand = hand;
+        for (int i = 0; i < matrices.length; i++) {
+            matrices[i] = new Matrix4f();
+        }
+    }
+
+    /**
+     * Recompute every joint's matrix and the bound.
+     * @param joints joint data of both hands, laid out as in the shared buffer
+     */
+    public void update(float[] joints) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+
+        for (int joint = 0; joint < HandJoints.COUNT; joint++) {
+            int o = HandJoints.jointOffset(hand, joint);
+            float px = joints[o], py = joints[o + 1], pz = joints[o + 2];
+            float x = joints[o + 3], y = joints[o + 4], z = joints[o + 5], w = joints[o + 6];
+
+            float xx = x * x, yy = y * y, zz = z * z;
+            float xy = x * y, xz = x * z, yz = y * z;
+            float wx = w * x, wy = w * y, wz = w * z;
+            Matrix4f m = matrices[joint];
+            m.m00 = 1f - 2f * (yy + zz);
+            m.m01 = 2f * (xy - wz);
+            m.m02 = 2f * (xz + wy);
+            m.m10 = 2f * (xy + wz);
+            m.m11 = 1f - 2f * (xx + zz);
+            m.m12 = 2f * (yz - wx);
+            m.m20 = 2f * (xz - wy);
+            m.m21 = 2f * (yz + wx);
+            m.m22 = 1f - 2f * (xx + yy);
+
+            float rx = HandJoints.restX(hand, joint);
+            float ry = HandJoints.restY(joint);
+            float rz = HandJoints.restZ(joint);
+            m.m03 = px - (m.m00 * rx + m.m01 * ry + m.m02 * rz);
+            m.m13 = py - (m.m10 * rx + m.m11 * ry + m.m12 * rz);
+            m.m23 = pz - (m.m20 * rx + m.m21 * ry + m.m22 * rz);
+            // Bottom row stays 0, 0, 0, 1 from construction
+
+            float r = joints[o + HandJoints.RADIUS_OFFSET];
+            minX = Math.min(minX, px - r);
+            minY = Math.min(minY, py - r);
+            minZ = Math.min(minZ, pz - r);
+            maxX = Math.max(maxX, px + r);
+            maxY = Math.max(maxY, py + r);
+            maxZ = Math.max(maxZ, pz + r);
+        }
+
+        bound.getCenter().set((minX + maxX) * 0.5f, (minY + maxY) * 0.5f, (minZ + maxZ) * 0.5f);
+        bound.setXExtent((maxX - minX) * 0.5f + BOUND_MARGIN);
+        bound.setYExtent((maxY - minY) * 0.5f + BOUND_MARGIN);
+        bound.setZExtent((maxZ - minZ) * 0.5f + BOUND_MARGIN);
+    }
+
+    /**
+     * The skinning matrices, in joint order - the array to set as the
+     * material's BoneMatrices. Updated in place.
+     */
+    public Matrix4f[] getMatrices() {
+        return matrices;
+    }
+
+    /**
+     * Bound of the posed hand in tracking space, updated in place.
+     */
+    public BoundingBox getBound() {
+        return bound;
+    }
+}
@@ -0,0 +1,166 @@
+package com.quest.helloworld.hand;
+
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.shader.VarType;
+import com.quest.helloworld.perf.SampleWindow;
+import com.quest.helloworld.vr.OpenXRBridge;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Tracked hands drawn as GPU-skinned meshes.
+ *
+ * Once per frame the bridge publishes both hands' 26 joints into a direct
+ * buffer registered at initialization - one JNI call, no per-joint
+ * crossings. The joints are copied out in one bulk read, turned into
+ * skinning matrices by {@link HandSkin} and handed to each hand's material
+ * as a single BoneMatrices array; the vertices are posed in the vertex
+ * shader. Updating does not allocate.
+ *
+ * Untracked hands are hidden. The CPU time of each update is kept for the
+ * log line and the handTracking benchmark.
+ */
+public class HandTrackingState extends AbstractAppState {
+
+    private static final String TAG = "HandTracking";
+
+    private static final float LOG_INTERVAL = 10f;
+    private static final float NANOS_TO_MS = 1e-6f;
+
+    private static final ColorRGBA[] HAND_COLORS = {
+        new ColorRGBA(0.2f, 0.5f, 1.0f, 1f),    // Left, same blue as the controller it replaces
+        new ColorRGBA(1.0f, 0.5f, 0.2f, 1f),    // Right
+    };
+
+    private final OpenXRBridge bridge;
+    private final Node parent;
+    private final Node handsNode = new Node("Hands");
+    private final ByteBuffer buffer = HandJoints.allocateBuffer();
+    private final FloatBuffer jointData;
+    private final float[] joints = new float[2 * HandJoints.HAND_FLOATS];
+    private final HandSkin[] skins = {new HandSkin(HandJoints.LEFT), new HandSkin(HandJoints.RIGHT)};
+    private final Geometry[] hands = new Geometry[2];
+    private final SampleWindow updateMs = new SampleWindow(900);
+
+    private boolean supported = false;
+    private int trackedMask = 0;
+    private long timeNanos = 0;
+    private float logTimer = 0f;
+
+    /**
+     * @param bridge source of joint poses; must be initialized before this state is
+     * @param parent node the hands are attached under, normally the root node
+     */
+    public HandTrackingState(OpenXRBridge bridge, Node parent) {
+        this.bridge = bridge;
+        this.parent = parent;
+        buffer.position(HandJoints.HEADER_BYTES);
+        jointData = buffer.slice().order(buffer.order()).asFloatBuffer();
+        buffer.clear();
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+
+        for (int hand = 0; hand < 2; hand++) {
+            Material material = new Material(app.getAssetManager(), "Common/MatDefs/Light/Lighting.j3md");
+            material.setBoolean("UseMaterialColors", true);
+            material.setColor("Diffuse", HAND_COLORS[hand]);
+            material.setColor("Ambient", HAND_COLORS[hand].mult(0.3f));
+            material.setInt("NumberOfBones", HandJoints.COUNT);
+            material.setParam("BoneMatrices", VarType.Matrix4Array, skins[hand].getMatrices());
+
+            hands[hand] = new Geometry(hand == HandJoints.LEFT ? "LeftHand" : "RightHand", new HandMesh(hand));
+            hands[hand].setMaterial(material);
+            // The mesh's own bound is of the bind pose; this one is refitted to the joints
+            hands[hand].setModelBound(skins[hand].getBound());
+            // Stays attached while untracked so shader warm-up sees its material
+            hands[hand].setCullHint(Spatial.CullHint.Always);
+            handsNode.attachChild(hands[hand]);
+        }
+        parent.attachChild(handsNode);
+
+        supported = bridge.setHandJointBuffer(buffer);
+        if (supported) {
+            Log.i(TAG, "Hand tracking started, " + HandJoints.COUNT + " joints per hand");
+        } else {
+            Log.w(TAG, "Hand tracking not available - hands hidden");
+        }
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        long start = System.nanoTime();
+        timeNanos += (long) (tpf * 1e9);
+
+        int mask = supported ? bridge.updateHandJoints(timeNanos) : 0;
+        if (mask != 0) {
+            jointData.clear();
+            jointData.get(joints);
+        }
+        for (int hand = 0; hand < 2; hand++) {
+            boolean tracked = (mask & (1 << hand)) != 0;
+            if (tracked) {
+                skins[hand].update(joints);
+                // Bound was refitted in place; setModelBound would reallocate the world bound
+                hands[hand].forceRefresh(false, true, false);
+            }
+            if (tracked != ((trackedMask & (1 << hand)) != 0)) {
+                hands[hand].setCullHint(tracked ? Spatial.CullHint.Inherit : Spatial.CullHint.Always);
+            }
+        }
+        trackedMask = mask;
+
+        updateMs.add((System.nanoTime() - start) * NANOS_TO_MS);
+        logTimer += tpf;
+        if (logTimer >= LOG_INTERVAL) {
+            logTimer = 0f;
+            Log.i(TAG, summary());
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        bridge.setHandJointBuffer(null);
+        supported = false;
+        handsNode.removeFromParent();
+    }
+
+    /**
+     * Bit 0 set when the left hand was tracked in the latest update, bit 1 for the right.
+     */
+    public int getTrackedMask() {
+        return trackedMask;
+    }
+
+    /** CPU time of recent updates, in milliseconds - joint transfer, skinning matrices and bounds. */
+    public SampleWindow getUpdateTimes() {
+        return updateMs;
+    }
+
+    /**
+     * Skinning matrices of one hand as last uploaded, in joint order.
+     */
+    public HandSkin getSkin(int hand) {
+        return skins[hand];
+    }
+
+    public String summary() {
+        return String.format("hands %s%s, update p50 %.3f / p99 %.3f / max %.3f ms",
+                (trackedMask & 1) != 0 ? "L" : "-", (trackedMask & 2) != 0 ? "R" : "-",
+                updateMs.getPercentile(50), updateMs.getPercentile(99), updateMs.getMax());
+    }
+}
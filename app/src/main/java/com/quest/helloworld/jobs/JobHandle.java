@@ -0,0 +1,92 @@
+package com.quest.helloworld.jobs;
+
+/**
+ * A job submitted to a {@link RenderJobScheduler}, for following its
+ * progress or cancelling it from any thread.
+ */
+public final class JobHandle {
+
+    public enum State {
+        QUEUED,
+        /** Some steps have run and the job isn't finished yet */
+        RUNNING,
+        DONE,
+        CANCELLED,
+        /** A step threw; see {@link #getFailure()} */
+        FAILED
+    }
+
+    final RenderJob job;
+    final JobPriority priority;
+    final String name;
+
+    private volatile State state = State.QUEUED;
+    private volatile boolean cancelRequested = false;
+    private volatile Throwable failure;
+    private int steps = 0;
+
+    JobHandle(RenderJob job, JobPriority priority, String name) {
+        this.job = job;
+        this.priority = priority;
+        this.name = name;
+    }
+
+    /**
+     * Stop the job before its next step. A step that is already running
+     * completes; work done by earlier steps is not undone.
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    void fail(Throwable failure) {
+        this.failure = failure;
+        state = State.FAILED;
+    }
+
+    void countStep() {
+        steps++;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return true once the job won't run again - done, cancelled or failed
+     */
+    public boolean isFinished() {
+        State s = state;
+        return s == State.DONE || s == State.CANCELLED || s == State.FAILED;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public JobPriority getPriority() {
+        return priority;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Steps run so far. Only meaningful on the render thread. */
+    public int getSteps() {
+        return steps;
+    }
+
+    @Override
+    public String toString() {
+        return "JobHandle[" + name + ", " + priority + ", " + state + ", steps=" + steps + "]";
+    }
+}
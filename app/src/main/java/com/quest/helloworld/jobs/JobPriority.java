@@ -0,0 +1,13 @@
+package com.quest.helloworld.jobs;
+
+/**
+ * Order in which a {@link RenderJobScheduler} runs queued jobs. Within a
+ * priority jobs run in submission order.
+ */
+public enum JobPriority {
+    /** Needed for what the user is about to see, e.g. content coming into view. */
+    HIGH,
+    NORMAL,
+    /** Can wait indefinitely, e.g. prefetched or decorative content. */
+    LOW
+}
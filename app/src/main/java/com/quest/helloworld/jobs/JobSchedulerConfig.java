@@ -0,0 +1,77 @@
+package com.quest.helloworld.jobs;
+
+/**
+ * Frame budget of a {@link RenderJobScheduler}.
+ *
+ * Each frame jobs get the time left until the next display refresh, less
+ * a reserve, clamped between a minimum and a maximum. The minimum keeps
+ * queued work moving even in frames that are already late.
+ */
+public class JobSchedulerConfig {
+
+    private final long frameNanos;
+    private final long reserveNanos;
+    private final long minBudgetNanos;
+    private final long maxBudgetNanos;
+
+    private JobSchedulerConfig(Builder builder) {
+        this.frameNanos = builder.frameNanos;
+        this.reserveNanos = builder.reserveNanos;
+        this.minBudgetNanos = builder.minBudgetNanos;
+        this.maxBudgetNanos = Math.max(builder.maxBudgetNanos, builder.minBudgetNanos);
+    }
+
+    /** Display refresh interval the frame has to fit in. */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    /** Time kept free at the end of the frame for submission and timing jitter. */
+    public long getReserveNanos() {
+        return reserveNanos;
+    }
+
+    /** Budget given to jobs however late the frame is. */
+    public long getMinBudgetNanos() {
+        return minBudgetNanos;
+    }
+
+    /** Budget cap, so a fast frame doesn't take on a burst of work. */
+    public long getMaxBudgetNanos() {
+        return maxBudgetNanos;
+    }
+
+    /**
+     * Builder for creating JobSchedulerConfig instances.
+     */
+    public static class Builder {
+        private long frameNanos = (long) (1_000_000_000L / 72f);  // 72 Hz
+        private long reserveNanos = 3_000_000L;     // 3 ms
+        private long minBudgetNanos = 250_000L;     // 0.25 ms
+        private long maxBudgetNanos = 4_000_000L;   // 4 ms
+
+        public Builder setFrameRate(float hz) {
+            this.frameNanos = (long) (1_000_000_000L / hz);
+            return this;
+        }
+
+        public Builder setReserveMillis(float millis) {
+            this.reserveNanos = (long) (millis * 1_000_000L);
+            return this;
+        }
+
+        public Builder setMinBudgetMillis(float millis) {
+            this.minBudgetNanos = (long) (millis * 1_000_000L);
+            return this;
+        }
+
+        public Builder setMaxBudgetMillis(float millis) {
+            this.maxBudgetNanos = (long) (millis * 1_000_000L);
+            return this;
+        }
+
+        public JobSchedulerConfig build() {
+            return new JobSchedulerConfig(this);
+        }
+    }
+}
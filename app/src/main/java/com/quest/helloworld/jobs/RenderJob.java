@@ -0,0 +1,30 @@
+package com.quest.helloworld.jobs;
+
+/**
+ * Work that has to run on the render thread, split into steps so it can
+ * be spread over frames by a {@link RenderJobScheduler}.
+ *
+ * The scheduler checks the frame budget between steps, so a step should
+ * be small - one upload, one attach, one material. A job that can't be
+ * split is simply a single step; see {@link #of(Runnable)}.
+ */
+@FunctionalInterface
+public interface RenderJob {
+
+    /**
+     * Do the next step of the work.
+     * @return true when the job is finished, false to be stepped again,
+     *         this frame if budget remains or a later one
+     */
+    boolean step();
+
+    /**
+     * A job that runs the whole task in one step.
+     */
+    static RenderJob of(Runnable task) {
+        return () -> {
+            task.run();
+            return true;
+        };
+    }
+}
@@ -0,0 +1,298 @@
+package com.quest.helloworld.jobs;
+
+import com.quest.helloworld.perf.SampleWindow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs render-thread jobs - GPU uploads, scene attach/detach, material
+ * creation - a slice at a time within a per-frame time budget.
+ *
+ * Jobs are submitted from any thread and run on the render thread in
+ * priority order. Each frame the budget is the time left before the next
+ * refresh, less a reserve (see {@link JobSchedulerConfig}); steps run
+ * until it is used up, and whatever is left carries over to the next
+ * frame. A job that has started keeps its place at the head of its
+ * priority, so half-done work is finished before new work begins. Lower
+ * priorities only run when the higher ones are empty.
+ *
+ * The budget is checked between steps, so a frame overruns by at most one
+ * step; overruns are counted so oversized steps show up. Like
+ * {@link com.quest.helloworld.streaming.ChunkStreamer} the clock is
+ * injected, which makes the scheduler deterministic under a fake clock.
+ */
+public class RenderJobScheduler {
+
+    private static final JobPriority[] PRIORITIES = JobPriority.values();
+
+    // About ten seconds of frames at 72 Hz
+    private static final int WINDOW = 720;
+
+    private final JobSchedulerConfig config;
+    private final LongSupplier clock;
+
+    // Handoff from submitting threads
+    private final ConcurrentLinkedQueue<JobHandle> submitted = new ConcurrentLinkedQueue<>();
+
+    // Render-thread state, one queue per priority
+    private final List<ArrayDeque<JobHandle>> queues;
+    private long frameStart;
+    private boolean frameStarted = false;
+
+    // Statistics
+    private final SampleWindow usedMs = new SampleWindow(WINDOW);
+    private long lastBudgetNanos = 0;
+    private long lastUsedNanos = 0;
+    private int lastSteps = 0;
+    private long stepsRun = 0;
+    private int jobsCompleted = 0;
+    private int jobsCancelled = 0;
+    private int jobsFailed = 0;
+    private JobHandle lastFailed;
+    private int maxQueueDepth = 0;
+    private int busyFrames = 0;
+    private int carryOverFrames = 0;
+    private int overrunFrames = 0;
+    private long maxOverrunNanos = 0;
+    private long totalOverrunNanos = 0;
+
+    public RenderJobScheduler(JobSchedulerConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    /**
+     * @param clock nanosecond clock the frame budget is measured with
+     */
+    public RenderJobScheduler(JobSchedulerConfig config, LongSupplier clock) {
+        this.config = config;
+        this.clock = clock;
+        this.queues = new ArrayList<>(PRIORITIES.length);
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            queues.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Queue a job. May be called from any thread; the job is picked up by
+     * the next {@link #runFrame()}.
+     * @param name shown in logs and failures
+     */
+    public JobHandle submit(JobPriority priority, String name, RenderJob job) {
+        JobHandle handle = new JobHandle(job, priority, name);
+        submitted.add(handle);
+        return handle;
+    }
+
+    /**
+     * Mark the start of a frame; the budget is what remains of the frame
+     * when {@link #runFrame()} is called. Must be called on the render thread.
+     */
+    public void beginFrame() {
+        frameStart = clock.getAsLong();
+        frameStarted = true;
+    }
+
+    /**
+     * Run queued job steps until this frame's budget is used. Must be
+     * called on the render thread, once per frame after its other work.
+     * If no frame start was marked the whole frame is assumed to be left.
+     */
+    public void runFrame() {
+        long start = clock.getAsLong();
+        long elapsed = frameStarted ? start - frameStart : 0;
+        frameStarted = false;
+
+        drainSubmitted();
+        int depth = getQueueDepth();
+        maxQueueDepth = Math.max(maxQueueDepth, depth);
+        if (depth == 0) {
+            lastBudgetNanos = 0;
+            lastUsedNanos = 0;
+            lastSteps = 0;
+            return;
+        }
+
+        long budget = config.getFrameNanos() - config.getReserveNanos() - elapsed;
+        budget = Math.max(config.getMinBudgetNanos(), Math.min(config.getMaxBudgetNanos(), budget));
+
+        long now = start;
+        int steps = 0;
+        JobHandle job;
+        while (now - start < budget && (job = nextJob()) != null) {
+            step(job);
+            steps++;
+            now = clock.getAsLong();
+        }
+
+        long used = now - start;
+        lastBudgetNanos = budget;
+        lastUsedNanos = used;
+        lastSteps = steps;
+        stepsRun += steps;
+        busyFrames++;
+        usedMs.add(used * 1e-6f);
+        if (used > budget) {
+            overrunFrames++;
+            totalOverrunNanos += used - budget;
+            maxOverrunNanos = Math.max(maxOverrunNanos, used - budget);
+        }
+        if (getQueueDepth() > 0) {
+            carryOverFrames++;
+        }
+    }
+
+    private void drainSubmitted() {
+        JobHandle handle;
+        while ((handle = submitted.poll()) != null) {
+            queues.get(handle.priority.ordinal()).add(handle);
+        }
+    }
+
+    /**
+     * The head of the highest non-empty priority, dropping cancelled jobs.
+     */
+    private JobHandle nextJob() {
+        for (ArrayDeque<JobHandle> queue : queues) {
+            JobHandle head;
+            while ((head = queue.peekFirst()) != null && head.isCancelRequested()) {
+                queue.pollFirst();
+                head.setState(JobHandle.State.CANCELLED);
+                jobsCancelled++;
+            }
+            if (head != null) {
+                return head;
+            }
+        }
+        return null;
+    }
+
+    private void step(JobHandle handle) {
+        handle.setState(JobHandle.State.RUNNING);
+        handle.countStep();
+        boolean finished;
+        try {
+            finished = handle.job.step();
+        } catch (RuntimeException e) {
+            queues.get(handle.priority.ordinal()).pollFirst();
+            handle.fail(e);
+            jobsFailed++;
+            lastFailed = handle;
+            return;
+        }
+        if (finished) {
+            queues.get(handle.priority.ordinal()).pollFirst();
+            handle.setState(JobHandle.State.DONE);
+            jobsCompleted++;
+        }
+    }
+
+    /**
+     * Cancel every queued job, e.g. when the scene goes away. Must be called
+     * on the render thread.
+     */
+    public void cancelAll() {
+        drainSubmitted();
+        for (ArrayDeque<JobHandle> queue : queues) {
+            for (JobHandle handle : queue) {
+                handle.setState(JobHandle.State.CANCELLED);
+                jobsCancelled++;
+            }
+            queue.clear();
+        }
+    }
+
+    public JobSchedulerConfig getConfig() {
+        return config;
+    }
+
+    /** Jobs waiting or part-way through, as of the last frame. */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ArrayDeque<JobHandle> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    public int getQueueDepth(JobPriority priority) {
+        return queues.get(priority.ordinal()).size();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /** Budget of the last frame, or 0 if it had no jobs. */
+    public long getLastBudgetNanos() {
+        return lastBudgetNanos;
+    }
+
+    /** Time the last frame's steps took. */
+    public long getLastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    public int getLastSteps() {
+        return lastSteps;
+    }
+
+    public long getStepsRun() {
+        return stepsRun;
+    }
+
+    public int getJobsCompleted() {
+        return jobsCompleted;
+    }
+
+    public int getJobsCancelled() {
+        return jobsCancelled;
+    }
+
+    public int getJobsFailed() {
+        return jobsFailed;
+    }
+
+    /** The most recent job whose step threw, or null. */
+    public JobHandle getLastFailed() {
+        return lastFailed;
+    }
+
+    /** Frames that ran at least one step. */
+    public int getBusyFrames() {
+        return busyFrames;
+    }
+
+    /** Frames that ended with jobs still queued. */
+    public int getCarryOverFrames() {
+        return carryOverFrames;
+    }
+
+    /** Frames whose last step ran past the budget. */
+    public int getOverrunFrames() {
+        return overrunFrames;
+    }
+
+    public long getMaxOverrunNanos() {
+        return maxOverrunNanos;
+    }
+
+    public long getTotalOverrunNanos() {
+        return totalOverrunNanos;
+    }
+
+    /** Per-frame job time, in milliseconds, of recent frames that ran jobs. */
+    public SampleWindow getUsedMs() {
+        return usedMs;
+    }
+
+    public String summary() {
+        return String.format("Render jobs: %d done, %d cancelled, %d failed, queue %d (max %d), "
+                        + "p95 %.2f ms/frame, %d overruns (max %.2f ms), %d frames carried over",
+                jobsCompleted, jobsCancelled, jobsFailed, getQueueDepth(), maxQueueDepth,
+                usedMs.getPercentile(95), overrunFrames, maxOverrunNanos * 1e-6f, carryOverFrames);
+    }
+}
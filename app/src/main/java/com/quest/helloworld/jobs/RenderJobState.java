@@ -0,0 +1,96 @@
+package com.quest.helloworld.jobs;
+
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+
+/**
+ * App state that runs a {@link RenderJobScheduler} on the render thread.
+ *
+ * The frame is taken to start at this state's update, so attach it early;
+ * an app that blocks on the display (xrWaitFrame) should call
+ * {@link #markFrameStart()} once that returns. Jobs run in postRender,
+ * after the frame has been submitted, in whatever time the frame has left.
+ */
+public class RenderJobState extends AbstractAppState {
+
+    private static final String TAG = "RenderJobs";
+
+    private final RenderJobScheduler scheduler;
+    private final float logInterval;
+
+    private float logTimer = 0f;
+    private long loggedSteps = 0;
+
+    public RenderJobState() {
+        this(new RenderJobScheduler(new JobSchedulerConfig.Builder().build()), 10f);
+    }
+
+    /**
+     * @param logInterval seconds between summaries, logged only if jobs ran, or 0 to disable logging
+     */
+    public RenderJobState(RenderJobScheduler scheduler, float logInterval) {
+        this.scheduler = scheduler;
+        this.logInterval = logInterval;
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        scheduler.beginFrame();
+    }
+
+    /**
+     * Queue a job for the render thread. May be called from any thread.
+     */
+    public JobHandle submit(JobPriority priority, String name, RenderJob job) {
+        return scheduler.submit(priority, name, job);
+    }
+
+    /**
+     * Restart the frame clock, e.g. after waiting for the display.
+     */
+    public void markFrameStart() {
+        scheduler.beginFrame();
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        scheduler.beginFrame();
+
+        if (logInterval > 0f) {
+            logTimer += tpf;
+            if (logTimer >= logInterval) {
+                logTimer = 0f;
+                if (scheduler.getStepsRun() != loggedSteps) {
+                    loggedSteps = scheduler.getStepsRun();
+                    Log.i(TAG, scheduler.summary());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void postRender() {
+        super.postRender();
+        int failed = scheduler.getJobsFailed();
+        scheduler.runFrame();
+        if (scheduler.getJobsFailed() > failed) {
+            JobHandle job = scheduler.getLastFailed();
+            Log.e(TAG, "Render job " + job.getName() + " failed", job.getFailure());
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        scheduler.cancelAll();
+    }
+
+    public RenderJobScheduler getScheduler() {
+        return scheduler;
+    }
+}
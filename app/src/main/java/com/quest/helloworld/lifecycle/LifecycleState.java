@@ -0,0 +1,352 @@
+package com.quest.helloworld.lifecycle;
+
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.material.MatParam;
+import com.jme3.material.Material;
+import com.jme3.renderer.RenderManager;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.util.BufferUtils;
+import com.jme3.util.NativeObject;
+import com.quest.helloworld.memory.MemorySizes;
+import com.quest.helloworld.perf.SampleWindow;
+import com.quest.helloworld.shader.ShaderWarmupState;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * App state that makes taking the headset off and putting it back on quick.
+ *
+ * On pause the tracked objects, animation time and head pose are written
+ * to a {@link SceneSnapshot} file, so a process the system kills while
+ * paused comes back where it left off. While the process lives nothing is
+ * torn down: with the GL context preserved, meshes, textures and programs
+ * stay resident and the first frame after resume draws straight away.
+ *
+ * When the context doesn't survive, jME marks every GL object for
+ * re-creation. A sentinel buffer, uploaded once, shows when that happened.
+ * The scene is then re-uploaded in one go from the CPU-side copies jME
+ * keeps of meshes and images, and shader warm-up rebuilds programs from
+ * their cached binaries. The scene itself isn't rebuilt.
+ *
+ * The time from the activity resuming to the first frame drawn after it
+ * is logged for every resume.
+ */
+public class LifecycleState extends AbstractAppState {
+
+    private static final String TAG = "Lifecycle";
+
+    // The render thread should pick up the snapshot within a few frames
+    private static final long SNAPSHOT_TIMEOUT_MS = 200;
+    private static final int RESUME_SAMPLES = 32;
+
+    private final File snapshotFile;
+    private final SnapshotSource source;
+    private final Spatial scene;
+    private final Map<String, Spatial> tracked = new LinkedHashMap<>();
+    private SceneSnapshot restoring;
+
+    private volatile Application app;
+    private AppStateManager stateManager;
+    private RenderManager renderManager;
+    private VertexBuffer sentinel;
+
+    private volatile boolean paused = false;
+    private volatile long resumeNanos = 0;
+    private boolean contextLost = false;
+
+    private final SampleWindow resumeMs = new SampleWindow(RESUME_SAMPLES);
+    private int resumes = 0;
+    private int contextLosses = 0;
+    private volatile int snapshotBytes = 0;
+    private volatile float snapshotMs = 0f;
+    private int reuploadedBuffers = 0;
+    private int reuploadedTextures = 0;
+    private long reuploadedBytes = 0;
+    private int missingCpuData = 0;
+
+    /**
+     * @param snapshotFile where pauses save the scene, or null to not save it
+     * @param source animation time and head pose to save with the objects
+     * @param scene root of what's re-uploaded when the GL context was lost
+     */
+    public LifecycleState(File snapshotFile, SnapshotSource source, Spatial scene) {
+        this.snapshotFile = snapshotFile;
+        this.source = source;
+        this.scene = scene;
+    }
+
+    /**
+     * Read a saved snapshot.
+     * @return the snapshot, or null if there is none or it can't be read
+     */
+    public static SceneSnapshot readSnapshot(File file) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try {
+            return SceneSnapshot.read(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Ignoring scene snapshot " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        this.stateManager = stateManager;
+        this.renderManager = app.getRenderManager();
+
+        sentinel = new VertexBuffer(VertexBuffer.Type.Position);
+        sentinel.setupData(VertexBuffer.Usage.Static, 1, VertexBuffer.Format.Float, BufferUtils.createFloatBuffer(1));
+        renderManager.getRenderer().updateBufferData(sentinel);
+        this.app = app;
+        Log.i(TAG, "Lifecycle started - snapshot " + (snapshotFile != null ? snapshotFile : "off"));
+    }
+
+    /**
+     * Restore objects from a snapshot as they're tracked: those tracked
+     * already move now, the rest when {@link #track} is called for them.
+     * Animation time and head pose are the caller's to restore.
+     */
+    public void restore(SceneSnapshot snapshot) {
+        restoring = snapshot;
+        for (Map.Entry<String, Spatial> entry : tracked.entrySet()) {
+            SceneSnapshot.ObjectState state = snapshot.getObject(entry.getKey());
+            if (state != null) {
+                state.applyTo(entry.getValue());
+            }
+        }
+        Log.i(TAG, "Restoring " + snapshot.getObjects().size() + " objects saved "
+                + (System.currentTimeMillis() - snapshot.getSavedEpochMillis()) / 1000 + " s ago");
+    }
+
+    /**
+     * Save a spatial's transform in snapshots under a name that's the same
+     * every launch. Call on the render thread.
+     */
+    public void track(String name, Spatial spatial) {
+        tracked.put(name, spatial);
+        SceneSnapshot.ObjectState state = restoring != null ? restoring.getObject(name) : null;
+        if (state != null) {
+            state.applyTo(spatial);
+        }
+    }
+
+    /**
+     * Save the snapshot. Call from the activity's onPause, before the GL
+     * thread is paused, as the snapshot is taken on it.
+     */
+    public void onPause() {
+        Application app = this.app;
+        if (app == null) {
+            return;
+        }
+        paused = true;
+        if (snapshotFile == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            byte[] bytes = app.enqueue(this::capture).get(SNAPSHOT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            SceneSnapshot.write(snapshotFile, bytes);
+            snapshotBytes = bytes.length;
+            snapshotMs = (System.nanoTime() - start) * 1e-6f;
+            Log.i(TAG, String.format("Saved %d byte scene snapshot in %.1f ms", snapshotBytes, snapshotMs));
+        } catch (TimeoutException e) {
+            Log.w(TAG, "No snapshot within " + SNAPSHOT_TIMEOUT_MS + " ms - keeping the previous one");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | IOException e) {
+            Log.e(TAG, "Can't save scene snapshot", e);
+        }
+    }
+
+    /**
+     * Start timing the resume. Call from the activity's onResume, before
+     * the GL thread is resumed, so the first frame can't be missed.
+     */
+    public void onResume() {
+        if (paused) {
+            resumeNanos = System.nanoTime();
+            paused = false;
+        }
+    }
+
+    private byte[] capture() {
+        float[] position = new float[3];
+        float[] rotation = new float[3];
+        source.getHeadPose(position, rotation);
+        SceneSnapshot snapshot = new SceneSnapshot(System.currentTimeMillis(), source.getAnimationTime(),
+                position, rotation);
+        for (Map.Entry<String, Spatial> entry : tracked.entrySet()) {
+            snapshot.addObject(entry.getKey(), entry.getValue());
+        }
+        return snapshot.toBytes();
+    }
+
+    @Override
+    public void render(RenderManager rm) {
+        super.render(rm);
+        // jME resets every GL object it made when it finds the context gone
+        if (sentinel.getId() == NativeObject.INVALID_ID) {
+            recover();
+        }
+    }
+
+    /**
+     * Re-upload the scene from its CPU-side copies after the GL context was lost.
+     */
+    private void recover() {
+        long start = System.nanoTime();
+        contextLosses++;
+        contextLost = true;
+
+        // Programs made from binaries aren't jME's to rebuild; warm-up makes them again this frame
+        ShaderWarmupState warmup = stateManager.getState(ShaderWarmupState.class);
+        if (warmup != null) {
+            warmup.onContextLost();
+        }
+
+        countCpuData();
+        renderManager.preloadScene(scene);
+        renderManager.getRenderer().updateBufferData(sentinel);
+        Log.i(TAG, String.format("GL context lost - re-uploaded %d buffers and %d textures, %.1f MB, in %.1f ms",
+                reuploadedBuffers, reuploadedTextures, reuploadedBytes / (1024f * 1024f),
+                (System.nanoTime() - start) * 1e-6f));
+        if (missingCpuData > 0) {
+            Log.w(TAG, missingCpuData + " buffers or images had no CPU-side data to re-upload");
+        }
+    }
+
+    /**
+     * Count what a re-upload sends, and what it can't because its data was
+     * released after the first upload.
+     */
+    private void countCpuData() {
+        reuploadedBuffers = 0;
+        reuploadedTextures = 0;
+        reuploadedBytes = 0;
+        missingCpuData = 0;
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        scene.depthFirstTraversal(spatial -> {
+            if (!(spatial instanceof Geometry)) {
+                return;
+            }
+            Geometry geometry = (Geometry) spatial;
+            if (geometry.getMesh() != null) {
+                for (VertexBuffer buffer : geometry.getMesh().getBufferList()) {
+                    if (!seen.add(buffer)) {
+                        continue;
+                    }
+                    if (buffer.getData() == null) {
+                        missingCpuData++;
+                    } else {
+                        reuploadedBuffers++;
+                        reuploadedBytes += MemorySizes.bufferBytes(buffer.getData());
+                    }
+                }
+            }
+            Material material = geometry.getMaterial();
+            if (material != null) {
+                for (MatParam param : material.getParams()) {
+                    if (param.getValue() instanceof Texture) {
+                        Image image = ((Texture) param.getValue()).getImage();
+                        if (image == null || !seen.add(image)) {
+                            continue;
+                        }
+                        if (image.getData().isEmpty() || image.getData(0) == null) {
+                            missingCpuData++;
+                        } else {
+                            reuploadedTextures++;
+                            reuploadedBytes += MemorySizes.imageBytes(image);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void postRender() {
+        super.postRender();
+        long resumed = resumeNanos;
+        if (resumed == 0) {
+            return;
+        }
+        resumeNanos = 0;
+        float ms = (System.nanoTime() - resumed) * 1e-6f;
+        resumeMs.add(ms);
+        resumes++;
+        Log.i(TAG, String.format("Resume to first frame %.1f ms, context %s", ms, contextLost ? "lost" : "kept"));
+        contextLost = false;
+    }
+
+    /**
+     * Milliseconds from the activity resuming to the first frame after it,
+     * for recent resumes.
+     */
+    public SampleWindow getResumeMs() {
+        return resumeMs;
+    }
+
+    public int getResumeCount() {
+        return resumes;
+    }
+
+    /** Resumes that found the GL context gone and re-uploaded the scene. */
+    public int getContextLossCount() {
+        return contextLosses;
+    }
+
+    public int getSnapshotBytes() {
+        return snapshotBytes;
+    }
+
+    public float getSnapshotMs() {
+        return snapshotMs;
+    }
+
+    /** Buffers re-uploaded after the last context loss. */
+    public int getReuploadedBuffers() {
+        return reuploadedBuffers;
+    }
+
+    /** Textures re-uploaded after the last context loss. */
+    public int getReuploadedTextures() {
+        return reuploadedTextures;
+    }
+
+    public long getReuploadedBytes() {
+        return reuploadedBytes;
+    }
+
+    /** Buffers and images that couldn't be re-uploaded after the last context loss. */
+    public int getMissingCpuData() {
+        return missingCpuData;
+    }
+
+    public String summary() {
+        return String.format("Lifecycle: %d resumes, %d with the GL context lost; resume to first frame "
+                        + "last %.1f ms, median %.1f ms; snapshot %d bytes in %.1f ms",
+                resumes, contextLosses, resumeMs.getLast(), resumeMs.getPercentile(50f), snapshotBytes, snapshotMs);
+    }
+}
@@ -0,0 +1,244 @@
+package com.quest.helloworld.lifecycle;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the scene looked like when the app was paused, small enough to
+ * write on every pause and restore when the system recreates the activity
+ * after killing the process.
+ *
+ * <pre>
+ * Header (48 bytes, little-endian):
+ *   int   magic          'QSS1'
+ *   short version
+ *   short objectCount
+ *   long  savedEpochMillis
+ *   float animationTime
+ *   float headPosition[3], headRotation[3]
+ *   int   reserved
+ *
+ * Object (42 bytes plus name):
+ *   short nameLength     UTF-8 bytes that follow
+ *   byte  name[nameLength]
+ *   float translation[3], rotation[4] quaternion x, y, z, w, scale[3]
+ * </pre>
+ *
+ * Objects are matched by name on restore, so a snapshot survives objects
+ * being created in a different order, or later, by render jobs.
+ */
+public class SceneSnapshot {
+
+    public static final int MAGIC = 0x31535351;  // "QSS1" read little-endian
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 48;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int OBJECT_SIZE = 2 + 10 * 4;
+
+    private final long savedEpochMillis;
+    private final float animationTime;
+    private final float[] headPosition = new float[3];
+    private final float[] headRotation = new float[3];
+    private final List<ObjectState> objects = new ArrayList<>();
+
+    /**
+     * One named object's local transform.
+     */
+    public static class ObjectState {
+        public final String name;
+        public final Vector3f translation = new Vector3f();
+        public final Quaternion rotation = new Quaternion();
+        public final Vector3f scale = new Vector3f(1f, 1f, 1f);
+
+        ObjectState(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Put the spatial back where it was.
+         */
+        public void applyTo(Spatial spatial) {
+            spatial.setLocalTranslation(translation);
+            spatial.setLocalRotation(rotation);
+            spatial.setLocalScale(scale);
+        }
+    }
+
+    /**
+     * @param headPosition the last tracked head position
+     * @param headRotation the last tracked head rotation, as the bridge's Euler angles
+     */
+    public SceneSnapshot(long savedEpochMillis, float animationTime, float[] headPosition, float[] headRotation) {
+        this.savedEpochMillis = savedEpochMillis;
+        this.animationTime = animationTime;
+        System.arraycopy(headPosition, 0, this.headPosition, 0, 3);
+        System.arraycopy(headRotation, 0, this.headRotation, 0, 3);
+    }
+
+    /**
+     * Record a spatial's local transform under a name.
+     */
+    public void addObject(String name, Spatial spatial) {
+        ObjectState object = new ObjectState(name);
+        object.translation.set(spatial.getLocalTranslation());
+        object.rotation.set(spatial.getLocalRotation());
+        object.scale.set(spatial.getLocalScale());
+        objects.add(object);
+    }
+
+    public long getSavedEpochMillis() {
+        return savedEpochMillis;
+    }
+
+    public float getAnimationTime() {
+        return animationTime;
+    }
+
+    public float[] getHeadPosition() {
+        return headPosition;
+    }
+
+    public float[] getHeadRotation() {
+        return headRotation;
+    }
+
+    public List<ObjectState> getObjects() {
+        return objects;
+    }
+
+    /**
+     * The object recorded under a name, or null.
+     */
+    public ObjectState getObject(String name) {
+        for (ObjectState object : objects) {
+            if (object.name.equals(name)) {
+                return object;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Encode in the binary layout above.
+     */
+    public byte[] toBytes() {
+        int size = HEADER_SIZE;
+        byte[][] names = new byte[objects.size()][];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = objects.get(i).name.getBytes(StandardCharsets.UTF_8);
+            size += OBJECT_SIZE + names[i].length;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(size).order(BYTE_ORDER);
+        buf.putInt(MAGIC);
+        buf.putShort(VERSION);
+        buf.putShort((short) objects.size());
+        buf.putLong(savedEpochMillis);
+        buf.putFloat(animationTime);
+        putFloats(buf, headPosition);
+        putFloats(buf, headRotation);
+        buf.putInt(0);
+        for (int i = 0; i < names.length; i++) {
+            ObjectState object = objects.get(i);
+            buf.putShort((short) names[i].length);
+            buf.put(names[i]);
+            buf.putFloat(object.translation.x).putFloat(object.translation.y).putFloat(object.translation.z);
+            buf.putFloat(object.rotation.getX()).putFloat(object.rotation.getY())
+                    .putFloat(object.rotation.getZ()).putFloat(object.rotation.getW());
+            buf.putFloat(object.scale.x).putFloat(object.scale.y).putFloat(object.scale.z);
+        }
+        return buf.array();
+    }
+
+    /**
+     * Decode a snapshot written by {@link #toBytes()}.
+     * @throws IOException if the bytes are not a snapshot of this version, or are cut short
+     */
+    public static SceneSnapshot fromBytes(byte[] bytes) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(bytes).order(BYTE_ORDER);
+        if (buf.remaining() < HEADER_SIZE) {
+            throw new IOException("Scene snapshot too short for header");
+        }
+        if (buf.getInt() != MAGIC) {
+            throw new IOException("Not a scene snapshot");
+        }
+        short version = buf.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported scene snapshot version " + version);
+        }
+        int count = buf.getShort() & 0xffff;
+        long savedEpochMillis = buf.getLong();
+        float animationTime = buf.getFloat();
+        float[] headPosition = getFloats(buf, 3);
+        float[] headRotation = getFloats(buf, 3);
+        buf.getInt();
+
+        SceneSnapshot snapshot = new SceneSnapshot(savedEpochMillis, animationTime, headPosition, headRotation);
+        for (int i = 0; i < count; i++) {
+            if (buf.remaining() < OBJECT_SIZE) {
+                throw new IOException("Scene snapshot cut short at object " + i + " of " + count);
+            }
+            int nameLength = buf.getShort() & 0xffff;
+            if (buf.remaining() < nameLength + OBJECT_SIZE - 2) {
+                throw new IOException("Scene snapshot cut short at object " + i + " of " + count);
+            }
+            byte[] name = new byte[nameLength];
+            buf.get(name);
+            ObjectState object = new ObjectState(new String(name, StandardCharsets.UTF_8));
+            object.translation.set(buf.getFloat(), buf.getFloat(), buf.getFloat());
+            object.rotation.set(buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+            object.scale.set(buf.getFloat(), buf.getFloat(), buf.getFloat());
+            snapshot.objects.add(object);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Write to a file by way of a temporary one, so a process killed
+     * mid-write leaves the previous snapshot intact.
+     */
+    public static void write(File file, byte[] bytes) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Can't replace " + file);
+        }
+    }
+
+    public static SceneSnapshot read(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return fromBytes(bytes);
+        }
+    }
+
+    private static void putFloats(ByteBuffer buf, float[] values) {
+        for (float v : values) {
+            buf.putFloat(v);
+        }
+    }
+
+    private static float[] getFloats(ByteBuffer buf, int count) {
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = buf.getFloat();
+        }
+        return values;
+    }
+}
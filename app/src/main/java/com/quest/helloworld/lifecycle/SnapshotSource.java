@@ -0,0 +1,20 @@
+package com.quest.helloworld.lifecycle;
+
+/**
+ * Supplies the application state a {@link SceneSnapshot} records besides
+ * object transforms. Called on the render thread.
+ */
+public interface SnapshotSource {
+
+    /**
+     * @return seconds of scene animation played so far
+     */
+    float getAnimationTime();
+
+    /**
+     * Fill in the last tracked head pose.
+     * @param position [x, y, z] in meters
+     * @param rotation Euler angles as the VR bridge reports them
+     */
+    void getHeadPose(float[] position, float[] rotation);
+}
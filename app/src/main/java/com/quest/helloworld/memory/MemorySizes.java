@@ -0,0 +1,86 @@
+package com.quest.helloworld.memory;
+
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.SceneGraphVisitorAdapter;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.texture.Image;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Byte size estimates for meshes, images and NIO buffers.
+ */
+public final class MemorySizes {
+
+    private MemorySizes() {
+    }
+
+    /**
+     * @return total bytes of the mesh's vertex and index buffers
+     */
+    public static long meshBytes(Mesh mesh) {
+        long total = 0;
+        for (VertexBuffer vb : mesh.getBufferList()) {
+            total += bufferBytes(vb.getData());
+        }
+        return total;
+    }
+
+    /**
+     * @return total bytes of all image data, including mipmaps and array layers
+     */
+    public static long imageBytes(Image image) {
+        long total = 0;
+        for (ByteBuffer data : image.getData()) {
+            total += bufferBytes(data);
+        }
+        return total;
+    }
+
+    /**
+     * @return bytes of mesh data held by every geometry under the spatial
+     */
+    public static long spatialMeshBytes(Spatial spatial) {
+        long[] total = new long[1];
+        spatial.depthFirstTraversal(new SceneGraphVisitorAdapter() {
+            @Override
+            public void visit(Geometry geom) {
+                if (geom.getMesh() != null) {
+                    total[0] += meshBytes(geom.getMesh());
+                }
+            }
+        });
+        return total[0];
+    }
+
+    /**
+     * @return capacity of the buffer in bytes, 0 for null
+     */
+    public static long bufferBytes(Buffer buffer) {
+        if (buffer == null) {
+            return 0;
+        }
+        return (long) buffer.capacity() * elementSize(buffer);
+    }
+
+    private static int elementSize(Buffer buffer) {
+        if (buffer instanceof ByteBuffer) {
+            return 1;
+        } else if (buffer instanceof ShortBuffer) {
+            return 2;
+        } else if (buffer instanceof FloatBuffer || buffer instanceof IntBuffer) {
+            return 4;
+        } else if (buffer instanceof DoubleBuffer || buffer instanceof LongBuffer) {
+            return 8;
+        }
+        return 2;  // CharBuffer
+    }
+}
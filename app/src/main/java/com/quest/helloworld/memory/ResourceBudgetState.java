@@ -0,0 +1,418 @@
+package com.quest.helloworld.memory;
+
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.TextureKey;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.material.MatParam;
+import com.jme3.material.Material;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.Renderer;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.SceneGraphVisitorAdapter;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.util.BufferUtils;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * App state that attributes mesh and texture memory in the scene graph to a
+ * {@link ResourceTracker} and keeps it within budget.
+ *
+ * The scene is rescanned periodically for new geometries. Every frame,
+ * geometries inside any main camera frustum mark their mesh and textures as
+ * used. Meshes with a registered factory and textures loaded from assets can
+ * be evicted when idle; they are restored before they are next drawn.
+ */
+public class ResourceBudgetState extends AbstractAppState {
+
+    private static final String TAG = "ResourceBudget";
+
+    private final ResourceTracker tracker;
+    private final Map<Geometry, Supplier<Mesh>> meshFactories = new IdentityHashMap<>();
+    private final Map<Geometry, TrackedGeometry> geometries = new IdentityHashMap<>();
+    private final Map<Mesh, Object> meshKeys = new IdentityHashMap<>();
+    private final List<TrackedGeometry> geometryList = new ArrayList<>();
+
+    private Node rootNode;
+    private AssetManager assetManager;
+    private Renderer renderer;
+    private RenderManager renderManager;
+
+    private int scanIntervalFrames = 30;
+    private int framesSinceScan = Integer.MAX_VALUE;
+    private float logTimer = 0f;
+    private boolean warnedOverBudget = false;
+
+    /**
+     * @param budgetBytes mesh and texture bytes to allow before evicting
+     */
+    public ResourceBudgetState(long budgetBytes) {
+        this.tracker = new ResourceTracker(budgetBytes);
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+
+        this.rootNode = ((SimpleApplication) app).getRootNode();
+        this.assetManager = app.getAssetManager();
+        this.renderer = app.getRenderer();
+        this.renderManager = app.getRenderManager();
+
+        Log.i(TAG, "Resource budget: " + tracker.getBudgetBytes() / (1024 * 1024) + " MB");
+    }
+
+    /**
+     * Make a geometry's mesh evictable by supplying a way to rebuild it.
+     * May be called before the state is initialized.
+     */
+    public void registerMeshFactory(Geometry geometry, Supplier<Mesh> factory) {
+        meshFactories.put(geometry, factory);
+    }
+
+    /**
+     * Account for a direct buffer that is not part of the scene graph.
+     * Such buffers are pinned and never evicted.
+     */
+    public void trackDirectBuffer(String owner, Buffer buffer) {
+        tracker.track(buffer, owner, ResourceKind.DIRECT_BUFFER, MemorySizes.bufferBytes(buffer), null);
+    }
+
+    public void untrackDirectBuffer(Buffer buffer) {
+        tracker.untrack(buffer);
+    }
+
+    /**
+     * Rescan the scene on the next update instead of waiting for the interval.
+     */
+    public void requestScan() {
+        framesSinceScan = Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        tracker.beginFrame();
+
+        if (++framesSinceScan >= scanIntervalFrames) {
+            framesSinceScan = 0;
+            scanScene();
+        }
+
+        markVisible();
+
+        int evicted = tracker.enforceBudget();
+        if (evicted > 0) {
+            Log.i(TAG, "Evicted " + evicted + " idle resources - " + tracker);
+        }
+        if (tracker.getUsedBytes() > tracker.getBudgetBytes()) {
+            if (!warnedOverBudget) {
+                Log.w(TAG, "Over budget with no idle resources to evict - " + tracker);
+                warnedOverBudget = true;
+            }
+        } else {
+            warnedOverBudget = false;
+        }
+
+        // Log usage every 10 seconds
+        logTimer += tpf;
+        if (logTimer >= 10f) {
+            logTimer = 0f;
+            Log.i(TAG, tracker.toString());
+        }
+    }
+
+    /**
+     * Register new geometries and forget the ones removed from the scene.
+     */
+    private void scanScene() {
+        rootNode.depthFirstTraversal(new SceneGraphVisitorAdapter() {
+            @Override
+            public void visit(Geometry geom) {
+                if (!geometries.containsKey(geom)) {
+                    register(geom);
+                }
+            }
+        });
+
+        Iterator<TrackedGeometry> it = geometryList.iterator();
+        while (it.hasNext()) {
+            TrackedGeometry tracked = it.next();
+            if (!isAttached(tracked.geometry)) {
+                it.remove();
+                geometries.remove(tracked.geometry);
+                unregister(tracked);
+            }
+        }
+    }
+
+    private void register(Geometry geom) {
+        if (geom.getMesh() == null) {
+            return;
+        }
+
+        TrackedGeometry tracked = new TrackedGeometry(geom);
+        tracked.meshKey = registerMesh(geom);
+        Material material = geom.getMaterial();
+        if (material != null) {
+            for (MatParam param : material.getParams()) {
+                if (param.getValue() instanceof Texture) {
+                    Image image = registerTexture(geom, (Texture) param.getValue());
+                    if (image != null) {
+                        tracked.images.add(image);
+                    }
+                }
+            }
+        }
+
+        geometries.put(geom, tracked);
+        geometryList.add(tracked);
+    }
+
+    /**
+     * @return the tracker key for the geometry's mesh
+     */
+    private Object registerMesh(Geometry geom) {
+        Mesh mesh = geom.getMesh();
+        Object key = meshKeys.get(mesh);
+        if (key instanceof MeshHandle) {
+            ((MeshHandle) key).users.add(geom);
+            return key;
+        } else if (key != null) {
+            return key;
+        }
+
+        Supplier<Mesh> factory = meshFactories.remove(geom);
+        if (factory != null) {
+            MeshHandle handle = new MeshHandle(mesh, factory);
+            handle.users.add(geom);
+            key = handle;
+            tracker.track(handle, ownerName(geom), ResourceKind.MESH, MemorySizes.meshBytes(mesh), handle);
+        } else {
+            key = mesh;
+            tracker.track(mesh, ownerName(geom), ResourceKind.MESH, MemorySizes.meshBytes(mesh), null);
+        }
+        meshKeys.put(mesh, key);
+        return key;
+    }
+
+    private Image registerTexture(Geometry geom, Texture texture) {
+        Image image = texture.getImage();
+        if (image == null) {
+            return null;
+        }
+        if (!tracker.isTracked(image)) {
+            AssetKey<?> key = texture.getKey();
+            String owner = key != null ? key.getName() : ownerName(geom);
+            ResourceHandle handle = key instanceof TextureKey ? new TextureHandle(image, (TextureKey) key) : null;
+            tracker.track(image, owner, ResourceKind.TEXTURE, MemorySizes.imageBytes(image), handle);
+        }
+        return image;
+    }
+
+    private void unregister(TrackedGeometry tracked) {
+        Object meshKey = tracked.meshKey;
+        if (meshKey instanceof MeshHandle) {
+            MeshHandle handle = (MeshHandle) meshKey;
+            handle.users.remove(tracked.geometry);
+            if (handle.users.isEmpty()) {
+                meshKeys.remove(handle.mesh);
+                meshKeys.remove(handle.placeholder);
+                tracker.untrack(handle);
+            }
+        } else if (meshKey != null && !isMeshInUse((Mesh) meshKey)) {
+            meshKeys.remove(meshKey);
+            tracker.untrack(meshKey);
+        }
+        // Textures are shared widely through the asset cache and stay tracked
+    }
+
+    private boolean isMeshInUse(Mesh mesh) {
+        for (TrackedGeometry tracked : geometryList) {
+            if (tracked.meshKey == mesh) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mark resources of geometries inside any enabled main camera frustum as used.
+     */
+    private void markVisible() {
+        List<ViewPort> views = renderManager.getMainViews();
+        for (TrackedGeometry tracked : geometryList) {
+            BoundingVolume bound = tracked.geometry.getWorldBound();
+            if (bound == null || !isVisible(bound, views)) {
+                continue;
+            }
+
+            tracker.markUsed(tracked.meshKey);
+            for (Image image : tracked.images) {
+                tracker.markUsed(image);
+            }
+        }
+    }
+
+    private static boolean isVisible(BoundingVolume bound, List<ViewPort> views) {
+        for (ViewPort vp : views) {
+            if (!vp.isEnabled()) {
+                continue;
+            }
+            Camera cam = vp.getCamera();
+            int planeState = cam.getPlaneState();
+            cam.setPlaneState(0);
+            Camera.FrustumIntersect result = cam.contains(bound);
+            cam.setPlaneState(planeState);
+            if (result != Camera.FrustumIntersect.Outside) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAttached(Spatial spatial) {
+        Spatial top = spatial;
+        while (top.getParent() != null) {
+            top = top.getParent();
+        }
+        return top == rootNode;
+    }
+
+    private static String ownerName(Geometry geom) {
+        Node parent = geom.getParent();
+        return parent != null ? parent.getName() + "/" + geom.getName() : geom.getName();
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        Log.i(TAG, "Final usage - " + tracker);
+    }
+
+    public ResourceTracker getTracker() {
+        return tracker;
+    }
+
+    public void setScanIntervalFrames(int scanIntervalFrames) {
+        this.scanIntervalFrames = scanIntervalFrames;
+    }
+
+    private static class TrackedGeometry {
+        final Geometry geometry;
+        final List<Image> images = new ArrayList<>(2);
+        Object meshKey;
+
+        TrackedGeometry(Geometry geometry) {
+            this.geometry = geometry;
+        }
+    }
+
+    /**
+     * Evicts a procedural mesh shared by one or more geometries. While evicted
+     * the geometries hold an empty placeholder that keeps the original bounds,
+     * so visibility can still be tested, and are culled.
+     */
+    private class MeshHandle implements ResourceHandle {
+        final Supplier<Mesh> factory;
+        final List<Geometry> users = new ArrayList<>(1);
+        final List<Spatial.CullHint> savedHints = new ArrayList<>(1);
+        Mesh mesh;
+        Mesh placeholder;
+
+        MeshHandle(Mesh mesh, Supplier<Mesh> factory) {
+            this.mesh = mesh;
+            this.factory = factory;
+        }
+
+        @Override
+        public void release() {
+            placeholder = new Mesh();
+            placeholder.setBound(mesh.getBound().clone());
+            meshKeys.remove(mesh);
+            meshKeys.put(placeholder, this);
+
+            savedHints.clear();
+            for (Geometry geom : users) {
+                savedHints.add(geom.getLocalCullHint());
+                geom.setCullHint(Spatial.CullHint.Always);
+                geom.setMesh(placeholder);
+            }
+
+            for (VertexBuffer vb : mesh.getBufferList()) {
+                renderer.deleteBuffer(vb);
+                if (vb.getData() != null) {
+                    BufferUtils.destroyDirectBuffer(vb.getData());
+                }
+            }
+            mesh = null;
+        }
+
+        @Override
+        public long restore() {
+            mesh = factory.get();
+            meshKeys.remove(placeholder);
+            meshKeys.put(mesh, this);
+
+            for (int i = 0; i < users.size(); i++) {
+                Geometry geom = users.get(i);
+                geom.setMesh(mesh);
+                geom.setCullHint(i < savedHints.size() ? savedHints.get(i) : Spatial.CullHint.Inherit);
+            }
+            placeholder = null;
+            return MemorySizes.meshBytes(mesh);
+        }
+    }
+
+    /**
+     * Evicts the image data of an asset texture and reloads it from the asset on demand.
+     * The Image instance is kept so every texture and material sharing it sees the reload.
+     */
+    private class TextureHandle implements ResourceHandle {
+        final Image image;
+        final TextureKey key;
+
+        TextureHandle(Image image, TextureKey key) {
+            this.image = image;
+            this.key = key;
+        }
+
+        @Override
+        public void release() {
+            renderer.deleteImage(image);
+            for (ByteBuffer data : image.getData()) {
+                BufferUtils.destroyDirectBuffer(data);
+            }
+            image.setData(new ArrayList<>());
+            assetManager.deleteFromCache(key);
+        }
+
+        @Override
+        public long restore() {
+            Texture reloaded = assetManager.loadTexture(key);
+            image.setData(new ArrayList<>(reloaded.getImage().getData()));
+            return MemorySizes.imageBytes(image);
+        }
+    }
+}
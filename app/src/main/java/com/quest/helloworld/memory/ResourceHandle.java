@@ -0,0 +1,19 @@
+package com.quest.helloworld.memory;
+
+/**
+ * Releases and restores the memory behind a tracked resource.
+ * Both methods are called on the render thread.
+ */
+public interface ResourceHandle {
+
+    /**
+     * Free the CPU and GPU copies of the resource.
+     */
+    void release();
+
+    /**
+     * Rebuild the resource after {@link #release()}.
+     * @return the size of the restored resource in bytes
+     */
+    long restore();
+}
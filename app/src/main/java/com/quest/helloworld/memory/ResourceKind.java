@@ -0,0 +1,13 @@
+package com.quest.helloworld.memory;
+
+/**
+ * Category of native or GPU memory tracked by the {@link ResourceTracker}.
+ */
+public enum ResourceKind {
+    /** Vertex and index buffers of a mesh. */
+    MESH,
+    /** Image data of a texture, including mipmaps. */
+    TEXTURE,
+    /** Any other direct buffer, e.g. buffers shared with native code. */
+    DIRECT_BUFFER
+}
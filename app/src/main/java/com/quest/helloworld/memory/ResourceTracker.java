@@ -0,0 +1,240 @@
+package com.quest.helloworld.memory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Accounts for mesh, texture and direct buffer memory and enforces a budget.
+ *
+ * Resources are kept in least-recently-used order. When usage exceeds the
+ * budget, evictable resources that have not been used for at least
+ * {@link #getMinIdleFrames()} frames are released oldest first. Using an
+ * evicted resource again restores it transparently.
+ *
+ * Methods are synchronized so loader threads can register resources while
+ * the render thread marks usage and evicts.
+ */
+public class ResourceTracker {
+
+    // Access-ordered: iteration starts at the least recently used resource
+    private final LinkedHashMap<Object, TrackedResource> resources = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final long[] usedByKind = new long[ResourceKind.values().length];
+    private final long[] highWaterByKind = new long[ResourceKind.values().length];
+
+    private long budgetBytes;
+    private int minIdleFrames = 90;
+    private long frame = 0;
+    private long usedBytes = 0;
+    private long highWaterBytes = 0;
+    private int evictionCount = 0;
+    private int restoreCount = 0;
+    private int overBudgetFrames = 0;
+
+    /**
+     * @param budgetBytes total bytes of resident resources to allow
+     */
+    public ResourceTracker(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Start accounting for a resource. Re-tracking an existing key updates its size.
+     * @param key identity of the resource, e.g. the Mesh or Image instance
+     * @param owner scene node or asset name the memory is attributed to
+     * @param handle how to release and restore the resource, or null to pin it
+     */
+    public synchronized TrackedResource track(Object key, String owner, ResourceKind kind,
+                                              long bytes, ResourceHandle handle) {
+        TrackedResource existing = resources.get(key);
+        if (existing != null) {
+            resize(existing, bytes);
+            return existing;
+        }
+
+        TrackedResource resource = new TrackedResource(key, owner, kind, bytes, handle, frame);
+        resources.put(key, resource);
+        add(kind, bytes);
+        return resource;
+    }
+
+    /**
+     * Stop accounting for a resource, e.g. after its owner was removed from the scene.
+     */
+    public synchronized void untrack(Object key) {
+        TrackedResource resource = resources.remove(key);
+        if (resource != null && resource.isResident()) {
+            add(resource.getKind(), -resource.getBytes());
+        }
+    }
+
+    public synchronized boolean isTracked(Object key) {
+        return resources.containsKey(key);
+    }
+
+    /**
+     * Record that a resource is needed this frame, restoring it if it was evicted.
+     * @return true if the resource is tracked
+     */
+    public synchronized boolean markUsed(Object key) {
+        TrackedResource resource = resources.get(key);
+        if (resource == null) {
+            return false;
+        }
+
+        resource.setLastUsedFrame(frame);
+        if (!resource.isResident()) {
+            long bytes = resource.getHandle().restore();
+            resource.setBytes(bytes);
+            resource.setResident(true);
+            add(resource.getKind(), bytes);
+            restoreCount++;
+        }
+        return true;
+    }
+
+    /**
+     * Advance the frame counter used for idle detection.
+     */
+    public synchronized void beginFrame() {
+        frame++;
+    }
+
+    /**
+     * Evict idle resources, least recently used first, until usage fits the budget.
+     * @return number of resources evicted
+     */
+    public synchronized int enforceBudget() {
+        if (usedBytes <= budgetBytes) {
+            return 0;
+        }
+
+        int evicted = 0;
+        Iterator<TrackedResource> it = resources.values().iterator();
+        while (it.hasNext() && usedBytes > budgetBytes) {
+            TrackedResource resource = it.next();
+            if (!resource.isResident() || !resource.isEvictable()
+                    || frame - resource.getLastUsedFrame() < minIdleFrames) {
+                continue;
+            }
+
+            resource.getHandle().release();
+            resource.setResident(false);
+            resource.incrementEvictions();
+            add(resource.getKind(), -resource.getBytes());
+            evicted++;
+        }
+
+        evictionCount += evicted;
+        if (usedBytes > budgetBytes) {
+            overBudgetFrames++;
+        }
+        return evicted;
+    }
+
+    private void resize(TrackedResource resource, long bytes) {
+        if (resource.isResident()) {
+            add(resource.getKind(), bytes - resource.getBytes());
+        }
+        resource.setBytes(bytes);
+    }
+
+    private void add(ResourceKind kind, long delta) {
+        int k = kind.ordinal();
+        usedByKind[k] += delta;
+        usedBytes += delta;
+        highWaterByKind[k] = Math.max(highWaterByKind[k], usedByKind[k]);
+        highWaterBytes = Math.max(highWaterBytes, usedBytes);
+    }
+
+    public synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @return frames a resource must go unused before it may be evicted
+     */
+    public synchronized int getMinIdleFrames() {
+        return minIdleFrames;
+    }
+
+    public synchronized void setMinIdleFrames(int minIdleFrames) {
+        this.minIdleFrames = minIdleFrames;
+    }
+
+    /** Bytes of all resident resources. */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getUsedBytes(ResourceKind kind) {
+        return usedByKind[kind.ordinal()];
+    }
+
+    /** Highest value {@link #getUsedBytes()} has reached. */
+    public synchronized long getHighWaterBytes() {
+        return highWaterBytes;
+    }
+
+    public synchronized long getHighWaterBytes(ResourceKind kind) {
+        return highWaterByKind[kind.ordinal()];
+    }
+
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized int getRestoreCount() {
+        return restoreCount;
+    }
+
+    /** Number of budget checks that could not get usage under the budget. */
+    public synchronized int getOverBudgetFrames() {
+        return overBudgetFrames;
+    }
+
+    public synchronized int getResourceCount() {
+        return resources.size();
+    }
+
+    /**
+     * @return resident bytes per owner, sorted by owner name
+     */
+    public synchronized Map<String, Long> getBytesByOwner() {
+        Map<String, Long> result = new TreeMap<>();
+        for (TrackedResource resource : resources.values()) {
+            if (resource.isResident()) {
+                result.merge(resource.getOwner(), resource.getBytes(), Long::sum);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a copy of all records, least recently used first
+     */
+    public synchronized List<TrackedResource> getResources() {
+        return new ArrayList<>(resources.values());
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("ResourceTracker[used=").append(usedBytes / 1024).append("KB");
+        sb.append(", peak=").append(highWaterBytes / 1024).append("KB");
+        sb.append(", budget=").append(budgetBytes / 1024).append("KB");
+        for (ResourceKind kind : ResourceKind.values()) {
+            sb.append(", ").append(kind).append('=').append(usedByKind[kind.ordinal()] / 1024).append("KB");
+        }
+        sb.append(", evictions=").append(evictionCount);
+        sb.append(", restores=").append(restoreCount).append(']');
+        return sb.toString();
+    }
+}
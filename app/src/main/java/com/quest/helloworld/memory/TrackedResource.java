@@ -0,0 +1,89 @@
+package com.quest.helloworld.memory;
+
+/**
+ * Accounting record for one mesh, texture or direct buffer.
+ */
+public class TrackedResource {
+
+    private final Object key;
+    private final String owner;
+    private final ResourceKind kind;
+    private final ResourceHandle handle;
+    private long bytes;
+    private long lastUsedFrame;
+    private boolean resident = true;
+    private int evictions = 0;
+
+    TrackedResource(Object key, String owner, ResourceKind kind, long bytes, ResourceHandle handle, long frame) {
+        this.key = key;
+        this.owner = owner;
+        this.kind = kind;
+        this.bytes = bytes;
+        this.handle = handle;
+        this.lastUsedFrame = frame;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * @return name of the scene node or asset the memory is attributed to
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public ResourceKind getKind() {
+        return kind;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    ResourceHandle getHandle() {
+        return handle;
+    }
+
+    /**
+     * @return true if the resource can be evicted and restored
+     */
+    public boolean isEvictable() {
+        return handle != null;
+    }
+
+    public long getLastUsedFrame() {
+        return lastUsedFrame;
+    }
+
+    void setLastUsedFrame(long lastUsedFrame) {
+        this.lastUsedFrame = lastUsedFrame;
+    }
+
+    public boolean isResident() {
+        return resident;
+    }
+
+    void setResident(boolean resident) {
+        this.resident = resident;
+    }
+
+    public int getEvictions() {
+        return evictions;
+    }
+
+    void incrementEvictions() {
+        evictions++;
+    }
+
+    @Override
+    public String toString() {
+        return "TrackedResource[" + kind + " " + owner + ", " + bytes + " bytes"
+                + (resident ? "" : ", evicted") + "]";
+    }
+}
@@ -0,0 +1,179 @@
+package com.quest.helloworld.mesh;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetLoadException;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.AssetNotFoundException;
+import com.jme3.material.MatParam;
+import com.jme3.material.Material;
+import com.quest.helloworld.asset.GeneratedAssetLocator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates material definitions that draw {@link MeshCompressor}'s meshes,
+ * and publishes them through {@link GeneratedAssetLocator}.
+ *
+ * Each is a stock definition, such as Lighting.j3md or Unshaded.j3md, with
+ * every technique's vertex shader replaced by a copy that decodes the
+ * attributes where the original declares them: positions are scaled and
+ * offset out of the mesh's bound, normals unfolded from the octahedron.
+ * The rest of each shader, the fragment shaders and the parameters are
+ * the stock ones, so the variants light, shadow and glow as they do.
+ *
+ * Vertex shaders that read inPosition or inNormal in a library they import
+ * rather than in their own source can't be patched.
+ */
+public final class CompressedMaterials {
+
+    public static final String POSITION_SCALE = "PositionScale";
+    public static final String POSITION_OFFSET = "PositionOffset";
+
+    private static final String ROOT = GeneratedAssetLocator.ROOT + "Mesh/";
+
+    private static final Pattern VERTEX_SHADER = Pattern.compile("(VertexShader\\s[^:\\n]*:\\s*)(\\S+)");
+    private static final Pattern PARAMETERS = Pattern.compile("MaterialParameters\\s*\\{");
+    private static final Pattern POSITION = Pattern.compile("attribute\\s+vec3\\s+inPosition\\s*;");
+    private static final Pattern NORMAL = Pattern.compile("attribute\\s+vec3\\s+inNormal\\s*;");
+    private static final Pattern POSITION_USE = Pattern.compile("\\binPosition\\b");
+    private static final Pattern NORMAL_USE = Pattern.compile("\\binNormal\\b");
+
+    // Stand-ins for the declarations while the uses are renamed
+    private static final String POSITION_MARK = "@POSITION@";
+    private static final String NORMAL_MARK = "@NORMAL@";
+
+    private static final String POSITION_DECODE =
+            "attribute vec3 inPosition;\n"
+            + "uniform vec3 m_" + POSITION_SCALE + ";\n"
+            + "uniform vec3 m_" + POSITION_OFFSET + ";\n"
+            + "\n"
+            // Normalized shorts across the mesh's bound
+            + "vec3 decodePosition() {\n"
+            + "    return inPosition * m_" + POSITION_SCALE + " + m_" + POSITION_OFFSET + ";\n"
+            + "}\n";
+
+    private static final String NORMAL_DECODE =
+            "attribute vec2 inNormal;\n"
+            + "\n"
+            // Unfold the octahedron's lower half back over the diagonals
+            + "vec3 decodeNormal() {\n"
+            + "    vec3 n = vec3(inNormal, 1.0 - abs(inNormal.x) - abs(inNormal.y));\n"
+            + "    float t = max(-n.z, 0.0);\n"
+            + "    n.x += n.x >= 0.0 ? -t : t;\n"
+            + "    n.y += n.y >= 0.0 ? -t : t;\n"
+            + "    return normalize(n);\n"
+            + "}\n";
+
+    // Stock definitions and shaders already published
+    private static final Set<String> PUBLISHED = ConcurrentHashMap.newKeySet();
+
+    private CompressedMaterials() {
+    }
+
+    /**
+     * A material like the given one, from the compressed variant of its
+     * definition, with the same parameters and render state. Each call
+     * makes a new material, as the position decode is per mesh.
+     * @throws IllegalArgumentException if the definition's vertex shaders can't be patched
+     */
+    public static Material convert(AssetManager assetManager, Material material) {
+        Material result = new Material(assetManager, definition(assetManager, material.getMaterialDef().getAssetName()));
+        result.setName(material.getName());
+        for (MatParam param : material.getParams()) {
+            result.setParam(param.getName(), param.getVarType(), param.getValue());
+        }
+        result.getAdditionalRenderState().set(material.getAdditionalRenderState());
+        result.setTransparent(material.isTransparent());
+        result.setReceivesShadows(material.isReceivesShadows());
+        return result;
+    }
+
+    /**
+     * Publish the compressed variant of a stock definition. The asset
+     * manager loads it once {@link GeneratedAssetLocator} is registered.
+     * @return the variant's asset name
+     * @throws IllegalArgumentException if its vertex shaders can't be patched
+     */
+    public static String definition(AssetManager assetManager, String stock) {
+        String name = ROOT + stock;
+        if (PUBLISHED.contains(stock)) {
+            return name;
+        }
+        String source = read(assetManager, stock);
+
+        StringBuffer patched = new StringBuffer();
+        Matcher shaders = VERTEX_SHADER.matcher(source);
+        int count = 0;
+        while (shaders.find()) {
+            String shader = shaders.group(2);
+            if (PUBLISHED.add(shader)) {
+                try {
+                    GeneratedAssetLocator.put(ROOT + shader, patchVertexShader(read(assetManager, shader), shader));
+                } catch (RuntimeException e) {
+                    PUBLISHED.remove(shader);
+                    throw e;
+                }
+            }
+            shaders.appendReplacement(patched, Matcher.quoteReplacement(shaders.group(1) + ROOT + shader));
+            count++;
+        }
+        shaders.appendTail(patched);
+        Matcher parameters = PARAMETERS.matcher(patched);
+        if (count == 0 || !parameters.find()) {
+            throw new IllegalArgumentException(stock + " has no vertex shaders or parameters to patch");
+        }
+        patched.insert(parameters.end(), "\n        Vector3 " + POSITION_SCALE + "\n        Vector3 " + POSITION_OFFSET + "\n");
+
+        GeneratedAssetLocator.put(name, patched.toString());
+        PUBLISHED.add(stock);
+        return name;
+    }
+
+    /**
+     * Decode the compressed attributes where the shader declares them, and
+     * use the decoded values wherever it read the attributes.
+     * @throws IllegalArgumentException if the shader doesn't declare what it reads
+     */
+    static String patchVertexShader(String source, String name) {
+        Matcher position = POSITION.matcher(source);
+        if (!position.find()) {
+            throw new IllegalArgumentException(name + " has no vec3 inPosition to decode");
+        }
+        String patched = position.replaceFirst(POSITION_MARK);
+        Matcher normal = NORMAL.matcher(patched);
+        boolean normals = normal.find();
+        patched = normal.replaceAll(NORMAL_MARK);
+        if (!normals && NORMAL_USE.matcher(patched).find()) {
+            throw new IllegalArgumentException(name + " reads inNormal without declaring it");
+        }
+        patched = POSITION_USE.matcher(patched).replaceAll("decodePosition()");
+        patched = NORMAL_USE.matcher(patched).replaceAll("decodeNormal()");
+        return patched.replace(POSITION_MARK, POSITION_DECODE).replace(NORMAL_MARK, NORMAL_DECODE);
+    }
+
+    private static String read(AssetManager assetManager, String name) {
+        AssetInfo info = assetManager.locateAsset(new AssetKey<>(name));
+        if (info == null) {
+            throw new AssetNotFoundException(name);
+        }
+        try (InputStream in = info.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new AssetLoadException("Can't read " + name, e);
+        }
+    }
+}
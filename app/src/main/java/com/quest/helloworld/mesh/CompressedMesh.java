@@ -0,0 +1,125 @@
+package com.quest.helloworld.mesh;
+
+import com.jme3.material.Material;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A mesh in the compact vertex formats {@link MeshCompressor} writes, with
+ * what its material needs to decode the positions and what compressing it
+ * saved.
+ */
+public class CompressedMesh {
+
+    private final Mesh mesh;
+    private final Vector3f center;
+    private final Vector3f extent;
+    private final long originalBytes;
+    private final long compressedBytes;
+    private final float acmrBefore;
+    private final float acmrAfter;
+
+    CompressedMesh(Mesh mesh, Vector3f center, Vector3f extent, long originalBytes, long compressedBytes,
+                   float acmrBefore, float acmrAfter) {
+        this.mesh = mesh;
+        this.center = center;
+        this.extent = extent;
+        this.originalBytes = originalBytes;
+        this.compressedBytes = compressedBytes;
+        this.acmrBefore = acmrBefore;
+        this.acmrAfter = acmrAfter;
+    }
+
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    /**
+     * Set the position decode on a material made from a
+     * {@link CompressedMaterials} definition.
+     */
+    public void setDecodeParameters(Material material) {
+        material.setVector3(CompressedMaterials.POSITION_SCALE, extent);
+        material.setVector3(CompressedMaterials.POSITION_OFFSET, center);
+    }
+
+    /**
+     * The position a vertex decodes to, as the vertex shader decodes it.
+     */
+    public Vector3f decodePosition(int vertex, Vector3f store) {
+        ShortBuffer data = (ShortBuffer) mesh.getBuffer(VertexBuffer.Type.Position).getData();
+        int base = vertex * MeshCompressor.POSITION_COMPONENTS;
+        return store.set(VertexQuantization.dequantize(data.get(base), center.x, extent.x),
+                VertexQuantization.dequantize(data.get(base + 1), center.y, extent.y),
+                VertexQuantization.dequantize(data.get(base + 2), center.z, extent.z));
+    }
+
+    /**
+     * The unit normal a vertex decodes to, or null if the mesh has none.
+     */
+    public Vector3f decodeNormal(int vertex, Vector3f store) {
+        VertexBuffer normals = mesh.getBuffer(VertexBuffer.Type.Normal);
+        if (normals == null) {
+            return null;
+        }
+        ShortBuffer data = (ShortBuffer) normals.getData();
+        return VertexQuantization.octahedralDecode(VertexQuantization.fromSnorm16(data.get(vertex * 2)),
+                VertexQuantization.fromSnorm16(data.get(vertex * 2 + 1)), store);
+    }
+
+    /**
+     * The texture coordinate a vertex decodes to, or null if the mesh has none.
+     */
+    public Vector2f decodeTexCoord(int vertex, Vector2f store) {
+        VertexBuffer texCoords = mesh.getBuffer(VertexBuffer.Type.TexCoord);
+        if (texCoords == null) {
+            return null;
+        }
+        ByteBuffer data = (ByteBuffer) texCoords.getData();
+        return store.set(VertexQuantization.fromHalf(data.getShort(vertex * 4)),
+                VertexQuantization.fromHalf(data.getShort(vertex * 4 + 2)));
+    }
+
+    /** Center of the bound positions are quantized across. */
+    public Vector3f getCenter() {
+        return center;
+    }
+
+    /** Half extent of the bound positions are quantized across. */
+    public Vector3f getExtent() {
+        return extent;
+    }
+
+    /** Bytes of vertex and index data before compressing. */
+    public long getOriginalBytes() {
+        return originalBytes;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    public long getSavedBytes() {
+        return originalBytes - compressedBytes;
+    }
+
+    /** Vertices shaded per triangle, on a {@link VertexCacheOptimizer#FIFO_SIZE} entry cache, before reordering. */
+    public float getAcmrBefore() {
+        return acmrBefore;
+    }
+
+    public float getAcmrAfter() {
+        return acmrAfter;
+    }
+
+    public String summary(String name) {
+        return String.format("%s: %d vertices, %d -> %d bytes, saved %d (%.0f%%); ACMR %.2f -> %.2f",
+                name, mesh.getVertexCount(), originalBytes, compressedBytes, getSavedBytes(),
+                100f * getSavedBytes() / Math.max(originalBytes, 1), acmrBefore, acmrAfter);
+    }
+}
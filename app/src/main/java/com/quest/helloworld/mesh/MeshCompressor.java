@@ -0,0 +1,253 @@
+package com.quest.helloworld.mesh;
+
+import android.util.Log;
+
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.asset.AssetManager;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.material.Material;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.util.BufferUtils;
+import com.quest.helloworld.asset.GeneratedAssetLocator;
+import com.quest.helloworld.memory.MemorySizes;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Shrinks meshes' vertex data so the GPU fetches less of it per vertex,
+ * and orders their triangles so it shades fewer vertices.
+ *
+ * <pre>
+ *   Position  3 floats, 12 bytes  ->  4 normalized shorts across the mesh's bound, 8 bytes
+ *   Normal    3 floats, 12 bytes  ->  2 normalized shorts, octahedral, 4 bytes
+ *   TexCoord  2 floats,  8 bytes  ->  2 half floats, 4 bytes
+ * </pre>
+ * The fourth position short is padding, keeping every vertex 4-byte aligned.
+ * Normals and texture coordinates are decoded by the GPU on fetch; the
+ * positions' scale and offset, and unfolding the normals, are left to
+ * materials made from {@link CompressedMaterials} definitions, which
+ * {@link #apply} swaps in.
+ *
+ * Positions are no longer floats afterwards, so the compressed mesh keeps
+ * the bound it was quantized across and must not have updateBound() or
+ * collision data computed from it. Anything that reads positions on the
+ * CPU, like occluders, takes them before the mesh is compressed. Other
+ * buffers are shared with the original as they are.
+ *
+ * Attached as an app state when compression is on, so scene states can
+ * find it and compress what they build.
+ */
+public class MeshCompressor extends AbstractAppState {
+
+    private static final String TAG = "MeshCompressor";
+
+    public static final int POSITION_COMPONENTS = 4;
+
+    private final AssetManager assetManager;
+    // Meshes shared by several geometries are compressed once
+    private final Map<Mesh, CompressedMesh> compressed = new IdentityHashMap<>();
+
+    private int geometries = 0;
+    private long originalBytes = 0;
+    private long compressedBytes = 0;
+
+    public MeshCompressor(AssetManager assetManager) {
+        this.assetManager = assetManager;
+        GeneratedAssetLocator.register(assetManager);
+    }
+
+    /**
+     * Whether {@link #compress} takes the mesh: an indexed or plain triangle
+     * list with float positions, and float normals and texture coordinates
+     * if it has them, not interleaved.
+     */
+    public static boolean canCompress(Mesh mesh) {
+        if (mesh.getMode() != Mesh.Mode.Triangles || mesh.getBuffer(VertexBuffer.Type.InterleavedData) != null) {
+            return false;
+        }
+        return isFloat(mesh.getBuffer(VertexBuffer.Type.Position), 3, false)
+                && isFloat(mesh.getBuffer(VertexBuffer.Type.Normal), 3, true)
+                && isFloat(mesh.getBuffer(VertexBuffer.Type.TexCoord), 2, true);
+    }
+
+    private static boolean isFloat(VertexBuffer buffer, int components, boolean optional) {
+        if (buffer == null) {
+            return optional;
+        }
+        return buffer.getFormat() == VertexBuffer.Format.Float && buffer.getNumComponents() == components
+                && buffer.getData() instanceof FloatBuffer;
+    }
+
+    /**
+     * Compress a mesh, leaving the original as it is.
+     * @throws IllegalArgumentException if {@link #canCompress} doesn't take it
+     */
+    public static CompressedMesh compress(Mesh mesh) {
+        if (!canCompress(mesh)) {
+            throw new IllegalArgumentException("Can't compress " + mesh);
+        }
+        int vertexCount = mesh.getVertexCount();
+        FloatBuffer positions = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        // Quantized across the bound of what's there, not whatever bound the mesh has
+        BoundingBox bound = new BoundingBox();
+        bound.computeFromPoints(positions);
+        Vector3f center = bound.getCenter().clone();
+        Vector3f extent = bound.getExtent(null);
+
+        Mesh result = new Mesh();
+        result.setMode(Mesh.Mode.Triangles);
+        ShortBuffer position = BufferUtils.createShortBuffer(vertexCount * POSITION_COMPONENTS);
+        for (int v = 0; v < vertexCount; v++) {
+            position.put(VertexQuantization.quantize(positions.get(v * 3), center.x, extent.x))
+                    .put(VertexQuantization.quantize(positions.get(v * 3 + 1), center.y, extent.y))
+                    .put(VertexQuantization.quantize(positions.get(v * 3 + 2), center.z, extent.z))
+                    .put((short) 0);
+        }
+        position.flip();
+        setNormalized(result, VertexBuffer.Type.Position, POSITION_COMPONENTS, position);
+
+        FloatBuffer normals = mesh.getFloatBuffer(VertexBuffer.Type.Normal);
+        if (normals != null) {
+            ShortBuffer normal = BufferUtils.createShortBuffer(vertexCount * 2);
+            Vector3f n = new Vector3f();
+            Vector2f encoded = new Vector2f();
+            for (int v = 0; v < vertexCount; v++) {
+                n.set(normals.get(v * 3), normals.get(v * 3 + 1), normals.get(v * 3 + 2));
+                VertexQuantization.octahedralEncode(n, encoded);
+                normal.put(VertexQuantization.toSnorm16(encoded.x)).put(VertexQuantization.toSnorm16(encoded.y));
+            }
+            normal.flip();
+            setNormalized(result, VertexBuffer.Type.Normal, 2, normal);
+        }
+
+        FloatBuffer texCoords = mesh.getFloatBuffer(VertexBuffer.Type.TexCoord);
+        if (texCoords != null) {
+            ByteBuffer texCoord = BufferUtils.createByteBuffer(vertexCount * 4);
+            for (int i = 0; i < vertexCount * 2; i++) {
+                texCoord.putShort(VertexQuantization.toHalf(texCoords.get(i)));
+            }
+            texCoord.flip();
+            result.setBuffer(VertexBuffer.Type.TexCoord, 2, VertexBuffer.Format.Half, texCoord);
+        }
+
+        float acmrBefore = 3f;
+        float acmrAfter = 3f;
+        if (mesh.getBuffer(VertexBuffer.Type.Index) != null) {
+            IndexBuffer source = mesh.getIndexBuffer();
+            int[] indices = new int[source.size()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = source.get(i);
+            }
+            acmrBefore = VertexCacheOptimizer.acmr(indices, vertexCount, VertexCacheOptimizer.FIFO_SIZE);
+            indices = VertexCacheOptimizer.optimize(indices, vertexCount);
+            acmrAfter = VertexCacheOptimizer.acmr(indices, vertexCount, VertexCacheOptimizer.FIFO_SIZE);
+            if (vertexCount <= 0x10000) {
+                ShortBuffer index = BufferUtils.createShortBuffer(indices.length);
+                for (int i : indices) {
+                    index.put((short) i);
+                }
+                index.flip();
+                result.setBuffer(VertexBuffer.Type.Index, 3, VertexBuffer.Format.UnsignedShort, index);
+            } else {
+                IntBuffer index = BufferUtils.createIntBuffer(indices);
+                result.setBuffer(VertexBuffer.Type.Index, 3, VertexBuffer.Format.UnsignedInt, index);
+            }
+        }
+
+        for (VertexBuffer buffer : mesh.getBufferList()) {
+            if (result.getBuffer(buffer.getBufferType()) == null) {
+                result.setBuffer(buffer);
+            }
+        }
+        result.updateCounts();
+        result.setBound(bound);
+        result.setStatic();
+        return new CompressedMesh(result, center, extent, MemorySizes.meshBytes(mesh),
+                MemorySizes.meshBytes(result), acmrBefore, acmrAfter);
+    }
+
+    private static void setNormalized(Mesh mesh, VertexBuffer.Type type, int components, Buffer data) {
+        mesh.setBuffer(type, components, VertexBuffer.Format.Short, data);
+        mesh.getBuffer(type).setNormalized(true);
+    }
+
+    /**
+     * A mesh factory making compressed meshes, e.g. for the resource budget
+     * to rebuild an evicted one. The same mesh compresses to the same bound,
+     * so the material's decode still fits.
+     */
+    public static Supplier<Mesh> compressing(Supplier<Mesh> factory) {
+        return () -> compress(factory.get()).getMesh();
+    }
+
+    /**
+     * Swap a geometry's mesh for its compressed form and its material for
+     * one that decodes it. Call on the render thread, before the geometry
+     * is warmed or drawn.
+     * @return false if the mesh or material can't be compressed, leaving the geometry as it was
+     */
+    public boolean apply(Geometry geometry) {
+        Mesh mesh = geometry.getMesh();
+        CompressedMesh result = compressed.get(mesh);
+        if (result == null && !canCompress(mesh)) {
+            Log.w(TAG, "Not compressing " + geometry.getName() + ": unsupported mesh layout");
+            return false;
+        }
+        Material material;
+        try {
+            material = CompressedMaterials.convert(assetManager, geometry.getMaterial());
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Not compressing " + geometry.getName() + ": " + e.getMessage());
+            return false;
+        }
+
+        if (result == null) {
+            result = compress(mesh);
+            compressed.put(mesh, result);
+            originalBytes += result.getOriginalBytes();
+            compressedBytes += result.getCompressedBytes();
+            Log.i(TAG, result.summary(geometry.getName()));
+        }
+        result.setDecodeParameters(material);
+        geometry.setMesh(result.getMesh());
+        geometry.setMaterial(material);
+        geometries++;
+        return true;
+    }
+
+    /** Geometries {@link #apply} compressed. */
+    public int getGeometryCount() {
+        return geometries;
+    }
+
+    /** Distinct meshes compressed. */
+    public int getMeshCount() {
+        return compressed.size();
+    }
+
+    public long getOriginalBytes() {
+        return originalBytes;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    public String summary() {
+        return String.format("Mesh compression: %d geometries, %d meshes, %.1f -> %.1f KB, saved %.1f KB",
+                geometries, compressed.size(), originalBytes / 1024f, compressedBytes / 1024f,
+                (originalBytes - compressedBytes) / 1024f);
+    }
+}
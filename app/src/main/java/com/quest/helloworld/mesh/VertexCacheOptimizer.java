@@ -0,0 +1,181 @@
+package com.quest.helloworld.mesh;
+
+import java.util.Arrays;
+
+/**
+ * Reorders a triangle list so vertices shaded for one triangle are still
+ * in the GPU's post-transform cache when the next ones use them, with Tom
+ * Forsyth's linear-speed vertex cache optimization.
+ *
+ * Every vertex is scored by where it sits in a modelled LRU cache and by
+ * how many triangles still use it; the next triangle is the best scoring
+ * one around the cache, which grows the strip outward from what was just
+ * drawn and finishes off vertices with few triangles left. Each triangle
+ * keeps its corners as they were; only the order of triangles changes.
+ *
+ * Real caches differ between GPUs and aren't documented for Adreno, so
+ * results are measured as ACMR - vertices shaded per triangle - on a small
+ * FIFO cache, which an LRU-tuned order does well on too.
+ */
+public final class VertexCacheOptimizer {
+
+    /** Cache entries the scoring models. */
+    static final int CACHE_SIZE = 32;
+    /** FIFO entries {@link #acmr} is usually measured with. */
+    public static final int FIFO_SIZE = 16;
+
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    private VertexCacheOptimizer() {
+    }
+
+    /**
+     * @param indices a triangle list
+     * @return the same triangles, reordered
+     */
+    public static int[] optimize(int[] indices, int vertexCount) {
+        int triangleCount = indices.length / 3;
+
+        // Triangles around each vertex, the live ones first
+        int[] offsets = new int[vertexCount + 1];
+        for (int index : indices) {
+            offsets[index + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] live = new int[vertexCount];
+        int[] adjacency = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            int v = indices[i];
+            adjacency[offsets[v] + live[v]++] = i / 3;
+        }
+
+        int[] cachePosition = new int[vertexCount];
+        Arrays.fill(cachePosition, -1);
+        float[] vertexScore = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            vertexScore[v] = score(-1, live[v]);
+        }
+
+        boolean[] emitted = new boolean[triangleCount];
+        int[] cache = new int[CACHE_SIZE + 3];
+        int[] nextCache = new int[CACHE_SIZE + 3];
+        int cached = 0;
+        int[] result = new int[indices.length];
+        int best = -1;
+        int cursor = 0;
+
+        for (int n = 0; n < triangleCount; n++) {
+            if (best < 0) {
+                // Nothing around the cache: start again at the next triangle not drawn
+                while (emitted[cursor]) {
+                    cursor++;
+                }
+                best = cursor;
+            }
+            emitted[best] = true;
+            int next = 0;
+            for (int c = 0; c < 3; c++) {
+                int v = indices[3 * best + c];
+                result[3 * n + c] = v;
+                if (!contains(nextCache, next, v)) {
+                    nextCache[next++] = v;
+                }
+                // Drop the triangle from the vertex's live ones
+                int first = offsets[v];
+                int last = first + --live[v];
+                for (int i = first; i <= last; i++) {
+                    if (adjacency[i] == best) {
+                        adjacency[i] = adjacency[last];
+                        adjacency[last] = best;
+                        break;
+                    }
+                }
+            }
+            // Most recently used first; what falls off the end is rescored too
+            int corners = next;
+            for (int i = 0; i < cached; i++) {
+                if (!contains(nextCache, corners, cache[i])) {
+                    nextCache[next++] = cache[i];
+                }
+            }
+            for (int i = 0; i < next; i++) {
+                int v = nextCache[i];
+                cachePosition[v] = i < CACHE_SIZE ? i : -1;
+                vertexScore[v] = score(cachePosition[v], live[v]);
+            }
+
+            best = -1;
+            float bestScore = -1f;
+            for (int i = 0; i < next; i++) {
+                int v = nextCache[i];
+                for (int a = offsets[v], end = offsets[v] + live[v]; a < end; a++) {
+                    int t = adjacency[a];
+                    float s = vertexScore[indices[3 * t]] + vertexScore[indices[3 * t + 1]]
+                            + vertexScore[indices[3 * t + 2]];
+                    if (s > bestScore) {
+                        bestScore = s;
+                        best = t;
+                    }
+                }
+            }
+
+            int[] swap = cache;
+            cache = nextCache;
+            nextCache = swap;
+            cached = Math.min(next, CACHE_SIZE);
+        }
+        return result;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static float score(int cachePosition, int liveTriangles) {
+        if (liveTriangles == 0) {
+            return -1f;
+        }
+        float score = 0f;
+        if (cachePosition >= 0) {
+            if (cachePosition < 3) {
+                // Just used: fixed, so the order doesn't depend on which corner came first
+                score = LAST_TRIANGLE_SCORE;
+            } else {
+                float scaled = 1f - (cachePosition - 3) / (float) (CACHE_SIZE - 3);
+                score = (float) Math.pow(scaled, CACHE_DECAY_POWER);
+            }
+        }
+        return score + VALENCE_BOOST_SCALE * (float) Math.pow(liveTriangles, -VALENCE_BOOST_POWER);
+    }
+
+    /**
+     * Average cache miss ratio: vertices shaded per triangle drawn through a
+     * FIFO post-transform cache. 0.5 is the best a regular grid can do, 3
+     * the worst.
+     */
+    public static float acmr(int[] indices, int vertexCount, int cacheSize) {
+        if (indices.length == 0) {
+            return 0f;
+        }
+        // The miss count when each vertex last entered the cache
+        int[] enteredAt = new int[vertexCount];
+        Arrays.fill(enteredAt, -cacheSize - 1);
+        int misses = 0;
+        for (int v : indices) {
+            if (misses - enteredAt[v] > cacheSize) {
+                enteredAt[v] = misses++;
+            }
+        }
+        return misses / (indices.length / 3f);
+    }
+}
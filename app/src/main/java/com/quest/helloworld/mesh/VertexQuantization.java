@@ -0,0 +1,87 @@
+package com.quest.helloworld.mesh;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+
+/**
+ * Encodings of vertex attributes into fewer bits, each with the decode the
+ * GPU does on fetch, or the vertex shader after it, so meshes can be
+ * checked against what they were made from.
+ *
+ * Normalized shorts are decoded as GLES 3 does: max(q / 32767, -1).
+ */
+public final class VertexQuantization {
+
+    static final float SNORM16_MAX = 32767f;
+
+    private VertexQuantization() {
+    }
+
+    /**
+     * Quantize a value in [-1, 1] to a normalized short.
+     */
+    public static short toSnorm16(float value) {
+        return (short) Math.round(FastMath.clamp(value, -1f, 1f) * SNORM16_MAX);
+    }
+
+    public static float fromSnorm16(short value) {
+        return Math.max(value / SNORM16_MAX, -1f);
+    }
+
+    /**
+     * Quantize a coordinate to a normalized short, as its offset from the
+     * bound's center over the bound's half extent on that axis.
+     */
+    public static short quantize(float value, float center, float extent) {
+        return extent > 0f ? toSnorm16((value - center) / extent) : 0;
+    }
+
+    public static float dequantize(short value, float center, float extent) {
+        return fromSnorm16(value) * extent + center;
+    }
+
+    /**
+     * Map a unit vector onto the octahedron and unfold it into the square
+     * [-1, 1]^2, so two numbers hold a direction with error spread evenly
+     * over the sphere.
+     * @param store receives the two coordinates
+     */
+    public static Vector2f octahedralEncode(Vector3f normal, Vector2f store) {
+        float sum = FastMath.abs(normal.x) + FastMath.abs(normal.y) + FastMath.abs(normal.z);
+        if (sum == 0f) {
+            return store.set(0f, 0f);
+        }
+        float x = normal.x / sum;
+        float y = normal.y / sum;
+        if (normal.z < 0f) {
+            // Fold the lower half over the diagonals
+            float folded = (1f - FastMath.abs(y)) * sign(x);
+            y = (1f - FastMath.abs(x)) * sign(y);
+            x = folded;
+        }
+        return store.set(x, y);
+    }
+
+    /**
+     * Inverse of {@link #octahedralEncode}; the generated vertex shaders do the same.
+     */
+    public static Vector3f octahedralDecode(float x, float y, Vector3f store) {
+        float z = 1f - FastMath.abs(x) - FastMath.abs(y);
+        float t = Math.max(-z, 0f);
+        store.set(x + (x >= 0f ? -t : t), y + (y >= 0f ? -t : t), z);
+        return store.normalizeLocal();
+    }
+
+    public static short toHalf(float value) {
+        return FastMath.convertFloatToHalf(value);
+    }
+
+    public static float fromHalf(short value) {
+        return FastMath.convertHalfToFloat(value);
+    }
+
+    private static float sign(float value) {
+        return value >= 0f ? 1f : -1f;
+    }
+}
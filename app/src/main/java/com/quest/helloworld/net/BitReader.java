@@ -0,0 +1,61 @@
+package com.quest.helloworld.net;
+
+/**
+ * Reads values written by {@link BitWriter} from a byte array. Reading
+ * past the end of the data sets {@link #isOverrun} and yields zeros rather
+ * than throwing, so a truncated packet is rejected with one check at the end.
+ */
+public class BitReader {
+
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean overrun;
+
+    public BitReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Read bits from startByte up to, not including, endByte.
+     */
+    public void reset(int startByte, int endByte) {
+        position = startByte * 8;
+        limit = endByte * 8;
+        overrun = false;
+    }
+
+    public boolean readBit() {
+        if (position >= limit) {
+            overrun = true;
+            return false;
+        }
+        boolean bit = (buffer[position >>> 3] & (1 << (position & 7))) != 0;
+        position++;
+        return bit;
+    }
+
+    public int read(int bits) {
+        if (position + bits > limit) {
+            overrun = true;
+            position = limit;
+            return 0;
+        }
+        int value = 0;
+        int read = 0;
+        while (read < bits) {
+            int bitOffset = position & 7;
+            int n = Math.min(8 - bitOffset, bits - read);
+            int chunk = ((buffer[position >>> 3] & 0xFF) >>> bitOffset) & ((1 << n) - 1);
+            value |= chunk << read;
+            read += n;
+            position += n;
+        }
+        return value;
+    }
+
+    /** Whether a read went past the end of the data since the last reset. */
+    public boolean isOverrun() {
+        return overrun;
+    }
+}
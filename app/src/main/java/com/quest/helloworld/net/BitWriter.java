@@ -0,0 +1,109 @@
+package com.quest.helloworld.net;
+
+import java.util.Arrays;
+
+/**
+ * Writes values of any width up to 32 bits into a fixed byte array,
+ * least significant bit first. Writing does not allocate.
+ *
+ * Bits are ORed into bytes that {@link #reset} zeroed, which makes
+ * {@link #rewind} cheap: a partly written entry that turns out not to fit
+ * is cleared and written again elsewhere.
+ */
+public class BitWriter {
+
+    private final byte[] buffer;
+    private int start;
+    private int position;
+
+    public BitWriter(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Start writing at a byte offset, zeroing the rest of the array.
+     */
+    public void reset(int startByte) {
+        Arrays.fill(buffer, startByte, buffer.length, (byte) 0);
+        start = startByte;
+        position = startByte * 8;
+    }
+
+    public void writeBit(boolean bit) {
+        if (bit) {
+            buffer[position >>> 3] |= (byte) (1 << (position & 7));
+        }
+        position++;
+    }
+
+    /**
+     * Write the low {@code bits} bits of a value.
+     */
+    public void write(int value, int bits) {
+        int written = 0;
+        while (written < bits) {
+            int bitOffset = position & 7;
+            int n = Math.min(8 - bitOffset, bits - written);
+            int chunk = (value >>> written) & ((1 << n) - 1);
+            buffer[position >>> 3] |= (byte) (chunk << bitOffset);
+            written += n;
+            position += n;
+        }
+    }
+
+    /**
+     * Append everything another writer has written since its reset. Whole
+     * bytes are shifted into place rather than rewritten bit by bit.
+     */
+    public void write(BitWriter source) {
+        byte[] bytes = source.buffer;
+        int bits = source.getBitsWritten();
+        int index = source.start;
+        int shift = position & 7;
+        int target = position >>> 3;
+        int whole = bits >>> 3;
+        for (int i = 0; i < whole; i++) {
+            int b = bytes[index + i] & 0xFF;
+            buffer[target + i] |= (byte) (b << shift);
+            if (shift != 0) {
+                buffer[target + i + 1] |= (byte) (b >>> (8 - shift));
+            }
+        }
+        position += whole * 8;
+        if ((bits & 7) != 0) {
+            write(bytes[index + whole], bits & 7);
+        }
+    }
+
+    /** Bit position from the start of the array. */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Drop everything written after a position returned by {@link #getPosition}.
+     */
+    public void rewind(int mark) {
+        int end = (position + 7) >>> 3;
+        int first = mark >>> 3;
+        if (first < end) {
+            buffer[first] &= (byte) ((1 << (mark & 7)) - 1);
+            Arrays.fill(buffer, first + 1, end, (byte) 0);
+        }
+        position = mark;
+    }
+
+    /** Bytes used from the start of the array, counting a partly filled last byte. */
+    public int getByteLength() {
+        return (position + 7) >>> 3;
+    }
+
+    /** Bits written since the last reset. */
+    public int getBitsWritten() {
+        return position - start * 8;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+}
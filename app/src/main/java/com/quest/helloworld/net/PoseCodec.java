@@ -0,0 +1,242 @@
+package com.quest.helloworld.net;
+
+import static com.quest.helloworld.net.QuantizedPose.*;
+
+/**
+ * Bit-packs a {@link QuantizedPose}, either in full or as a delta against
+ * a baseline the receiver has acknowledged.
+ *
+ * Each position, rotation and the button block starts with a changed bit,
+ * so a still controller costs one bit. A changed value is sent as a small
+ * signed delta when it fits, otherwise in full; a rotation whose largest
+ * component switched is always sent in full. Untracked hands cost nothing
+ * beyond the two-bit hand mask.
+ *
+ * Stateless and allocation-free; the same baseline must be passed on both
+ * ends or the decode is garbage.
+ */
+public final class PoseCodec {
+
+    static final int POSITION_DELTA_BITS = 8;
+    static final int ROTATION_DELTA_BITS = 6;
+    static final int JOINT_DELTA_BITS = 5;
+
+    /** Worst-case size of one encoded pose, with or without a baseline. */
+    public static final int MAX_POSE_BITS = 3 * (positionBits() + rotationBits(ROTATION_BITS))
+            + 1 + BUTTON_BITS + 4 * THUMBSTICK_BITS
+            + 2 + 2 * (positionBits() + SENT_JOINTS.length * rotationBits(JOINT_ROTATION_BITS));
+
+    private PoseCodec() {
+    }
+
+    /**
+     * @param baseline pose the receiver holds for the acknowledged sequence, or null to send in full
+     */
+    public static void write(BitWriter out, QuantizedPose pose, QuantizedPose baseline) {
+        int[] v = pose.values;
+        int[] b = baseline != null ? baseline.values : null;
+
+        writePosition(out, v, b, HEAD_POSITION);
+        writeRotation(out, v, b, HEAD_ROTATION, ROTATION_BITS, ROTATION_DELTA_BITS);
+        for (int hand = 0; hand < 2; hand++) {
+            int base = CONTROLLER + hand * CONTROLLER_STRIDE;
+            writePosition(out, v, b, base);
+            writeRotation(out, v, b, base + 3, ROTATION_BITS, ROTATION_DELTA_BITS);
+        }
+
+        boolean inputsChanged = b == null || !same(v, b, BUTTONS, 5);
+        if (b != null) {
+            out.writeBit(inputsChanged);
+        }
+        if (inputsChanged) {
+            out.write(v[BUTTONS], BUTTON_BITS);
+            for (int i = 0; i < 4; i++) {
+                out.write(v[THUMBSTICKS + i], THUMBSTICK_BITS);
+            }
+        }
+
+        int mask = v[HAND_MASK];
+        out.write(mask, 2);
+        for (int hand = 0; hand < 2; hand++) {
+            if ((mask & (1 << hand)) == 0) {
+                continue;
+            }
+            // Delta only against a baseline that had this hand tracked
+            int[] handBase = b != null && (b[HAND_MASK] & (1 << hand)) != 0 ? b : null;
+            int base = HANDS + hand * HAND_STRIDE;
+            writePosition(out, v, handBase, base);
+            for (int i = 0; i < SENT_JOINTS.length; i++) {
+                writeRotation(out, v, handBase, base + 3 + i * 4, JOINT_ROTATION_BITS, JOINT_DELTA_BITS);
+            }
+        }
+    }
+
+    /**
+     * Decode into out, which may not be the baseline. Check the reader's
+     * overrun flag afterwards.
+     */
+    public static void read(BitReader in, QuantizedPose baseline, QuantizedPose out) {
+        int[] v = out.values;
+        int[] b = baseline != null ? baseline.values : null;
+
+        readPosition(in, v, b, HEAD_POSITION);
+        readRotation(in, v, b, HEAD_ROTATION, ROTATION_BITS, ROTATION_DELTA_BITS);
+        for (int hand = 0; hand < 2; hand++) {
+            int base = CONTROLLER + hand * CONTROLLER_STRIDE;
+            readPosition(in, v, b, base);
+            readRotation(in, v, b, base + 3, ROTATION_BITS, ROTATION_DELTA_BITS);
+        }
+
+        if (b == null || in.readBit()) {
+            v[BUTTONS] = in.read(BUTTON_BITS);
+            for (int i = 0; i < 4; i++) {
+                v[THUMBSTICKS + i] = in.read(THUMBSTICK_BITS);
+            }
+        } else {
+            System.arraycopy(b, BUTTONS, v, BUTTONS, 5);
+        }
+
+        int mask = in.read(2);
+        v[HAND_MASK] = mask;
+        for (int hand = 0; hand < 2; hand++) {
+            int base = HANDS + hand * HAND_STRIDE;
+            if ((mask & (1 << hand)) == 0) {
+                for (int i = base; i < base + HAND_STRIDE; i++) {
+                    v[i] = 0;
+                }
+                continue;
+            }
+            int[] handBase = b != null && (b[HAND_MASK] & (1 << hand)) != 0 ? b : null;
+            readPosition(in, v, handBase, base);
+            for (int i = 0; i < SENT_JOINTS.length; i++) {
+                readRotation(in, v, handBase, base + 3 + i * 4, JOINT_ROTATION_BITS, JOINT_DELTA_BITS);
+            }
+        }
+    }
+
+    private static void writePosition(BitWriter out, int[] v, int[] b, int index) {
+        if (b == null) {
+            for (int i = 0; i < 3; i++) {
+                out.write(v[index + i], POSITION_BITS);
+            }
+            return;
+        }
+        boolean changed = !same(v, b, index, 3);
+        out.writeBit(changed);
+        if (changed) {
+            for (int i = 0; i < 3; i++) {
+                writeDelta(out, v[index + i], b[index + i], POSITION_BITS, POSITION_DELTA_BITS);
+            }
+        }
+    }
+
+    private static void readPosition(BitReader in, int[] v, int[] b, int index) {
+        if (b == null) {
+            for (int i = 0; i < 3; i++) {
+                v[index + i] = in.read(POSITION_BITS);
+            }
+        } else if (in.readBit()) {
+            for (int i = 0; i < 3; i++) {
+                v[index + i] = readDelta(in, b[index + i], POSITION_BITS, POSITION_DELTA_BITS);
+            }
+        } else {
+            System.arraycopy(b, index, v, index, 3);
+        }
+    }
+
+    private static void writeRotation(BitWriter out, int[] v, int[] b, int index, int bits, int deltaBits) {
+        if (b == null) {
+            writeFullRotation(out, v, index, bits);
+            return;
+        }
+        boolean changed = !same(v, b, index, 4);
+        out.writeBit(changed);
+        if (!changed) {
+            return;
+        }
+        boolean sameLargest = v[index] == b[index];
+        out.writeBit(sameLargest);
+        if (sameLargest) {
+            for (int i = 1; i < 4; i++) {
+                writeDelta(out, v[index + i], b[index + i], bits, deltaBits);
+            }
+        } else {
+            writeFullRotation(out, v, index, bits);
+        }
+    }
+
+    private static void readRotation(BitReader in, int[] v, int[] b, int index, int bits, int deltaBits) {
+        if (b == null) {
+            readFullRotation(in, v, index, bits);
+        } else if (!in.readBit()) {
+            System.arraycopy(b, index, v, index, 4);
+        } else if (in.readBit()) {
+            v[index] = b[index];
+            for (int i = 1; i < 4; i++) {
+                v[index + i] = readDelta(in, b[index + i], bits, deltaBits);
+            }
+        } else {
+            readFullRotation(in, v, index, bits);
+        }
+    }
+
+    private static void writeFullRotation(BitWriter out, int[] v, int index, int bits) {
+        out.write(v[index], 2);
+        for (int i = 1; i < 4; i++) {
+            out.write(v[index + i], bits);
+        }
+    }
+
+    private static void readFullRotation(BitReader in, int[] v, int index, int bits) {
+        v[index] = in.read(2);
+        for (int i = 1; i < 4; i++) {
+            v[index + i] = in.read(bits);
+        }
+    }
+
+    // 0 = unchanged; 11 + delta; 10 + full value
+    private static void writeDelta(BitWriter out, int value, int base, int bits, int deltaBits) {
+        int delta = value - base;
+        if (delta == 0) {
+            out.writeBit(false);
+            return;
+        }
+        out.writeBit(true);
+        int half = 1 << (deltaBits - 1);
+        boolean small = delta >= -half && delta < half;
+        out.writeBit(small);
+        if (small) {
+            out.write(delta + half, deltaBits);
+        } else {
+            out.write(value, bits);
+        }
+    }
+
+    private static int readDelta(BitReader in, int base, int bits, int deltaBits) {
+        if (!in.readBit()) {
+            return base;
+        }
+        if (in.readBit()) {
+            return base + in.read(deltaBits) - (1 << (deltaBits - 1));
+        }
+        return in.read(bits);
+    }
+
+    private static boolean same(int[] a, int[] b, int index, int count) {
+        for (int i = index; i < index + count; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Worst cases: every component changed and too large for a delta
+    private static int positionBits() {
+        return 1 + 3 * (2 + POSITION_BITS);
+    }
+
+    private static int rotationBits(int bits) {
+        return 2 + 3 * (2 + bits);
+    }
+}
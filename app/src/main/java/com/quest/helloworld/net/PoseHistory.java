@@ -0,0 +1,43 @@
+package com.quest.helloworld.net;
+
+import java.util.Arrays;
+
+/**
+ * Ring of recent quantized poses keyed by 16-bit sequence, holding the
+ * baselines one side may be asked to delta against.
+ */
+public class PoseHistory {
+
+    private static final int MASK = PoseSyncProtocol.HISTORY - 1;
+
+    private final QuantizedPose[] poses = new QuantizedPose[PoseSyncProtocol.HISTORY];
+    private final int[] sequences = new int[PoseSyncProtocol.HISTORY];
+
+    public PoseHistory() {
+        for (int i = 0; i < poses.length; i++) {
+            poses[i] = new QuantizedPose();
+            sequences[i] = -1;
+        }
+    }
+
+    /**
+     * Slot to fill for a sequence; it overwrites whatever was HISTORY sequences earlier.
+     */
+    public QuantizedPose store(int sequence) {
+        int slot = sequence & MASK;
+        sequences[slot] = sequence;
+        return poses[slot];
+    }
+
+    /**
+     * The pose stored for a sequence, or null if it has been overwritten or never stored.
+     */
+    public QuantizedPose get(int sequence) {
+        int slot = sequence & MASK;
+        return sequences[slot] == sequence ? poses[slot] : null;
+    }
+
+    public void clear() {
+        Arrays.fill(sequences, -1);
+    }
+}
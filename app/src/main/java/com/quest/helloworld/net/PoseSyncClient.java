@@ -0,0 +1,268 @@
+package com.quest.helloworld.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import static com.quest.helloworld.net.PoseSyncProtocol.*;
+
+/**
+ * One participant's end of pose sync: sends the local pose each frame and
+ * receives the other participants' poses from a {@link PoseSyncServer}.
+ *
+ * Sent poses are delta-encoded against the newest one the server has
+ * acknowledged, and received snapshots against the newest complete one
+ * this client acknowledged, so a lost datagram only costs a larger delta
+ * on the next send. Not thread-safe; use from the thread that sends.
+ * Sending, receiving and reading remote poses don't allocate.
+ */
+public class PoseSyncClient implements Closeable {
+
+    private static final int DROPPED = -1;
+    private static final int ACCEPTED = 0;
+    private static final int COMPLETED = 1;
+
+    private final int userId;
+    private final DatagramChannel channel;
+
+    private final byte[] sendBytes = new byte[UPLINK_HEADER_BYTES + (PoseCodec.MAX_POSE_BITS + 7) / 8];
+    private final ByteBuffer sendBuffer = ByteBuffer.wrap(sendBytes);
+    private final BitWriter writer = new BitWriter(sendBytes);
+    private final PoseHistory sent = new PoseHistory();
+    private int sequence = 0;
+    private int ackedSequence;
+    private boolean sequenceAcked = false;
+
+    private final byte[] receiveBytes = new byte[MAX_DATAGRAM_BYTES];
+    private final ByteBuffer receiveBuffer = ByteBuffer.wrap(receiveBytes);
+    private final BitReader reader = new BitReader(receiveBytes);
+    private final SnapshotHistory world = new SnapshotHistory();
+    private int latestTick;
+    private boolean hasLatest = false;
+
+    // Metrics
+    private long bytesSent = 0;
+    private long bytesReceived = 0;
+    private long packetsReceived = 0;
+    private long posesEncoded = 0;
+    private long encodeNanos = 0;
+    private long entriesDecoded = 0;
+    private long decodeNanos = 0;
+    private long packetsDropped = 0;
+
+    /**
+     * @param userId this participant's id, below {@link PoseSyncProtocol#MAX_USERS}
+     */
+    public PoseSyncClient(int userId, InetSocketAddress server) throws IOException {
+        if (userId < 0 || userId >= MAX_USERS) {
+            throw new IllegalArgumentException("userId out of range: " + userId);
+        }
+        this.userId = userId;
+        channel = DatagramChannel.open();
+        channel.connect(server);
+        channel.configureBlocking(false);
+    }
+
+    /**
+     * Quantize, encode and send the local pose.
+     */
+    public void send(UserPose pose) throws IOException {
+        long start = System.nanoTime();
+        sequence = (sequence + 1) & 0xFFFF;
+        QuantizedPose quantized = sent.store(sequence);
+        quantized.quantize(pose);
+
+        QuantizedPose baseline = null;
+        if (sequenceAcked && distance(sequence, ackedSequence) < HISTORY) {
+            baseline = sent.get(ackedSequence);
+        }
+
+        sendBytes[0] = UPLINK;
+        sendBytes[1] = (byte) userId;
+        putShort(sendBytes, 2, sequence);
+        putShort(sendBytes, 4, hasLatest ? latestTick : 0);
+        putShort(sendBytes, 6, baseline != null ? ackedSequence : 0);
+        sendBytes[8] = (byte) ((hasLatest ? ACK_VALID : 0) | (baseline != null ? BASELINE_VALID : 0));
+        writer.reset(UPLINK_HEADER_BYTES);
+        PoseCodec.write(writer, quantized, baseline);
+        encodeNanos += System.nanoTime() - start;
+        posesEncoded++;
+
+        sendBuffer.clear();
+        sendBuffer.limit(writer.getByteLength());
+        bytesSent += channel.write(sendBuffer);
+    }
+
+    /**
+     * Receive and decode every pending downlink packet.
+     * @return true if a newer complete snapshot is available
+     */
+    public boolean poll() throws IOException {
+        boolean updated = false;
+        while (true) {
+            receiveBuffer.clear();
+            int length = channel.read(receiveBuffer);
+            if (length <= 0) {
+                return updated;
+            }
+            bytesReceived += length;
+            packetsReceived++;
+            int result = handleDownlink(length);
+            if (result == DROPPED) {
+                packetsDropped++;
+            } else if (result == COMPLETED) {
+                updated = true;
+            }
+        }
+    }
+
+    private int handleDownlink(int length) {
+        if (length < DOWNLINK_HEADER_BYTES || receiveBytes[0] != DOWNLINK) {
+            return DROPPED;
+        }
+        int part = receiveBytes[1] & 0xFF;
+        int partCount = receiveBytes[2] & 0xFF;
+        int users = receiveBytes[3] & 0xFF;
+        int tick = getShort(receiveBytes, 4);
+        int ack = getShort(receiveBytes, 6);
+        int baselineTick = getShort(receiveBytes, 8);
+        int flags = receiveBytes[10];
+        if (part >= partCount || partCount > MAX_PARTS) {
+            return DROPPED;
+        }
+        if (hasLatest && !isNewer(tick, latestTick)) {
+            return DROPPED;
+        }
+
+        int baselineSlot = -1;
+        if ((flags & BASELINE_VALID) != 0) {
+            int distance = distance(tick, baselineTick);
+            baselineSlot = distance > 0 && distance < HISTORY ? world.findComplete(baselineTick) : -1;
+            if (baselineSlot < 0) {
+                return DROPPED;
+            }
+        }
+        int slot = world.find(tick);
+        if (slot < 0) {
+            slot = world.begin(tick);
+        }
+        if (!world.markPart(slot, part, partCount)) {
+            return DROPPED;
+        }
+
+        long start = System.nanoTime();
+        reader.reset(DOWNLINK_HEADER_BYTES, length);
+        for (int i = 0; i < users; i++) {
+            int user = reader.read(8);
+            boolean delta = reader.readBit();
+            QuantizedPose baseline = delta && user < MAX_USERS && baselineSlot >= 0
+                    ? world.get(baselineSlot, user) : null;
+            if (user >= MAX_USERS || (delta && baseline == null)) {
+                world.invalidate(slot);
+                return DROPPED;
+            }
+            PoseCodec.read(reader, baseline, world.put(slot, user));
+        }
+        decodeNanos += System.nanoTime() - start;
+        if (reader.isOverrun()) {
+            world.invalidate(slot);
+            return DROPPED;
+        }
+        entriesDecoded += users;
+
+        if ((flags & ACK_VALID) != 0 && (!sequenceAcked || isNewer(ack, ackedSequence))) {
+            ackedSequence = ack;
+            sequenceAcked = true;
+        }
+        if (!world.isComplete(slot)) {
+            return ACCEPTED;
+        }
+        latestTick = tick;
+        hasLatest = true;
+        return COMPLETED;
+    }
+
+    /** Whether another participant is in the newest complete snapshot. */
+    public boolean isRemotePresent(int user) {
+        int slot = latestSlot();
+        return slot >= 0 && world.get(slot, user) != null;
+    }
+
+    /** Participants other than this one in the newest complete snapshot. */
+    public int getRemoteCount() {
+        int slot = latestSlot();
+        return slot >= 0 ? Long.bitCount(world.getPresent(slot)) : 0;
+    }
+
+    /**
+     * Copy another participant's pose from the newest complete snapshot.
+     * @return false if they aren't present
+     */
+    public boolean getRemotePose(int user, UserPose out) {
+        int slot = latestSlot();
+        QuantizedPose pose = slot >= 0 ? world.get(slot, user) : null;
+        if (pose == null) {
+            return false;
+        }
+        pose.dequantize(out);
+        return true;
+    }
+
+    // A newer tick still arriving can reuse the slot once the history wraps
+    private int latestSlot() {
+        return hasLatest ? world.findComplete(latestTick) : -1;
+    }
+
+    /** Server tick of the newest complete snapshot. */
+    public int getLatestTick() {
+        return latestTick;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    public long getPacketsDropped() {
+        return packetsDropped;
+    }
+
+    /** Mean time to quantize and encode the local pose, in microseconds. */
+    public float getEncodeMicros() {
+        return posesEncoded > 0 ? encodeNanos / 1000f / posesEncoded : 0f;
+    }
+
+    /** Mean time to decode one remote pose, in microseconds. */
+    public float getDecodeMicros() {
+        return entriesDecoded > 0 ? decodeNanos / 1000f / entriesDecoded : 0f;
+    }
+
+    public void resetMetrics() {
+        bytesSent = 0;
+        bytesReceived = 0;
+        packetsReceived = 0;
+        posesEncoded = 0;
+        encodeNanos = 0;
+        entriesDecoded = 0;
+        decodeNanos = 0;
+        packetsDropped = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,79 @@
+package com.quest.helloworld.net;
+
+/**
+ * Datagram layout shared by {@link PoseSyncClient} and {@link PoseSyncServer}.
+ *
+ * Uplink, client to server, one per send:
+ * <pre>
+ *   [0]     type = UPLINK
+ *   [1]     user id
+ *   [2..3]  sequence
+ *   [4..5]  latest complete server tick received (acknowledges a downlink baseline)
+ *   [6..7]  baseline sequence the pose is delta-encoded against
+ *   [8]     flags: ACK_VALID, BASELINE_VALID
+ *   [9..]   the pose, bit-packed by PoseCodec
+ * </pre>
+ * Downlink, server to each client, one or more parts per tick:
+ * <pre>
+ *   [0]     type = DOWNLINK
+ *   [1]     part index
+ *   [2]     part count
+ *   [3]     users in this part
+ *   [4..5]  tick
+ *   [6..7]  latest uplink sequence received from this client
+ *   [8..9]  baseline tick the users are delta-encoded against
+ *   [10]    flags: ACK_VALID, BASELINE_VALID
+ *   [11..]  per user: 8-bit id, 1-bit delta flag, the pose
+ * </pre>
+ * Multi-byte header fields are big-endian. Sequences and ticks are 16 bits
+ * and wrap; only the last {@link #HISTORY} of them are ever compared.
+ */
+public final class PoseSyncProtocol {
+
+    public static final int UPLINK = 1;
+    public static final int DOWNLINK = 2;
+
+    public static final int ACK_VALID = 1;
+    public static final int BASELINE_VALID = 2;
+
+    public static final int UPLINK_HEADER_BYTES = 9;
+    public static final int DOWNLINK_HEADER_BYTES = 11;
+
+    /** Datagram payload cap, below the usual path MTU so nothing fragments at the IP layer. */
+    public static final int MAX_DATAGRAM_BYTES = 1200;
+
+    /** Maximum participants, and the size of per-user tables. */
+    public static final int MAX_USERS = 64;
+
+    /** Maximum downlink parts per tick. */
+    public static final int MAX_PARTS = 64;
+
+    /** Sent poses and ticks kept for baselines; must be a power of two. */
+    public static final int HISTORY = 32;
+
+    /** Worst-case size of one user's downlink entry. */
+    public static final int MAX_ENTRY_BITS = 8 + 1 + PoseCodec.MAX_POSE_BITS;
+
+    private PoseSyncProtocol() {
+    }
+
+    /** True when sequence a is newer than b, allowing for wrap. */
+    public static boolean isNewer(int a, int b) {
+        int difference = (a - b) & 0xFFFF;
+        return difference != 0 && difference < 0x8000;
+    }
+
+    /** How far a is ahead of b, allowing for wrap. */
+    public static int distance(int a, int b) {
+        return (a - b) & 0xFFFF;
+    }
+
+    static void putShort(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 8);
+        buffer[offset + 1] = (byte) value;
+    }
+
+    static int getShort(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xFF) << 8) | (buffer[offset + 1] & 0xFF);
+    }
+}
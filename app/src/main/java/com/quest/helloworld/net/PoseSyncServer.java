@@ -0,0 +1,377 @@
+package com.quest.helloworld.net;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.quest.helloworld.net.PoseSyncProtocol.*;
+
+/**
+ * Stand-in relay server for pose sync, bound to the loopback interface.
+ *
+ * Each tick it takes the newest pose received from every participant and
+ * sends each participant everyone else's, delta-encoded against the last
+ * tick that participant acknowledged. Ticks that don't fit one datagram are
+ * split into parts. Uplink poses are decoded against the client's own
+ * acknowledged baselines the same way.
+ *
+ * A user's pose is encoded once per distinct baseline each tick and the
+ * bits copied into every recipient's datagram that shares it.
+ *
+ * Either drive it with {@link #poll()} and {@link #tick()} from one thread,
+ * or {@link #start} its own thread. Encoding and decoding don't allocate;
+ * the channel may allocate a sender address for a peer it hasn't seen recently.
+ */
+public class PoseSyncServer implements Runnable, Closeable {
+
+    private static final String TAG = "PoseSyncServer";
+
+    private static final int NOT_ENCODED = -2;
+    private static final int NO_BASELINE = -1;
+
+    private final DatagramChannel channel;
+    private final ByteBuffer receiveBuffer;
+    private final byte[] receiveBytes = new byte[MAX_DATAGRAM_BYTES];
+    private final BitReader reader = new BitReader(receiveBytes);
+    private final QuantizedPose decoded = new QuantizedPose();
+
+    // Per participant, indexed by user id
+    private final SocketAddress[] addresses = new SocketAddress[MAX_USERS];
+    private final PoseHistory[] uplinks = new PoseHistory[MAX_USERS];
+    private final int[] latestSequence = new int[MAX_USERS];
+    private final int[] ackedTick = new int[MAX_USERS];
+    private final boolean[] ackValid = new boolean[MAX_USERS];
+    private long connected = 0L;
+
+    private final SnapshotHistory world = new SnapshotHistory();
+    private int tick = 0;
+
+    // Downlink parts for one recipient; sized so an entry can overrun the cap before being moved
+    private final byte[][] parts = new byte[MAX_PARTS][];
+    private final BitWriter[] partWriters = new BitWriter[MAX_PARTS];
+    private final ByteBuffer[] partBuffers = new ByteBuffer[MAX_PARTS];
+    private final int[] partUsers = new int[MAX_PARTS];
+
+    // Each user's pose encoded this tick against one baseline tick, reused for
+    // every recipient that acknowledged the same tick - usually all of them
+    private final BitWriter[] encoded = new BitWriter[MAX_USERS];
+    private final int[] encodedBaseline = new int[MAX_USERS];
+
+    private Thread thread;
+    private volatile boolean running = false;
+    private long tickNanos;
+
+    // Metrics - written by the serving thread
+    private volatile long bytesReceived = 0;
+    private volatile long bytesSent = 0;
+    private volatile long packetsReceived = 0;
+    private volatile long packetsSent = 0;
+    private volatile long packetsDropped = 0;
+    private volatile long entriesEncoded = 0;
+    private volatile long encodeNanos = 0;
+    private volatile long posesDecoded = 0;
+    private volatile long decodeNanos = 0;
+
+    /**
+     * Bind to a loopback port.
+     * @param port UDP port, or 0 for any free port
+     */
+    public PoseSyncServer(int port) throws IOException {
+        channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        channel.configureBlocking(false);
+        receiveBuffer = ByteBuffer.wrap(receiveBytes);
+        int partBytes = MAX_DATAGRAM_BYTES + (MAX_ENTRY_BITS + 7) / 8;
+        for (int i = 0; i < MAX_PARTS; i++) {
+            parts[i] = new byte[partBytes];
+            partWriters[i] = new BitWriter(parts[i]);
+            partBuffers[i] = ByteBuffer.wrap(parts[i]);
+        }
+        for (int i = 0; i < MAX_USERS; i++) {
+            encoded[i] = new BitWriter(new byte[(PoseCodec.MAX_POSE_BITS + 7) / 8]);
+        }
+    }
+
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    /**
+     * Receive and decode every pending uplink packet.
+     * @return packets accepted
+     */
+    public int poll() throws IOException {
+        int accepted = 0;
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress from = channel.receive(receiveBuffer);
+            if (from == null) {
+                return accepted;
+            }
+            int length = receiveBuffer.position();
+            bytesReceived += length;
+            packetsReceived++;
+            if (handleUplink(from, length)) {
+                accepted++;
+            } else {
+                packetsDropped++;
+            }
+        }
+    }
+
+    private boolean handleUplink(SocketAddress from, int length) {
+        if (length < UPLINK_HEADER_BYTES || receiveBytes[0] != UPLINK) {
+            return false;
+        }
+        int user = receiveBytes[1] & 0xFF;
+        if (user >= MAX_USERS) {
+            return false;
+        }
+        int sequence = getShort(receiveBytes, 2);
+        int ack = getShort(receiveBytes, 4);
+        int baselineSequence = getShort(receiveBytes, 6);
+        int flags = receiveBytes[8];
+
+        boolean known = (connected & (1L << user)) != 0;
+        if (known && !isNewer(sequence, latestSequence[user])) {
+            return false;
+        }
+        PoseHistory history = uplinks[user];
+        if (history == null) {
+            history = new PoseHistory();
+            uplinks[user] = history;
+        }
+        QuantizedPose baseline = null;
+        if ((flags & BASELINE_VALID) != 0) {
+            int distance = distance(sequence, baselineSequence);
+            baseline = distance > 0 && distance < HISTORY ? history.get(baselineSequence) : null;
+            if (baseline == null) {
+                return false;
+            }
+        }
+
+        long start = System.nanoTime();
+        reader.reset(UPLINK_HEADER_BYTES, length);
+        PoseCodec.read(reader, baseline, decoded);
+        decodeNanos += System.nanoTime() - start;
+        if (reader.isOverrun()) {
+            return false;
+        }
+        posesDecoded++;
+
+        history.store(sequence).copyFrom(decoded);
+        latestSequence[user] = sequence;
+        addresses[user] = from;
+        if ((flags & ACK_VALID) != 0 && (!ackValid[user] || isNewer(ack, ackedTick[user]))) {
+            ackedTick[user] = ack;
+            ackValid[user] = true;
+        }
+        if (!known) {
+            connected |= 1L << user;
+            Log.i(TAG, "User " + user + " joined from " + from);
+        }
+        return true;
+    }
+
+    /**
+     * Snapshot every participant's newest pose and send each one the others.
+     */
+    public void tick() throws IOException {
+        tick = (tick + 1) & 0xFFFF;
+        int slot = world.begin(tick);
+        for (int user = 0; user < MAX_USERS; user++) {
+            if ((connected & (1L << user)) != 0) {
+                world.put(slot, user).copyFrom(uplinks[user].get(latestSequence[user]));
+            }
+            encodedBaseline[user] = NOT_ENCODED;
+        }
+        for (int user = 0; user < MAX_USERS; user++) {
+            if ((connected & (1L << user)) != 0) {
+                sendSnapshot(slot, user);
+            }
+        }
+    }
+
+    private void sendSnapshot(int slot, int recipient) throws IOException {
+        int baselineSlot = -1;
+        if (ackValid[recipient]) {
+            int distance = distance(tick, ackedTick[recipient]);
+            baselineSlot = distance > 0 && distance < HISTORY ? world.find(ackedTick[recipient]) : -1;
+        }
+
+        long start = System.nanoTime();
+        int part = 0;
+        int capacity = MAX_DATAGRAM_BYTES * 8;
+        BitWriter writer = partWriters[0];
+        writer.reset(DOWNLINK_HEADER_BYTES);
+        partUsers[0] = 0;
+        long present = world.getPresent(slot);
+        for (int user = 0; user < MAX_USERS; user++) {
+            if (user == recipient || (present & (1L << user)) == 0) {
+                continue;
+            }
+            QuantizedPose baseline = baselineSlot >= 0 ? world.get(baselineSlot, user) : null;
+            int baselineTick = baseline != null ? ackedTick[recipient] : NO_BASELINE;
+            if (encodedBaseline[user] != baselineTick) {
+                encoded[user].reset(0);
+                PoseCodec.write(encoded[user], world.get(slot, user), baseline);
+                encodedBaseline[user] = baselineTick;
+            }
+            int mark = writer.getPosition();
+            writeEntry(writer, user, encoded[user], baseline != null);
+            if (writer.getPosition() > capacity) {
+                writer.rewind(mark);
+                if (part + 1 == MAX_PARTS) {
+                    break;
+                }
+                part++;
+                writer = partWriters[part];
+                writer.reset(DOWNLINK_HEADER_BYTES);
+                partUsers[part] = 0;
+                writeEntry(writer, user, encoded[user], baseline != null);
+            }
+            partUsers[part]++;
+            entriesEncoded++;
+        }
+        encodeNanos += System.nanoTime() - start;
+
+        int partCount = part + 1;
+        SocketAddress address = addresses[recipient];
+        for (int i = 0; i < partCount; i++) {
+            byte[] bytes = parts[i];
+            bytes[0] = DOWNLINK;
+            bytes[1] = (byte) i;
+            bytes[2] = (byte) partCount;
+            bytes[3] = (byte) partUsers[i];
+            putShort(bytes, 4, tick);
+            putShort(bytes, 6, latestSequence[recipient]);
+            putShort(bytes, 8, baselineSlot >= 0 ? ackedTick[recipient] : 0);
+            bytes[10] = (byte) (ACK_VALID | (baselineSlot >= 0 ? BASELINE_VALID : 0));
+
+            ByteBuffer buffer = partBuffers[i];
+            buffer.clear();
+            buffer.limit(partWriters[i].getByteLength());
+            bytesSent += channel.send(buffer, address);
+            packetsSent++;
+        }
+    }
+
+    private static void writeEntry(BitWriter writer, int user, BitWriter pose, boolean delta) {
+        writer.write(user, 8);
+        writer.writeBit(delta);
+        writer.write(pose);
+    }
+
+    /**
+     * Serve on a dedicated thread, ticking at the given rate.
+     */
+    public synchronized void start(float tickRate) {
+        if (running) {
+            return;
+        }
+        tickNanos = (long) (1_000_000_000.0 / tickRate);
+        running = true;
+        thread = new Thread(this, "PoseSyncServer");
+        thread.setDaemon(true);
+        thread.start();
+        Log.i(TAG, "Serving on " + channel.socket().getLocalSocketAddress() + " at " + tickRate + " Hz");
+    }
+
+    @Override
+    public void run() {
+        long next = System.nanoTime() + tickNanos;
+        try {
+            while (running) {
+                poll();
+                long now = System.nanoTime();
+                if (now < next) {
+                    // Wake often enough that uplinks don't queue for a whole tick
+                    LockSupport.parkNanos(Math.min(next - now, 1_000_000L));
+                    continue;
+                }
+                tick();
+                next += tickNanos;
+                if (now - next > tickNanos) {
+                    next = now + tickNanos;
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                Log.e(TAG, "Server stopped", e);
+            }
+        }
+    }
+
+    /**
+     * Stop the serving thread, if started, and close the socket.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (running) {
+            running = false;
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        channel.close();
+        Log.i(TAG, "Server closed - " + summary());
+    }
+
+    public int getConnectedCount() {
+        return Long.bitCount(connected);
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getPacketsDropped() {
+        return packetsDropped;
+    }
+
+    /** Mean time to encode or copy one user's entry for one recipient, in microseconds. */
+    public float getEncodeMicros() {
+        return entriesEncoded > 0 ? encodeNanos / 1000f / entriesEncoded : 0f;
+    }
+
+    /** Mean time to decode one uplink pose, in microseconds. */
+    public float getDecodeMicros() {
+        return posesDecoded > 0 ? decodeNanos / 1000f / posesDecoded : 0f;
+    }
+
+    public void resetMetrics() {
+        bytesReceived = 0;
+        bytesSent = 0;
+        packetsReceived = 0;
+        packetsSent = 0;
+        packetsDropped = 0;
+        entriesEncoded = 0;
+        encodeNanos = 0;
+        posesDecoded = 0;
+        decodeNanos = 0;
+    }
+
+    public String summary() {
+        return String.format("%d users, %d packets in / %d out, %d dropped, encode %.2f us, decode %.2f us",
+                getConnectedCount(), packetsReceived, packetsSent, packetsDropped,
+                getEncodeMicros(), getDecodeMicros());
+    }
+}
@@ -0,0 +1,248 @@
+package com.quest.helloworld.net;
+
+import com.quest.helloworld.hand.HandJoints;
+
+import java.util.Arrays;
+
+/**
+ * A {@link UserPose} reduced to the integers that go on the wire.
+ *
+ * Positions are 16-bit fixed point over +/-32 m, about 1 mm steps.
+ * Rotations use smallest-three: the index of the largest quaternion
+ * component plus the other three, which always lie within +/-1/sqrt(2),
+ * quantized - 11 bits each for the head and controllers, 9 for hand joints.
+ * Hands send the wrist position and the orientation of every joint but the
+ * tips; the receiver rebuilds joint positions from the rest skeleton, the
+ * same bones the hand mesh is skinned to.
+ *
+ * Deltas are taken between quantized poses rather than floats, so the
+ * sender's baseline is bit-identical to what the receiver decoded.
+ */
+public class QuantizedPose {
+
+    public static final int POSITION_BITS = 16;
+    public static final float POSITION_EXTENT = 32f;
+    public static final int ROTATION_BITS = 11;
+    public static final int JOINT_ROTATION_BITS = 9;
+    public static final int THUMBSTICK_BITS = 8;
+    public static final int BUTTON_BITS = 4;
+
+    /** Joints sent per hand: every joint except the five tips. */
+    static final int[] SENT_JOINTS = {
+        HandJoints.PALM, HandJoints.WRIST,
+        HandJoints.THUMB_METACARPAL, HandJoints.THUMB_PROXIMAL, HandJoints.THUMB_DISTAL,
+        HandJoints.INDEX_METACARPAL, HandJoints.INDEX_PROXIMAL, HandJoints.INDEX_INTERMEDIATE, HandJoints.INDEX_DISTAL,
+        HandJoints.MIDDLE_METACARPAL, HandJoints.MIDDLE_PROXIMAL, HandJoints.MIDDLE_INTERMEDIATE, HandJoints.MIDDLE_DISTAL,
+        HandJoints.RING_METACARPAL, HandJoints.RING_PROXIMAL, HandJoints.RING_INTERMEDIATE, HandJoints.RING_DISTAL,
+        HandJoints.LITTLE_METACARPAL, HandJoints.LITTLE_PROXIMAL, HandJoints.LITTLE_INTERMEDIATE, HandJoints.LITTLE_DISTAL,
+    };
+
+    // Layout of values[]: a rotation is four ints, largest index then three components
+    static final int HEAD_POSITION = 0;
+    static final int HEAD_ROTATION = 3;
+    static final int CONTROLLER = 7;
+    static final int CONTROLLER_STRIDE = 7;
+    static final int BUTTONS = CONTROLLER + 2 * CONTROLLER_STRIDE;
+    static final int THUMBSTICKS = BUTTONS + 1;
+    static final int HAND_MASK = THUMBSTICKS + 4;
+    static final int HANDS = HAND_MASK + 1;
+    static final int HAND_STRIDE = 3 + SENT_JOINTS.length * 4;
+    static final int SIZE = HANDS + 2 * HAND_STRIDE;
+
+    private static final float COMPONENT_EXTENT = 0.70710678f;
+
+    final int[] values = new int[SIZE];
+
+    // Dequantized joint orientations, indexed by joint, for rebuilding hand
+    // positions; created on first use since most poses are only ever baselines
+    private float[] orientations;
+    private final float[] offset = new float[3];
+    private final float[] rotated = new float[3];
+
+    public void quantize(UserPose pose) {
+        quantizePosition(pose.headPosition, 0, HEAD_POSITION);
+        quantizeRotation(pose.headRotation, 0, ROTATION_BITS, HEAD_ROTATION);
+        for (int hand = 0; hand < 2; hand++) {
+            int base = CONTROLLER + hand * CONTROLLER_STRIDE;
+            quantizePosition(pose.controllerPosition[hand], 0, base);
+            quantizeRotation(pose.controllerRotation[hand], 0, ROTATION_BITS, base + 3);
+        }
+
+        values[BUTTONS] = (pose.trigger[0] ? 1 : 0) | (pose.grip[0] ? 2 : 0)
+                | (pose.trigger[1] ? 4 : 0) | (pose.grip[1] ? 8 : 0);
+        int stickMax = (1 << (THUMBSTICK_BITS - 1)) - 1;
+        for (int i = 0; i < 4; i++) {
+            float v = Math.max(-1f, Math.min(1f, pose.thumbstick[i >> 1][i & 1]));
+            values[THUMBSTICKS + i] = Math.round(v * stickMax) + stickMax;
+        }
+
+        values[HAND_MASK] = pose.handMask & 0x3;
+        for (int hand = 0; hand < 2; hand++) {
+            int base = HANDS + hand * HAND_STRIDE;
+            if ((pose.handMask & (1 << hand)) == 0) {
+                // Keep untracked hands' values fixed so they don't register as changed
+                Arrays.fill(values, base, base + HAND_STRIDE, 0);
+                continue;
+            }
+            int handFloats = hand * HandJoints.HAND_FLOATS;
+            quantizePosition(pose.handJoints, handFloats + HandJoints.WRIST * HandJoints.JOINT_FLOATS, base);
+            for (int i = 0; i < SENT_JOINTS.length; i++) {
+                int joint = handFloats + SENT_JOINTS[i] * HandJoints.JOINT_FLOATS + HandJoints.ORIENTATION_OFFSET;
+                quantizeRotation(pose.handJoints, joint, JOINT_ROTATION_BITS, base + 3 + i * 4);
+            }
+        }
+    }
+
+    public void dequantize(UserPose pose) {
+        dequantizePosition(HEAD_POSITION, pose.headPosition, 0);
+        dequantizeRotation(HEAD_ROTATION, ROTATION_BITS, pose.headRotation, 0);
+        for (int hand = 0; hand < 2; hand++) {
+            int base = CONTROLLER + hand * CONTROLLER_STRIDE;
+            dequantizePosition(base, pose.controllerPosition[hand], 0);
+            dequantizeRotation(base + 3, ROTATION_BITS, pose.controllerRotation[hand], 0);
+        }
+
+        int buttons = values[BUTTONS];
+        pose.trigger[0] = (buttons & 1) != 0;
+        pose.grip[0] = (buttons & 2) != 0;
+        pose.trigger[1] = (buttons & 4) != 0;
+        pose.grip[1] = (buttons & 8) != 0;
+        int stickMax = (1 << (THUMBSTICK_BITS - 1)) - 1;
+        for (int i = 0; i < 4; i++) {
+            pose.thumbstick[i >> 1][i & 1] = (values[THUMBSTICKS + i] - stickMax) / (float) stickMax;
+        }
+
+        pose.handMask = values[HAND_MASK];
+        for (int hand = 0; hand < 2; hand++) {
+            if ((pose.handMask & (1 << hand)) != 0) {
+                dequantizeHand(hand, pose.handJoints, hand * HandJoints.HAND_FLOATS);
+            }
+        }
+    }
+
+    public void copyFrom(QuantizedPose other) {
+        System.arraycopy(other.values, 0, values, 0, SIZE);
+    }
+
+    private void dequantizeHand(int hand, float[] joints, int handFloats) {
+        if (orientations == null) {
+            orientations = new float[HandJoints.COUNT * 4];
+        }
+        int base = HANDS + hand * HAND_STRIDE;
+        for (int i = 0; i < SENT_JOINTS.length; i++) {
+            dequantizeRotation(base + 3 + i * 4, JOINT_ROTATION_BITS, orientations, SENT_JOINTS[i] * 4);
+        }
+
+        int wrist = handFloats + HandJoints.WRIST * HandJoints.JOINT_FLOATS;
+        dequantizePosition(base, joints, wrist);
+        System.arraycopy(orientations, HandJoints.WRIST * 4, joints, wrist + HandJoints.ORIENTATION_OFFSET, 4);
+        joints[wrist + HandJoints.RADIUS_OFFSET] = HandJoints.restRadius(HandJoints.WRIST);
+
+        // Parents precede children apart from the palm, whose parent is the wrist
+        for (int joint = 0; joint < HandJoints.COUNT; joint++) {
+            if (joint == HandJoints.WRIST) {
+                continue;
+            }
+            int parent = HandJoints.parentOf(joint);
+            int o = handFloats + joint * HandJoints.JOINT_FLOATS;
+            int p = handFloats + parent * HandJoints.JOINT_FLOATS;
+            if (isTip(joint)) {
+                System.arraycopy(orientations, parent * 4, orientations, joint * 4, 4);
+            }
+            offset[0] = HandJoints.restX(hand, joint) - HandJoints.restX(hand, parent);
+            offset[1] = HandJoints.restY(joint) - HandJoints.restY(parent);
+            offset[2] = HandJoints.restZ(joint) - HandJoints.restZ(parent);
+            rotate(orientations, parent * 4, offset, rotated);
+            joints[o] = joints[p] + rotated[0];
+            joints[o + 1] = joints[p + 1] + rotated[1];
+            joints[o + 2] = joints[p + 2] + rotated[2];
+            System.arraycopy(orientations, joint * 4, joints, o + HandJoints.ORIENTATION_OFFSET, 4);
+            joints[o + HandJoints.RADIUS_OFFSET] = HandJoints.restRadius(joint);
+        }
+    }
+
+    private static boolean isTip(int joint) {
+        return joint == HandJoints.THUMB_TIP || joint == HandJoints.INDEX_TIP || joint == HandJoints.MIDDLE_TIP
+                || joint == HandJoints.RING_TIP || joint == HandJoints.LITTLE_TIP;
+    }
+
+    private void quantizePosition(float[] source, int offset, int index) {
+        int max = (1 << POSITION_BITS) - 1;
+        float scale = (1 << POSITION_BITS) / (2f * POSITION_EXTENT);
+        for (int i = 0; i < 3; i++) {
+            int q = Math.round((source[offset + i] + POSITION_EXTENT) * scale);
+            values[index + i] = Math.max(0, Math.min(max, q));
+        }
+    }
+
+    private void dequantizePosition(int index, float[] target, int offset) {
+        float step = (2f * POSITION_EXTENT) / (1 << POSITION_BITS);
+        for (int i = 0; i < 3; i++) {
+            target[offset + i] = values[index + i] * step - POSITION_EXTENT;
+        }
+    }
+
+    private void quantizeRotation(float[] q, int offset, int bits, int index) {
+        float x = q[offset], y = q[offset + 1], z = q[offset + 2], w = q[offset + 3];
+        float length = (float) Math.sqrt(x * x + y * y + z * z + w * w);
+        float inverse = length > 0f ? 1f / length : 0f;
+
+        int largest = 3;
+        float largestAbs = Math.abs(w);
+        if (Math.abs(x) > largestAbs) { largest = 0; largestAbs = Math.abs(x); }
+        if (Math.abs(y) > largestAbs) { largest = 1; largestAbs = Math.abs(y); }
+        if (Math.abs(z) > largestAbs) { largest = 2; }
+        // q and -q are the same rotation: flip so the dropped component is positive
+        if (q[offset + largest] < 0f) {
+            inverse = -inverse;
+        }
+
+        int max = (1 << bits) - 1;
+        float scale = max / (2f * COMPONENT_EXTENT);
+        values[index] = largest;
+        int slot = index + 1;
+        for (int i = 0; i < 4; i++) {
+            if (i == largest) {
+                continue;
+            }
+            float c = q[offset + i] * inverse;
+            int quantized = Math.round((c + COMPONENT_EXTENT) * scale);
+            values[slot++] = Math.max(0, Math.min(max, quantized));
+        }
+        if (length == 0f) {
+            // Treat a zero quaternion as identity
+            values[index] = 3;
+            int zero = Math.round(COMPONENT_EXTENT * scale);
+            values[index + 1] = zero;
+            values[index + 2] = zero;
+            values[index + 3] = zero;
+        }
+    }
+
+    private void dequantizeRotation(int index, int bits, float[] target, int offset) {
+        int largest = values[index];
+        float step = (2f * COMPONENT_EXTENT) / ((1 << bits) - 1);
+        float sum = 0f;
+        int slot = index + 1;
+        for (int i = 0; i < 4; i++) {
+            if (i == largest) {
+                continue;
+            }
+            float c = values[slot++] * step - COMPONENT_EXTENT;
+            target[offset + i] = c;
+            sum += c * c;
+        }
+        target[offset + largest] = (float) Math.sqrt(Math.max(0f, 1f - sum));
+    }
+
+    // out = q * v * q^-1
+    private static void rotate(float[] q, int qi, float[] v, float[] out) {
+        float x = q[qi], y = q[qi + 1], z = q[qi + 2], w = q[qi + 3];
+        float tx = 2.0f * (y * v[2] - z * v[1]);
+        float ty = 2.0f * (z * v[0] - x * v[2]);
+        float tz = 2.0f * (x * v[1] - y * v[0]);
+        out[0] = v[0] + w * tx + (y * tz - z * ty);
+        out[1] = v[1] + w * ty + (z * tx - x * tz);
+        out[2] = v[2] + w * tz + (x * ty - y * tx);
+    }
+}
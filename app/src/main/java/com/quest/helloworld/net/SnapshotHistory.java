@@ -0,0 +1,94 @@
+package com.quest.helloworld.net;
+
+import java.util.Arrays;
+
+import static com.quest.helloworld.net.PoseSyncProtocol.HISTORY;
+import static com.quest.helloworld.net.PoseSyncProtocol.MAX_USERS;
+
+/**
+ * Ring of recent world snapshots - every present user's quantized pose per
+ * server tick - used as downlink baselines. On the client a snapshot also
+ * tracks which of its parts have arrived; only complete ones are baselines.
+ *
+ * Poses are created the first time a slot holds a given user and reused after.
+ */
+class SnapshotHistory {
+
+    private static final int MASK = HISTORY - 1;
+
+    private final QuantizedPose[][] poses = new QuantizedPose[HISTORY][MAX_USERS];
+    private final int[] ticks = new int[HISTORY];
+    private final long[] present = new long[HISTORY];
+    private final long[] partsReceived = new long[HISTORY];
+    private final int[] partCounts = new int[HISTORY];
+
+    SnapshotHistory() {
+        Arrays.fill(ticks, -1);
+    }
+
+    /** Claim and clear the slot for a tick. */
+    int begin(int tick) {
+        int slot = tick & MASK;
+        ticks[slot] = tick;
+        present[slot] = 0L;
+        partsReceived[slot] = 0L;
+        partCounts[slot] = 0;
+        return slot;
+    }
+
+    /** Slot holding a tick, or -1. */
+    int find(int tick) {
+        int slot = tick & MASK;
+        return ticks[slot] == tick ? slot : -1;
+    }
+
+    /** Slot holding a tick with every part received, or -1. */
+    int findComplete(int tick) {
+        int slot = find(tick);
+        return slot >= 0 && isComplete(slot) ? slot : -1;
+    }
+
+    void invalidate(int slot) {
+        ticks[slot] = -1;
+    }
+
+    /** Pose to fill for a user, marking them present. */
+    QuantizedPose put(int slot, int user) {
+        QuantizedPose pose = poses[slot][user];
+        if (pose == null) {
+            pose = new QuantizedPose();
+            poses[slot][user] = pose;
+        }
+        present[slot] |= 1L << user;
+        return pose;
+    }
+
+    /** A present user's pose, or null. */
+    QuantizedPose get(int slot, int user) {
+        return (present[slot] & (1L << user)) != 0 ? poses[slot][user] : null;
+    }
+
+    long getPresent(int slot) {
+        return present[slot];
+    }
+
+    /** @return false if the part had already arrived */
+    boolean markPart(int slot, int part, int partCount) {
+        long bit = 1L << part;
+        if ((partsReceived[slot] & bit) != 0) {
+            return false;
+        }
+        partsReceived[slot] |= bit;
+        partCounts[slot] = partCount;
+        return true;
+    }
+
+    boolean isComplete(int slot) {
+        int count = partCounts[slot];
+        if (count == 0) {
+            return false;
+        }
+        long all = count == 64 ? -1L : (1L << count) - 1;
+        return partsReceived[slot] == all;
+    }
+}
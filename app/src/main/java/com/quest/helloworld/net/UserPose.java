@@ -0,0 +1,96 @@
+package com.quest.helloworld.net;
+
+import com.quest.helloworld.hand.HandJoints;
+import com.quest.helloworld.vr.OpenXRBridge;
+
+/**
+ * One participant's tracked state in float form: head, both controllers,
+ * buttons and, optionally, both hands' joints. Mutable and reused so
+ * capturing and applying poses doesn't allocate beyond the bridge's own getters.
+ */
+public class UserPose {
+
+    /** Head position [x, y, z] in meters. */
+    public final float[] headPosition = new float[3];
+
+    /** Head orientation quaternion [x, y, z, w]. */
+    public final float[] headRotation = {0f, 0f, 0f, 1f};
+
+    /** Controller positions, [hand][x, y, z] with 0 = left, 1 = right. */
+    public final float[][] controllerPosition = new float[2][3];
+
+    /** Controller orientations, [hand][x, y, z, w]; identity until the bridge reports them. */
+    public final float[][] controllerRotation = {{0f, 0f, 0f, 1f}, {0f, 0f, 0f, 1f}};
+
+    /** Thumbstick values, [hand][x, y] ranging from -1 to 1. */
+    public final float[][] thumbstick = new float[2][2];
+
+    public final boolean[] trigger = new boolean[2];
+    public final boolean[] grip = new boolean[2];
+
+    /** Bit 0 when the left hand's joints are valid, bit 1 for the right. */
+    public int handMask = 0;
+
+    /** Both hands' joints, laid out as after the header of the shared joint buffer. */
+    public final float[] handJoints = new float[2 * HandJoints.HAND_FLOATS];
+
+    /**
+     * Capture the bridge's current head, controller and button state.
+     * Hands are left as they are; see {@link #setHands}.
+     */
+    public void captureFrom(OpenXRBridge bridge) {
+        float[] position = bridge.getHeadPosition();
+        float[] angles = bridge.getHeadRotation();
+        System.arraycopy(position, 0, headPosition, 0, 3);
+        fromAngles(angles[0], angles[1], angles[2], headRotation);
+        for (int hand = 0; hand < 2; hand++) {
+            System.arraycopy(bridge.getControllerPosition(hand), 0, controllerPosition[hand], 0, 3);
+            System.arraycopy(bridge.getThumbstick(hand), 0, thumbstick[hand], 0, 2);
+            trigger[hand] = bridge.isTriggerPressed(hand);
+            grip[hand] = bridge.isGripPressed(hand);
+        }
+    }
+
+    /**
+     * Copy hand joints as read from the shared joint buffer.
+     * @param mask tracked-hand mask returned by the bridge
+     */
+    public void setHands(float[] joints, int mask) {
+        handMask = mask & 0x3;
+        if (handMask != 0) {
+            System.arraycopy(joints, 0, handJoints, 0, handJoints.length);
+        }
+    }
+
+    public void copyFrom(UserPose other) {
+        System.arraycopy(other.headPosition, 0, headPosition, 0, 3);
+        System.arraycopy(other.headRotation, 0, headRotation, 0, 4);
+        for (int hand = 0; hand < 2; hand++) {
+            System.arraycopy(other.controllerPosition[hand], 0, controllerPosition[hand], 0, 3);
+            System.arraycopy(other.controllerRotation[hand], 0, controllerRotation[hand], 0, 4);
+            System.arraycopy(other.thumbstick[hand], 0, thumbstick[hand], 0, 2);
+            trigger[hand] = other.trigger[hand];
+            grip[hand] = other.grip[hand];
+        }
+        handMask = other.handMask;
+        System.arraycopy(other.handJoints, 0, handJoints, 0, handJoints.length);
+    }
+
+    /**
+     * Quaternion from pitch, yaw and roll, the bridge's head rotation
+     * convention - same result as jME's Quaternion.fromAngles.
+     */
+    static void fromAngles(float xAngle, float yAngle, float zAngle, float[] out) {
+        float sinX = (float) Math.sin(xAngle * 0.5f), cosX = (float) Math.cos(xAngle * 0.5f);
+        float sinY = (float) Math.sin(yAngle * 0.5f), cosY = (float) Math.cos(yAngle * 0.5f);
+        float sinZ = (float) Math.sin(zAngle * 0.5f), cosZ = (float) Math.cos(zAngle * 0.5f);
+        float cosYcosZ = cosY * cosZ;
+        float sinYsinZ = sinY * sinZ;
+        float cosYsinZ = cosY * sinZ;
+        float sinYcosZ = sinY * cosZ;
+        out[3] = cosYcosZ * cosX - sinYsinZ * sinX;
+        out[0] = cosYcosZ * sinX + sinYsinZ * cosX;
+        out[1] = sinYcosZ * cosX + cosYsinZ * sinX;
+        out[2] = cosYsinZ * cosX - sinYcosZ * sinX;
+    }
+}
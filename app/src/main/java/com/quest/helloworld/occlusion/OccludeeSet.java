@@ -0,0 +1,193 @@
+package com.quest.helloworld.occlusion;
+
+import java.util.Arrays;
+
+/**
+ * Axis-aligned world bounds of the objects to test, one array per
+ * component, and the batch test that decides which are hidden.
+ *
+ * The test runs in two passes over the arrays. The first projects every
+ * box's corners - the box's minimum corner through the matrix plus
+ * combinations of three scaled columns, no per-corner matrix multiply -
+ * into a screen rectangle and a nearest depth, in straight-line code the
+ * JIT can keep in registers. The second looks the rectangles up in the
+ * {@link OcclusionBuffer}. Boxes crossing the near plane or off screen
+ * are left visible; frustum culling deals with the latter. Off-screen
+ * boxes are caught by their corners' outcodes, before any division.
+ */
+public class OccludeeSet {
+
+    private float[] minX, minY, minZ, maxX, maxY, maxZ;
+    private int count = 0;
+
+    // Projected rectangles, in pixels, and 1/w of the nearest corner
+    private float[] rectMinX, rectMinY, rectMaxX, rectMaxY, nearest;
+    // One box's corners in clip space
+    private final float[] cx = new float[8], cy = new float[8], cz = new float[8], cw = new float[8];
+
+    public OccludeeSet(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    private void allocate(int capacity) {
+        minX = grow(minX, capacity);
+        minY = grow(minY, capacity);
+        minZ = grow(minZ, capacity);
+        maxX = grow(maxX, capacity);
+        maxY = grow(maxY, capacity);
+        maxZ = grow(maxZ, capacity);
+        rectMinX = grow(rectMinX, capacity);
+        rectMinY = grow(rectMinY, capacity);
+        rectMaxX = grow(rectMaxX, capacity);
+        rectMaxY = grow(rectMaxY, capacity);
+        nearest = grow(nearest, capacity);
+    }
+
+    private static float[] grow(float[] array, int capacity) {
+        return array == null ? new float[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Add a box by center and half extents.
+     * @return its index
+     */
+    public int add(float centerX, float centerY, float centerZ, float extentX, float extentY, float extentZ) {
+        if (count == minX.length) {
+            allocate(count * 2);
+        }
+        set(count, centerX, centerY, centerZ, extentX, extentY, extentZ);
+        return count++;
+    }
+
+    public void set(int index, float centerX, float centerY, float centerZ,
+                    float extentX, float extentY, float extentZ) {
+        minX[index] = centerX - extentX;
+        minY[index] = centerY - extentY;
+        minZ[index] = centerZ - extentZ;
+        maxX[index] = centerX + extentX;
+        maxY[index] = centerY + extentY;
+        maxZ[index] = centerZ + extentZ;
+    }
+
+    /**
+     * Test every box against a finished buffer.
+     * @param viewProjection the matrix the buffer was rasterized with, row-major
+     * @param parallax see {@link OcclusionBuffer#isOccluded}, 0 to test from the rasterized viewpoint only
+     * @param visible set for each box, at least {@link #size()} long
+     * @return how many boxes are hidden
+     */
+    public int test(OcclusionBuffer buffer, float[] viewProjection, float parallax, boolean[] visible) {
+        project(viewProjection, buffer.getWidth(), buffer.getHeight());
+
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        int hidden = 0;
+        for (int i = 0; i < count; i++) {
+            float z = nearest[i];
+            // Crosses the near plane, or off screen
+            if (!(z > 0f)) {
+                visible[i] = true;
+                continue;
+            }
+            int x0 = Math.max(0, (int) rectMinX[i]);
+            int y0 = Math.max(0, (int) rectMinY[i]);
+            int x1 = Math.min(width - 1, (int) rectMaxX[i]);
+            int y1 = Math.min(height - 1, (int) rectMaxY[i]);
+            if (x0 > x1 || y0 > y1) {
+                visible[i] = true;
+                continue;
+            }
+            boolean occluded = buffer.isOccluded(x0, y0, x1, y1, z, parallax);
+            visible[i] = !occluded;
+            if (occluded) {
+                hidden++;
+            }
+        }
+        return hidden;
+    }
+
+    /**
+     * Fill the rectangles and nearest depths. A box with a corner behind
+     * the near plane, or wholly outside a frustum plane, gets a nearest
+     * depth of -1 before any division.
+     */
+    private void project(float[] m, int width, int height) {
+        float halfW = 0.5f * width;
+        float halfH = 0.5f * height;
+        float[] cx = this.cx, cy = this.cy, cz = this.cz, cw = this.cw;
+        for (int i = 0; i < count; i++) {
+            float x = minX[i];
+            float y = minY[i];
+            float z = minZ[i];
+            float sx = maxX[i] - x;
+            float sy = maxY[i] - y;
+            float sz = maxZ[i] - z;
+
+            // Minimum corner in clip space, then the rest by adding the box's edges
+            cx[0] = m[0] * x + m[1] * y + m[2] * z + m[3];
+            cy[0] = m[4] * x + m[5] * y + m[6] * z + m[7];
+            cz[0] = m[8] * x + m[9] * y + m[10] * z + m[11];
+            cw[0] = m[12] * x + m[13] * y + m[14] * z + m[15];
+            corners(cx, m[0] * sx, m[1] * sy, m[2] * sz);
+            corners(cy, m[4] * sx, m[5] * sy, m[6] * sz);
+            corners(cz, m[8] * sx, m[9] * sy, m[10] * sz);
+            corners(cw, m[12] * sx, m[13] * sy, m[14] * sz);
+
+            // Outcodes: a plane every corner is outside of culls the box
+            int outside = 0x3f;
+            float front = Float.MAX_VALUE;
+            for (int k = 0; k < 8; k++) {
+                float w = cw[k];
+                int code = (cx[k] < -w ? 1 : 0) | (cx[k] > w ? 2 : 0)
+                        | (cy[k] < -w ? 4 : 0) | (cy[k] > w ? 8 : 0)
+                        | (cz[k] > w ? 16 : 0);
+                outside &= code;
+                front = Math.min(front, cz[k] + w);
+            }
+            if (outside != 0 || !(front > 0f)) {
+                nearest[i] = -1f;
+                continue;
+            }
+
+            float loX = Float.MAX_VALUE, loY = Float.MAX_VALUE;
+            float hiX = -Float.MAX_VALUE, hiY = -Float.MAX_VALUE, hiW = 0f;
+            for (int k = 0; k < 8; k++) {
+                float invW = 1f / cw[k];
+                float px = cx[k] * invW;
+                float py = cy[k] * invW;
+                loX = Math.min(loX, px);
+                hiX = Math.max(hiX, px);
+                loY = Math.min(loY, py);
+                hiY = Math.max(hiY, py);
+                hiW = Math.max(hiW, invW);
+            }
+            rectMinX[i] = (loX + 1f) * halfW;
+            rectMaxX[i] = (hiX + 1f) * halfW;
+            rectMinY[i] = (loY + 1f) * halfH;
+            rectMaxY[i] = (hiY + 1f) * halfH;
+            nearest[i] = hiW;
+        }
+    }
+
+    /**
+     * Fill corners 1-7 of one clip coordinate from corner 0 and the box's
+     * edges; bit 0 of the corner index is x, bit 1 y, bit 2 z.
+     */
+    private static void corners(float[] c, float ex, float ey, float ez) {
+        c[1] = c[0] + ex;
+        c[2] = c[0] + ey;
+        c[3] = c[1] + ey;
+        c[4] = c[0] + ez;
+        c[5] = c[1] + ez;
+        c[6] = c[2] + ez;
+        c[7] = c[3] + ez;
+    }
+}
@@ -0,0 +1,419 @@
+package com.quest.helloworld.occlusion;
+
+import java.util.Arrays;
+
+/**
+ * A small software depth buffer that occluder triangles are rasterized
+ * into and occludee boxes are tested against. Plain Java over primitive
+ * arrays, no jME types, so it runs on any thread.
+ *
+ * Both halves are conservative, so an occludee is only reported hidden
+ * when it really is behind occluders at this resolution:
+ * <ul>
+ *   <li>occluders only cover pixels they cover entirely, and store the
+ *       farthest depth they have anywhere in the pixel</li>
+ *   <li>occludees are tested over every pixel their box touches, at the
+ *       box's nearest depth</li>
+ * </ul>
+ * Depth is stored as its reciprocal, 1/w, which is linear across the
+ * screen and is what parallax scales with; 0 means no occluder. Each 8x8
+ * tile also keeps its farthest and nearest occluder, so most hidden boxes
+ * are decided from a few tiles without visiting pixels.
+ *
+ * A box can be tested for a set of viewpoints near the one rasterized
+ * from, such as both eyes around a combined stereo viewpoint: moving the
+ * viewpoint shifts an occluder against what's behind it by at most a
+ * parallax factor times the difference of their 1/w, so the box's
+ * rectangle is widened by that much before the lookup.
+ *
+ * Matrices are row-major float[16] view-projection matrices with OpenGL
+ * clip conventions, as {@code Matrix4f.get(array, true)} writes them.
+ */
+public class OcclusionBuffer {
+
+    public static final int TILE = 8;
+
+    private final int width;
+    private final int height;
+    private final int tilesX;
+    private final int tilesY;
+    // 1/w of the farthest occluder in each pixel
+    private final float[] depth;
+    private final float[] tileFar;
+    // Per tile: farthest covered pixel, nearest point of anything reaching it
+    private final float[] tileNear;
+
+    // Clip-space vertices of the batch being rasterized, x y z w each
+    private float[] clip = new float[4 * 64];
+    // A triangle clipped by five planes has up to 8 vertices; clipping ping-pongs between two
+    private static final int PLANES = 5;
+    private static final float GUARD_BAND = 2f;
+    private float[] polygon = new float[4 * 8];
+    private float[] clipped = new float[4 * 8];
+    private final float[] screen = new float[3 * 8];
+
+    private int trianglesRasterized = 0;
+
+    /**
+     * @param width multiple of {@link #TILE}
+     * @param height multiple of {@link #TILE}
+     */
+    public OcclusionBuffer(int width, int height) {
+        if (width % TILE != 0 || height % TILE != 0) {
+            throw new IllegalArgumentException("Size must be a multiple of " + TILE + ": " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.tilesX = width / TILE;
+        this.tilesY = height / TILE;
+        this.depth = new float[width * height];
+        this.tileFar = new float[tilesX * tilesY];
+        this.tileNear = new float[tilesX * tilesY];
+        clear();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Triangles rasterized since the last {@link #clear()}, after near clipping. */
+    public int getTrianglesRasterized() {
+        return trianglesRasterized;
+    }
+
+    /** 1/w of the occluder at a pixel, 0 where none covers it. */
+    public float getInverseDepth(int x, int y) {
+        return depth[y * width + x];
+    }
+
+    public void clear() {
+        Arrays.fill(depth, 0f);
+        Arrays.fill(tileFar, 0f);
+        Arrays.fill(tileNear, 0f);
+        trianglesRasterized = 0;
+    }
+
+    /**
+     * Rasterize an indexed triangle mesh.
+     * @param positions world-space x, y, z per vertex
+     * @param vertexCount vertices used from positions
+     * @param indices three per triangle
+     * @param indexCount indices used
+     * @param viewProjection row-major, 16 floats
+     */
+    public void rasterize(float[] positions, int vertexCount, int[] indices, int indexCount, float[] viewProjection) {
+        if (clip.length < vertexCount * 4) {
+            clip = new float[Integer.highestOneBit(vertexCount * 4) * 2];
+        }
+        float[] m = viewProjection;
+        float[] c = clip;
+        for (int v = 0, p = 0, o = 0; v < vertexCount; v++, p += 3, o += 4) {
+            float x = positions[p];
+            float y = positions[p + 1];
+            float z = positions[p + 2];
+            c[o] = m[0] * x + m[1] * y + m[2] * z + m[3];
+            c[o + 1] = m[4] * x + m[5] * y + m[6] * z + m[7];
+            c[o + 2] = m[8] * x + m[9] * y + m[10] * z + m[11];
+            c[o + 3] = m[12] * x + m[13] * y + m[14] * z + m[15];
+        }
+        for (int i = 0; i + 2 < indexCount; i += 3) {
+            rasterizeClipped(indices[i] * 4, indices[i + 1] * 4, indices[i + 2] * 4);
+        }
+    }
+
+    /**
+     * Clip a triangle to the near plane and a guard band around the
+     * screen, and rasterize what's left. The guard band keeps screen
+     * coordinates small, so edge functions stay exact enough to be
+     * conservative, while keeping clipped edges off the screen, where
+     * they'd cost a column of coverage.
+     */
+    private void rasterizeClipped(int a, int b, int c) {
+        float[] v = clip;
+        int codeA = outcode(v, a);
+        int codeB = outcode(v, b);
+        int codeC = outcode(v, c);
+        if ((codeA & codeB & codeC) != 0) {
+            return;
+        }
+        System.arraycopy(v, a, polygon, 0, 4);
+        System.arraycopy(v, b, polygon, 4, 4);
+        System.arraycopy(v, c, polygon, 8, 4);
+        int count = 3;
+        int crossed = codeA | codeB | codeC;
+        for (int plane = 0; plane < PLANES && count >= 3; plane++) {
+            if ((crossed & (1 << plane)) != 0) {
+                count = clipPlane(plane, count);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            float invW = 1f / polygon[i * 4 + 3];
+            screen[i * 3] = (polygon[i * 4] * invW * 0.5f + 0.5f) * width;
+            screen[i * 3 + 1] = (polygon[i * 4 + 1] * invW * 0.5f + 0.5f) * height;
+            screen[i * 3 + 2] = invW;
+        }
+        // A fan: the clipped polygon is convex
+        for (int i = 1; i + 1 < count; i++) {
+            rasterizeTriangle(0, i * 3, (i + 1) * 3);
+        }
+    }
+
+    /**
+     * Bit per plane the clip-space vertex is outside of: near, then the
+     * guard band's left, right, bottom and top.
+     */
+    private static int outcode(float[] v, int o) {
+        float x = v[o], y = v[o + 1], z = v[o + 2], g = v[o + 3] * GUARD_BAND;
+        return (z < -v[o + 3] ? 1 : 0) | (x < -g ? 2 : 0) | (x > g ? 4 : 0) | (y < -g ? 8 : 0) | (y > g ? 16 : 0);
+    }
+
+    /** Signed distance of a clip-space vertex to a plane, positive inside. */
+    private static float distance(int plane, float[] v, int o) {
+        switch (plane) {
+            case 0: return v[o + 2] + v[o + 3];
+            case 1: return v[o] + GUARD_BAND * v[o + 3];
+            case 2: return GUARD_BAND * v[o + 3] - v[o];
+            case 3: return v[o + 1] + GUARD_BAND * v[o + 3];
+            default: return GUARD_BAND * v[o + 3] - v[o + 1];
+        }
+    }
+
+    /**
+     * One Sutherland-Hodgman pass of the polygon against a plane.
+     * @return the polygon's vertex count after it
+     */
+    private int clipPlane(int plane, int count) {
+        float[] in = polygon;
+        float[] out = clipped;
+        int result = 0;
+        for (int i = 0; i < count; i++) {
+            int from = i * 4;
+            int to = ((i + 1) % count) * 4;
+            float dFrom = distance(plane, in, from);
+            float dTo = distance(plane, in, to);
+            if (dFrom >= 0f) {
+                System.arraycopy(in, from, out, result * 4, 4);
+                result++;
+            }
+            if ((dFrom >= 0f) != (dTo >= 0f)) {
+                float t = dFrom / (dFrom - dTo);
+                for (int k = 0; k < 4; k++) {
+                    out[result * 4 + k] = in[from + k] + t * (in[to + k] - in[from + k]);
+                }
+                result++;
+            }
+        }
+        polygon = out;
+        clipped = in;
+        return result;
+    }
+
+    private void rasterizeTriangle(int a, int b, int c) {
+        float[] s = screen;
+        float x0 = s[a], y0 = s[a + 1], z0 = s[a + 2];
+        float x1 = s[b], y1 = s[b + 1], z1 = s[b + 2];
+        float x2 = s[c], y2 = s[c + 1], z2 = s[c + 2];
+        float area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+        if (Float.isNaN(area)) {
+            return;
+        }
+        int minX = Math.max(0, (int) Math.floor(Math.min(x0, Math.min(x1, x2))));
+        int maxX = Math.min(width - 1, (int) Math.ceil(Math.max(x0, Math.max(x1, x2))));
+        int minY = Math.max(0, (int) Math.floor(Math.min(y0, Math.min(y1, y2))));
+        int maxY = Math.min(height - 1, (int) Math.ceil(Math.max(y0, Math.max(y1, y2))));
+        if (area == 0f) {
+            return;
+        }
+        trianglesRasterized++;
+        // Occluders are two-sided: orient every triangle the same way
+        float sign = area > 0f ? 1f : -1f;
+
+        // Edge functions e = A x + B y + C, positive inside
+        float a0 = sign * (y1 - y2), b0 = sign * (x2 - x1), c0 = sign * (x1 * y2 - x2 * y1);
+        float a1 = sign * (y2 - y0), b1 = sign * (x0 - x2), c1 = sign * (x2 * y0 - x0 * y2);
+        float a2 = sign * (y0 - y1), b2 = sign * (x1 - x0), c2 = sign * (x0 * y1 - x1 * y0);
+        // A pixel is covered only if its whole square is inside
+        float t0 = 0.5f * (Math.abs(a0) + Math.abs(b0));
+        float t1 = 0.5f * (Math.abs(a1) + Math.abs(b1));
+        float t2 = 0.5f * (Math.abs(a2) + Math.abs(b2));
+
+        // 1/w plane, and how much farther it gets anywhere in a pixel
+        float invArea = 1f / area;
+        float dzdx = ((z1 - z0) * (y2 - y0) - (z2 - z0) * (y1 - y0)) * invArea;
+        float dzdy = ((x1 - x0) * (z2 - z0) - (x2 - x0) * (z1 - z0)) * invArea;
+        float spread = 0.5f * (Math.abs(dzdx) + Math.abs(dzdy));
+        float zFar = Math.min(z0, Math.min(z1, z2));
+
+        // Every tile the triangle may reach, covered or not, bounds its nearest point there
+        float zNear = Math.max(z0, Math.max(z1, z2));
+        float tileSpread = TILE * 0.5f * (Math.abs(dzdx) + Math.abs(dzdy));
+        for (int ty = minY / TILE; ty <= maxY / TILE; ty++) {
+            float centerY = ty * TILE + TILE * 0.5f;
+            for (int tx = minX / TILE; tx <= maxX / TILE; tx++) {
+                float centerX = tx * TILE + TILE * 0.5f;
+                float near = Math.min(zNear, z0 + dzdx * (centerX - x0) + dzdy * (centerY - y0) + tileSpread);
+                if (near > tileNear[ty * tilesX + tx]) {
+                    tileNear[ty * tilesX + tx] = near;
+                }
+            }
+        }
+
+        float[] d = depth;
+        for (int y = minY; y <= maxY; y++) {
+            float py = y + 0.5f;
+            // Pixels whose centers are inside all three shrunken edges
+            float lo = minX + 0.5f;
+            float hi = maxX + 0.5f;
+            float r0 = t0 - b0 * py - c0;
+            float r1 = t1 - b1 * py - c1;
+            float r2 = t2 - b2 * py - c2;
+            // Each edge bounds x from one side; a horizontal edge passes or fails the whole row
+            if (a0 > 0f) {
+                lo = Math.max(lo, r0 / a0);
+            } else if (a0 < 0f) {
+                hi = Math.min(hi, r0 / a0);
+            } else if (r0 > 0f) {
+                continue;
+            }
+            if (a1 > 0f) {
+                lo = Math.max(lo, r1 / a1);
+            } else if (a1 < 0f) {
+                hi = Math.min(hi, r1 / a1);
+            } else if (r1 > 0f) {
+                continue;
+            }
+            if (a2 > 0f) {
+                lo = Math.max(lo, r2 / a2);
+            } else if (a2 < 0f) {
+                hi = Math.min(hi, r2 / a2);
+            } else if (r2 > 0f) {
+                continue;
+            }
+            int first = (int) Math.ceil(lo - 0.5f);
+            int last = (int) Math.floor(hi - 0.5f);
+            // The divisions round; recheck the ends exactly
+            while (first <= last && !inside(first + 0.5f, py, a0, b0, c0, t0, a1, b1, c1, t1, a2, b2, c2, t2)) {
+                first++;
+            }
+            while (last >= first && !inside(last + 0.5f, py, a0, b0, c0, t0, a1, b1, c1, t1, a2, b2, c2, t2)) {
+                last--;
+            }
+            if (first > last) {
+                continue;
+            }
+
+            float z = z0 + dzdx * (first + 0.5f - x0) + dzdy * (py - y0) - spread;
+            int row = y * width;
+            for (int x = first; x <= last; x++) {
+                float far = z > zFar ? z : zFar;
+                if (far > d[row + x]) {
+                    d[row + x] = far;
+                }
+                z += dzdx;
+            }
+        }
+    }
+
+    private static boolean inside(float px, float py, float a0, float b0, float c0, float t0,
+                                  float a1, float b1, float c1, float t1,
+                                  float a2, float b2, float c2, float t2) {
+        return a0 * px + b0 * py + c0 >= t0 && a1 * px + b1 * py + c1 >= t1 && a2 * px + b2 * py + c2 >= t2;
+    }
+
+    /**
+     * Rebuild the per-tile farthest occluders. Call after rasterizing and
+     * before testing.
+     */
+    public void finish() {
+        float[] d = depth;
+        Arrays.fill(tileFar, Float.MAX_VALUE);
+        for (int y = 0; y < height; y++) {
+            int tiles = (y / TILE) * tilesX;
+            int row = y * width;
+            for (int tx = 0; tx < tilesX; tx++) {
+                float far = tileFar[tiles + tx];
+                for (int p = row + tx * TILE, end = p + TILE; p < end; p++) {
+                    if (d[p] < far) {
+                        far = d[p];
+                    }
+                }
+                tileFar[tiles + tx] = far;
+            }
+        }
+    }
+
+    /**
+     * Test a pixel rectangle at a depth, for viewpoints up to a parallax
+     * factor away from the one rasterized from.
+     * @param nearest 1/w of the nearest point to test
+     * @param parallax pixels an occluder can shift against what's behind it, per unit of 1/w between them
+     * @return true if an occluder is nearer than the depth everywhere in the rectangle, from every viewpoint
+     */
+    public boolean isOccluded(int minX, int minY, int maxX, int maxY, float nearest, float parallax) {
+        if (!covered(minX, minY, maxX, maxY, nearest)) {
+            return false;
+        }
+        if (!(parallax > 0f)) {
+            return true;
+        }
+        // The shift depends on the nearest occluder around the rectangle, which
+        // depends on how far around to look: widen until the two agree
+        float reach = 0f;
+        for (int pass = 0; ; pass++) {
+            int grow = (int) Math.ceil(reach);
+            float shift = parallax * (nearestAround(minX - grow, minY - grow, maxX + grow, maxY + grow) - nearest);
+            if (shift <= reach) {
+                break;
+            }
+            if (pass == 3) {
+                return false;
+            }
+            reach = shift;
+        }
+        int grow = (int) Math.ceil(reach);
+        return covered(Math.max(0, minX - grow), Math.max(0, minY - grow),
+                Math.min(width - 1, maxX + grow), Math.min(height - 1, maxY + grow), nearest);
+    }
+
+    /** Whether every pixel in the rectangle has an occluder nearer than the depth. */
+    private boolean covered(int minX, int minY, int maxX, int maxY, float nearest) {
+        int tx0 = minX / TILE, tx1 = maxX / TILE;
+        int ty0 = minY / TILE, ty1 = maxY / TILE;
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                if (tileFar[ty * tilesX + tx] > nearest) {
+                    continue;
+                }
+                // Something in the tile may be farther - look at the pixels the rectangle covers
+                int x0 = Math.max(minX, tx * TILE), x1 = Math.min(maxX, tx * TILE + TILE - 1);
+                int y0 = Math.max(minY, ty * TILE), y1 = Math.min(maxY, ty * TILE + TILE - 1);
+                for (int y = y0; y <= y1; y++) {
+                    int row = y * width;
+                    for (int x = x0; x <= x1; x++) {
+                        if (depth[row + x] <= nearest) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Largest 1/w of any occluder in the tiles a rectangle touches. */
+    private float nearestAround(int minX, int minY, int maxX, int maxY) {
+        int tx0 = Math.max(0, minX) / TILE, tx1 = Math.min(width - 1, maxX) / TILE;
+        int ty0 = Math.max(0, minY) / TILE, ty1 = Math.min(height - 1, maxY) / TILE;
+        float near = 0f;
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                near = Math.max(near, tileNear[ty * tilesX + tx]);
+            }
+        }
+        return near;
+    }
+}
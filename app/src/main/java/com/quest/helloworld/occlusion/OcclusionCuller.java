@@ -0,0 +1,258 @@
+package com.quest.helloworld.occlusion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Software occlusion culling over an {@link OcclusionBuffer}, with the
+ * rasterization on its own thread.
+ *
+ * Occluders are triangle meshes in their own space - usually a few big
+ * boxes or quads standing in for walls and floors - each with a world
+ * transform. {@link #beginRaster(float[])} folds every transform into the
+ * view-projection matrix and hands the frame to the raster thread, which
+ * runs while the caller gets on with the scene update;
+ * {@link #awaitRaster()} joins it before {@link #test}. Occluder meshes
+ * are read by the raster thread, so they must not change after they're
+ * added; transforms may change at any time, they're copied at
+ * {@link #beginRaster(float[])}.
+ *
+ * This class has no dependency on the application or the GL context.
+ */
+public class OcclusionCuller {
+
+    private static final class Occluder {
+        final float[] positions;
+        final int[] indices;
+        // Row-major 3x4 local-to-world
+        final float[] transform = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0};
+        boolean enabled = true;
+
+        Occluder(float[] positions, int[] indices) {
+            this.positions = positions;
+            this.indices = indices;
+        }
+    }
+
+    private final OcclusionBuffer buffer;
+    private final List<Occluder> occluders = new ArrayList<>();
+    private final ExecutorService rasterThread;
+
+    // Frame handed to the raster thread
+    private final float[] viewProjection = new float[16];
+    private float[] matrices = new float[16 * 8];
+    private Occluder[] batch = new Occluder[8];
+    private int submitted = 0;
+    private final float[] scratch = new float[16];
+    private Future<?> pending;
+
+    // Statistics
+    private int frames = 0;
+    private long rasterNanos = 0;
+    private long waitNanos = 0;
+    private long testNanos = 0;
+    private long tested = 0;
+    private long hidden = 0;
+    private volatile long lastRasterNanos = 0;
+
+    /**
+     * @param width buffer width, a multiple of {@link OcclusionBuffer#TILE}
+     * @param height buffer height, a multiple of {@link OcclusionBuffer#TILE}
+     */
+    public OcclusionCuller(int width, int height) {
+        this.buffer = new OcclusionBuffer(width, height);
+        this.rasterThread = Executors.newSingleThreadExecutor(new RasterThreadFactory());
+    }
+
+    /**
+     * Add an occluder mesh.
+     * @param positions x, y, z per vertex, in the occluder's own space
+     * @param indices three per triangle
+     * @return the occluder's id
+     */
+    public int addOccluder(float[] positions, int[] indices) {
+        occluders.add(new Occluder(positions, indices));
+        return occluders.size() - 1;
+    }
+
+    public int getOccluderCount() {
+        return occluders.size();
+    }
+
+    /**
+     * @param transform row-major 3x4 local-to-world matrix, 12 floats
+     */
+    public void setTransform(int occluder, float[] transform) {
+        System.arraycopy(transform, 0, occluders.get(occluder).transform, 0, 12);
+    }
+
+    /**
+     * Leave an occluder out of the buffer, e.g. while it's hidden.
+     */
+    public void setEnabled(int occluder, boolean enabled) {
+        occluders.get(occluder).enabled = enabled;
+    }
+
+    /**
+     * Start rasterizing the enabled occluders from a viewpoint. Returns at
+     * once; any raster still running from the last call is waited for first.
+     * @param viewProjection row-major, 16 floats
+     */
+    public void beginRaster(float[] viewProjection) {
+        awaitRaster();
+        System.arraycopy(viewProjection, 0, this.viewProjection, 0, 16);
+        if (batch.length < occluders.size()) {
+            batch = new Occluder[occluders.size() * 2];
+            matrices = new float[batch.length * 16];
+        }
+        submitted = 0;
+        for (Occluder occluder : occluders) {
+            if (occluder.enabled) {
+                multiply(viewProjection, occluder.transform, matrices, submitted * 16);
+                batch[submitted++] = occluder;
+            }
+        }
+        pending = rasterThread.submit(this::rasterize);
+    }
+
+    /**
+     * Wait for the raster started by {@link #beginRaster(float[])}.
+     * @return nanoseconds spent waiting
+     */
+    public long awaitRaster() {
+        if (pending == null) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Occluder rasterization failed", e.getCause());
+        } finally {
+            pending = null;
+        }
+        long waited = System.nanoTime() - start;
+        frames++;
+        rasterNanos += lastRasterNanos;
+        waitNanos += waited;
+        return waited;
+    }
+
+    /**
+     * Test boxes against the last finished raster, waiting for it if needed.
+     * @param parallax see {@link OcclusionBuffer#isOccluded}, 0 to test from the rasterized viewpoint only
+     * @param visible set for each box, at least {@link OccludeeSet#size()} long
+     * @return how many boxes are hidden
+     */
+    public int test(OccludeeSet occludees, float parallax, boolean[] visible) {
+        awaitRaster();
+        long start = System.nanoTime();
+        int count = occludees.test(buffer, viewProjection, parallax, visible);
+        testNanos += System.nanoTime() - start;
+        tested += occludees.size();
+        hidden += count;
+        return count;
+    }
+
+    /** Runs on the raster thread. */
+    private void rasterize() {
+        long start = System.nanoTime();
+        buffer.clear();
+        for (int i = 0; i < submitted; i++) {
+            Occluder occluder = batch[i];
+            System.arraycopy(matrices, i * 16, scratch, 0, 16);
+            buffer.rasterize(occluder.positions, occluder.positions.length / 3,
+                    occluder.indices, occluder.indices.length, scratch);
+        }
+        buffer.finish();
+        lastRasterNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * store = viewProjection * transform, with the transform's missing
+     * bottom row taken as 0 0 0 1.
+     */
+    private static void multiply(float[] vp, float[] t, float[] store, int offset) {
+        for (int row = 0; row < 4; row++) {
+            float r0 = vp[row * 4], r1 = vp[row * 4 + 1], r2 = vp[row * 4 + 2], r3 = vp[row * 4 + 3];
+            int o = offset + row * 4;
+            store[o] = r0 * t[0] + r1 * t[4] + r2 * t[8];
+            store[o + 1] = r0 * t[1] + r1 * t[5] + r2 * t[9];
+            store[o + 2] = r0 * t[2] + r1 * t[6] + r2 * t[10];
+            store[o + 3] = r0 * t[3] + r1 * t[7] + r2 * t[11] + r3;
+        }
+    }
+
+    /** The buffer, for inspection once a raster has finished. */
+    public OcclusionBuffer getBuffer() {
+        return buffer;
+    }
+
+    public void resetStatistics() {
+        frames = 0;
+        rasterNanos = 0;
+        waitNanos = 0;
+        testNanos = 0;
+        tested = 0;
+        hidden = 0;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    /** Raster thread time, over all frames. */
+    public long getRasterNanos() {
+        return rasterNanos;
+    }
+
+    /** Time callers spent blocked on the raster thread, over all frames. */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    /** Time spent testing boxes, over all frames. */
+    public long getTestNanos() {
+        return testNanos;
+    }
+
+    public long getTested() {
+        return tested;
+    }
+
+    public long getHidden() {
+        return hidden;
+    }
+
+    public String summary() {
+        float perFrame = frames > 0 ? 1e-6f / frames : 0f;
+        return String.format("Occlusion: %d occluders, %dx%d buffer; hidden %d of %d (%.1f%%); "
+                        + "raster %.3f ms, wait %.3f ms, test %.3f ms per frame",
+                occluders.size(), buffer.getWidth(), buffer.getHeight(), hidden, tested,
+                tested > 0 ? 100f * hidden / tested : 0f,
+                rasterNanos * perFrame, waitNanos * perFrame, testNanos * perFrame);
+    }
+
+    public void shutdown() {
+        rasterThread.shutdownNow();
+    }
+
+    /**
+     * A daemon thread at normal priority: the render thread waits on it.
+     */
+    private static class RasterThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "OcclusionRaster");
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
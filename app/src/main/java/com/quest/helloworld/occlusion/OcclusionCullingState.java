@@ -0,0 +1,350 @@
+package com.quest.helloworld.occlusion;
+
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Vector3f;
+import com.jme3.post.SceneProcessor;
+import com.jme3.profile.AppProfiler;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.Spatial.CullHint;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.texture.FrameBuffer;
+import com.quest.helloworld.shadow.StereoFrustum;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * App state that hides occludees behind occluders with an
+ * {@link OcclusionCuller}, once for both eyes.
+ *
+ * The application calls {@link #beginFrame()} as soon as the eye cameras
+ * have this frame's pose. That fits one camera around both eyes
+ * ({@link StereoFrustum}) and starts rasterizing the occluders on the
+ * raster thread, which runs while the rest of the scene updates. Just
+ * before the viewports render, the state waits for the raster and tests
+ * the occludees' world bounds. Hidden ones are set to
+ * {@link CullHint#Always} only while each eye viewport queues the scene,
+ * and get their own hint back before the viewport's other processors
+ * run: shadow renderers gather casters from the scene graph, skipping
+ * spatials culled that way, and an object hidden from the eyes can still
+ * shadow what they see.
+ *
+ * The eyes sit in front of and beside the combined viewpoint, so the test
+ * allows for their parallax ({@link #parallax}) and an occludee that shows
+ * past an occluder's edge to one eye stays visible. The buffer only holds
+ * the nearest occluders, though: a gap in a farther occluder that a nearer
+ * one covers from the combined viewpoint can still open up to one eye.
+ *
+ * Occluders are placed with their world transform as of the last frame,
+ * since this frame's isn't computed yet, so an occluder that moves should
+ * be given a simplified mesh a little inside its real one.
+ */
+public class OcclusionCullingState extends AbstractAppState {
+
+    private static final String TAG = "OcclusionCulling";
+    private static final float UNBOUNDED = 1e6f;
+
+    private final OcclusionCuller culler;
+    private final ViewPort leftView;
+    private final ViewPort rightView;
+    private final Camera left;
+    private final Camera right;
+    private final Camera combined;
+    private final QueueFilter filter = new QueueFilter();
+
+    private final List<Spatial> occluderSpatials = new ArrayList<>();
+    private final List<Spatial> occludees = new ArrayList<>();
+    private final OccludeeSet bounds = new OccludeeSet(64);
+    private boolean[] visible = new boolean[64];
+    // Occludees hidden this frame, and their own hints while an eye queues the scene
+    private final List<Spatial> hidden = new ArrayList<>();
+    private final List<CullHint> hiddenHints = new ArrayList<>();
+
+    private final Matrix4f world = new Matrix4f();
+    private final float[] transform = new float[12];
+    private final float[] viewProjection = new float[16];
+    private final Vector3f offset = new Vector3f();
+    private float parallax = 0f;
+    private boolean started = false;
+
+    /**
+     * @param left the left eye's viewport, or the only one
+     * @param right the right eye's viewport, or null for a single view
+     */
+    public OcclusionCullingState(ViewPort left, ViewPort right, int width, int height) {
+        this.culler = new OcclusionCuller(width, height);
+        this.leftView = left;
+        this.rightView = right;
+        this.left = left.getCamera();
+        this.right = right != null ? right.getCamera() : null;
+        this.combined = right != null ? this.left.clone() : this.left;
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        // First, so hints are restored before shadow renderers gather casters
+        leftView.getProcessors().add(0, filter);
+        if (rightView != null) {
+            rightView.getProcessors().add(0, filter);
+        }
+        Log.i(TAG, "Occlusion culling started - " + occluderSpatials.size() + " occluders, "
+                + culler.getBuffer().getWidth() + "x" + culler.getBuffer().getHeight() + " buffer"
+                + (right != null ? ", combined stereo view" : ""));
+    }
+
+    /**
+     * Add a geometry's own mesh as an occluder. Only worth it for meshes
+     * with few triangles.
+     */
+    public void addOccluder(Geometry geometry) {
+        addOccluder(geometry, geometry.getMesh());
+    }
+
+    /**
+     * Add an occluder that follows a spatial.
+     * @param mesh triangles in the spatial's space, on or inside its visible surface
+     */
+    public void addOccluder(Spatial spatial, Mesh mesh) {
+        FloatBuffer position = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        float[] positions = new float[mesh.getVertexCount() * 3];
+        position.rewind();
+        position.get(positions);
+        position.rewind();
+
+        // Any index layout, as a triangle list
+        IndexBuffer list = mesh.getIndicesAsList();
+        int[] indices = new int[list.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = list.get(i);
+        }
+        culler.addOccluder(positions, indices);
+        occluderSpatials.add(spatial);
+    }
+
+    /**
+     * Leave a spatial out of the eyes' views when its world bounds are
+     * hidden.
+     */
+    public void addOccludee(Spatial spatial) {
+        occludees.add(spatial);
+        if (visible.length < occludees.size()) {
+            visible = new boolean[occludees.size() * 2];
+        }
+    }
+
+    /**
+     * Stop culling a spatial.
+     */
+    public void removeOccludee(Spatial spatial) {
+        occludees.remove(spatial);
+        hidden.remove(spatial);
+    }
+
+    public OcclusionCuller getCuller() {
+        return culler;
+    }
+
+    /**
+     * Start rasterizing from the eyes' current pose. Call once per frame,
+     * after head tracking has moved the cameras.
+     */
+    public void beginFrame() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (right != null) {
+            StereoFrustum.fit(left, right, combined);
+            int width = culler.getBuffer().getWidth();
+            int height = culler.getBuffer().getHeight();
+            parallax = Math.max(parallax(combined, left, width, height, offset),
+                    parallax(combined, right, width, height, offset));
+        }
+        for (int i = 0; i < occluderSpatials.size(); i++) {
+            Spatial spatial = occluderSpatials.get(i);
+            culler.setEnabled(i, spatial.getParent() != null && spatial.getCullHint() != CullHint.Always);
+            spatial.getWorldTransform().toTransformMatrix(world);
+            transform[0] = world.m00;
+            transform[1] = world.m01;
+            transform[2] = world.m02;
+            transform[3] = world.m03;
+            transform[4] = world.m10;
+            transform[5] = world.m11;
+            transform[6] = world.m12;
+            transform[7] = world.m13;
+            transform[8] = world.m20;
+            transform[9] = world.m21;
+            transform[10] = world.m22;
+            transform[11] = world.m23;
+            culler.setTransform(i, transform);
+        }
+        combined.getViewProjectionMatrix().get(viewProjection, true);
+        culler.beginRaster(viewProjection);
+        started = true;
+    }
+
+    @Override
+    public void render(RenderManager rm) {
+        super.render(rm);
+        if (!started) {
+            return;
+        }
+        started = false;
+
+        bounds.clear();
+        for (int i = 0; i < occludees.size(); i++) {
+            addBounds(occludees.get(i).getWorldBound());
+        }
+        culler.test(bounds, parallax, visible);
+        hidden.clear();
+        for (int i = 0; i < occludees.size(); i++) {
+            if (!visible[i]) {
+                hidden.add(occludees.get(i));
+            }
+        }
+    }
+
+
+    private void addBounds(BoundingVolume volume) {
+        if (volume instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) volume;
+            bounds.add(box.getCenter().x, box.getCenter().y, box.getCenter().z,
+                    box.getXExtent(), box.getYExtent(), box.getZExtent());
+        } else if (volume instanceof BoundingSphere) {
+            BoundingSphere sphere = (BoundingSphere) volume;
+            float r = sphere.getRadius();
+            bounds.add(sphere.getCenter().x, sphere.getCenter().y, sphere.getCenter().z, r, r, r);
+        } else {
+            // No bounds yet: a box around the viewer, which is never hidden
+            bounds.add(0f, 0f, 0f, UNBOUNDED, UNBOUNDED, UNBOUNDED);
+        }
+    }
+
+    /**
+     * How far, in buffer pixels per unit of 1/w between them, an occluder
+     * can shift against what's behind it when seen from an eye instead of
+     * from the camera the buffer is rasterized from. Sideways offset moves
+     * everything by offset/w; offset along the view scales the picture
+     * about its center, by at most the widest frustum tangent. Occluders
+     * are at least the near plane away, which bounds how much closer the
+     * eye is to them.
+     * @param combined the camera the buffer is rasterized from, containing the eye's frustum
+     * @param store scratch
+     */
+    public static float parallax(Camera combined, Camera eye, int width, int height, Vector3f store) {
+        eye.getLocation().subtract(combined.getLocation(), store);
+        float dx = Math.abs(store.dot(combined.getLeft()));
+        float dy = Math.abs(store.dot(combined.getUp()));
+        float dz = Math.abs(store.dot(combined.getDirection()));
+
+        float near = combined.getFrustumNear();
+        float l = combined.getFrustumLeft(), r = combined.getFrustumRight();
+        float b = combined.getFrustumBottom(), t = combined.getFrustumTop();
+        float tanX = Math.max(Math.abs(l), Math.abs(r)) / near;
+        float tanY = Math.max(Math.abs(b), Math.abs(t)) / near;
+        // Pixels per unit of tangent
+        float fx = width * near / (r - l);
+        float fy = height * near / (t - b);
+        if (dz >= near) {
+            // The eye could be past an occluder: nothing is safe to hide
+            return Float.POSITIVE_INFINITY;
+        }
+        float closer = near / (near - dz);
+        return Math.max(fx * (dx + dz * tanX), fy * (dy + dz * tanY)) * closer * closer;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        if (!enabled) {
+            culler.awaitRaster();
+            started = false;
+            hidden.clear();
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        setEnabled(false);
+        leftView.removeProcessor(filter);
+        if (rightView != null) {
+            rightView.removeProcessor(filter);
+        }
+        culler.shutdown();
+    }
+
+    public String summary() {
+        return culler.summary();
+    }
+
+    /**
+     * Culls hidden occludees while an eye viewport queues the scene: from
+     * its first processor's preFrame, just before the scene is queued,
+     * to its postQueue, just after.
+     */
+    private class QueueFilter implements SceneProcessor {
+
+        private RenderManager renderManager;
+
+        @Override
+        public void initialize(RenderManager rm, ViewPort vp) {
+            renderManager = rm;
+        }
+
+        @Override
+        public void reshape(ViewPort vp, int w, int h) {
+        }
+
+        @Override
+        public boolean isInitialized() {
+            return renderManager != null;
+        }
+
+        @Override
+        public void preFrame(float tpf) {
+            hiddenHints.clear();
+            for (int i = 0; i < hidden.size(); i++) {
+                Spatial spatial = hidden.get(i);
+                hiddenHints.add(spatial.getLocalCullHint());
+                spatial.setCullHint(CullHint.Always);
+            }
+        }
+
+        @Override
+        public void postQueue(RenderQueue rq) {
+            for (int i = 0; i < hiddenHints.size(); i++) {
+                hidden.get(i).setCullHint(hiddenHints.get(i));
+            }
+            hiddenHints.clear();
+        }
+
+        @Override
+        public void postFrame(FrameBuffer out) {
+        }
+
+        @Override
+        public void cleanup() {
+        }
+
+        @Override
+        public void setProfiler(AppProfiler profiler) {
+        }
+    }
+}
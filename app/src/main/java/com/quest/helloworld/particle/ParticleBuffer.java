@@ -0,0 +1,144 @@
+package com.quest.helloworld.particle;
+
+/**
+ * Particle state as parallel primitive arrays, one slot per particle.
+ *
+ * Live particles always occupy slots 0 to count - 1. When one expires the
+ * last live particle is moved into its slot, so removal is constant time
+ * and the arrays never need compacting or allocating. Particle order is
+ * not preserved, which additive point sprites don't care about.
+ */
+public class ParticleBuffer {
+
+    private final int capacity;
+    private int count = 0;
+
+    final float[] x;
+    final float[] y;
+    final float[] z;
+    final float[] vx;
+    final float[] vy;
+    final float[] vz;
+    final float[] age;
+    final float[] life;
+    final float[] size;
+    /** RGBA, 8 bits each, red in the low byte. */
+    final int[] color;
+
+    public ParticleBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        x = new float[capacity];
+        y = new float[capacity];
+        z = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        vz = new float[capacity];
+        age = new float[capacity];
+        life = new float[capacity];
+        size = new float[capacity];
+        color = new int[capacity];
+    }
+
+    /**
+     * Add a particle.
+     * @param startAge seconds it has already lived, for pre-filling a steady-state field
+     * @param color RGBA from {@link #packColor}
+     * @return false if the buffer is full
+     */
+    public boolean emit(float px, float py, float pz, float velocityX, float velocityY, float velocityZ,
+                        float startAge, float lifetime, float particleSize, int color) {
+        if (count == capacity) {
+            return false;
+        }
+        int i = count++;
+        x[i] = px;
+        y[i] = py;
+        z[i] = pz;
+        vx[i] = velocityX;
+        vy[i] = velocityY;
+        vz[i] = velocityZ;
+        age[i] = startAge;
+        life[i] = lifetime;
+        size[i] = particleSize;
+        this.color[i] = color;
+        return true;
+    }
+
+    /**
+     * Age, accelerate and move every live particle, removing the expired.
+     * @param drag fraction of velocity lost per second
+     * @return particles that expired
+     */
+    public int update(float dt, float accelerationX, float accelerationY, float accelerationZ, float drag) {
+        float damping = Math.max(0f, 1f - drag * dt);
+        float dvx = accelerationX * dt;
+        float dvy = accelerationY * dt;
+        float dvz = accelerationZ * dt;
+        int expired = 0;
+        int i = 0;
+        while (i < count) {
+            float a = age[i] + dt;
+            if (a >= life[i]) {
+                // Move the last live particle here and look at this slot again
+                moveLast(i);
+                expired++;
+                continue;
+            }
+            age[i] = a;
+            float velocityX = (vx[i] + dvx) * damping;
+            float velocityY = (vy[i] + dvy) * damping;
+            float velocityZ = (vz[i] + dvz) * damping;
+            vx[i] = velocityX;
+            vy[i] = velocityY;
+            vz[i] = velocityZ;
+            x[i] += velocityX * dt;
+            y[i] += velocityY * dt;
+            z[i] += velocityZ * dt;
+            i++;
+        }
+        return expired;
+    }
+
+    private void moveLast(int slot) {
+        int last = --count;
+        if (slot == last) {
+            return;
+        }
+        x[slot] = x[last];
+        y[slot] = y[last];
+        z[slot] = z[last];
+        vx[slot] = vx[last];
+        vy[slot] = vy[last];
+        vz[slot] = vz[last];
+        age[slot] = age[last];
+        life[slot] = life[last];
+        size[slot] = size[last];
+        color[slot] = color[last];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Pack a color given as 0-1 floats.
+     */
+    public static int packColor(float r, float g, float b, float a) {
+        return toByte(r) | (toByte(g) << 8) | (toByte(b) << 16) | (toByte(a) << 24);
+    }
+
+    private static int toByte(float value) {
+        return Math.round(Math.max(0f, Math.min(1f, value)) * 255f);
+    }
+}
@@ -0,0 +1,207 @@
+package com.quest.helloworld.particle;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Point sprites for a {@link ParticleBuffer}, drawn in one call with the
+ * stock Common/MatDefs/Misc/Particle.j3md material (PointSprite on).
+ *
+ * Position, RGBA8 color and size each have a stream buffer of their own,
+ * 20 bytes a particle between them, and a static buffer holds the constant
+ * full-texture rectangle. Each frame the live particles are laid out in
+ * heap arrays, copied into the buffers in bulk, and handed to
+ * {@link VertexBuffer#updateData} with their limits at the live count, so
+ * only that prefix is uploaded. The index buffer is a fixed identity list
+ * whose limit is set to the live count, which is how jME is told how many
+ * points to draw; it is only re-uploaded when the count grows past what
+ * the GPU copy holds. Writing does not allocate.
+ */
+public class ParticleMesh extends Mesh {
+
+    /** Bytes per particle uploaded each frame: position, color and size. */
+    public static final int UPLOAD_BYTES = 20;
+
+    private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    private final int capacity;
+    private final VertexBuffer positionBuffer;
+    private final VertexBuffer colorBuffer;
+    private final VertexBuffer sizeBuffer;
+    private final VertexBuffer indexBuffer;
+    private final FloatBuffer positions;
+    private final ByteBuffer colors;
+    private final IntBuffer colorWords;
+    private final FloatBuffer sizes;
+    // Laid out here first; bulk copies into direct buffers beat per-element puts
+    private final float[] positionScratch;
+    private final int[] colorScratch;
+    private final BoundingBox bound = new BoundingBox();
+    private final Vector3f boundMin = new Vector3f();
+    private final Vector3f boundMax = new Vector3f();
+
+    // Indices the GPU copy holds, once the pending upload has happened
+    private int uploadedIndices = 0;
+    private boolean indexUploadPending = false;
+    private int drawCount = 0;
+
+    public ParticleMesh(int capacity) {
+        this.capacity = capacity;
+        setMode(Mode.Points);
+
+        positions = BufferUtils.createFloatBuffer(capacity * 3);
+        colors = BufferUtils.createByteBuffer(capacity * 4);
+        colorWords = colors.duplicate().order(colors.order()).asIntBuffer();
+        sizes = BufferUtils.createFloatBuffer(capacity);
+        setBuffer(VertexBuffer.Type.Position, 3, positions);
+        setBuffer(VertexBuffer.Type.Color, 4, VertexBuffer.Format.UnsignedByte, colors);
+        setBuffer(VertexBuffer.Type.Size, 1, sizes);
+        positionBuffer = getBuffer(VertexBuffer.Type.Position);
+        colorBuffer = getBuffer(VertexBuffer.Type.Color);
+        sizeBuffer = getBuffer(VertexBuffer.Type.Size);
+        colorBuffer.setNormalized(true);
+        positionBuffer.setUsage(VertexBuffer.Usage.Stream);
+        colorBuffer.setUsage(VertexBuffer.Usage.Stream);
+        sizeBuffer.setUsage(VertexBuffer.Usage.Stream);
+        positionScratch = new float[capacity * 3];
+        colorScratch = new int[capacity];
+
+        // Particle.vert mixes xy and zw by the point coordinate; (0,0)-(1,1) is the whole texture
+        ByteBuffer texCoords = BufferUtils.createByteBuffer(capacity * 4);
+        for (int i = 0; i < capacity; i++) {
+            texCoords.put((byte) 0).put((byte) 0).put((byte) 255).put((byte) 255);
+        }
+        setBuffer(VertexBuffer.Type.TexCoord, 4, VertexBuffer.Format.UnsignedByte, texCoords);
+        getBuffer(VertexBuffer.Type.TexCoord).setNormalized(true);
+
+        if (capacity <= 0x10000) {
+            ShortBuffer indices = BufferUtils.createShortBuffer(capacity);
+            for (int i = 0; i < capacity; i++) {
+                indices.put((short) i);
+            }
+            setBuffer(VertexBuffer.Type.Index, 1, indices);
+        } else {
+            IntBuffer indices = BufferUtils.createIntBuffer(capacity);
+            for (int i = 0; i < capacity; i++) {
+                indices.put(i);
+            }
+            setBuffer(VertexBuffer.Type.Index, 1, indices);
+        }
+        indexBuffer = getBuffer(VertexBuffer.Type.Index);
+        indexBuffer.setUsage(VertexBuffer.Usage.Static);
+
+        setBound(bound);
+        setDrawCount(0);
+    }
+
+    /**
+     * Copy the live particles into the vertex buffers and refit the bound.
+     * Alpha ramps up over the first fadeIn seconds of a particle's life and
+     * down over the last fadeOut seconds.
+     */
+    public void write(ParticleBuffer particles, float fadeIn, float fadeOut) {
+        int count = particles.getCount();
+        float[] x = particles.x;
+        float[] y = particles.y;
+        float[] z = particles.z;
+        float[] age = particles.age;
+        float[] life = particles.life;
+        int[] color = particles.color;
+        float[] position = positionScratch;
+        int[] rgbaOut = colorScratch;
+        float fadeInRate = fadeIn > 0f ? 1f / fadeIn : Float.MAX_VALUE;
+        float fadeOutRate = fadeOut > 0f ? 1f / fadeOut : Float.MAX_VALUE;
+
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            float px = x[i];
+            float py = y[i];
+            float pz = z[i];
+            position[i * 3] = px;
+            position[i * 3 + 1] = py;
+            position[i * 3 + 2] = pz;
+
+            float fade = Math.min(1f, Math.min(age[i] * fadeInRate, (life[i] - age[i]) * fadeOutRate));
+            int rgba = color[i];
+            int alpha = (int) ((rgba >>> 24) * Math.max(0f, fade));
+            rgbaOut[i] = (rgba & 0x00FFFFFF) | (alpha << 24);
+
+            if (px < minX) minX = px;
+            if (px > maxX) maxX = px;
+            if (py < minY) minY = py;
+            if (py > maxY) maxY = py;
+            if (pz < minZ) minZ = pz;
+            if (pz > maxZ) maxZ = pz;
+        }
+        if (BIG_ENDIAN) {
+            for (int i = 0; i < count; i++) {
+                rgbaOut[i] = Integer.reverseBytes(rgbaOut[i]);
+            }
+        }
+
+        positions.clear();
+        positions.put(position, 0, count * 3).flip();
+        colorWords.clear();
+        colorWords.put(rgbaOut, 0, count);
+        colors.clear().limit(count * 4);
+        sizes.clear();
+        sizes.put(particles.size, 0, count).flip();
+
+        if (count > 0) {
+            bound.setMinMax(boundMin.set(minX, minY, minZ), boundMax.set(maxX, maxY, maxZ));
+        }
+        setDrawCount(count);
+        if (count > 0) {
+            positionBuffer.updateData(positions);
+            colorBuffer.updateData(colors);
+            sizeBuffer.updateData(sizes);
+        }
+    }
+
+    private void setDrawCount(int count) {
+        // The renderer clears the flag once it has uploaded the limit we set last
+        if (indexUploadPending && !indexBuffer.isUpdateNeeded()) {
+            uploadedIndices = drawCount;
+            indexUploadPending = false;
+        }
+        indexBuffer.getData().clear();
+        indexBuffer.getData().limit(count);
+        if (count > uploadedIndices && !indexUploadPending) {
+            indexBuffer.setUpdateNeeded();
+            indexUploadPending = true;
+        }
+        drawCount = count;
+    }
+
+    /**
+     * The bound is refitted by {@link #write}, over the live particles only;
+     * jME would compute it from whatever the position buffer's limit holds.
+     */
+    @Override
+    public void updateBound() {
+    }
+
+    /** Points drawn by the last {@link #write}. */
+    public int getDrawCount() {
+        return drawCount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Bytes of vertex data uploaded by the last {@link #write}. */
+    public int getUploadBytes() {
+        return drawCount * UPLOAD_BYTES;
+    }
+}
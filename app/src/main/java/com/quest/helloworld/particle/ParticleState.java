@@ -0,0 +1,193 @@
+package com.quest.helloworld.particle;
+
+import android.os.Debug;
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.material.Material;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+import com.quest.helloworld.perf.SampleWindow;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Ambient dust drifting through the room: a {@link ParticleBuffer}
+ * simulated on the render thread and drawn as one {@link ParticleMesh}
+ * geometry, so the whole field costs a single draw per eye.
+ *
+ * The field starts full with staggered ages and each expired mote is
+ * replaced by a new one somewhere else in the volume, so the count stays
+ * near capacity. Updating does not allocate. The CPU time of each update -
+ * emission, simulation and vertex writing - is kept for the log line and
+ * the particles benchmark. It is the render thread's own CPU time, so a
+ * frame where the thread was descheduled part way doesn't count the wait.
+ */
+public class ParticleState extends AbstractAppState {
+
+    private static final String TAG = "Particles";
+
+    private static final float LOG_INTERVAL = 10f;
+    private static final float NANOS_TO_MS = 1e-6f;
+    // Debug.threadCpuTimeNanos() is -1 where the kernel can't tell
+    private static final boolean THREAD_CPU_TIME = Debug.threadCpuTimeNanos() != -1L;
+
+    // Volume the dust fills, in world space - the floor and a bit above head height
+    private static final float MIN_X = -4f, MAX_X = 4f;
+    private static final float MIN_Y = 0.1f, MAX_Y = 3f;
+    private static final float MIN_Z = -5f, MAX_Z = 3f;
+
+    private static final float MIN_LIFE = 4f, MAX_LIFE = 8f;
+    private static final float MIN_SIZE = 0.01f, MAX_SIZE = 0.03f;
+    private static final float DRIFT_SPEED = 0.05f;
+    private static final float FADE_TIME = 1f;
+
+    // Dust settles very slowly against a little air resistance
+    private static final float GRAVITY = -0.01f;
+    private static final float DRAG = 0.2f;
+
+    private static final int TEXTURE_SIZE = 32;
+
+    private final Node parent;
+    private final ParticleBuffer particles;
+    private final ParticleMesh mesh;
+    private final Geometry geometry;
+    private final SampleWindow updateMs = new SampleWindow(900);
+
+    private int random = 0x9E3779B9;
+    private float logTimer = 0f;
+
+    /**
+     * @param parent node the particles are attached under, normally the root node
+     * @param count particles kept alive
+     */
+    public ParticleState(Node parent, int count) {
+        this.parent = parent;
+        particles = new ParticleBuffer(count);
+        mesh = new ParticleMesh(count);
+        geometry = new Geometry("AmbientParticles", mesh);
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+
+        Material material = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Particle.j3md");
+        material.setBoolean("PointSprite", true);
+        material.setTexture("Texture", createSpriteTexture());
+        // Particle.vert sizes points as size * 4 * Quadratic / distance pixels
+        Camera cam = app.getCamera();
+        float tanHalfFov = cam.getFrustumTop() / cam.getFrustumNear();
+        material.setFloat("Quadratic", cam.getHeight() / (8f * tanHalfFov));
+
+        geometry.setMaterial(material);
+        geometry.setQueueBucket(RenderQueue.Bucket.Transparent);
+        geometry.setShadowMode(RenderQueue.ShadowMode.Off);
+
+        while (particles.getCount() < particles.getCapacity()) {
+            spawn(true);
+        }
+        mesh.write(particles, FADE_TIME, FADE_TIME);
+        geometry.setModelBound(mesh.getBound());
+        parent.attachChild(geometry);
+
+        Log.i(TAG, "Ambient particles started, " + particles.getCapacity() + " particles");
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        long start = cpuNanos();
+
+        particles.update(tpf, 0f, GRAVITY, 0f, DRAG);
+        while (particles.getCount() < particles.getCapacity()) {
+            spawn(false);
+        }
+        mesh.write(particles, FADE_TIME, FADE_TIME);
+        // Bound was refitted in place; setModelBound would reallocate the world bound
+        geometry.forceRefresh(false, true, false);
+
+        updateMs.add((cpuNanos() - start) * NANOS_TO_MS);
+        logTimer += tpf;
+        if (logTimer >= LOG_INTERVAL) {
+            logTimer = 0f;
+            Log.i(TAG, summary());
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        geometry.removeFromParent();
+    }
+
+    private static long cpuNanos() {
+        return THREAD_CPU_TIME ? Debug.threadCpuTimeNanos() : System.nanoTime();
+    }
+
+    /**
+     * @param staggered start part way through life, for filling the field at once
+     */
+    private void spawn(boolean staggered) {
+        float life = range(MIN_LIFE, MAX_LIFE);
+        particles.emit(range(MIN_X, MAX_X), range(MIN_Y, MAX_Y), range(MIN_Z, MAX_Z),
+                range(-DRIFT_SPEED, DRIFT_SPEED), range(-DRIFT_SPEED, DRIFT_SPEED), range(-DRIFT_SPEED, DRIFT_SPEED),
+                staggered ? range(0f, life) : 0f, life, range(MIN_SIZE, MAX_SIZE),
+                ParticleBuffer.packColor(1f, 0.95f, 0.85f, range(0.3f, 0.7f)));
+    }
+
+    // xorshift32 - cheaper than Random's atomic seed and the same field every run
+    private float range(float min, float max) {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return min + (max - min) * ((random >>> 8) * 0x1.0p-24f);
+    }
+
+    /**
+     * White disc with a soft edge; the material multiplies it by the vertex color.
+     */
+    private static Texture2D createSpriteTexture() {
+        ByteBuffer data = BufferUtils.createByteBuffer(TEXTURE_SIZE * TEXTURE_SIZE * 4);
+        float center = (TEXTURE_SIZE - 1) * 0.5f;
+        for (int y = 0; y < TEXTURE_SIZE; y++) {
+            for (int x = 0; x < TEXTURE_SIZE; x++) {
+                float dx = (x - center) / center;
+                float dy = (y - center) / center;
+                float falloff = Math.max(0f, 1f - (float) Math.sqrt(dx * dx + dy * dy));
+                byte value = (byte) Math.round(falloff * falloff * 255f);
+                data.put(value).put(value).put(value).put(value);
+            }
+        }
+        data.flip();
+        return new Texture2D(new Image(Image.Format.RGBA8, TEXTURE_SIZE, TEXTURE_SIZE, data, ColorSpace.Linear));
+    }
+
+    /** Live particles after the last update. */
+    public int getCount() {
+        return particles.getCount();
+    }
+
+    public ParticleMesh getMesh() {
+        return mesh;
+    }
+
+    /** CPU time of recent updates, in milliseconds - emission, simulation and vertex writing. */
+    public SampleWindow getUpdateTimes() {
+        return updateMs;
+    }
+
+    public String summary() {
+        return String.format("particles %d, %d KB uploaded/frame, update p50 %.3f / p99 %.3f / max %.3f ms",
+                particles.getCount(), mesh.getUploadBytes() / 1024,
+                updateMs.getPercentile(50), updateMs.getPercentile(99), updateMs.getMax());
+    }
+}
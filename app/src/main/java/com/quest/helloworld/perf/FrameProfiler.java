@@ -0,0 +1,260 @@
+package com.quest.helloworld.perf;
+
+import com.jme3.profile.AppProfiler;
+import com.jme3.profile.AppStep;
+import com.jme3.profile.SpStep;
+import com.jme3.profile.VpStep;
+import com.jme3.renderer.Renderer;
+import com.jme3.renderer.Statistics;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue;
+
+/**
+ * Splits the CPU time of each frame into update, culling and render-queue
+ * submission using jME's {@link AppProfiler} hooks.
+ *
+ * <ul>
+ *   <li>update - app states, simpleUpdate, logical and geometric state updates</li>
+ *   <li>cull - frustum culling and queueing of every viewport's scenes</li>
+ *   <li>submit - flushing the render queues to the renderer, including translucent</li>
+ * </ul>
+ *
+ * Draw calls and triangles are taken from the renderer's {@link Statistics}
+ * as deltas around each viewport, so they are correct whether or not
+ * something else clears the statistics every frame.
+ *
+ * Recording a frame does not allocate.
+ */
+public class FrameProfiler implements AppProfiler {
+
+    private static final float NANOS_TO_MS = 1e-6f;
+
+    private SampleWindow frameMs;
+    private SampleWindow updateMs;
+    private SampleWindow cullMs;
+    private SampleWindow submitMs;
+
+    private Statistics statistics;
+    private int[] statisticsData;
+    private int objectsIndex = -1;
+    private int trianglesIndex = -1;
+
+    // Current frame
+    private long frameStart = 0;
+    private long updateStart = 0;
+    private long stepStart = 0;
+    private boolean culling;
+    private boolean submitting;
+    private long updateNanos;
+    private long cullNanos;
+    private long submitNanos;
+    private int viewportObjectsStart;
+    private int viewportTrianglesStart;
+    private int frameDrawCalls;
+    private int frameTriangles;
+
+    // Totals since reset
+    private long frameCount = 0;
+    private long totalDrawCalls = 0;
+    private long totalTriangles = 0;
+    private int lastDrawCalls = 0;
+    private int lastTriangles = 0;
+
+    /**
+     * @param windowSize number of recent frames kept for percentiles
+     */
+    public FrameProfiler(int windowSize) {
+        reset(windowSize);
+    }
+
+    /**
+     * Read draw calls and triangles from this renderer's statistics, enabling them.
+     */
+    public void attachStatistics(Renderer renderer) {
+        statistics = renderer.getStatistics();
+        statistics.setEnabled(true);
+
+        String[] labels = statistics.getLabels();
+        statisticsData = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            if ("Objects".equals(labels[i])) {
+                objectsIndex = i;
+            } else if ("Triangles".equals(labels[i])) {
+                trianglesIndex = i;
+            }
+        }
+    }
+
+    /**
+     * Discard all samples and totals, keeping the current window size.
+     */
+    public void reset() {
+        reset(frameMs.getCapacity());
+    }
+
+    /**
+     * Discard all samples and totals and resize the percentile windows.
+     */
+    public void reset(int windowSize) {
+        frameMs = new SampleWindow(windowSize);
+        updateMs = new SampleWindow(windowSize);
+        cullMs = new SampleWindow(windowSize);
+        submitMs = new SampleWindow(windowSize);
+        frameCount = 0;
+        totalDrawCalls = 0;
+        totalTriangles = 0;
+        lastDrawCalls = 0;
+        lastTriangles = 0;
+    }
+
+    @Override
+    public void appStep(AppStep step) {
+        long now = System.nanoTime();
+        switch (step) {
+            case BeginFrame:
+                frameStart = now;
+                updateNanos = 0;
+                cullNanos = 0;
+                submitNanos = 0;
+                frameDrawCalls = 0;
+                frameTriangles = 0;
+                break;
+            case StateManagerUpdate:
+                updateStart = now;
+                break;
+            case RenderFrame:
+                updateNanos = now - updateStart;
+                break;
+            case EndFrame:
+                if (frameStart != 0) {
+                    endFrame(now);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void vpStep(VpStep step, ViewPort vp, RenderQueue.Bucket bucket) {
+        long now = System.nanoTime();
+        switch (step) {
+            case BeginRender:
+                if (statistics != null) {
+                    statistics.getData(statisticsData);
+                    viewportObjectsStart = statisticsData[objectsIndex];
+                    viewportTrianglesStart = statisticsData[trianglesIndex];
+                }
+                break;
+            case RenderScene:
+                stepStart = now;
+                culling = true;
+                break;
+            case PostQueue:
+                // Only reported when the viewport has scene processors
+                cullNanos += now - stepStart;
+                culling = false;
+                break;
+            case FlushQueue:
+                if (culling) {
+                    cullNanos += now - stepStart;
+                    culling = false;
+                }
+                stepStart = now;
+                submitting = true;
+                break;
+            case PostFrame:
+                // Processors' postFrame runs between here and ProcEndRender; not submission
+                submitNanos += now - stepStart;
+                submitting = false;
+                break;
+            case ProcEndRender:
+                stepStart = now;
+                submitting = true;
+                break;
+            case EndRender:
+                if (submitting) {
+                    submitNanos += now - stepStart;
+                    submitting = false;
+                }
+                if (statistics != null) {
+                    statistics.getData(statisticsData);
+                    frameDrawCalls += statisticsData[objectsIndex] - viewportObjectsStart;
+                    frameTriangles += statisticsData[trianglesIndex] - viewportTrianglesStart;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void appSubStep(String... additionalInfo) {
+    }
+
+    @Override
+    public void spStep(SpStep step, String... additionalInfo) {
+    }
+
+    private void endFrame(long now) {
+        frameMs.add((now - frameStart) * NANOS_TO_MS);
+        updateMs.add(updateNanos * NANOS_TO_MS);
+        cullMs.add(cullNanos * NANOS_TO_MS);
+        submitMs.add(submitNanos * NANOS_TO_MS);
+
+        lastDrawCalls = frameDrawCalls;
+        lastTriangles = frameTriangles;
+        totalDrawCalls += frameDrawCalls;
+        totalTriangles += frameTriangles;
+        frameCount++;
+    }
+
+    /** Whole-frame CPU time in milliseconds, from the start of update to the end of rendering. */
+    public SampleWindow getFrameTimes() {
+        return frameMs;
+    }
+
+    public SampleWindow getUpdateTimes() {
+        return updateMs;
+    }
+
+    public SampleWindow getCullTimes() {
+        return cullMs;
+    }
+
+    public SampleWindow getSubmitTimes() {
+        return submitMs;
+    }
+
+    /** Frames recorded since the last reset. */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public int getLastDrawCalls() {
+        return lastDrawCalls;
+    }
+
+    public int getLastTriangles() {
+        return lastTriangles;
+    }
+
+    public float getAverageDrawCalls() {
+        return frameCount == 0 ? 0f : (float) totalDrawCalls / frameCount;
+    }
+
+    public float getAverageTriangles() {
+        return frameCount == 0 ? 0f : (float) totalTriangles / frameCount;
+    }
+
+    /**
+     * One-line summary of the current window.
+     */
+    public String summary() {
+        return String.format("frame p50 %.2f / p95 %.2f / p99 %.2f ms, update %.2f, cull %.2f, submit %.2f ms, "
+                        + "%d draws, %d tris",
+                frameMs.getPercentile(50), frameMs.getPercentile(95), frameMs.getPercentile(99),
+                updateMs.getMean(), cullMs.getMean(), submitMs.getMean(),
+                lastDrawCalls, lastTriangles);
+    }
+}
@@ -0,0 +1,71 @@
+package com.quest.helloworld.perf;
+
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+
+/**
+ * App state that installs a {@link FrameProfiler} as the application's
+ * profiler and logs a frame-time summary every few seconds.
+ */
+public class FrameProfilerState extends AbstractAppState {
+
+    private static final String TAG = "FrameProfiler";
+
+    // About ten seconds of frames at 72 Hz
+    private static final int DEFAULT_WINDOW = 720;
+
+    private final FrameProfiler profiler;
+    private final float logInterval;
+
+    private Application app;
+    private float logTimer = 0f;
+
+    public FrameProfilerState() {
+        this(new FrameProfiler(DEFAULT_WINDOW), 10f);
+    }
+
+    /**
+     * @param logInterval seconds between log lines, or 0 to disable logging
+     */
+    public FrameProfilerState(FrameProfiler profiler, float logInterval) {
+        this.profiler = profiler;
+        this.logInterval = logInterval;
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        this.app = app;
+
+        profiler.attachStatistics(app.getRenderer());
+        app.setAppProfiler(profiler);
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+
+        if (logInterval > 0f) {
+            logTimer += tpf;
+            if (logTimer >= logInterval) {
+                logTimer = 0f;
+                Log.i(TAG, profiler.summary());
+            }
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        if (app.getAppProfiler() == profiler) {
+            app.setAppProfiler(null);
+        }
+    }
+
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+}
@@ -0,0 +1,78 @@
+package com.quest.helloworld.perf;
+
+import com.jme3.font.BitmapCharacter;
+import com.jme3.font.BitmapCharacterSet;
+import com.jme3.font.BitmapFont;
+import com.jme3.texture.Texture;
+
+/**
+ * Glyph metrics and texture coordinates for printable ASCII, read once from
+ * a bitmap font's first page so laying out text needs no lookups or
+ * allocation. Metrics are in font pixels; texture coordinates follow jME's
+ * flipped font textures, like BitmapText.
+ */
+public class GlyphAtlas {
+
+    public static final char FIRST = 32;
+    public static final char LAST = 126;
+
+    private static final int COUNT = LAST - FIRST + 1;
+
+    final float[] u0 = new float[COUNT];
+    final float[] v0 = new float[COUNT];
+    final float[] u1 = new float[COUNT];
+    final float[] v1 = new float[COUNT];
+    final float[] xOffset = new float[COUNT];
+    final float[] yOffset = new float[COUNT];
+    final float[] width = new float[COUNT];
+    final float[] height = new float[COUNT];
+    final float[] xAdvance = new float[COUNT];
+    final boolean[] present = new boolean[COUNT];
+
+    private final float lineHeight;
+    private final Texture texture;
+
+    public GlyphAtlas(BitmapFont font) {
+        BitmapCharacterSet charSet = font.getCharSet();
+        float pageWidth = charSet.getWidth();
+        float pageHeight = charSet.getHeight();
+        lineHeight = charSet.getLineHeight();
+        texture = font.getPage(0).getTextureParam("ColorMap").getTextureValue();
+
+        for (int i = 0; i < COUNT; i++) {
+            BitmapCharacter c = charSet.getCharacter(FIRST + i);
+            if (c == null || c.getPage() != 0) {
+                continue;
+            }
+            present[i] = true;
+            u0[i] = c.getX() / pageWidth;
+            u1[i] = (c.getX() + c.getWidth()) / pageWidth;
+            v0[i] = 1f - c.getY() / pageHeight;
+            v1[i] = 1f - (c.getY() + c.getHeight()) / pageHeight;
+            xOffset[i] = c.getXOffset();
+            yOffset[i] = c.getYOffset();
+            width[i] = c.getWidth();
+            height[i] = c.getHeight();
+            xAdvance[i] = c.getXAdvance();
+        }
+    }
+
+    /**
+     * @return the glyph index of a character, or -1 if the atlas lacks it
+     */
+    int indexOf(char c) {
+        if (c < FIRST || c > LAST) {
+            return -1;
+        }
+        int index = c - FIRST;
+        return present[index] ? index : -1;
+    }
+
+    public float getLineHeight() {
+        return lineHeight;
+    }
+
+    public Texture getTexture() {
+        return texture;
+    }
+}
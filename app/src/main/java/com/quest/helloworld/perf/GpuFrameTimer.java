@@ -0,0 +1,87 @@
+package com.quest.helloworld.perf;
+
+import android.util.Log;
+
+import com.jme3.renderer.Renderer;
+
+/**
+ * Measures GPU time per frame with the renderer's timer queries.
+ *
+ * Queries are read back a few frames later so the CPU never waits for the
+ * GPU; a frame whose query slot is still busy is simply not measured.
+ * Drivers without timer query support (GL_EXT_disjoint_timer_query on
+ * GLES) make {@link #isSupported()} false rather than failing.
+ */
+public class GpuFrameTimer {
+
+    private static final String TAG = "GpuFrameTimer";
+
+    // Frames between issuing a query and reading it back
+    private static final int LATENCY = 4;
+
+    private final Renderer renderer;
+    private final SampleWindow gpuMs;
+    private int[] tasks;
+    private final boolean[] pending = new boolean[LATENCY];
+    private int slot = 0;
+    private boolean running = false;
+    private boolean supported = true;
+
+    public GpuFrameTimer(Renderer renderer, int windowSize) {
+        this.renderer = renderer;
+        this.gpuMs = new SampleWindow(windowSize);
+    }
+
+    /**
+     * Start timing the frame's GPU work. Call on the GL thread before rendering.
+     */
+    public void begin() {
+        if (!supported) {
+            return;
+        }
+        try {
+            if (tasks == null) {
+                tasks = renderer.generateProfilingTasks(LATENCY);
+            }
+            if (pending[slot]) {
+                if (!renderer.isTaskResultAvailable(tasks[slot])) {
+                    return;
+                }
+                gpuMs.add(renderer.getProfilingTime(tasks[slot]) * 1e-6f);
+                pending[slot] = false;
+            }
+            renderer.startProfiling(tasks[slot]);
+            running = true;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "GPU timer queries unavailable: " + e.getMessage());
+            supported = false;
+        }
+    }
+
+    /**
+     * Stop timing. Call on the GL thread after rendering.
+     */
+    public void end() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            renderer.stopProfiling();
+            pending[slot] = true;
+            slot = (slot + 1) % LATENCY;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "GPU timer queries unavailable: " + e.getMessage());
+            supported = false;
+        }
+    }
+
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /** GPU milliseconds of recent frames. */
+    public SampleWindow getGpuTimes() {
+        return gpuMs;
+    }
+}
@@ -0,0 +1,101 @@
+package com.quest.helloworld.perf;
+
+/**
+ * Fixed-capacity line of HUD text, formatted without allocating.
+ * Characters past the capacity are dropped.
+ */
+public final class HudLine {
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000};
+
+    private final char[] chars;
+    private int length = 0;
+
+    public HudLine(int capacity) {
+        chars = new char[capacity];
+    }
+
+    public HudLine clear() {
+        length = 0;
+        return this;
+    }
+
+    public HudLine append(char c) {
+        if (length < chars.length) {
+            chars[length++] = c;
+        }
+        return this;
+    }
+
+    public HudLine append(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            append(s.charAt(i));
+        }
+        return this;
+    }
+
+    public HudLine append(long value) {
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        int start = length;
+        do {
+            append((char) ('0' + value % 10));
+            value /= 10;
+        } while (value > 0);
+        // Digits were written least significant first
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char t = chars[i];
+            chars[i] = chars[j];
+            chars[j] = t;
+        }
+        return this;
+    }
+
+    /**
+     * @param decimals 0 to 4 digits after the point
+     */
+    public HudLine append(float value, int decimals) {
+        if (Float.isNaN(value)) {
+            return append("-");
+        }
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            append('-');
+        }
+        append(scaled / scale);
+        if (decimals > 0) {
+            append('.');
+            long fraction = scaled % scale;
+            for (long digit = scale / 10; digit > 0; digit /= 10) {
+                append((char) ('0' + fraction / digit % 10));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Pad with spaces up to the given column.
+     */
+    public HudLine padTo(int column) {
+        while (length < column && length < chars.length) {
+            chars[length++] = ' ';
+        }
+        return this;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int index) {
+        return chars[index];
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
@@ -0,0 +1,160 @@
+package com.quest.helloworld.perf;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * One mesh holding a block of text as textured, vertex-coloured quads - a
+ * single draw call however many lines it shows.
+ *
+ * Buffers are sized once for a maximum glyph count. Rewriting the text
+ * refills them in place and shrinks their limits to the glyphs in use, so
+ * only those are uploaded and drawn.
+ *
+ * Text is laid out in the XY plane from the origin rightwards and
+ * downwards, facing +Z.
+ */
+public class HudTextMesh extends Mesh {
+
+    private final GlyphAtlas atlas;
+    private final int maxGlyphs;
+    private final float scale;
+
+    private final FloatBuffer positions;
+    private final FloatBuffer texCoords;
+    private final ByteBuffer colors;
+    private final ShortBuffer indices;
+
+    private int glyphs = 0;
+    private float lineTop = 0f;
+    private float width = 0f;
+
+    /**
+     * @param lineHeight height of one line of text in world units
+     */
+    public HudTextMesh(GlyphAtlas atlas, int maxGlyphs, float lineHeight) {
+        if (maxGlyphs <= 0 || maxGlyphs * 4 > 65536) {
+            throw new IllegalArgumentException("maxGlyphs out of range: " + maxGlyphs);
+        }
+        this.atlas = atlas;
+        this.maxGlyphs = maxGlyphs;
+        this.scale = lineHeight / atlas.getLineHeight();
+
+        positions = BufferUtils.createFloatBuffer(maxGlyphs * 4 * 3);
+        texCoords = BufferUtils.createFloatBuffer(maxGlyphs * 4 * 2);
+        colors = BufferUtils.createByteBuffer(maxGlyphs * 4 * 4);
+        indices = BufferUtils.createShortBuffer(maxGlyphs * 6);
+        for (int i = 0; i < maxGlyphs; i++) {
+            short v = (short) (i * 4);
+            indices.put(v).put((short) (v + 1)).put((short) (v + 2))
+                    .put(v).put((short) (v + 2)).put((short) (v + 3));
+        }
+
+        setBuffer(VertexBuffer.Type.Position, 3, positions);
+        setBuffer(VertexBuffer.Type.TexCoord, 2, texCoords);
+        setBuffer(VertexBuffer.Type.Color, 4, VertexBuffer.Format.UnsignedByte, colors);
+        setBuffer(VertexBuffer.Type.Index, 3, indices);
+        getBuffer(VertexBuffer.Type.Color).setNormalized(true);
+        for (VertexBuffer.Type type : new VertexBuffer.Type[]{
+                VertexBuffer.Type.Position, VertexBuffer.Type.TexCoord, VertexBuffer.Type.Color}) {
+            getBuffer(type).setUsage(VertexBuffer.Usage.Dynamic);
+        }
+
+        begin();
+        end();
+    }
+
+    /**
+     * Start writing new text, discarding the old.
+     */
+    public void begin() {
+        glyphs = 0;
+        lineTop = 0f;
+        width = 0f;
+        positions.clear();
+        texCoords.clear();
+        colors.clear();
+    }
+
+    /**
+     * Append a line below the previous one. Glyphs beyond the mesh's
+     * capacity and characters missing from the atlas are skipped.
+     * @param rgba colour packed as 0xRRGGBBAA
+     */
+    public void addLine(HudLine line, int rgba) {
+        byte r = (byte) (rgba >>> 24);
+        byte g = (byte) (rgba >>> 16);
+        byte b = (byte) (rgba >>> 8);
+        byte a = (byte) rgba;
+
+        float x = 0f;
+        for (int i = 0; i < line.length() && glyphs < maxGlyphs; i++) {
+            int glyph = atlas.indexOf(line.charAt(i));
+            if (glyph < 0) {
+                continue;
+            }
+            float advance = atlas.xAdvance[glyph] * scale;
+            if (atlas.width[glyph] > 0f) {
+                float x0 = x + atlas.xOffset[glyph] * scale;
+                float x1 = x0 + atlas.width[glyph] * scale;
+                float y0 = lineTop - atlas.yOffset[glyph] * scale;
+                float y1 = y0 - atlas.height[glyph] * scale;
+
+                // Top left, bottom left, bottom right, top right - counter-clockwise from +Z
+                positions.put(x0).put(y0).put(0f);
+                positions.put(x0).put(y1).put(0f);
+                positions.put(x1).put(y1).put(0f);
+                positions.put(x1).put(y0).put(0f);
+                texCoords.put(atlas.u0[glyph]).put(atlas.v0[glyph]);
+                texCoords.put(atlas.u0[glyph]).put(atlas.v1[glyph]);
+                texCoords.put(atlas.u1[glyph]).put(atlas.v1[glyph]);
+                texCoords.put(atlas.u1[glyph]).put(atlas.v0[glyph]);
+                for (int v = 0; v < 4; v++) {
+                    colors.put(r).put(g).put(b).put(a);
+                }
+                glyphs++;
+            }
+            x += advance;
+        }
+        width = Math.max(width, x);
+        lineTop -= atlas.getLineHeight() * scale;
+    }
+
+    /**
+     * Finish the text and flag the used part of each buffer for upload.
+     */
+    public void end() {
+        positions.flip();
+        texCoords.flip();
+        colors.flip();
+        indices.limit(glyphs * 6).rewind();
+
+        getBuffer(VertexBuffer.Type.Position).updateData(positions);
+        getBuffer(VertexBuffer.Type.TexCoord).updateData(texCoords);
+        getBuffer(VertexBuffer.Type.Color).updateData(colors);
+        getBuffer(VertexBuffer.Type.Index).updateData(indices);
+        updateCounts();
+        if (glyphs > 0) {
+            updateBound();
+        }
+    }
+
+    public int getGlyphCount() {
+        return glyphs;
+    }
+
+    /** Width of the widest line written since {@link #begin()}, in world units. */
+    public float getTextWidth() {
+        return width;
+    }
+
+    /** Height of the lines written since {@link #begin()}, in world units. */
+    public float getTextHeight() {
+        return -lineTop;
+    }
+}
@@ -0,0 +1,277 @@
+package com.quest.helloworld.perf;
+
+import android.os.Debug;
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.material.Material;
+import com.jme3.material.RenderState;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.quest.helloworld.vr.OpenXRBridge;
+
+/**
+ * In-headset performance HUD: frame time percentiles, CPU/GPU split, draw
+ * calls, triangles, GC count and quality tier.
+ *
+ * The text is one {@link HudTextMesh} - a single draw call - rebuilt from a
+ * fixed {@link GlyphAtlas} a few times per second; frames in between only
+ * move it. It draws over the scene without depth testing, either
+ * head-locked below the line of sight or world-locked where it was shown.
+ *
+ * Toggle it by holding both grips and pulling the left trigger. Frame
+ * times come from the {@link FrameProfilerState}, which must be attached.
+ */
+public class PerfHudState extends AbstractAppState {
+
+    private static final String TAG = "PerfHud";
+
+    public enum Placement {
+        HEAD_LOCKED,
+        WORLD_LOCKED
+    }
+
+    // Text refresh rate - fast enough to read trends, slow enough to cost nothing
+    private static final float REFRESH_INTERVAL = 0.25f;
+    private static final float FRAME_BUDGET_MS = 1000f / 72f;
+    private static final int MAX_GLYPHS = 320;
+    private static final int LINE_CAPACITY = 48;
+    // Percentiles over the last two seconds - sorting the profiler's whole window would cost a hitch
+    private static final int PERCENTILE_WINDOW = 144;
+
+    // 1.2 cm lines, 0.7 m in front of and slightly below the eyes
+    private static final float LINE_HEIGHT = 0.012f;
+    private static final Vector3f HUD_OFFSET = new Vector3f(0f, -0.12f, 0.7f);
+
+    private static final int GREEN = 0x66FF66FF;
+    private static final int YELLOW = 0xFFDD44FF;
+    private static final int RED = 0xFF5544FF;
+    private static final int WHITE = 0xE0E0E0FF;
+
+    private final OpenXRBridge bridge;
+    private final Node parent;
+    private final Node hudNode = new Node("PerfHud");
+    private final HudLine line = new HudLine(LINE_CAPACITY);
+    private final SampleWindow recentFrames = new SampleWindow(PERCENTILE_WINDOW);
+
+    private Placement placement = Placement.HEAD_LOCKED;
+    private volatile String qualityTier = "-";
+    private boolean visible = false;
+    private boolean comboHeld = false;
+
+    private FrameProfiler profiler;
+    private GpuFrameTimer gpuTimer;
+    private HudTextMesh text;
+    private Geometry geometry;
+    private float refreshTimer = REFRESH_INTERVAL;
+    private long gcBaseline = -1;
+
+    // Head pose scratch, so placing the HUD doesn't allocate
+    private final Vector3f headPosition = new Vector3f();
+    private final Quaternion headRotation = new Quaternion();
+    private final Quaternion facing = new Quaternion();
+    private final Vector3f offset = new Vector3f();
+    private static final Quaternion TURN_AROUND = new Quaternion().fromAngleAxis(FastMath.PI, Vector3f.UNIT_Y);
+
+    /**
+     * @param bridge source of controller buttons for the toggle combo, or null for none
+     * @param parent node the HUD is attached under, normally the root node
+     */
+    public PerfHudState(OpenXRBridge bridge, Node parent) {
+        this.bridge = bridge;
+        this.parent = parent;
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+
+        profiler = stateManager.getState(FrameProfilerState.class).getProfiler();
+        gpuTimer = new GpuFrameTimer(app.getRenderer(), 72);
+
+        GlyphAtlas atlas = new GlyphAtlas(app.getAssetManager().loadFont("Interface/Fonts/Default.fnt"));
+        text = new HudTextMesh(atlas, MAX_GLYPHS, LINE_HEIGHT);
+
+        Material material = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+        material.setTexture("ColorMap", atlas.getTexture());
+        material.setBoolean("VertexColor", true);
+        material.getAdditionalRenderState().setBlendMode(RenderState.BlendMode.Alpha);
+        material.getAdditionalRenderState().setDepthTest(false);
+        material.getAdditionalRenderState().setDepthWrite(false);
+
+        geometry = new Geometry("PerfHudText", text);
+        geometry.setMaterial(material);
+        geometry.setQueueBucket(RenderQueue.Bucket.Transparent);
+        hudNode.attachChild(geometry);
+
+        // Stays attached while hidden so shader warm-up sees its material
+        hudNode.setCullHint(visible ? Spatial.CullHint.Never : Spatial.CullHint.Always);
+        parent.attachChild(hudNode);
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+
+        if (bridge != null && bridge.isInitialized()) {
+            boolean held = bridge.isGripPressed(0) && bridge.isGripPressed(1) && bridge.isTriggerPressed(0);
+            if (held && !comboHeld) {
+                setVisible(!visible);
+            }
+            comboHeld = held;
+        }
+        if (!visible) {
+            return;
+        }
+
+        if (profiler.getFrameTimes().getCount() > 0) {
+            recentFrames.add(profiler.getFrameTimes().getLast());
+        }
+        refreshTimer += tpf;
+        if (refreshTimer >= REFRESH_INTERVAL) {
+            refreshTimer = 0f;
+            refreshText();
+        }
+    }
+
+    @Override
+    public void render(RenderManager rm) {
+        super.render(rm);
+        if (visible) {
+            gpuTimer.begin();
+        }
+    }
+
+    @Override
+    public void postRender() {
+        super.postRender();
+        gpuTimer.end();
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        hudNode.removeFromParent();
+    }
+
+    /**
+     * Report the head pose the HUD follows. Call every frame before the
+     * scene's geometric state is updated.
+     * @param position eye-centre position
+     * @param cameraRotation rotation of the cameras, looking down +Z
+     */
+    public void setHeadPose(Vector3f position, Quaternion cameraRotation) {
+        headPosition.set(position);
+        headRotation.set(cameraRotation);
+        if (visible && placement == Placement.HEAD_LOCKED) {
+            placeInFront();
+        }
+    }
+
+    private void placeInFront() {
+        headRotation.mult(HUD_OFFSET, offset);
+        offset.addLocal(headPosition);
+        // Text faces +Z, so turn it around to face the viewer, then centre it
+        headRotation.mult(TURN_AROUND, facing);
+        hudNode.setLocalRotation(facing);
+        hudNode.setLocalTranslation(offset);
+        geometry.setLocalTranslation(-text.getTextWidth() / 2f, text.getTextHeight() / 2f, 0f);
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+        recentFrames.clear();
+        hudNode.setCullHint(visible ? Spatial.CullHint.Never : Spatial.CullHint.Always);
+        if (visible) {
+            refreshTimer = REFRESH_INTERVAL;
+            if (text != null) {
+                refreshText();
+                // World-locked HUDs appear where the user is looking and stay there
+                placeInFront();
+            }
+        }
+        Log.i(TAG, visible ? "HUD shown" : "HUD hidden");
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void setPlacement(Placement placement) {
+        this.placement = placement;
+    }
+
+    /**
+     * Label for the current quality tier, shown on the HUD. May be called from any thread.
+     */
+    public void setQualityTier(String tier) {
+        qualityTier = tier;
+    }
+
+    private void refreshText() {
+        float p50 = recentFrames.getPercentile(50);
+        float p95 = recentFrames.getPercentile(95);
+        float p99 = recentFrames.getPercentile(99);
+
+        text.begin();
+
+        line.clear().append("FRAME  p50 ").append(p50, 2).append("  p95 ").append(p95, 2)
+                .append("  p99 ").append(p99, 2).append(" ms");
+        text.addLine(line, p99 > FRAME_BUDGET_MS ? RED : p95 > FRAME_BUDGET_MS * 0.8f ? YELLOW : GREEN);
+
+        line.clear().append("CPU    ").append(recentFrames.getMean(), 2).append(" ms  (upd ")
+                .append(profiler.getUpdateTimes().getMean(), 2).append(" cull ")
+                .append(profiler.getCullTimes().getMean(), 2).append(" sub ")
+                .append(profiler.getSubmitTimes().getMean(), 2).append(')');
+        text.addLine(line, WHITE);
+
+        line.clear().append("GPU    ");
+        if (gpuTimer.isSupported() && gpuTimer.getGpuTimes().getCount() > 0) {
+            line.append(gpuTimer.getGpuTimes().getMean(), 2).append(" ms");
+        } else {
+            line.append("n/a");
+        }
+        text.addLine(line, WHITE);
+
+        line.clear().append("DRAWS  ").append(profiler.getLastDrawCalls())
+                .append("   TRIS ").append(profiler.getLastTriangles());
+        text.addLine(line, WHITE);
+
+        long gcCount = gcCount();
+        line.clear().append("GC     ");
+        if (gcCount >= 0) {
+            if (gcBaseline < 0) {
+                gcBaseline = gcCount;
+            }
+            line.append(gcCount - gcBaseline).append(" since shown");
+        } else {
+            line.append("n/a");
+        }
+        text.addLine(line, gcCount > gcBaseline && gcBaseline >= 0 ? YELLOW : WHITE);
+
+        line.clear().append("TIER   ").append(qualityTier);
+        text.addLine(line, WHITE);
+
+        text.end();
+    }
+
+    /**
+     * @return collections run by the runtime since start, or -1 if unknown
+     */
+    private static long gcCount() {
+        try {
+            String count = Debug.getRuntimeStat("art.gc.gc-count");
+            return count != null ? Long.parseLong(count) : -1;
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+}
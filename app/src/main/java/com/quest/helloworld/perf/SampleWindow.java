@@ -0,0 +1,108 @@
+package com.quest.helloworld.perf;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring buffer of float samples with percentile queries.
+ *
+ * Adding a sample never allocates. Percentiles sort a scratch copy that is
+ * allocated once, so they are cheap enough to query a few times per second.
+ */
+public class SampleWindow {
+
+    private final float[] samples;
+    private final float[] sorted;
+    private int count = 0;
+    private int next = 0;
+    private boolean sortedValid = false;
+
+    /**
+     * @param capacity number of most recent samples kept
+     */
+    public SampleWindow(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.samples = new float[capacity];
+        this.sorted = new float[capacity];
+    }
+
+    public void add(float value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        sortedValid = false;
+    }
+
+    public void clear() {
+        count = 0;
+        next = 0;
+        sortedValid = false;
+    }
+
+    public int getCapacity() {
+        return samples.length;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the most recently added sample, or 0 if empty
+     */
+    public float getLast() {
+        if (count == 0) {
+            return 0f;
+        }
+        return samples[(next - 1 + samples.length) % samples.length];
+    }
+
+    public float getMean() {
+        if (count == 0) {
+            return 0f;
+        }
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return (float) (sum / count);
+    }
+
+    public float getStandardDeviation() {
+        if (count == 0) {
+            return 0f;
+        }
+        double mean = getMean();
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            double d = samples[i] - mean;
+            sum += d * d;
+        }
+        return (float) Math.sqrt(sum / count);
+    }
+
+    public float getMax() {
+        return getPercentile(100f);
+    }
+
+    /**
+     * Nearest-rank percentile of the samples in the window.
+     * @param percentile 0 to 100
+     * @return the sample value, or 0 if empty
+     */
+    public float getPercentile(float percentile) {
+        if (count == 0) {
+            return 0f;
+        }
+        if (!sortedValid) {
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            sortedValid = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100f * count);
+        return sorted[Math.min(Math.max(rank - 1, 0), count - 1)];
+    }
+}
@@ -0,0 +1,339 @@
+package com.quest.helloworld.post;
+
+import android.util.Log;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.post.SceneProcessor;
+import com.jme3.profile.AppProfiler;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.Caps;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.texture.FrameBuffer;
+import com.jme3.texture.FrameBuffer.FrameBufferTarget;
+import com.jme3.texture.Image.Format;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.ui.Picture;
+import com.quest.helloworld.asset.GeneratedAssetLocator;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Bloom, tone mapping and vignette in one full-screen pass for both eyes.
+ *
+ * Both eye viewports draw into one shared side-by-side target instead of
+ * the screen. After the right eye, the bloom chain halves that target a
+ * few times and adds the levels back up - all of it at half resolution or
+ * less, over both eyes at once - and a composite shader generated for the
+ * enabled effects ({@link PostShaders}) writes the result to the screen.
+ * Shaders clamp their taps at the eye boundary, so the eyes don't bleed
+ * into each other. A mono view works the same with one viewport.
+ *
+ * {@link #summary()} reports the passes and estimated memory traffic
+ * ({@link PostPassPlan}) against stock filters on each eye's viewport.
+ */
+public class FusedPostProcessor implements SceneProcessor {
+
+    private static final String TAG = "FusedPost";
+
+    private final AssetManager assetManager;
+    private final PostStackConfig config;
+    private final List<ViewPort> views = new ArrayList<>(2);
+    private final Picture quad = new Picture("Post quad");
+
+    private RenderManager renderManager;
+    private FrameBuffer output;
+    private float eyeSplit;
+
+    private FrameBuffer sceneBuffer;
+    private Texture2D sceneTexture;
+    private Camera fullCam;
+    private FrameBuffer[] bloomBuffers = new FrameBuffer[0];
+    private Texture2D[] bloomTextures = new Texture2D[0];
+    private Camera[] bloomCams = new Camera[0];
+    private Material prefilter;
+    private Material[] downsample = new Material[0];
+    private Material[] upsample = new Material[0];
+    private Material composite;
+    private PostPassPlan plan;
+
+    // Statistics
+    private int frames = 0;
+    private long nanos = 0;
+
+    public FusedPostProcessor(AssetManager assetManager, PostStackConfig config) {
+        this.assetManager = assetManager;
+        this.config = config;
+        GeneratedAssetLocator.register(assetManager);
+        quad.setWidth(1f);
+        quad.setHeight(1f);
+        quad.updateGeometricState();
+    }
+
+    /**
+     * Add the processor to the eye viewports. Add it after any processor
+     * that draws into the scene, like shadows, so their output is included.
+     * @param rightEye the right eye's viewport, or null for a single view
+     */
+    public void attach(ViewPort leftEye, ViewPort rightEye) {
+        views.add(leftEye);
+        if (rightEye != null) {
+            views.add(rightEye);
+            leftEye.addProcessor(new TargetPass());
+            rightEye.addProcessor(this);
+        } else {
+            leftEye.addProcessor(this);
+        }
+    }
+
+    /**
+     * Create the targets on the first viewport that renders, and point
+     * every eye at the shared one.
+     */
+    private void setup(RenderManager rm) {
+        if (renderManager != null) {
+            return;
+        }
+        renderManager = rm;
+        ViewPort last = views.get(views.size() - 1);
+        output = last.getOutputFrameBuffer();
+        // The right eye starts where its viewport does
+        eyeSplit = views.size() > 1 ? last.getCamera().getViewPortLeft() : 0f;
+        createTargets(last.getCamera().getWidth(), last.getCamera().getHeight());
+        Log.i(TAG, "Fused post stack: " + plan.summary());
+    }
+
+    private void createTargets(int width, int height) {
+        EnumSet<Caps> caps = renderManager.getRenderer().getCaps();
+        // Half-float range in 4 bytes, where the GPU can render to it
+        Format format = caps.contains(Caps.PackedFloatColorBuffer) && caps.contains(Caps.PackedFloatTexture)
+                ? Format.RGB111110F : Format.RGBA8;
+
+        sceneTexture = target(width, height, format);
+        sceneBuffer = new FrameBuffer(width, height, 1);
+        sceneBuffer.setDepthTarget(FrameBufferTarget.newTarget(Format.Depth));
+        sceneBuffer.addColorTarget(FrameBufferTarget.newTarget(sceneTexture));
+        fullCam = new Camera(width, height);
+        for (ViewPort view : views) {
+            view.setOutputFrameBuffer(sceneBuffer);
+        }
+
+        composite = material(PostShaders.composite(config), sceneTexture, width, height);
+        if (config.isBloomEnabled()) {
+            int levels = config.getBloomLevels();
+            bloomBuffers = new FrameBuffer[levels];
+            bloomTextures = new Texture2D[levels];
+            bloomCams = new Camera[levels];
+            for (int i = 0; i < levels; i++) {
+                int w = PostPassPlan.bloomWidth(width, i);
+                int h = PostPassPlan.bloomHeight(height, i);
+                bloomTextures[i] = target(w, h, format);
+                bloomBuffers[i] = new FrameBuffer(w, h, 1);
+                bloomBuffers[i].addColorTarget(FrameBufferTarget.newTarget(bloomTextures[i]));
+                bloomCams[i] = new Camera(w, h);
+            }
+
+            prefilter = material(PostShaders.prefilter(), sceneTexture, width, height);
+            prefilter.setFloat("Threshold", config.getBloomThreshold());
+            prefilter.setFloat("Knee", config.getBloomThreshold() * config.getBloomKnee());
+            downsample = new Material[levels];
+            upsample = new Material[levels];
+            for (int i = 1; i < levels; i++) {
+                downsample[i] = material(PostShaders.downsample(), bloomTextures[i - 1],
+                        bloomCams[i - 1].getWidth(), bloomCams[i - 1].getHeight());
+            }
+            for (int i = 0; i < levels - 1; i++) {
+                upsample[i] = material(PostShaders.upsample(), bloomTextures[i + 1],
+                        bloomCams[i + 1].getWidth(), bloomCams[i + 1].getHeight());
+            }
+            composite.setTexture("BloomTex", bloomTextures[0]);
+            composite.setFloat("BloomIntensity", config.getBloomIntensity());
+        }
+        if (config.isToneMapEnabled()) {
+            float white = config.getWhitePoint();
+            composite.setFloat("Exposure", config.getExposure());
+            composite.setVector3("WhitePoint", new Vector3f(white, white, white));
+        }
+        if (config.isVignetteEnabled()) {
+            composite.setFloat("VignetteStrength", config.getVignetteStrength());
+            composite.setFloat("VignetteRadius", config.getVignetteRadius());
+        }
+        plan = PostPassPlan.fused(width, height, config);
+    }
+
+    private static Texture2D target(int width, int height, Format format) {
+        Texture2D texture = new Texture2D(width, height, format);
+        texture.setMinFilter(Texture.MinFilter.BilinearNoMipMaps);
+        texture.setMagFilter(Texture.MagFilter.Bilinear);
+        texture.setWrap(Texture.WrapMode.EdgeClamp);
+        return texture;
+    }
+
+    /**
+     * @param width size of the input, for its texel size
+     */
+    private Material material(String def, Texture2D input, int width, int height) {
+        Material material = new Material(assetManager, def);
+        material.setTexture("Texture", input);
+        material.setFloat("EyeSplit", eyeSplit);
+        if (material.getMaterialDef().getMaterialParam("TexelSize") != null) {
+            material.setVector2("TexelSize", new Vector2f(1f / width, 1f / height));
+        }
+        return material;
+    }
+
+    private void disposeTargets() {
+        sceneBuffer.dispose();
+        sceneTexture.getImage().dispose();
+        for (int i = 0; i < bloomBuffers.length; i++) {
+            bloomBuffers[i].dispose();
+            bloomTextures[i].getImage().dispose();
+        }
+    }
+
+    @Override
+    public void initialize(RenderManager rm, ViewPort vp) {
+        setup(rm);
+    }
+
+    @Override
+    public void reshape(ViewPort vp, int w, int h) {
+        if (renderManager == null || (w == fullCam.getWidth() && h == fullCam.getHeight())) {
+            return;
+        }
+        disposeTargets();
+        createTargets(w, h);
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return renderManager != null;
+    }
+
+    @Override
+    public void preFrame(float tpf) {
+    }
+
+    @Override
+    public void postQueue(RenderQueue rq) {
+    }
+
+    @Override
+    public void postFrame(FrameBuffer out) {
+        long start = System.nanoTime();
+        int levels = bloomBuffers.length;
+        if (levels > 0) {
+            pass(bloomBuffers[0], bloomCams[0], prefilter);
+            for (int i = 1; i < levels; i++) {
+                pass(bloomBuffers[i], bloomCams[i], downsample[i]);
+            }
+            // Each level blurred and added onto the next larger one
+            for (int i = levels - 2; i >= 0; i--) {
+                pass(bloomBuffers[i], bloomCams[i], upsample[i]);
+            }
+        }
+        pass(output, fullCam, composite);
+        frames++;
+        nanos += System.nanoTime() - start;
+    }
+
+    private void pass(FrameBuffer target, Camera cam, Material material) {
+        renderManager.getRenderer().setFrameBuffer(target);
+        renderManager.setCamera(cam, true);
+        quad.setMaterial(material);
+        renderManager.renderGeometry(quad);
+    }
+
+    @Override
+    public void cleanup() {
+        if (renderManager == null) {
+            return;
+        }
+        for (ViewPort view : views) {
+            view.setOutputFrameBuffer(output);
+        }
+        disposeTargets();
+        renderManager = null;
+    }
+
+    @Override
+    public void setProfiler(AppProfiler profiler) {
+    }
+
+    /** Passes and estimated traffic per frame, once the processor has initialized. */
+    public PostPassPlan getPlan() {
+        return plan;
+    }
+
+    /** The same effects as stock filters on each eye's viewport. */
+    public PostPassPlan getPerViewportPlan() {
+        int eyes = views.size();
+        return PostPassPlan.perViewport(fullCam.getWidth() / eyes, fullCam.getHeight(), eyes, config);
+    }
+
+    /** CPU time spent issuing the post passes, over all frames. */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    public String summary() {
+        if (plan == null) {
+            return "Post: not initialized";
+        }
+        PostPassPlan stock = getPerViewportPlan();
+        return String.format("Post: %s; vs %s; saved %.1f MB/frame; CPU %.3f ms/frame",
+                plan.summary(), stock.summary(), (stock.getBytes() - plan.getBytes()) / (1024f * 1024f),
+                frames > 0 ? nanos * 1e-6f / frames : 0f);
+    }
+
+    /**
+     * Sends the left eye into the shared target.
+     */
+    private class TargetPass implements SceneProcessor {
+
+        @Override
+        public void initialize(RenderManager rm, ViewPort vp) {
+            setup(rm);
+        }
+
+        @Override
+        public void reshape(ViewPort vp, int w, int h) {
+        }
+
+        @Override
+        public boolean isInitialized() {
+            return renderManager != null;
+        }
+
+        @Override
+        public void preFrame(float tpf) {
+        }
+
+        @Override
+        public void postQueue(RenderQueue rq) {
+        }
+
+        @Override
+        public void postFrame(FrameBuffer out) {
+        }
+
+        @Override
+        public void cleanup() {
+        }
+
+        @Override
+        public void setProfiler(AppProfiler profiler) {
+        }
+    }
+}
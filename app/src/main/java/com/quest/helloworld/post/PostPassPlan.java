@@ -0,0 +1,161 @@
+package com.quest.helloworld.post;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The full-screen passes a post stack runs per frame, and the memory
+ * traffic they cost - the figure that matters on a tiled mobile GPU,
+ * where every pass writes its target out to memory and reads its inputs
+ * back in.
+ *
+ * Traffic is estimated as every input texture read once and the target
+ * written once, at 4 bytes per pixel; blending targets are read as well.
+ * Texture caches make repeated taps nearly free, so tap counts are left out.
+ */
+public class PostPassPlan {
+
+    public static final int BYTES_PER_PIXEL = 4;
+
+    /** One full-screen pass. */
+    public static final class Pass {
+        private final String name;
+        private final int width;
+        private final int height;
+        private final long pixelsRead;
+
+        Pass(String name, int width, int height, long pixelsRead) {
+            this.name = name;
+            this.width = width;
+            this.height = height;
+            this.pixelsRead = pixelsRead;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public long getBytes() {
+            return (pixelsRead + (long) width * height) * BYTES_PER_PIXEL;
+        }
+    }
+
+    private final String name;
+    private final int fullWidth;
+    private final int fullHeight;
+    private final List<Pass> passes = new ArrayList<>();
+
+    private PostPassPlan(String name, int fullWidth, int fullHeight) {
+        this.name = name;
+        this.fullWidth = fullWidth;
+        this.fullHeight = fullHeight;
+    }
+
+    /**
+     * The fused stack over a whole target - both eyes side by side, or one view.
+     */
+    public static PostPassPlan fused(int width, int height, PostStackConfig config) {
+        PostPassPlan plan = new PostPassPlan("fused", width, height);
+        long full = (long) width * height;
+        long bloomRead = 0;
+        if (config.isBloomEnabled()) {
+            int levels = config.getBloomLevels();
+            plan.add("bloom prefilter", bloomWidth(width, 0), bloomHeight(height, 0), full);
+            for (int i = 1; i < levels; i++) {
+                plan.add("bloom down " + i, bloomWidth(width, i), bloomHeight(height, i),
+                        bloomPixels(width, height, i - 1));
+            }
+            for (int i = levels - 2; i >= 0; i--) {
+                // Additive, so the target is read too
+                plan.add("bloom up " + i, bloomWidth(width, i), bloomHeight(height, i),
+                        bloomPixels(width, height, i + 1) + bloomPixels(width, height, i));
+            }
+            bloomRead = bloomPixels(width, height, 0);
+        }
+        plan.add("composite", width, height, full + bloomRead);
+        return plan;
+    }
+
+    /**
+     * Stock FilterPostProcessor filters for the same effects - BloomFilter,
+     * ToneMapFilter and a vignette filter - on each eye's viewport.
+     */
+    public static PostPassPlan perViewport(int eyeWidth, int eyeHeight, int eyes, PostStackConfig config) {
+        PostPassPlan plan = new PostPassPlan("per-viewport filters", eyeWidth, eyeHeight);
+        long full = (long) eyeWidth * eyeHeight;
+        for (int eye = 0; eye < eyes; eye++) {
+            String prefix = eyes > 1 ? (eye == 0 ? "left " : "right ") : "";
+            if (config.isBloomEnabled()) {
+                // BloomFilter at its default full resolution
+                plan.add(prefix + "bloom extract", eyeWidth, eyeHeight, full);
+                plan.add(prefix + "bloom blur h", eyeWidth, eyeHeight, full);
+                plan.add(prefix + "bloom blur v", eyeWidth, eyeHeight, full);
+                plan.add(prefix + "bloom combine", eyeWidth, eyeHeight, 2 * full);
+            }
+            if (config.isToneMapEnabled()) {
+                plan.add(prefix + "tone map", eyeWidth, eyeHeight, full);
+            }
+            if (config.isVignetteEnabled()) {
+                plan.add(prefix + "vignette", eyeWidth, eyeHeight, full);
+            }
+        }
+        return plan;
+    }
+
+    static int bloomWidth(int width, int level) {
+        return Math.max(1, width >> (level + 1));
+    }
+
+    static int bloomHeight(int height, int level) {
+        return Math.max(1, height >> (level + 1));
+    }
+
+    private static long bloomPixels(int width, int height, int level) {
+        return (long) bloomWidth(width, level) * bloomHeight(height, level);
+    }
+
+    private void add(String pass, int width, int height, long pixelsRead) {
+        passes.add(new Pass(pass, width, height, pixelsRead));
+    }
+
+    public List<Pass> getPasses() {
+        return Collections.unmodifiableList(passes);
+    }
+
+    public int getPassCount() {
+        return passes.size();
+    }
+
+    /** Passes that cover the plan's full resolution. */
+    public int getFullResolutionPasses() {
+        int count = 0;
+        for (Pass pass : passes) {
+            if (pass.width >= fullWidth && pass.height >= fullHeight) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getBytes() {
+        long bytes = 0;
+        for (Pass pass : passes) {
+            bytes += pass.getBytes();
+        }
+        return bytes;
+    }
+
+    public String summary() {
+        return String.format("%s: %d passes/frame, %d at full resolution, %.1f MB/frame",
+                name, getPassCount(), getFullResolutionPasses(), getBytes() / (1024f * 1024f));
+    }
+}
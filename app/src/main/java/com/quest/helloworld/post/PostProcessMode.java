@@ -0,0 +1,13 @@
+package com.quest.helloworld.post;
+
+/**
+ * How bloom, tone mapping and vignette are applied.
+ */
+public enum PostProcessMode {
+    /** No post-processing. */
+    OFF,
+    /** Stock FilterPostProcessor filters on each eye viewport, one pass per filter per eye. */
+    PER_VIEWPORT,
+    /** One {@link FusedPostProcessor} over both eyes. */
+    FUSED
+}
@@ -0,0 +1,204 @@
+package com.quest.helloworld.post;
+
+import com.quest.helloworld.asset.GeneratedAssetLocator;
+
+/**
+ * Generates the post-processing material definitions and fragment
+ * shaders, and publishes them through {@link GeneratedAssetLocator}.
+ *
+ * The composite shader is assembled from the effects a
+ * {@link PostStackConfig} enables, in a fixed order - add bloom, tone map,
+ * vignette - so the whole stack is one full-screen pass. Each effect
+ * contributes its uniforms, helper functions and one block of main().
+ * The bloom chain's downsample and upsample shaders are fixed.
+ *
+ * Every shader knows about side-by-side stereo targets: with EyeSplit set
+ * to the right eye's first u coordinate, blur taps are clamped to the eye
+ * being shaded and the vignette is centered on each eye.
+ */
+public final class PostShaders {
+
+    private static final String ROOT = GeneratedAssetLocator.ROOT + "Post/";
+    private static final String VERTEX_SHADER = "Common/MatDefs/Post/Post.vert";
+
+    private static final String HEADER =
+            "#import \"Common/ShaderLib/GLSLCompat.glsllib\"\n"
+            + "\n"
+            + "uniform sampler2D m_Texture;\n"
+            + "uniform float m_EyeSplit;\n"
+            + "varying vec2 texCoord;\n";
+
+    // Keeps a tap inside the eye the fragment belongs to
+    private static final String EYE_CLAMP =
+            "uniform vec2 m_TexelSize;\n"
+            + "\n"
+            + "vec2 eyeClamp(vec2 uv) {\n"
+            + "    if (m_EyeSplit > 0.0) {\n"
+            + "        float lo = texCoord.x < m_EyeSplit ? 0.0 : m_EyeSplit;\n"
+            + "        float hi = texCoord.x < m_EyeSplit ? m_EyeSplit : 1.0;\n"
+            + "        uv.x = clamp(uv.x, lo + 0.5 * m_TexelSize.x, hi - 0.5 * m_TexelSize.x);\n"
+            + "    }\n"
+            + "    return uv;\n"
+            + "}\n"
+            + "\n"
+            // Four bilinear taps a texel out: a 4x4 box filter
+            + "vec3 box4(vec2 uv) {\n"
+            + "    vec4 d = m_TexelSize.xyxy * vec4(-1.0, -1.0, 1.0, 1.0);\n"
+            + "    vec3 c = texture2D(m_Texture, eyeClamp(uv + d.xy)).rgb;\n"
+            + "    c += texture2D(m_Texture, eyeClamp(uv + d.zy)).rgb;\n"
+            + "    c += texture2D(m_Texture, eyeClamp(uv + d.xw)).rgb;\n"
+            + "    c += texture2D(m_Texture, eyeClamp(uv + d.zw)).rgb;\n"
+            + "    return c * 0.25;\n"
+            + "}\n";
+
+    private static final String PREFILTER =
+            "uniform float m_Threshold;\n"
+            + "uniform float m_Knee;\n"
+            + "\n"
+            // Soft-knee threshold, so bloom fades in instead of popping
+            + "vec3 prefilter(vec3 c) {\n"
+            + "    float brightness = max(c.r, max(c.g, c.b));\n"
+            + "    float soft = clamp(brightness - m_Threshold + m_Knee, 0.0, 2.0 * m_Knee);\n"
+            + "    soft = soft * soft / (4.0 * m_Knee + 0.00001);\n"
+            + "    return c * (max(soft, brightness - m_Threshold) / max(brightness, 0.00001));\n"
+            + "}\n";
+
+    private static final String ADDITIVE =
+            "        RenderState {\n"
+            + "            Blend Additive\n"
+            + "            DepthTest Off\n"
+            + "            DepthWrite Off\n"
+            + "        }\n";
+
+    private static final String OPAQUE =
+            "        RenderState {\n"
+            + "            DepthTest Off\n"
+            + "            DepthWrite Off\n"
+            + "        }\n";
+
+    private PostShaders() {
+    }
+
+    /**
+     * Publish the composite for the effects the config enables.
+     * @return the material definition's asset name
+     */
+    public static String composite(PostStackConfig config) {
+        boolean bloom = config.isBloomEnabled();
+        boolean toneMap = config.isToneMapEnabled();
+        boolean vignette = config.isVignetteEnabled();
+        String name = ROOT + "Composite" + (bloom ? "B" : "") + (toneMap ? "T" : "") + (vignette ? "V" : "");
+
+        StringBuilder params = new StringBuilder("        Texture2D Texture\n        Float EyeSplit\n");
+        StringBuilder frag = new StringBuilder(HEADER);
+        StringBuilder main = new StringBuilder("void main() {\n    vec4 color = texture2D(m_Texture, texCoord);\n");
+        if (bloom) {
+            params.append("        Texture2D BloomTex\n        Float BloomIntensity\n");
+            frag.append("uniform sampler2D m_BloomTex;\n")
+                    .append("uniform float m_BloomIntensity;\n");
+            main.append("    color.rgb += texture2D(m_BloomTex, texCoord).rgb * m_BloomIntensity;\n");
+        }
+        if (toneMap) {
+            params.append("        Float Exposure\n        Vector3 WhitePoint\n");
+            frag.append("uniform float m_Exposure;\n")
+                    .append("uniform vec3 m_WhitePoint;\n")
+                    .append("\n")
+                    // The curve ToneMapFilter uses
+                    .append("vec3 filmic(vec3 x) {\n")
+                    .append("    return ((x * (0.22 * x + 0.03) + 0.002) / (x * (0.22 * x + 0.3) + 0.06)) - 0.0333333;\n")
+                    .append("}\n");
+            main.append("    color.rgb = filmic(color.rgb * m_Exposure) / filmic(m_WhitePoint);\n");
+        }
+        if (vignette) {
+            params.append("        Float VignetteStrength\n        Float VignetteRadius\n");
+            frag.append("uniform float m_VignetteStrength;\n")
+                    .append("uniform float m_VignetteRadius;\n");
+            main.append("    vec2 eyeCoord = texCoord;\n")
+                    .append("    if (m_EyeSplit > 0.0) {\n")
+                    .append("        float eye = step(m_EyeSplit, texCoord.x);\n")
+                    .append("        eyeCoord.x = (texCoord.x - eye * m_EyeSplit) / mix(m_EyeSplit, 1.0 - m_EyeSplit, eye);\n")
+                    .append("    }\n")
+                    .append("    float edge = smoothstep(m_VignetteRadius, 1.4142, length(eyeCoord * 2.0 - 1.0));\n")
+                    .append("    color.rgb *= 1.0 - m_VignetteStrength * edge;\n");
+        }
+        main.append("    gl_FragColor = color;\n}\n");
+        frag.append("\n").append(main);
+
+        publish(name, params.toString(), frag.toString(), OPAQUE);
+        return name + ".j3md";
+    }
+
+    /**
+     * Publish the bloom chain's first step: threshold and halve.
+     * @return the material definition's asset name
+     */
+    public static String prefilter() {
+        String name = ROOT + "BloomPrefilter";
+        publish(name,
+                "        Texture2D Texture\n        Float EyeSplit\n        Vector2 TexelSize\n"
+                        + "        Float Threshold\n        Float Knee\n",
+                HEADER + EYE_CLAMP + PREFILTER
+                        + "\nvoid main() {\n"
+                        + "    gl_FragColor = vec4(prefilter(box4(texCoord)), 1.0);\n"
+                        + "}\n",
+                OPAQUE);
+        return name + ".j3md";
+    }
+
+    /**
+     * Publish the bloom chain's downsample: halve with a box filter.
+     * @return the material definition's asset name
+     */
+    public static String downsample() {
+        String name = ROOT + "BloomDownsample";
+        publish(name,
+                "        Texture2D Texture\n        Float EyeSplit\n        Vector2 TexelSize\n",
+                HEADER + EYE_CLAMP
+                        + "\nvoid main() {\n"
+                        + "    gl_FragColor = vec4(box4(texCoord), 1.0);\n"
+                        + "}\n",
+                OPAQUE);
+        return name + ".j3md";
+    }
+
+    /**
+     * Publish the bloom chain's upsample: blur a level and add it onto
+     * the next larger one, which is the target.
+     * @return the material definition's asset name
+     */
+    public static String upsample() {
+        String name = ROOT + "BloomUpsample";
+        publish(name,
+                "        Texture2D Texture\n        Float EyeSplit\n        Vector2 TexelSize\n",
+                HEADER + EYE_CLAMP
+                        + "\nvoid main() {\n"
+                        + "    gl_FragColor = vec4(box4(texCoord), 1.0);\n"
+                        + "}\n",
+                ADDITIVE);
+        return name + ".j3md";
+    }
+
+    private static void publish(String name, String params, String frag, String renderState) {
+        String shortName = name.substring(name.lastIndexOf('/') + 1);
+        GeneratedAssetLocator.put(name + ".frag", frag);
+        GeneratedAssetLocator.put(name + ".j3md",
+                "MaterialDef " + shortName + " {\n"
+                        + "\n"
+                        + "    MaterialParameters {\n"
+                        // FilterPostProcessor sets it on every filter material, like the stock ones
+                        + "        Int NumSamples\n"
+                        + params
+                        + "    }\n"
+                        + "\n"
+                        + "    Technique {\n"
+                        + "        VertexShader GLSL300 GLSL150 GLSL100: " + VERTEX_SHADER + "\n"
+                        + "        FragmentShader GLSL300 GLSL150 GLSL100: " + name + ".frag\n"
+                        + "\n"
+                        + "        WorldParameters {\n"
+                        + "        }\n"
+                        + "\n"
+                        + renderState
+                        + "    }\n"
+                        + "}\n");
+    }
+}
@@ -0,0 +1,140 @@
+package com.quest.helloworld.post;
+
+/**
+ * Which post effects run and how strongly.
+ *
+ * Bloom extracts what is brighter than a threshold with a soft knee, and
+ * blurs it down a chain of half-size levels - the first at half the eye
+ * resolution - before adding it back. Tone mapping is the filmic curve
+ * jME's ToneMapFilter uses. The vignette darkens towards each eye's edge.
+ */
+public class PostStackConfig {
+
+    private final boolean bloom;
+    private final float bloomThreshold;
+    private final float bloomKnee;
+    private final float bloomIntensity;
+    private final int bloomLevels;
+    private final boolean toneMap;
+    private final float exposure;
+    private final float whitePoint;
+    private final boolean vignette;
+    private final float vignetteStrength;
+    private final float vignetteRadius;
+
+    private PostStackConfig(Builder builder) {
+        this.bloom = builder.bloom;
+        this.bloomThreshold = builder.bloomThreshold;
+        this.bloomKnee = builder.bloomKnee;
+        this.bloomIntensity = builder.bloomIntensity;
+        this.bloomLevels = Math.max(1, builder.bloomLevels);
+        this.toneMap = builder.toneMap;
+        this.exposure = builder.exposure;
+        this.whitePoint = builder.whitePoint;
+        this.vignette = builder.vignette;
+        this.vignetteStrength = builder.vignetteStrength;
+        this.vignetteRadius = builder.vignetteRadius;
+    }
+
+    public boolean isBloomEnabled() {
+        return bloom;
+    }
+
+    /** Brightness above which pixels bloom. */
+    public float getBloomThreshold() {
+        return bloomThreshold;
+    }
+
+    /** Width of the soft transition below the threshold, as a fraction of it. */
+    public float getBloomKnee() {
+        return bloomKnee;
+    }
+
+    public float getBloomIntensity() {
+        return bloomIntensity;
+    }
+
+    /** Levels in the downsample chain; level 0 is half the eye resolution. */
+    public int getBloomLevels() {
+        return bloomLevels;
+    }
+
+    public boolean isToneMapEnabled() {
+        return toneMap;
+    }
+
+    public float getExposure() {
+        return exposure;
+    }
+
+    /** Linear brightness mapped to white. */
+    public float getWhitePoint() {
+        return whitePoint;
+    }
+
+    public boolean isVignetteEnabled() {
+        return vignette;
+    }
+
+    /** How much the vignette darkens the edge of each eye, 0 to 1. */
+    public float getVignetteStrength() {
+        return vignetteStrength;
+    }
+
+    /** Distance from the eye's center, in half-widths, where the vignette starts. */
+    public float getVignetteRadius() {
+        return vignetteRadius;
+    }
+
+    /**
+     * Builder for creating PostStackConfig instances.
+     */
+    public static class Builder {
+        private boolean bloom = true;
+        private float bloomThreshold = 0.8f;
+        private float bloomKnee = 0.5f;
+        private float bloomIntensity = 0.8f;
+        private int bloomLevels = 3;            // 1/2, 1/4, 1/8
+        private boolean toneMap = true;
+        private float exposure = 1f;
+        private float whitePoint = 11.2f;       // ToneMapFilter's default
+        private boolean vignette = true;
+        private float vignetteStrength = 0.35f;
+        private float vignetteRadius = 0.6f;
+
+        public Builder setBloom(boolean enabled, float threshold, float intensity) {
+            this.bloom = enabled;
+            this.bloomThreshold = threshold;
+            this.bloomIntensity = intensity;
+            return this;
+        }
+
+        public Builder setBloomKnee(float knee) {
+            this.bloomKnee = knee;
+            return this;
+        }
+
+        public Builder setBloomLevels(int levels) {
+            this.bloomLevels = levels;
+            return this;
+        }
+
+        public Builder setToneMap(boolean enabled, float exposure, float whitePoint) {
+            this.toneMap = enabled;
+            this.exposure = exposure;
+            this.whitePoint = whitePoint;
+            return this;
+        }
+
+        public Builder setVignette(boolean enabled, float strength, float radius) {
+            this.vignette = enabled;
+            this.vignetteStrength = strength;
+            this.vignetteRadius = radius;
+            return this;
+        }
+
+        public PostStackConfig build() {
+            return new PostStackConfig(this);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.quest.helloworld.post;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.post.Filter;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.quest.helloworld.asset.GeneratedAssetLocator;
+
+/**
+ * The fused stack's vignette as a stock FilterPostProcessor filter, which
+ * jME doesn't ship, so the per-viewport mode runs the same effects.
+ */
+public class VignetteFilter extends Filter {
+
+    private final float strength;
+    private final float radius;
+    private Material material;
+
+    public VignetteFilter(float strength, float radius) {
+        super("VignetteFilter");
+        this.strength = strength;
+        this.radius = radius;
+    }
+
+    @Override
+    protected void initFilter(AssetManager manager, RenderManager renderManager, ViewPort vp, int w, int h) {
+        PostStackConfig vignetteOnly = new PostStackConfig.Builder()
+                .setBloom(false, 0f, 0f)
+                .setToneMap(false, 1f, 1f)
+                .setVignette(true, strength, radius)
+                .build();
+        GeneratedAssetLocator.register(manager);
+        material = new Material(manager, PostShaders.composite(vignetteOnly));
+        material.setFloat("EyeSplit", 0f);
+        material.setFloat("VignetteStrength", strength);
+        material.setFloat("VignetteRadius", radius);
+    }
+
+    @Override
+    protected Material getMaterial() {
+        return material;
+    }
+}
@@ -0,0 +1,72 @@
+package com.quest.helloworld.shader;
+
+import com.quest.helloworld.vr.OpenXRBridge;
+
+/**
+ * JNI access to glGetProgramBinary / glProgramBinary, which jME doesn't expose.
+ * Call only on the GL thread. When the native library is missing every
+ * method reports binaries as unsupported.
+ */
+public final class ProgramBinaries {
+
+    static {
+        // Shared with the bridge, which loads it once and logs if it's missing
+        OpenXRBridge.loadNativeLibrary();
+    }
+
+    private ProgramBinaries() {
+    }
+
+    /**
+     * Whether the driver can save and load program binaries.
+     */
+    public static boolean isSupported() {
+        try {
+            return nativeGetBinaryFormatCount() > 0;
+        } catch (UnsatisfiedLinkError e) {
+            return false;
+        }
+    }
+
+    /**
+     * GL vendor, renderer and version of the current context, or null without
+     * the native library. Changes whenever a driver update invalidates binaries.
+     */
+    public static String getDriverInfo() {
+        try {
+            return nativeGetDriverInfo();
+        } catch (UnsatisfiedLinkError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Retrieve a linked program's binary.
+     * @param formatOut receives the binary format in element 0
+     * @return the binary, or null if unavailable
+     */
+    public static byte[] getProgramBinary(int program, int[] formatOut) {
+        try {
+            return nativeGetProgramBinary(program, formatOut);
+        } catch (UnsatisfiedLinkError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Create a linked program from a saved binary.
+     * @return the program name, or 0 if the driver rejected the binary
+     */
+    public static int createProgram(int format, byte[] binary) {
+        try {
+            return nativeCreateProgram(format, binary);
+        } catch (UnsatisfiedLinkError e) {
+            return 0;
+        }
+    }
+
+    private static native String nativeGetDriverInfo();
+    private static native int nativeGetBinaryFormatCount();
+    private static native byte[] nativeGetProgramBinary(int program, int[] formatOut);
+    private static native int nativeCreateProgram(int format, byte[] binary);
+}
@@ -0,0 +1,174 @@
+package com.quest.helloworld.shader;
+
+import android.util.Log;
+
+import com.jme3.shader.Shader;
+import com.jme3.system.JmeVersion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * On-disk cache of linked program binaries.
+ *
+ * Entries live in a directory named after a hash of the GL driver and jME
+ * version, because a binary is only valid for the driver that produced it
+ * and jME's generated shader headers can change between versions. Opening
+ * the cache for a new driver deletes the directories of older ones.
+ *
+ * Each entry is keyed by a hash of the program's shader sources and
+ * defines, and also stores how long the program took to compile from source
+ * so a later load can report the time it saved.
+ */
+public class ProgramBinaryCache {
+
+    private static final String TAG = "ProgramBinaryCache";
+
+    private static final int MAGIC = 0x51504231; // "QPB1"
+    private static final String SUFFIX = ".bin";
+
+    /**
+     * A cached program binary.
+     */
+    public static final class Entry {
+        public final int format;
+        public final byte[] binary;
+        public final long compileNanos;
+
+        Entry(int format, byte[] binary, long compileNanos) {
+            this.format = format;
+            this.binary = binary;
+            this.compileNanos = compileNanos;
+        }
+    }
+
+    private final File directory;
+
+    private ProgramBinaryCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Open the cache for the given driver under a root directory, removing
+     * entries written by any other driver or jME version.
+     * @return the cache, or null if the directory can't be created
+     */
+    public static ProgramBinaryCache open(File root, String driverInfo) {
+        String driverKey = hash(driverInfo + "\n" + JmeVersion.FULL_NAME).substring(0, 16);
+        File directory = new File(root, driverKey);
+
+        File[] existing = root.listFiles();
+        if (existing != null) {
+            for (File stale : existing) {
+                if (stale.isDirectory() && !stale.getName().equals(driverKey)) {
+                    Log.i(TAG, "Driver changed - discarding program binaries in " + stale.getName());
+                    deleteRecursively(stale);
+                }
+            }
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Can't create program binary cache " + directory);
+            return null;
+        }
+        return new ProgramBinaryCache(directory);
+    }
+
+    /**
+     * Key for a shader's program: a hash of every stage's type, language,
+     * defines and source.
+     */
+    public static String keyOf(Shader shader) {
+        StringBuilder text = new StringBuilder();
+        for (Shader.ShaderSource source : shader.getSources()) {
+            text.append(source.getType()).append('\n')
+                    .append(source.getLanguage()).append('\n')
+                    .append(source.getDefines()).append('\n')
+                    .append(source.getSource()).append('\n');
+        }
+        return hash(text.toString());
+    }
+
+    /**
+     * @return the entry, or null if missing or unreadable
+     */
+    public Entry load(String key) {
+        File file = new File(directory, key + SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("bad magic");
+            }
+            int format = in.readInt();
+            long compileNanos = in.readLong();
+            byte[] binary = new byte[in.readInt()];
+            in.readFully(binary);
+            return new Entry(format, binary, compileNanos);
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable program binary " + file.getName() + ": " + e.getMessage());
+            remove(key);
+            return null;
+        }
+    }
+
+    public void store(String key, int format, byte[] binary, long compileNanos) {
+        File file = new File(directory, key + SUFFIX);
+        File temp = new File(directory, key + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(format);
+            out.writeLong(compileNanos);
+            out.writeInt(binary.length);
+            out.write(binary);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write program binary " + file.getName() + ": " + e.getMessage());
+            temp.delete();
+            return;
+        }
+        // Rename so a crash mid-write never leaves a truncated entry
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+
+    public void remove(String key) {
+        new File(directory, key + SUFFIX).delete();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    private static String hash(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 unavailable", e);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
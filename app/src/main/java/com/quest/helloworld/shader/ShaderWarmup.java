@@ -0,0 +1,279 @@
+package com.quest.helloworld.shader;
+
+import android.util.Log;
+
+import com.jme3.material.Material;
+import com.jme3.material.TechniqueDef;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.Renderer;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import com.jme3.shader.Shader;
+import com.jme3.util.NativeObject;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiles every shader permutation a scene uses up front, instead of
+ * letting jME compile each one the first time a geometry using it is drawn.
+ *
+ * Each geometry's material is preloaded for each warmed technique, which
+ * resolves its define set to a {@link Shader} exactly as rendering would.
+ * Preloading goes through a RenderManager over a renderer that intercepts
+ * setShader: a program found in the {@link ProgramBinaryCache} is created
+ * from its binary and handed to jME already linked, anything else is
+ * compiled by jME as usual and its binary saved for next launch.
+ *
+ * Programs created from binaries are not registered with jME's native
+ * object manager, which the renderer keeps private, so jME won't delete
+ * them. The warm-up tracks them instead: call {@link #cleanup()} when done
+ * with the scene to delete them, and {@link #onContextLost()} after the GL
+ * context is lost to have jME rebuild them.
+ *
+ * Must run on the GL thread.
+ */
+public class ShaderWarmup {
+
+    private static final String TAG = "ShaderWarmup";
+
+    // A compile longer than a 72 Hz frame drops a frame when it happens mid-scene
+    private static final long FRAME_BUDGET_NANOS = 1_000_000_000L / 72;
+
+    private final Renderer renderer;
+    private final ProgramBinaryCache cache;
+    private final String[] techniques;
+    private final RenderManager warmupManager;
+
+    private final Set<Material> warmedMaterials = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<Shader> fromBinary = new ArrayList<>();
+    private final int[] format = new int[1];
+
+    private int permutations = 0;
+    private int hitches = 0;
+    private int compiled = 0;
+    private int loaded = 0;
+    private int rejected = 0;
+    private int overBudget = 0;
+    private long compileNanos = 0;
+    private long loadNanos = 0;
+    private long savedNanos = 0;
+
+    /**
+     * @param renderManager the application's render manager
+     * @param cache program binary cache, or null to always compile
+     * @param techniques technique names to warm; materials without a technique are skipped
+     */
+    public ShaderWarmup(RenderManager renderManager, ProgramBinaryCache cache, String... techniques) {
+        this.renderer = renderManager.getRenderer();
+        this.cache = cache;
+        this.techniques = techniques.length > 0 ? techniques : new String[]{TechniqueDef.DEFAULT_TECHNIQUE_NAME};
+
+        Renderer intercepting = (Renderer) Proxy.newProxyInstance(Renderer.class.getClassLoader(),
+                new Class<?>[]{Renderer.class}, (proxy, method, args) -> {
+                    if ("setShader".equals(method.getName())) {
+                        setShader((Shader) args[0]);
+                        return null;
+                    }
+                    try {
+                        return method.invoke(renderer, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        // Same light mode and batch size, so materials resolve the same defines
+        warmupManager = new RenderManager(intercepting);
+        warmupManager.setPreferredLightMode(renderManager.getPreferredLightMode());
+        warmupManager.setSinglePassLightBatchSize(renderManager.getSinglePassLightBatchSize());
+    }
+
+    /**
+     * Compile or load every shader used by geometries under the given spatial.
+     * Materials already warmed are skipped, so this is cheap to call again
+     * for a scene with new content added.
+     */
+    public void warm(Spatial scene) {
+        scene.depthFirstTraversal(spatial -> {
+            if (spatial instanceof Geometry) {
+                warm((Geometry) spatial);
+            }
+        });
+    }
+
+    private void warm(Geometry geometry) {
+        Material material = geometry.getMaterial();
+        // World overrides can change the define set, so those geometries are always preloaded
+        if (material == null
+                || (!warmedMaterials.add(material) && geometry.getWorldMatParamOverrides().isEmpty())) {
+            return;
+        }
+
+        boolean switched = false;
+        for (String technique : techniques) {
+            if (material.getMaterialDef().getTechniqueDefs(technique) == null) {
+                continue;
+            }
+            try {
+                material.selectTechnique(technique, warmupManager);
+                material.preload(warmupManager, geometry);
+                switched |= !TechniqueDef.DEFAULT_TECHNIQUE_NAME.equals(technique);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Can't warm " + material.getMaterialDef().getAssetName() + "/" + technique
+                        + ": " + e.getMessage());
+            }
+        }
+        if (switched && material.getMaterialDef().getTechniqueDefs(TechniqueDef.DEFAULT_TECHNIQUE_NAME) != null) {
+            material.selectTechnique(TechniqueDef.DEFAULT_TECHNIQUE_NAME, warmupManager);
+        }
+    }
+
+    private void setShader(Shader shader) {
+        if (!shader.isUpdateNeeded()) {
+            // Already built - by an earlier material or an earlier frame
+            renderer.setShader(shader);
+            return;
+        }
+        permutations++;
+
+        String key = null;
+        if (cache != null && shader.getId() == NativeObject.INVALID_ID) {
+            key = ProgramBinaryCache.keyOf(shader);
+            if (loadFromCache(shader, key)) {
+                renderer.setShader(shader);
+                return;
+            }
+        }
+
+        long start = System.nanoTime();
+        renderer.setShader(shader);
+        long elapsed = System.nanoTime() - start;
+        compiled++;
+        compileNanos += elapsed;
+        // Only a program that was really built here spares the first draw a compile
+        if (shader.getId() > 0 && !shader.isUpdateNeeded()) {
+            hitches++;
+            if (elapsed > FRAME_BUDGET_NANOS) {
+                overBudget++;
+            }
+        }
+
+        if (key != null && shader.getId() > 0) {
+            byte[] binary = ProgramBinaries.getProgramBinary(shader.getId(), format);
+            if (binary != null) {
+                cache.store(key, format[0], binary, elapsed);
+            }
+        }
+    }
+
+    private boolean loadFromCache(Shader shader, String key) {
+        long start = System.nanoTime();
+        ProgramBinaryCache.Entry entry = cache.load(key);
+        if (entry == null) {
+            return false;
+        }
+        int program = ProgramBinaries.createProgram(entry.format, entry.binary);
+        if (program <= 0) {
+            // Driver rejected it - recompile and overwrite
+            rejected++;
+            cache.remove(key);
+            return false;
+        }
+        shader.setId(program);
+        shader.clearUpdateNeeded();
+        fromBinary.add(shader);
+
+        long elapsed = System.nanoTime() - start;
+        loaded++;
+        hitches++;
+        loadNanos += elapsed;
+        savedNanos += Math.max(entry.compileNanos - elapsed, 0);
+        if (entry.compileNanos > FRAME_BUDGET_NANOS) {
+            overBudget++;
+        }
+        return true;
+    }
+
+    /**
+     * Forget programs created from binaries after the GL context was lost,
+     * so jME compiles them again - or a later warm-up loads them again.
+     */
+    public void onContextLost() {
+        for (Shader shader : fromBinary) {
+            shader.resetObject();
+        }
+        fromBinary.clear();
+        warmedMaterials.clear();
+    }
+
+    /**
+     * Delete the programs created from binaries. Materials still using them
+     * have jME compile them again when next drawn. Call on the GL thread.
+     */
+    public void cleanup() {
+        for (Shader shader : fromBinary) {
+            if (shader.getId() != NativeObject.INVALID_ID) {
+                renderer.deleteShader(shader);
+            }
+        }
+        fromBinary.clear();
+        warmedMaterials.clear();
+    }
+
+    /** Distinct shader programs warm-up asked the renderer for. */
+    public int getPermutations() {
+        return permutations;
+    }
+
+    /**
+     * Permutations whose program warm-up actually built, so their first draw
+     * won't compile them - fewer than the permutations when a renderer
+     * creates no programs or a compile fails.
+     */
+    public int getHitches() {
+        return hitches;
+    }
+
+    public int getCompiled() {
+        return compiled;
+    }
+
+    public int getLoaded() {
+        return loaded;
+    }
+
+    /** Cached binaries the driver refused, typically after a driver update. */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /** Avoided hitches long enough to have dropped a 72 Hz frame. */
+    public int getOverBudget() {
+        return overBudget;
+    }
+
+    public float getCompileMs() {
+        return compileNanos * 1e-6f;
+    }
+
+    public float getLoadMs() {
+        return loadNanos * 1e-6f;
+    }
+
+    /** Compile time that loading binaries saved, net of the time to load them. */
+    public float getSavedMs() {
+        return savedNanos * 1e-6f;
+    }
+
+    public String summary() {
+        return String.format("%d shader permutations warmed, %d first-use hitches avoided, %d of them over "
+                        + "the frame budget; %d compiled in %.1f ms, %d loaded from binaries in %.1f ms "
+                        + "saving %.1f ms of compilation%s",
+                permutations, hitches, overBudget, compiled, getCompileMs(), loaded, getLoadMs(),
+                getSavedMs(), rejected > 0 ? ", " + rejected + " stale binaries rebuilt" : "");
+    }
+}
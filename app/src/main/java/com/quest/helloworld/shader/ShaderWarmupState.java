@@ -0,0 +1,119 @@
+package com.quest.helloworld.shader;
+
+import android.util.Log;
+
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.material.TechniqueDef;
+import com.jme3.renderer.RenderManager;
+import com.jme3.scene.Spatial;
+
+import java.io.File;
+
+/**
+ * App state that warms every shader the scene uses before its first frame
+ * is rendered, loading program binaries saved by earlier launches.
+ *
+ * Attach it once the scene is built. Warm-up runs in the first render pass,
+ * after the scene's geometric state is current, and logs how many first-use
+ * compile hitches it avoided and how much compile time the cache saved.
+ * Content attached later can be warmed with {@link #warm(Spatial)}.
+ */
+public class ShaderWarmupState extends AbstractAppState {
+
+    private static final String TAG = "ShaderWarmup";
+
+    private final File cacheRoot;
+    private final Spatial scene;
+    private final String[] techniques;
+
+    private ShaderWarmup warmup;
+
+    /**
+     * @param cacheRoot directory for program binaries, or null to compile every launch
+     * @param scene root of the scene to warm
+     * @param techniques technique names to warm besides Default, e.g. shadow passes
+     */
+    public ShaderWarmupState(File cacheRoot, Spatial scene, String... techniques) {
+        this.cacheRoot = cacheRoot;
+        this.scene = scene;
+        this.techniques = techniques;
+    }
+
+    @Override
+    public void render(RenderManager rm) {
+        super.render(rm);
+        if (warmup != null) {
+            return;
+        }
+
+        ProgramBinaryCache cache = openCache();
+        String[] warmed = new String[techniques.length + 1];
+        warmed[0] = TechniqueDef.DEFAULT_TECHNIQUE_NAME;
+        System.arraycopy(techniques, 0, warmed, 1, techniques.length);
+        warmup = new ShaderWarmup(rm, cache, warmed);
+
+        long start = System.nanoTime();
+        warmup.warm(scene);
+        Log.i(TAG, String.format("Warm-up took %.1f ms - %s", (System.nanoTime() - start) * 1e-6f, warmup.summary()));
+    }
+
+    private ProgramBinaryCache openCache() {
+        if (cacheRoot == null) {
+            return null;
+        }
+        String driverInfo = ProgramBinaries.getDriverInfo();
+        if (driverInfo == null || !ProgramBinaries.isSupported()) {
+            Log.i(TAG, "Program binaries unsupported - compiling shaders from source");
+            return null;
+        }
+        ProgramBinaryCache cache = ProgramBinaryCache.open(cacheRoot, driverInfo);
+        if (cache != null) {
+            Log.i(TAG, "Program binary cache " + cache.getDirectory());
+        }
+        return cache;
+    }
+
+    /**
+     * Warm shaders of content added to the scene, e.g. a streamed chunk, before
+     * it is first drawn. Call on the GL thread.
+     */
+    public void warm(Spatial content) {
+        if (warmup == null) {
+            // Not warmed yet - the first render pass covers everything in the scene
+            return;
+        }
+        int before = warmup.getPermutations();
+        warmup.warm(content);
+        if (warmup.getPermutations() > before) {
+            Log.i(TAG, "Warmed " + (warmup.getPermutations() - before) + " new permutations for " + content.getName());
+        }
+    }
+
+    /**
+     * Rebuild programs created from binaries after the GL context was lost.
+     * The next render pass warms the whole scene again.
+     */
+    public void onContextLost() {
+        if (warmup != null) {
+            warmup.onContextLost();
+            warmup = null;
+        }
+    }
+
+    /** Deletes the programs warm-up created from binaries, which jME doesn't track. */
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        if (warmup != null) {
+            warmup.cleanup();
+            warmup = null;
+        }
+    }
+
+    /**
+     * @return the warm-up, or null before the first frame
+     */
+    public ShaderWarmup getWarmup() {
+        return warmup;
+    }
+}
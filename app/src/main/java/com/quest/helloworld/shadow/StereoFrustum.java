@@ -0,0 +1,48 @@
+package com.quest.helloworld.shadow;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+
+/**
+ * Fits one camera whose frustum contains both eyes' frusta.
+ *
+ * The combined camera looks the same way as the eyes, from between them
+ * and pulled back just far enough that its widest left and right planes
+ * pass outside both eyes. Its near and far planes move back by the same
+ * distance, so a point at depth d from the eyes is at depth d + pull-back
+ * from the combined camera.
+ */
+public final class StereoFrustum {
+
+    private StereoFrustum() {
+    }
+
+    /**
+     * @param store camera set to the combined frustum; its viewport is left alone
+     * @return how far the combined camera sits behind the eyes
+     */
+    public static float fit(Camera left, Camera right, Camera store) {
+        float near = left.getFrustumNear();
+        float tanLeft = Math.max(-left.getFrustumLeft(), -right.getFrustumLeft()) / near;
+        float tanRight = Math.max(left.getFrustumRight(), right.getFrustumRight()) / near;
+        float tanTop = Math.max(left.getFrustumTop(), right.getFrustumTop()) / near;
+        float tanBottom = Math.max(-left.getFrustumBottom(), -right.getFrustumBottom()) / near;
+
+        // Eyes are separated sideways; back off until each side plane clears both
+        float halfSeparation = left.getLocation().distance(right.getLocation()) * 0.5f;
+        float pullBack = halfSeparation / Math.max(FastMath.ZERO_TOLERANCE, Math.min(tanLeft, tanRight));
+
+        Vector3f location = store.getLocation();
+        location.set(left.getLocation()).addLocal(right.getLocation()).multLocal(0.5f);
+        location.scaleAdd(-pullBack, left.getDirection(), location);
+        store.setParallelProjection(false);
+        store.setFrame(location, left.getRotation());
+
+        float combinedNear = near + pullBack;
+        store.setFrustum(combinedNear, left.getFrustumFar() + pullBack,
+                -tanLeft * combinedNear, tanRight * combinedNear,
+                tanTop * combinedNear, -tanBottom * combinedNear);
+        return pullBack;
+    }
+}
@@ -0,0 +1,13 @@
+package com.quest.helloworld.shadow;
+
+/**
+ * How the sun's shadows are rendered.
+ */
+public enum StereoShadowMode {
+    /** No shadows. */
+    OFF,
+    /** A stock shadow renderer on each eye viewport, cascades rendered per eye. */
+    PER_VIEWPORT,
+    /** One {@link StereoShadowRenderer} whose cascades both eyes share. */
+    SHARED
+}
@@ -0,0 +1,411 @@
+package com.quest.helloworld.shadow;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.light.LightFilter;
+import com.jme3.light.NullLightFilter;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.post.SceneProcessor;
+import com.jme3.profile.AppProfiler;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.Renderer;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.GeometryList;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.shadow.DirectionalLightShadowRenderer;
+import com.jme3.shadow.PssmShadowUtil;
+import com.jme3.shadow.ShadowUtil;
+import com.jme3.texture.FrameBuffer;
+
+/**
+ * Directional light shadows rendered once per frame for both eyes.
+ *
+ * Stock {@link DirectionalLightShadowRenderer}s on the two eye viewports
+ * each fit and render their own cascades, so every shadow map is drawn
+ * twice. This renderer fits one set of cascades to the combined stereo
+ * frustum ({@link StereoFrustum}) while the left eye is rendered, and the
+ * right eye's post pass samples the same maps.
+ *
+ * Each cascade is fitted to the bounding sphere of its slice, which
+ * doesn't change size as the head turns, with a guard band around it. The
+ * cascade stays put until the head moves the slice out of the guard band,
+ * and its map is only re-rendered when it moves or a caster in it changes
+ * transform or vertices - static casters are drawn once and then cached
+ * in the map. Changes it can't see, like skinning, need {@link #invalidate()}.
+ *
+ * {@link #summary()} reports the shadow-pass time against an estimate of
+ * the per-viewport approach: every cascade, every frame, for each eye, at
+ * the measured cost of a cascade render.
+ */
+public class StereoShadowRenderer extends DirectionalLightShadowRenderer {
+
+    // Guard band around the fitted slice, as a fraction of its radius
+    private static final float GUARD_BAND = 0.25f;
+
+    private final Camera combined;
+    private final Cascade[] cascades;
+    private final LightFilter noLights = new NullLightFilter();
+    private final EyePass rightPass = new EyePass();
+    private ViewPort rightEye;
+    private float casterRange = 50f;
+    private float pullBack = 0f;
+    private boolean invalidated = true;
+
+    // Light-space basis, rebuilt when the light turns
+    private final Vector3f lightDirection = new Vector3f(Float.NaN, Float.NaN, Float.NaN);
+    private final Vector3f lightX = new Vector3f();
+    private final Vector3f lightY = new Vector3f();
+    private final Vector3f center = new Vector3f();
+    private final Vector3f scratch = new Vector3f();
+
+    // Statistics
+    private int frames = 0;
+    private int cascadeRenders = 0;
+    private int cascadeSkips = 0;
+    private int cascadeShifts = 0;
+    private long passNanos = 0;
+    private long renderNanos = 0;
+
+    private static class Cascade {
+        boolean fitted = false;
+        boolean moved = true;
+        float x, y, z;
+        float radius;
+        float extent;
+        long signature;
+    }
+
+    /**
+     * @param shadowMapSize size of each cascade's map in texels
+     * @param nbSplits number of cascades, 1 to 4
+     */
+    public StereoShadowRenderer(AssetManager assetManager, int shadowMapSize, int nbSplits) {
+        super(assetManager, shadowMapSize, nbSplits);
+        combined = new Camera(shadowMapSize, shadowMapSize);
+        cascades = new Cascade[nbShadowMaps];
+        for (int i = 0; i < cascades.length; i++) {
+            cascades[i] = new Cascade();
+        }
+    }
+
+    /**
+     * Add the renderer to the eye viewports. The left eye must be rendered
+     * first, which it is when its viewport was created first.
+     * @param rightEye the right eye's viewport, or null to shadow a single view
+     */
+    public void attach(ViewPort leftEye, ViewPort rightEye) {
+        this.rightEye = rightEye;
+        leftEye.addProcessor(this);
+        if (rightEye != null) {
+            rightEye.addProcessor(rightPass);
+        }
+    }
+
+    /**
+     * Depth range, in world units on each side of a cascade's center along
+     * the light, within which casters are drawn into it.
+     */
+    public void setCasterRange(float range) {
+        casterRange = range;
+        invalidate();
+    }
+
+    /**
+     * Re-render every cascade next frame, e.g. after a caster's mesh was
+     * deformed in a way its transform doesn't show.
+     */
+    public void invalidate() {
+        invalidated = true;
+    }
+
+    @Override
+    public void postQueue(RenderQueue rq) {
+        long start = System.nanoTime();
+        super.postQueue(rq);
+        invalidated = false;
+        frames++;
+        passNanos += System.nanoTime() - start;
+    }
+
+    @Override
+    protected void updateShadowCams(Camera viewCam) {
+        if (light == null) {
+            return;
+        }
+        if (rightEye != null) {
+            pullBack = StereoFrustum.fit(viewCam, rightEye.getCamera(), combined);
+        } else {
+            combined.copyFrom(viewCam);
+            pullBack = 0f;
+        }
+
+        if (!light.getDirection().equals(lightDirection)) {
+            lightDirection.set(light.getDirection());
+            Vector3f up = Math.abs(lightDirection.y) > 0.99f ? Vector3f.UNIT_Z : Vector3f.UNIT_Y;
+            shadowCam.lookAtDirection(lightDirection, up);
+            shadowCam.getLeft(lightX);
+            shadowCam.getUp(lightY);
+            for (Cascade cascade : cascades) {
+                cascade.fitted = false;
+            }
+        }
+
+        float near = Math.max(combined.getFrustumNear(), 0.001f);
+        float far = zFarOverride == 0f ? combined.getFrustumFar() : zFarOverride + pullBack;
+        PssmShadowUtil.updateFrustumSplits(splitsArray, near, far, lambda);
+
+        // The post pass picks a cascade by depth from the eye, not the combined camera
+        if (splitsArray.length > 1) {
+            splits.r = splitsArray[1] - pullBack;
+        }
+        if (splitsArray.length > 2) {
+            splits.g = splitsArray[2] - pullBack;
+        }
+        if (splitsArray.length > 3) {
+            splits.b = splitsArray[3] - pullBack;
+        }
+        if (splitsArray.length > 4) {
+            splits.a = splitsArray[4] - pullBack;
+        }
+    }
+
+    @Override
+    protected GeometryList getOccludersToRender(int shadowMapIndex, GeometryList occluders) {
+        ShadowUtil.updateFrustumPoints(combined, splitsArray[shadowMapIndex],
+                splitsArray[shadowMapIndex + 1], 1f, points);
+        fitCascade(cascades[shadowMapIndex]);
+
+        occluders.clear();
+        for (Spatial scene : viewPort.getScenes()) {
+            ShadowUtil.getGeometriesInCamFrustum(scene, shadowCam, RenderQueue.ShadowMode.Cast, occluders);
+        }
+        // Receivers of both eyes, once each, for the post passes
+        if (lightReceivers.size() == 0) {
+            for (Spatial scene : viewPort.getScenes()) {
+                ShadowUtil.getGeometriesInCamFrustum(scene, combined, RenderQueue.ShadowMode.Receive, lightReceivers);
+            }
+        }
+        return occluders;
+    }
+
+    /**
+     * Point the shadow camera at a cascade, re-centering it first if the
+     * slice in {@link #points} has left its guard band.
+     */
+    private void fitCascade(Cascade cascade) {
+        center.set(0f, 0f, 0f);
+        for (Vector3f point : points) {
+            center.addLocal(point);
+        }
+        center.divideLocal(points.length);
+        float radius = 0f;
+        for (Vector3f point : points) {
+            radius = Math.max(radius, point.distance(center));
+        }
+        // Rounded up so float noise doesn't count as a change of size
+        radius = FastMath.ceil(radius * 16f) / 16f;
+
+        float x = center.dot(lightX);
+        float y = center.dot(lightY);
+        if (!cascade.fitted || radius != cascade.radius
+                || Math.abs(x - cascade.x) + radius > cascade.extent
+                || Math.abs(y - cascade.y) + radius > cascade.extent) {
+            cascade.extent = radius * (1f + GUARD_BAND);
+            // Snapped to texels so a re-centered map lines up with the old one
+            float texel = 2f * cascade.extent / shadowMapSize;
+            cascade.x = Math.round(x / texel) * texel;
+            cascade.y = Math.round(y / texel) * texel;
+            cascade.z = center.dot(lightDirection);
+            cascade.radius = radius;
+            cascade.fitted = true;
+            cascade.moved = true;
+            cascadeShifts++;
+        }
+
+        scratch.set(lightX).multLocal(cascade.x);
+        scratch.scaleAdd(cascade.y, lightY, scratch);
+        scratch.scaleAdd(cascade.z - casterRange, lightDirection, scratch);
+        shadowCam.setLocation(scratch);
+        shadowCam.setFrustum(0f, 2f * casterRange, -cascade.extent, cascade.extent, cascade.extent, -cascade.extent);
+        shadowCam.update();
+        shadowCam.updateViewProjection();
+    }
+
+    @Override
+    protected void renderShadowMap(int shadowMapIndex) {
+        shadowMapOccluders = getOccludersToRender(shadowMapIndex, shadowMapOccluders);
+        Camera cam = getShadowCam(shadowMapIndex);
+        lightViewProjectionsMatrices[shadowMapIndex].set(cam.getViewProjectionMatrix());
+
+        Cascade cascade = cascades[shadowMapIndex];
+        long signature = signature(shadowMapOccluders);
+        if (!cascade.moved && !invalidated && signature == cascade.signature) {
+            // The map still holds exactly this
+            shadowMapOccluders.clear();
+            cascadeSkips++;
+            return;
+        }
+        cascade.moved = false;
+        cascade.signature = signature;
+
+        long start = System.nanoTime();
+        renderManager.setCamera(cam, false);
+        Renderer renderer = renderManager.getRenderer();
+        renderer.setFrameBuffer(shadowFB[shadowMapIndex]);
+        renderer.clearBuffers(true, true, true);
+        renderManager.setForcedRenderState(forcedRenderState);
+        LightFilter lightFilter = renderManager.getLightFilter();
+        renderManager.setLightFilter(noLights);
+        viewPort.getQueue().renderShadowQueue(shadowMapOccluders, renderManager, cam, true);
+        renderManager.setLightFilter(lightFilter);
+        renderManager.setForcedRenderState(null);
+        renderNanos += System.nanoTime() - start;
+        cascadeRenders++;
+    }
+
+    /**
+     * What a cascade's map depends on besides the cascade itself: which
+     * casters are in it, where they are, and whether their vertices changed.
+     */
+    private long signature(GeometryList occluders) {
+        long hash = occluders.size();
+        for (int i = 0; i < occluders.size(); i++) {
+            Geometry geometry = occluders.get(i);
+            hash = hash * 31 + System.identityHashCode(geometry);
+            Transform transform = geometry.getWorldTransform();
+            Vector3f translation = transform.getTranslation();
+            Quaternion rotation = transform.getRotation();
+            Vector3f scale = transform.getScale();
+            hash = hash * 31 + Float.floatToIntBits(translation.x);
+            hash = hash * 31 + Float.floatToIntBits(translation.y);
+            hash = hash * 31 + Float.floatToIntBits(translation.z);
+            hash = hash * 31 + Float.floatToIntBits(rotation.getX());
+            hash = hash * 31 + Float.floatToIntBits(rotation.getY());
+            hash = hash * 31 + Float.floatToIntBits(rotation.getZ());
+            hash = hash * 31 + Float.floatToIntBits(rotation.getW());
+            hash = hash * 31 + Float.floatToIntBits(scale.x);
+            hash = hash * 31 + Float.floatToIntBits(scale.y);
+            hash = hash * 31 + Float.floatToIntBits(scale.z);
+            VertexBuffer positions = geometry.getMesh().getBuffer(VertexBuffer.Type.Position);
+            if (positions != null && positions.isUpdateNeeded()) {
+                // Not uploaded yet this frame, so changed since the map was drawn
+                hash = hash * 31 + frames;
+            }
+        }
+        return hash;
+    }
+
+    /** Start the statistics over, e.g. after warm-up. */
+    public void resetStatistics() {
+        frames = 0;
+        cascadeRenders = 0;
+        cascadeSkips = 0;
+        cascadeShifts = 0;
+        passNanos = 0;
+        renderNanos = 0;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    public int getCascadeRenders() {
+        return cascadeRenders;
+    }
+
+    public int getCascadeSkips() {
+        return cascadeSkips;
+    }
+
+    /** Times a cascade was re-centered because the head moved out of its guard band. */
+    public int getCascadeShifts() {
+        return cascadeShifts;
+    }
+
+    /** CPU time of the shadow-map pass, fitting included, over all frames. */
+    public long getPassNanos() {
+        return passNanos;
+    }
+
+    /**
+     * Estimated CPU time stock renderers on each eye viewport would have
+     * taken: every cascade rendered every frame, per eye, at the average
+     * cost of the cascade renders this one did, plus the same fitting.
+     */
+    public long getPerViewportEstimateNanos() {
+        if (cascadeRenders == 0) {
+            return 0;
+        }
+        int eyes = rightEye != null ? 2 : 1;
+        long fitting = passNanos - renderNanos;
+        return eyes * (fitting + (long) frames * nbShadowMaps * (renderNanos / cascadeRenders));
+    }
+
+    public String summary() {
+        float perFrame = frames > 0 ? 1f / frames : 0f;
+        float estimate = getPerViewportEstimateNanos() * 1e-6f * perFrame;
+        float actual = passNanos * 1e-6f * perFrame;
+        return String.format("Shadows: %d cascades, %.2f rendered/frame, %d skipped, %d shifts; "
+                        + "pass %.3f ms/frame vs %.3f ms per viewport (est.), saved %.3f ms/frame",
+                nbShadowMaps, cascadeRenders * perFrame, cascadeSkips, cascadeShifts,
+                actual, estimate, estimate - actual);
+    }
+
+    /**
+     * The right eye's post pass, through the shared maps and receivers.
+     */
+    private class EyePass implements SceneProcessor {
+
+        private ViewPort eyeViewPort;
+
+        @Override
+        public void initialize(RenderManager rm, ViewPort vp) {
+            eyeViewPort = vp;
+        }
+
+        @Override
+        public void reshape(ViewPort vp, int w, int h) {
+        }
+
+        @Override
+        public boolean isInitialized() {
+            return eyeViewPort != null;
+        }
+
+        @Override
+        public void preFrame(float tpf) {
+        }
+
+        @Override
+        public void postQueue(RenderQueue rq) {
+        }
+
+        @Override
+        public void postFrame(FrameBuffer out) {
+            ViewPort primary = viewPort;
+            if (primary == null) {
+                return;
+            }
+            viewPort = eyeViewPort;
+            try {
+                StereoShadowRenderer.this.postFrame(out);
+            } finally {
+                viewPort = primary;
+            }
+        }
+
+        @Override
+        public void cleanup() {
+        }
+
+        @Override
+        public void setProfiler(AppProfiler profiler) {
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.quest.helloworld.sim;
+
+/**
+ * Fixed-step game logic whose results are entity transforms.
+ *
+ * A simulation is only ever called from one thread at a time - the
+ * simulation thread when it runs decoupled, otherwise the render thread -
+ * so implementations need no synchronization of their own. They must not
+ * touch the scene graph; the render thread applies the transforms they write.
+ */
+public interface Simulation {
+
+    /**
+     * Number of entities. Fixed for the simulation's lifetime.
+     */
+    int getEntityCount();
+
+    /**
+     * Advance the simulation by one tick.
+     * @param dt tick length in seconds, always the same
+     */
+    void step(float dt);
+
+    /**
+     * Write every entity's current transform.
+     * @param positions x, y, z per entity
+     * @param rotations quaternion x, y, z, w per entity
+     */
+    void writeTransforms(float[] positions, float[] rotations);
+}
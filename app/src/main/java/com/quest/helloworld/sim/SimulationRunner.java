@@ -0,0 +1,183 @@
+package com.quest.helloworld.sim;
+
+import android.util.Log;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Steps a {@link Simulation} at a fixed tick rate and publishes each tick's
+ * transforms to a {@link SnapshotExchange}.
+ *
+ * Runs either on its own thread ({@link #start()}) or driven tick by tick
+ * from the render thread ({@link #runTick(long)}). On its own thread, ticks
+ * are scheduled against System.nanoTime and a tick's snapshot is stamped
+ * with its scheduled time rather than when the step finished, so a slow
+ * step delays the snapshot but does not distort motion. When the simulation
+ * falls more than {@link #MAX_CATCH_UP_TICKS} behind, the missed ticks are
+ * dropped instead of run back to back.
+ */
+public class SimulationRunner implements Runnable {
+
+    private static final String TAG = "SimulationRunner";
+
+    static final int MAX_CATCH_UP_TICKS = 4;
+
+    private final Simulation simulation;
+    private final SnapshotExchange exchange;
+    private final long tickNanos;
+    private final float tickSeconds;
+
+    private Thread thread;
+    private volatile boolean running = false;
+
+    // Metrics - written by the stepping thread, readable from any thread
+    private volatile long ticks = 0;
+    private volatile long lateTicks = 0;
+    private volatile long droppedTicks = 0;
+    private volatile long lastStepNanos = 0;
+    private volatile long maxStepNanos = 0;
+
+    /**
+     * @param tickRate ticks per second
+     */
+    public SimulationRunner(Simulation simulation, SnapshotExchange exchange, float tickRate) {
+        if (tickRate <= 0f) {
+            throw new IllegalArgumentException("tickRate must be positive: " + tickRate);
+        }
+        this.simulation = simulation;
+        this.exchange = exchange;
+        this.tickNanos = (long) (1_000_000_000.0 / tickRate);
+        this.tickSeconds = tickNanos / 1e9f;
+    }
+
+    /**
+     * Publish the simulation's initial transforms as a snapshot at the given time.
+     */
+    public void publishInitial(long timeNanos) {
+        publish(timeNanos);
+    }
+
+    /**
+     * Step once and publish the result as the snapshot for the given time.
+     */
+    public void runTick(long timeNanos) {
+        long start = System.nanoTime();
+        simulation.step(tickSeconds);
+        long elapsed = System.nanoTime() - start;
+
+        lastStepNanos = elapsed;
+        if (elapsed > maxStepNanos) {
+            maxStepNanos = elapsed;
+        }
+        ticks++;
+        publish(timeNanos);
+    }
+
+    private void publish(long timeNanos) {
+        TransformSnapshot snapshot = exchange.getBackBuffer();
+        simulation.writeTransforms(snapshot.positions, snapshot.rotations);
+        snapshot.tick = ticks;
+        snapshot.timeNanos = timeNanos;
+        exchange.publish();
+    }
+
+    /**
+     * Start ticking on a dedicated thread. The first snapshot is published
+     * before this returns.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        publishInitial(System.nanoTime());
+        running = true;
+        thread = new Thread(this, "Simulation");
+        thread.setDaemon(true);
+        // Rendering and tracking keep priority over game logic
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+        Log.i(TAG, "Simulation thread started at " + 1e9f / tickNanos + " Hz");
+    }
+
+    /**
+     * Stop the simulation thread and wait for the current tick to finish.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        Log.i(TAG, "Simulation thread stopped - " + summary());
+    }
+
+    @Override
+    public void run() {
+        long next = System.nanoTime() + tickNanos;
+        while (running) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+
+            int steps = 0;
+            while (now >= next && steps < MAX_CATCH_UP_TICKS) {
+                runTick(next);
+                next += tickNanos;
+                steps++;
+                now = System.nanoTime();
+            }
+            if (now >= next + tickNanos) {
+                // Too far behind to catch up - skip ahead rather than spiral
+                long behind = (now - next) / tickNanos;
+                droppedTicks += behind;
+                next += behind * tickNanos;
+            }
+            if (steps > 1) {
+                lateTicks += steps - 1;
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /** Ticks that ran after their successor was already due. */
+    public long getLateTicks() {
+        return lateTicks;
+    }
+
+    /** Ticks skipped because the simulation fell too far behind. */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    public float getLastStepMs() {
+        return lastStepNanos * 1e-6f;
+    }
+
+    public float getMaxStepMs() {
+        return maxStepNanos * 1e-6f;
+    }
+
+    public String summary() {
+        return String.format("%d ticks, %d late, %d dropped, step last %.2f / max %.2f ms",
+                ticks, lateTicks, droppedTicks, getLastStepMs(), getMaxStepMs());
+    }
+}
@@ -0,0 +1,223 @@
+package com.quest.helloworld.sim;
+
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+
+/**
+ * App state that runs a {@link Simulation} at a fixed tick and applies its
+ * entity transforms to bound spatials, interpolated between the ticks on
+ * either side of the time being rendered.
+ *
+ * <ul>
+ *   <li>INLINE - ticks run inside this state's update on the render thread,
+ *       as many per frame as the frame time covers. A slow tick delays the frame.</li>
+ *   <li>THREADED - ticks run on a dedicated thread and reach the render
+ *       thread through a {@link SnapshotExchange}. Frames render two ticks in
+ *       the past, so a tick that finishes up to one tick after its scheduled
+ *       time is never seen; a longer stall holds the entities at the newest
+ *       snapshot until the simulation catches up.</li>
+ * </ul>
+ *
+ * Either way the render thread never waits for the simulation, and head
+ * tracking - which stays on the render thread - is not part of the snapshot,
+ * so the camera always uses the freshest pose however stale entities are.
+ *
+ * Applying transforms does not allocate.
+ */
+public class SimulationState extends AbstractAppState {
+
+    private static final String TAG = "SimulationState";
+
+    // How far behind real time THREADED mode renders: one tick to have two
+    // snapshots to interpolate, one tick of slack for a late tick
+    private static final int RENDER_DELAY_TICKS = 2;
+
+    public enum Mode {
+        INLINE,
+        THREADED
+    }
+
+    private final Simulation simulation;
+    private final Mode mode;
+    private final SnapshotExchange exchange;
+    private final SimulationRunner runner;
+    private final long tickNanos;
+    private final Spatial[] bound;
+    private final float logInterval;
+
+    // Inline clock
+    private long inlineTicks = 0;
+    private long accumulatorNanos = 0;
+
+    private long heldFrames = 0;
+    private long frames = 0;
+    private float logTimer = 0f;
+
+    private final Vector3f position = new Vector3f();
+    private final Quaternion from = new Quaternion();
+    private final Quaternion to = new Quaternion();
+
+    public SimulationState(Simulation simulation, float tickRate, Mode mode) {
+        this(simulation, tickRate, mode, 10f);
+    }
+
+    /**
+     * @param tickRate simulation ticks per second
+     * @param logInterval seconds between log lines, or 0 to disable logging
+     */
+    public SimulationState(Simulation simulation, float tickRate, Mode mode, float logInterval) {
+        this.simulation = simulation;
+        this.mode = mode;
+        this.logInterval = logInterval;
+        // Enough history to bracket a render time RENDER_DELAY_TICKS behind the newest tick
+        this.exchange = new SnapshotExchange(simulation.getEntityCount(), RENDER_DELAY_TICKS + 1);
+        this.runner = new SimulationRunner(simulation, exchange, tickRate);
+        this.tickNanos = runner.getTickNanos();
+        this.bound = new Spatial[simulation.getEntityCount()];
+    }
+
+    /**
+     * Drive a spatial's local translation and rotation from an entity.
+     * Call from the render thread.
+     */
+    public void bind(int entity, Spatial spatial) {
+        bound[entity] = spatial;
+    }
+
+    public void unbind(int entity) {
+        bound[entity] = null;
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+
+        if (mode == Mode.THREADED) {
+            runner.start();
+        } else {
+            runner.publishInitial(0);
+        }
+        Log.i(TAG, "Simulation running " + mode + " with " + simulation.getEntityCount() + " entities");
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+
+        long renderTime;
+        if (mode == Mode.INLINE) {
+            accumulatorNanos += (long) (tpf * 1e9);
+            int steps = 0;
+            while (accumulatorNanos >= tickNanos && steps < SimulationRunner.MAX_CATCH_UP_TICKS) {
+                inlineTicks++;
+                runner.runTick(inlineTicks * tickNanos);
+                accumulatorNanos -= tickNanos;
+                steps++;
+            }
+            if (accumulatorNanos >= tickNanos) {
+                accumulatorNanos %= tickNanos;
+            }
+            renderTime = inlineTicks * tickNanos + accumulatorNanos - tickNanos;
+        } else {
+            renderTime = System.nanoTime() - RENDER_DELAY_TICKS * tickNanos;
+        }
+
+        exchange.acquire();
+        applyTransforms(renderTime);
+
+        if (logInterval > 0f) {
+            logTimer += tpf;
+            if (logTimer >= logInterval) {
+                logTimer = 0f;
+                Log.i(TAG, summary());
+            }
+        }
+    }
+
+    private void applyTransforms(long renderTime) {
+        TransformSnapshot newest = exchange.getSnapshot(0);
+        if (!newest.isWritten()) {
+            return;
+        }
+        frames++;
+
+        // Find the two snapshots either side of the render time
+        TransformSnapshot previous = newest;
+        TransformSnapshot current = newest;
+        float alpha = 1f;
+        if (renderTime > newest.timeNanos) {
+            // The simulation is behind - hold at the newest state, never extrapolate
+            heldFrames++;
+        } else {
+            for (int age = 1; age < exchange.getHistorySize(); age++) {
+                TransformSnapshot older = exchange.getSnapshot(age);
+                if (!older.isWritten()) {
+                    break;
+                }
+                previous = older;
+                if (older.timeNanos <= renderTime) {
+                    break;
+                }
+                current = older;
+            }
+            if (current.timeNanos > previous.timeNanos) {
+                alpha = FastMath.clamp((float) (renderTime - previous.timeNanos)
+                        / (current.timeNanos - previous.timeNanos), 0f, 1f);
+            }
+        }
+
+        for (int i = 0; i < bound.length; i++) {
+            Spatial spatial = bound[i];
+            if (spatial == null) {
+                continue;
+            }
+            int p = i * 3;
+            position.set(
+                    FastMath.interpolateLinear(alpha, previous.positions[p], current.positions[p]),
+                    FastMath.interpolateLinear(alpha, previous.positions[p + 1], current.positions[p + 1]),
+                    FastMath.interpolateLinear(alpha, previous.positions[p + 2], current.positions[p + 2]));
+            int r = i * 4;
+            from.set(previous.rotations[r], previous.rotations[r + 1], previous.rotations[r + 2], previous.rotations[r + 3]);
+            to.set(current.rotations[r], current.rotations[r + 1], current.rotations[r + 2], current.rotations[r + 3]);
+            from.slerp(to, alpha);
+
+            spatial.setLocalTranslation(position);
+            spatial.setLocalRotation(from);
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        runner.stop();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public SimulationRunner getRunner() {
+        return runner;
+    }
+
+    /** Frames that rendered entities at the newest snapshot because the next was late. */
+    public long getHeldFrames() {
+        return heldFrames;
+    }
+
+    /** Frames that applied transforms. */
+    public long getFrames() {
+        return frames;
+    }
+
+    public String summary() {
+        return String.format("%s - %s, %d of %d frames held", mode, runner.summary(), heldFrames, frames);
+    }
+}
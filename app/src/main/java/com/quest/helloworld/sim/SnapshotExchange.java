@@ -0,0 +1,93 @@
+package com.quest.helloworld.sim;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free hand-off of transform snapshots from the simulation thread to
+ * the render thread.
+ *
+ * The writer fills its back buffer and swaps it into a shared slot; the
+ * reader swaps the shared slot out when it holds a fresh snapshot. Both swaps
+ * are a single atomic exchange of a slot index, so neither side ever waits or
+ * allocates and a buffer is only ever owned by one side. The reader keeps
+ * its most recent snapshots so it can interpolate between them: with a
+ * history of N that makes N + 2 buffers - back, shared and the history.
+ *
+ * One writer thread and one reader thread.
+ */
+public class SnapshotExchange {
+
+    private static final int INDEX_BITS = 4;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int FRESH = 1 << INDEX_BITS;
+
+    private final TransformSnapshot[] slots;
+    private final AtomicInteger shared = new AtomicInteger(0);
+
+    // Writer side
+    private int back = 1;
+
+    // Reader side - slot indices, newest first
+    private final int[] history;
+
+    /**
+     * @param historySize snapshots kept by the reader, at least 2
+     */
+    public SnapshotExchange(int entityCount, int historySize) {
+        if (historySize < 2 || historySize + 2 > INDEX_MASK + 1) {
+            throw new IllegalArgumentException("historySize out of range: " + historySize);
+        }
+        slots = new TransformSnapshot[historySize + 2];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new TransformSnapshot(entityCount);
+        }
+        history = new int[historySize];
+        for (int i = 0; i < historySize; i++) {
+            history[i] = i + 2;
+        }
+    }
+
+    /**
+     * The buffer the writer fills next. Only valid until {@link #publish()}.
+     */
+    public TransformSnapshot getBackBuffer() {
+        return slots[back];
+    }
+
+    /**
+     * Make the back buffer the newest snapshot. An older snapshot the reader
+     * never picked up becomes the writer's next back buffer.
+     */
+    public void publish() {
+        back = shared.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Take the newest snapshot if one was published since the last call,
+     * giving the oldest in the history back to the writer.
+     * @return true if a new snapshot was taken
+     */
+    public boolean acquire() {
+        if ((shared.get() & FRESH) == 0) {
+            return false;
+        }
+        int oldest = history[history.length - 1];
+        int taken = shared.getAndSet(oldest) & INDEX_MASK;
+        System.arraycopy(history, 0, history, 1, history.length - 1);
+        history[0] = taken;
+        return true;
+    }
+
+    public int getHistorySize() {
+        return history.length;
+    }
+
+    /**
+     * A snapshot held by the reader. Check {@link TransformSnapshot#getTick()}
+     * before use - it is -1 until that many snapshots have been acquired.
+     * @param age 0 for the newest, up to {@link #getHistorySize()} - 1
+     */
+    public TransformSnapshot getSnapshot(int age) {
+        return slots[history[age]];
+    }
+}
@@ -0,0 +1,33 @@
+package com.quest.helloworld.sim;
+
+/**
+ * Entity transforms published by one simulation tick.
+ */
+public class TransformSnapshot {
+
+    /** x, y, z per entity */
+    final float[] positions;
+    /** Quaternion x, y, z, w per entity */
+    final float[] rotations;
+    /** Tick that produced the transforms, or -1 if never written */
+    long tick = -1;
+    /** Simulated time of the tick, on the System.nanoTime clock when running decoupled */
+    long timeNanos;
+
+    TransformSnapshot(int entityCount) {
+        positions = new float[entityCount * 3];
+        rotations = new float[entityCount * 4];
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    boolean isWritten() {
+        return tick >= 0;
+    }
+}
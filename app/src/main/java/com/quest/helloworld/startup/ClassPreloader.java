@@ -0,0 +1,50 @@
+package com.quest.helloworld.startup;
+
+import android.util.Log;
+
+/**
+ * Loads and initializes classes ahead of their first use, so a startup
+ * thread pays for class loading, verification and static initializers
+ * instead of whichever thread touches them first.
+ */
+public final class ClassPreloader {
+
+    private static final String TAG = "ClassPreloader";
+
+    /** What the engine and the app need before the first frame. */
+    public static final String[] ENGINE_CLASSES = {
+            "com.quest.helloworld.QuestVRApplication",
+            "com.jme3.app.SimpleApplication",
+            "com.jme3.renderer.RenderManager",
+            "com.jme3.material.Material",
+            "com.jme3.material.MaterialDef",
+            "com.jme3.shader.Shader",
+            "com.jme3.scene.Geometry",
+            "com.jme3.scene.shape.Box",
+            "com.jme3.scene.shape.Sphere",
+            "com.jme3.font.BitmapFont",
+            "com.jme3.font.BitmapText",
+            "com.jme3.texture.Texture2D",
+            "com.jme3.shadow.DirectionalLightShadowRenderer",
+    };
+
+    private ClassPreloader() {
+    }
+
+    /**
+     * @return how many of the classes were found
+     */
+    public static int preload(String... names) {
+        ClassLoader loader = ClassPreloader.class.getClassLoader();
+        int loaded = 0;
+        for (String name : names) {
+            try {
+                Class.forName(name, true, loader);
+                loaded++;
+            } catch (ClassNotFoundException e) {
+                Log.w(TAG, "Not preloading missing class " + name);
+            }
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,231 @@
+package com.quest.helloworld.startup;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Startup work as named steps with explicit dependencies.
+ *
+ * A step starts as soon as every step it depends on has finished, so
+ * independent steps run side by side on the startup threads while the
+ * main thread gets on with creating the activity. Every step is timed
+ * into a {@link StartupTrace}. Code that needs a step's result calls
+ * {@link #await(String)} - or, for objects from the Dagger graph, just
+ * asks for them: a singleton that a step is still building blocks the
+ * caller until it's done rather than being built twice.
+ *
+ * A step that throws is logged, and the steps that depend on it are
+ * skipped; {@link #await(String)} reports both as failed. A graph runs
+ * once.
+ */
+public class StartupGraph {
+
+    private static final String TAG = "StartupGraph";
+
+    private static final class Step {
+        final String name;
+        final Runnable work;
+        final List<Step> dependencies = new ArrayList<>();
+        CompletableFuture<Void> done;
+
+        Step(String name, Runnable work) {
+            this.name = name;
+            this.work = work;
+        }
+    }
+
+    /**
+     * Collects steps; dependencies must be added before the steps that
+     * name them.
+     */
+    public static class Builder {
+        private final Map<String, Step> steps = new LinkedHashMap<>();
+
+        /**
+         * @param after names of steps that must finish first
+         */
+        public Builder add(String name, Runnable work, String... after) {
+            if (steps.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate startup step: " + name);
+            }
+            Step step = new Step(name, work);
+            for (String dependency : after) {
+                Step before = steps.get(dependency);
+                if (before == null) {
+                    throw new IllegalArgumentException("Startup step " + name + " depends on unknown step " + dependency);
+                }
+                step.dependencies.add(before);
+            }
+            steps.put(name, step);
+            return this;
+        }
+
+        public StartupGraph build() {
+            return new StartupGraph(new ArrayList<>(steps.values()));
+        }
+    }
+
+    // In dependency order: every step comes after the steps it depends on
+    private final List<Step> order;
+    private final Map<String, Step> byName = new HashMap<>();
+    private boolean started = false;
+
+    private StartupGraph(List<Step> order) {
+        this.order = order;
+        for (Step step : order) {
+            byName.put(step.name, step);
+        }
+    }
+
+    /**
+     * Run the graph on its own pool of startup threads, which goes away
+     * once every step is done. Returns at once.
+     */
+    public void startInBackground(int threads, StartupTrace trace) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new StartupThreadFactory());
+        start(executor, trace);
+        CompletableFuture.allOf(futures()).whenComplete((result, error) -> executor.shutdown());
+    }
+
+    /**
+     * Run every step on the calling thread, in dependency order, and
+     * return when they're done.
+     */
+    public void runSerially(StartupTrace trace) {
+        start(Runnable::run, trace);
+    }
+
+    /**
+     * Schedule every step on an executor. Returns at once unless the
+     * executor runs work in the caller.
+     */
+    public synchronized void start(Executor executor, StartupTrace trace) {
+        if (started) {
+            throw new IllegalStateException("Startup graph already started");
+        }
+        started = true;
+        for (Step step : order) {
+            CompletableFuture<?>[] before = new CompletableFuture<?>[step.dependencies.size()];
+            for (int i = 0; i < before.length; i++) {
+                before[i] = step.dependencies.get(i).done;
+            }
+            step.done = CompletableFuture.allOf(before)
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            Log.w(TAG, "Skipping " + step.name + " - a step it depends on failed");
+                        }
+                    })
+                    .thenRunAsync(() -> run(step, trace), executor);
+        }
+    }
+
+    private static void run(Step step, StartupTrace trace) {
+        try (StartupTrace.Span span = trace.begin(step.name)) {
+            step.work.run();
+        } catch (RuntimeException | Error e) {
+            Log.e(TAG, "Startup step " + step.name + " failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Block until a step has finished.
+     * @return false if it, or a step it depends on, failed
+     */
+    public boolean await(String name) {
+        Step step = byName.get(name);
+        if (step == null) {
+            throw new IllegalArgumentException("Unknown startup step: " + name);
+        }
+        if (step.done == null) {
+            throw new IllegalStateException("Startup graph not started");
+        }
+        try {
+            step.done.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Block until every step has finished or failed.
+     * @return false on timeout
+     */
+    public boolean awaitAll(long timeout, TimeUnit unit) {
+        try {
+            CompletableFuture.allOf(futures()).get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            // Failures are reported per step
+        } catch (TimeoutException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private CompletableFuture<?>[] futures() {
+        CompletableFuture<?>[] all = new CompletableFuture<?>[order.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = order.get(i).done;
+        }
+        return all;
+    }
+
+    /** Step names, each after the steps it depends on. */
+    public List<String> getOrder() {
+        List<String> names = new ArrayList<>();
+        for (Step step : order) {
+            names.add(step.name);
+        }
+        return names;
+    }
+
+    public List<String> getDependencies(String name) {
+        Step step = byName.get(name);
+        if (step == null) {
+            return Collections.emptyList();
+        }
+        String[] names = new String[step.dependencies.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = step.dependencies.get(i).name;
+        }
+        return Arrays.asList(names);
+    }
+
+    /**
+     * Daemon threads at normal priority: startup is on the launch's
+     * critical path, unlike background streaming.
+     */
+    private static class StartupThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "Startup-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.quest.helloworld.startup;
+
+import com.quest.helloworld.vr.OpenXRBridge;
+import com.quest.helloworld.vr.VRRenderer;
+import com.quest.helloworld.vr.VRSceneConfig;
+
+import javax.inject.Provider;
+
+/**
+ * The app's startup graph. QuestHelloWorldApp passes in the Dagger
+ * component's subsystems; the cold-start benchmark, which runs without
+ * Dagger, passes plain constructors and gets the same steps and order.
+ */
+public final class StartupSteps {
+
+    public static final String NATIVE_LIBRARY = "native library";
+    public static final String ENGINE_CLASSES = "engine classes";
+    public static final String SCENE_CONFIG = "scene config";
+    public static final String VR_BRIDGE = "vr bridge";
+    public static final String VR_RENDERER = "vr renderer";
+
+    private StartupSteps() {
+    }
+
+    /**
+     * Build the graph, without starting it. The bridge and renderer wait for
+     * libquestvr; everything else is independent.
+     */
+    public static StartupGraph create(Provider<VRSceneConfig> sceneConfig, Provider<OpenXRBridge> vrBridge,
+                                      Provider<VRRenderer> vrRenderer) {
+        return new StartupGraph.Builder()
+                .add(NATIVE_LIBRARY, OpenXRBridge::loadNativeLibrary)
+                .add(ENGINE_CLASSES, () -> ClassPreloader.preload(ClassPreloader.ENGINE_CLASSES))
+                .add(SCENE_CONFIG, sceneConfig::get)
+                .add(VR_BRIDGE, vrBridge::get, NATIVE_LIBRARY)
+                // Reading the FOV touches the renderer's native side
+                .add(VR_RENDERER, () -> vrRenderer.get().getFovTangents(), NATIVE_LIBRARY)
+                .build();
+    }
+}
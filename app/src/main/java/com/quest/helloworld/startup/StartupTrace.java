@@ -0,0 +1,143 @@
+package com.quest.helloworld.startup;
+
+import android.os.Trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Timeline of the startup path, from process start to the first frame.
+ *
+ * Each phase is a named span on one thread, recorded with
+ * {@link #begin(String)} and {@link Span#close()}; the same span also shows
+ * up as a section in a system trace. Times are kept relative to an origin,
+ * normally the process start, so {@link #summary()} reads as a per-phase
+ * breakdown of launch time. Safe to record from any thread.
+ */
+public class StartupTrace {
+
+    /** One recorded phase. */
+    public static final class Phase {
+        public final String name;
+        public final String thread;
+        public final long startNanos;
+        public final long endNanos;
+
+        Phase(String name, String thread, long startNanos, long endNanos) {
+            this.name = name;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+
+        public long getDurationNanos() {
+            return endNanos - startNanos;
+        }
+    }
+
+    /** A phase in progress; closing it records it. */
+    public final class Span implements AutoCloseable {
+        private final String name;
+        private final long start;
+        private boolean closed = false;
+
+        private Span(String name, long start) {
+            this.name = name;
+            this.start = start;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            Trace.endSection();
+            record(name, start, System.nanoTime());
+        }
+    }
+
+    private final long originNanos;
+    private final List<Phase> phases = new ArrayList<>();
+
+    /**
+     * @param originNanos {@link System#nanoTime()} at the moment times are measured from
+     */
+    public StartupTrace(long originNanos) {
+        this.originNanos = originNanos;
+    }
+
+    public long getOriginNanos() {
+        return originNanos;
+    }
+
+    /**
+     * Start a phase on the calling thread. Close it on the same thread.
+     */
+    public Span begin(String name) {
+        Trace.beginSection(name);
+        return new Span(name, System.nanoTime());
+    }
+
+    /**
+     * Record a phase measured elsewhere, on the calling thread.
+     * @param startNanos {@link System#nanoTime()} at its start
+     * @param endNanos {@link System#nanoTime()} at its end
+     */
+    public void record(String name, long startNanos, long endNanos) {
+        Phase phase = new Phase(name, Thread.currentThread().getName(),
+                startNanos - originNanos, endNanos - originNanos);
+        synchronized (phases) {
+            phases.add(phase);
+        }
+    }
+
+    /**
+     * Record a point in time, such as the first frame, as a phase of no length.
+     */
+    public void mark(String name) {
+        long now = System.nanoTime();
+        record(name, now, now);
+    }
+
+    /**
+     * Phases recorded so far, in order of their start.
+     */
+    public List<Phase> getPhases() {
+        List<Phase> copy;
+        synchronized (phases) {
+            copy = new ArrayList<>(phases);
+        }
+        copy.sort((a, b) -> Long.compare(a.startNanos, b.startNanos));
+        return copy;
+    }
+
+    /**
+     * The phase with this name, or null if it hasn't been recorded.
+     */
+    public Phase getPhase(String name) {
+        synchronized (phases) {
+            for (Phase phase : phases) {
+                if (phase.name.equals(name)) {
+                    return phase;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One line per phase: where it starts and ends from the origin, how
+     * long it took and on which thread.
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder("Startup trace (ms from process start):");
+        for (Phase phase : getPhases()) {
+            sb.append(String.format(Locale.US, "%n  %8.1f - %8.1f %8.1f  %-28s %s",
+                    phase.startNanos * 1e-6, phase.endNanos * 1e-6, phase.getDurationNanos() * 1e-6,
+                    phase.name, phase.thread));
+        }
+        return sb.toString();
+    }
+}
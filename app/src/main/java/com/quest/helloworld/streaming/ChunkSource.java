@@ -0,0 +1,18 @@
+package com.quest.helloworld.streaming;
+
+import com.jme3.scene.Spatial;
+
+/**
+ * Produces the content of a world chunk.
+ * Called on a background loader thread, so implementations must not
+ * touch the live scene graph or issue GL calls.
+ */
+public interface ChunkSource {
+
+    /**
+     * Build the content of the chunk at the given chunk coordinates.
+     * The returned spatial is positioned in world space.
+     * @return the chunk content, or null if the chunk is empty
+     */
+    Spatial loadChunk(int chunkX, int chunkZ) throws Exception;
+}
@@ -0,0 +1,514 @@
+package com.quest.helloworld.streaming;
+
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.quest.helloworld.memory.MemorySizes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Streams world chunks in and out of the scene graph around the head.
+ *
+ * Chunks are built on background loader threads by a {@link ChunkSource}.
+ * The render thread decides which chunks are wanted (around the head and
+ * around a point predicted along the head velocity), unloads distant ones
+ * when the memory budget is exceeded, and attaches/detaches finished chunks
+ * in batches capped by a per-frame time budget. A chunk whose load fails
+ * is tried again while it's still wanted, after a delay that doubles with
+ * each failure.
+ *
+ * This class has no dependency on the application or the GL context, so it
+ * can be driven headlessly with a {@link SyntheticChunkSource} and a
+ * {@link ScriptedWalkPath}.
+ */
+public class ChunkStreamer {
+
+    private static final Comparator<WorldChunk> NEAREST_FIRST =
+            (a, b) -> Float.compare(a.getDistance(), b.getDistance());
+
+    // Weight of the newest sample in the smoothed head velocity
+    private static final float VELOCITY_SMOOTHING = 0.2f;
+
+    // Delay before reloading a failed chunk, doubled per failure up to the cap
+    private static final long RETRY_DELAY_NANOS = 250_000_000L;
+    private static final long MAX_RETRY_DELAY_NANOS = 8_000_000_000L;
+
+    private final StreamingConfig config;
+    private final ChunkSource source;
+    private final HeadPositionSource head;
+    private final Node worldNode;
+    private final LongSupplier clock;
+    private final ExecutorService loader;
+
+    // Render-thread state
+    private final Map<Long, WorldChunk> chunks = new HashMap<>();
+    private final List<WorldChunk> attachQueue = new ArrayList<>();
+    private final List<WorldChunk> detachQueue = new ArrayList<>();
+    private final List<WorldChunk> evictionCandidates = new ArrayList<>();
+    private final List<WorldChunk> retries = new ArrayList<>();
+    private final int[] ringOffsets;
+
+    // Handoff from loader threads
+    private final ConcurrentLinkedQueue<WorldChunk> completed = new ConcurrentLinkedQueue<>();
+
+    private boolean hasLastPosition = false;
+    private float lastX, lastZ;
+    private float velocityX, velocityZ;
+    private int pendingLoads = 0;
+    private long residentBytes = 0;
+
+    // Statistics
+    private long lastFrameSceneNanos = 0;
+    private long maxFrameSceneNanos = 0;
+    private int chunksLoaded = 0;
+    private int chunksUnloaded = 0;
+    private int chunksEvicted = 0;
+    private int loadFailures = 0;
+
+    public ChunkStreamer(StreamingConfig config, ChunkSource source, HeadPositionSource head, Node worldNode) {
+        this(config, source, head, worldNode, System::nanoTime);
+    }
+
+    /**
+     * @param clock nanosecond clock used for the per-frame attach budget and load retries
+     */
+    public ChunkStreamer(StreamingConfig config, ChunkSource source, HeadPositionSource head,
+                         Node worldNode, LongSupplier clock) {
+        this.config = config;
+        this.source = source;
+        this.head = head;
+        this.worldNode = worldNode;
+        this.clock = clock;
+        this.loader = Executors.newFixedThreadPool(config.getLoaderThreads(), new LoaderThreadFactory());
+        this.ringOffsets = buildRingOffsets(config.getLoadRadius());
+    }
+
+    /**
+     * Advance streaming by one frame. Must be called on the render thread.
+     * @param tpf time since the last frame in seconds
+     */
+    public void update(float tpf) {
+        float[] pos = head.getHeadPosition();
+        updateVelocity(pos[0], pos[2], tpf);
+
+        float chunkSize = config.getChunkSize();
+        float headCX = pos[0] / chunkSize;
+        float headCZ = pos[2] / chunkSize;
+        float prefetchCX = (pos[0] + velocityX * config.getPrefetchSeconds()) / chunkSize;
+        float prefetchCZ = (pos[2] + velocityZ * config.getPrefetchSeconds()) / chunkSize;
+
+        updateDistances(headCX, headCZ, prefetchCX, prefetchCZ);
+        drainCompleted();
+        selectUnloads();
+        enforceBudget();
+
+        retryFailed();
+        // Current position first so prefetch never starves the chunks we stand in
+        requestLoads(headCX, headCZ, headCX, headCZ, prefetchCX, prefetchCZ);
+        requestLoads(prefetchCX, prefetchCZ, headCX, headCZ, prefetchCX, prefetchCZ);
+
+        applySceneChanges();
+    }
+
+    private void updateVelocity(float x, float z, float tpf) {
+        if (hasLastPosition && tpf > 0f) {
+            float vx = (x - lastX) / tpf;
+            float vz = (z - lastZ) / tpf;
+            velocityX += (vx - velocityX) * VELOCITY_SMOOTHING;
+            velocityZ += (vz - velocityZ) * VELOCITY_SMOOTHING;
+        }
+        lastX = x;
+        lastZ = z;
+        hasLastPosition = true;
+    }
+
+    private void updateDistances(float headCX, float headCZ, float prefetchCX, float prefetchCZ) {
+        int loadRadius = config.getLoadRadius();
+        for (WorldChunk chunk : chunks.values()) {
+            float distance = chunkDistance(chunk.getChunkX(), chunk.getChunkZ(),
+                    headCX, headCZ, prefetchCX, prefetchCZ);
+            chunk.setDistance(distance);
+            chunk.setWanted(distance <= loadRadius);
+        }
+    }
+
+    /**
+     * Distance in chunks from the chunk center to the nearer of the two focus points.
+     */
+    private static float chunkDistance(int cx, int cz, float headCX, float headCZ,
+                                       float prefetchCX, float prefetchCZ) {
+        float centerX = cx + 0.5f;
+        float centerZ = cz + 0.5f;
+        float hx = centerX - headCX;
+        float hz = centerZ - headCZ;
+        float px = centerX - prefetchCX;
+        float pz = centerZ - prefetchCZ;
+        return (float) Math.sqrt(Math.min(hx * hx + hz * hz, px * px + pz * pz));
+    }
+
+    /**
+     * Move chunks finished by the loader threads into the attach queue.
+     * Only here does a chunk leave LOADING, so READY and ATTACHED chunks
+     * are exactly the ones counted in the resident bytes.
+     */
+    private void drainCompleted() {
+        WorldChunk chunk;
+        while ((chunk = completed.poll()) != null) {
+            pendingLoads--;
+
+            // Dropped while it was loading
+            if (chunks.get(chunk.getKey()) != chunk) {
+                chunk.setContent(null, 0);
+                chunk.setState(WorldChunk.State.UNLOADED);
+                continue;
+            }
+
+            if (chunk.isLoadFailed()) {
+                int failures = chunk.getLoadFailures();
+                long delay = RETRY_DELAY_NANOS << Math.min(failures - 1, 5);
+                chunk.setRetryAt(clock.getAsLong() + Math.min(delay, MAX_RETRY_DELAY_NANOS));
+                chunk.setState(WorldChunk.State.FAILED);
+                loadFailures++;
+                continue;
+            }
+
+            chunk.setState(WorldChunk.State.READY);
+            chunksLoaded++;
+            residentBytes += chunk.getEstimatedBytes();
+            if (chunk.getContent() != null) {
+                attachQueue.add(chunk);
+            } else {
+                // Empty chunk - nothing to attach, but keep it resident so it isn't reloaded
+                chunk.setState(WorldChunk.State.ATTACHED);
+            }
+        }
+    }
+
+    /**
+     * Drop chunks that are outside the unload radius of both focus points.
+     */
+    private void selectUnloads() {
+        int unloadRadius = config.getUnloadRadius();
+        Iterator<WorldChunk> it = chunks.values().iterator();
+        while (it.hasNext()) {
+            WorldChunk chunk = it.next();
+            if (chunk.getDistance() > unloadRadius) {
+                it.remove();
+                release(chunk);
+                chunksUnloaded++;
+            }
+        }
+    }
+
+    /**
+     * Evict the furthest unwanted chunks until resident memory fits the budget.
+     * Chunks inside the load radius are never evicted, otherwise they would
+     * immediately be requested again.
+     */
+    private void enforceBudget() {
+        if (residentBytes <= config.getMemoryBudgetBytes()) {
+            return;
+        }
+
+        evictionCandidates.clear();
+        for (WorldChunk chunk : chunks.values()) {
+            WorldChunk.State state = chunk.getState();
+            if (!chunk.isWanted() && (state == WorldChunk.State.READY || state == WorldChunk.State.ATTACHED)) {
+                evictionCandidates.add(chunk);
+            }
+        }
+        evictionCandidates.sort(NEAREST_FIRST);
+
+        for (int i = evictionCandidates.size() - 1; i >= 0 && residentBytes > config.getMemoryBudgetBytes(); i--) {
+            WorldChunk chunk = evictionCandidates.get(i);
+            chunks.remove(chunk.getKey());
+            release(chunk);
+            chunksEvicted++;
+        }
+        evictionCandidates.clear();
+    }
+
+    /**
+     * Forget a chunk that has been removed from the chunk map.
+     */
+    private void release(WorldChunk chunk) {
+        switch (chunk.getState()) {
+            case READY:
+                attachQueue.remove(chunk);
+                residentBytes -= chunk.getEstimatedBytes();
+                chunk.setContent(null, 0);
+                chunk.setState(WorldChunk.State.UNLOADED);
+                break;
+            case ATTACHED:
+                residentBytes -= chunk.getEstimatedBytes();
+                if (chunk.getContent() != null) {
+                    detachQueue.add(chunk);
+                } else {
+                    chunk.setState(WorldChunk.State.UNLOADED);
+                }
+                break;
+            default:
+                // LOADING chunks were never counted and are discarded in drainCompleted(), FAILED ones just go away
+                break;
+        }
+    }
+
+    /**
+     * Load failed chunks again once their delay has passed, nearest first,
+     * if they're still wanted. Unwanted ones wait, and go when they're
+     * unloaded.
+     */
+    private void retryFailed() {
+        long now = clock.getAsLong();
+        retries.clear();
+        for (WorldChunk chunk : chunks.values()) {
+            if (chunk.getState() == WorldChunk.State.FAILED && chunk.isWanted() && now - chunk.getRetryAt() >= 0) {
+                retries.add(chunk);
+            }
+        }
+        retries.sort(NEAREST_FIRST);
+        for (int i = 0; i < retries.size() && pendingLoads < config.getMaxPendingLoads(); i++) {
+            WorldChunk chunk = retries.get(i);
+            chunk.setState(WorldChunk.State.LOADING);
+            pendingLoads++;
+            loader.execute(() -> load(chunk));
+        }
+        retries.clear();
+    }
+
+    /**
+     * Queue loads for missing chunks around a focus point, nearest ring first.
+     */
+    private void requestLoads(float focusCX, float focusCZ, float headCX, float headCZ,
+                              float prefetchCX, float prefetchCZ) {
+        int baseX = (int) Math.floor(focusCX);
+        int baseZ = (int) Math.floor(focusCZ);
+        int loadRadius = config.getLoadRadius();
+        boolean overBudget = residentBytes > config.getMemoryBudgetBytes();
+
+        for (int i = 0; i < ringOffsets.length && pendingLoads < config.getMaxPendingLoads(); i += 2) {
+            int cx = baseX + ringOffsets[i];
+            int cz = baseZ + ringOffsets[i + 1];
+            long key = WorldChunk.key(cx, cz);
+            if (chunks.containsKey(key)) {
+                continue;
+            }
+
+            float distance = chunkDistance(cx, cz, headCX, headCZ, prefetchCX, prefetchCZ);
+            // When over budget, only the chunks right around the head are still fetched
+            if (distance > loadRadius || (overBudget && distance > 1.5f)) {
+                continue;
+            }
+
+            WorldChunk chunk = new WorldChunk(cx, cz);
+            chunk.setDistance(distance);
+            chunks.put(key, chunk);
+            pendingLoads++;
+            loader.execute(() -> load(chunk));
+        }
+    }
+
+    /**
+     * Runs on a loader thread. Fills in the content but leaves the state to
+     * {@link #drainCompleted()}, so the render thread never sees a chunk
+     * as loaded before it has counted its bytes.
+     */
+    private void load(WorldChunk chunk) {
+        chunk.clearLoadFailed();
+        try {
+            Spatial content = source.loadChunk(chunk.getChunkX(), chunk.getChunkZ());
+            chunk.setContent(content, content != null ? MemorySizes.spatialMeshBytes(content) : 0);
+        } catch (Exception e) {
+            chunk.setLoadFailed();
+        }
+        completed.add(chunk);
+    }
+
+    /**
+     * Apply queued detaches, then attaches, until the per-frame time cap is used.
+     * At least one operation is performed per frame so streaming always progresses.
+     */
+    private void applySceneChanges() {
+        long start = clock.getAsLong();
+        long budget = config.getAttachBudgetNanos();
+        int ops = 0;
+
+        while (!detachQueue.isEmpty() && (ops == 0 || clock.getAsLong() - start < budget)) {
+            WorldChunk chunk = detachQueue.remove(detachQueue.size() - 1);
+            chunk.getContent().removeFromParent();
+            chunk.setContent(null, 0);
+            chunk.setState(WorldChunk.State.UNLOADED);
+            ops++;
+        }
+
+        if (!attachQueue.isEmpty()) {
+            attachQueue.sort(NEAREST_FIRST);
+            int attached = 0;
+            while (attached < attachQueue.size() && (ops == 0 || clock.getAsLong() - start < budget)) {
+                WorldChunk chunk = attachQueue.get(attached++);
+                worldNode.attachChild(chunk.getContent());
+                chunk.setState(WorldChunk.State.ATTACHED);
+                ops++;
+            }
+            attachQueue.subList(0, attached).clear();
+        }
+
+        lastFrameSceneNanos = ops > 0 ? clock.getAsLong() - start : 0;
+        maxFrameSceneNanos = Math.max(maxFrameSceneNanos, lastFrameSceneNanos);
+    }
+
+    /**
+     * Stop the loader threads and detach every streamed chunk.
+     */
+    public void shutdown() {
+        loader.shutdownNow();
+        for (WorldChunk chunk : chunks.values()) {
+            if (chunk.getContent() != null) {
+                chunk.getContent().removeFromParent();
+            }
+            chunk.setState(WorldChunk.State.UNLOADED);
+        }
+        for (WorldChunk chunk : detachQueue) {
+            chunk.getContent().removeFromParent();
+        }
+        chunks.clear();
+        attachQueue.clear();
+        detachQueue.clear();
+        completed.clear();
+        residentBytes = 0;
+        pendingLoads = 0;
+    }
+
+    /**
+     * Offsets (dx, dz pairs) of every chunk within the radius, nearest first.
+     */
+    private static int[] buildRingOffsets(int radius) {
+        List<int[]> offsets = new ArrayList<>();
+        for (int dz = -radius - 1; dz <= radius + 1; dz++) {
+            for (int dx = -radius - 1; dx <= radius + 1; dx++) {
+                offsets.add(new int[]{dx, dz});
+            }
+        }
+        offsets.sort(Comparator.comparingInt(o -> (2 * o[0] + 1) * (2 * o[0] + 1) + (2 * o[1] + 1) * (2 * o[1] + 1)));
+
+        int[] flat = new int[offsets.size() * 2];
+        for (int i = 0; i < offsets.size(); i++) {
+            flat[i * 2] = offsets.get(i)[0];
+            flat[i * 2 + 1] = offsets.get(i)[1];
+        }
+        return flat;
+    }
+
+    public Node getWorldNode() {
+        return worldNode;
+    }
+
+    /**
+     * @return smoothed head velocity on the XZ plane [x, z] in meters per second
+     */
+    public float[] getHeadVelocity() {
+        return new float[]{velocityX, velocityZ};
+    }
+
+    /**
+     * @return the chunk at the given coordinates, or null if it is not tracked
+     */
+    public WorldChunk getChunk(int chunkX, int chunkZ) {
+        return chunks.get(WorldChunk.key(chunkX, chunkZ));
+    }
+
+    /**
+     * @return number of chunks currently attached to the world node
+     */
+    public int getAttachedChunkCount() {
+        int count = 0;
+        for (WorldChunk chunk : chunks.values()) {
+            if (chunk.getState() == WorldChunk.State.ATTACHED && chunk.getContent() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getTrackedChunkCount() {
+        return chunks.size();
+    }
+
+    public int getPendingLoads() {
+        return pendingLoads;
+    }
+
+    public int getAttachQueueSize() {
+        return attachQueue.size();
+    }
+
+    public int getDetachQueueSize() {
+        return detachQueue.size();
+    }
+
+    /** Estimated bytes of all loaded chunks, attached or waiting to attach. */
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public long getLastFrameSceneNanos() {
+        return lastFrameSceneNanos;
+    }
+
+    public long getMaxFrameSceneNanos() {
+        return maxFrameSceneNanos;
+    }
+
+    public int getChunksLoaded() {
+        return chunksLoaded;
+    }
+
+    public int getChunksUnloaded() {
+        return chunksUnloaded;
+    }
+
+    public int getChunksEvicted() {
+        return chunksEvicted;
+    }
+
+    public int getLoadFailures() {
+        return loadFailures;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkStreamer[tracked=" + chunks.size()
+                + ", pending=" + pendingLoads
+                + ", attachQueue=" + attachQueue.size()
+                + ", detachQueue=" + detachQueue.size()
+                + ", residentBytes=" + residentBytes
+                + ", velocity=" + Arrays.toString(getHeadVelocity()) + "]";
+    }
+
+    /**
+     * Daemon, below-normal priority threads so loading never competes with rendering.
+     */
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "ChunkLoader-" + count.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        }
+    }
+}
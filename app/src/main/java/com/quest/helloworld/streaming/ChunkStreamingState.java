@@ -0,0 +1,72 @@
+package com.quest.helloworld.streaming;
+
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.scene.Node;
+
+/**
+ * App state that runs a {@link ChunkStreamer} on the render thread and
+ * attaches the streamed world under the application's root node.
+ */
+public class ChunkStreamingState extends AbstractAppState {
+
+    private static final String TAG = "ChunkStreaming";
+
+    private final StreamingConfig config;
+    private final ChunkSource source;
+    private final HeadPositionSource head;
+
+    private Node worldNode;
+    private ChunkStreamer streamer;
+    private float logTimer = 0f;
+
+    public ChunkStreamingState(StreamingConfig config, ChunkSource source, HeadPositionSource head) {
+        this.config = config;
+        this.source = source;
+        this.head = head;
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+
+        worldNode = new Node("StreamedWorld");
+        ((SimpleApplication) app).getRootNode().attachChild(worldNode);
+        streamer = new ChunkStreamer(config, source, head, worldNode);
+
+        Log.i(TAG, "Chunk streaming started - chunk size: " + config.getChunkSize()
+                + "m, load radius: " + config.getLoadRadius());
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        streamer.update(tpf);
+
+        // Log streaming stats every 5 seconds
+        logTimer += tpf;
+        if (logTimer >= 5f) {
+            logTimer = 0f;
+            Log.i(TAG, streamer.toString());
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        if (streamer != null) {
+            streamer.shutdown();
+        }
+        if (worldNode != null) {
+            worldNode.removeFromParent();
+        }
+    }
+
+    public ChunkStreamer getStreamer() {
+        return streamer;
+    }
+}
@@ -0,0 +1,13 @@
+package com.quest.helloworld.streaming;
+
+/**
+ * Supplies the tracked head position that drives streaming.
+ * {@code OpenXRBridge::getHeadPosition} satisfies this interface.
+ */
+public interface HeadPositionSource {
+
+    /**
+     * @return float array [x, y, z] in meters
+     */
+    float[] getHeadPosition();
+}
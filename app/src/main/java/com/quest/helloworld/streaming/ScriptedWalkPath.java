@@ -0,0 +1,100 @@
+package com.quest.helloworld.streaming;
+
+import com.quest.helloworld.vr.OpenXRBridge;
+
+/**
+ * A head position that walks a fixed polyline at constant speed.
+ * Stands in for real head tracking in headless streaming runs, and can also
+ * push its pose into {@link OpenXRBridge} to drive the simulated tracker.
+ */
+public class ScriptedWalkPath implements HeadPositionSource {
+
+    private final float[] waypoints;
+    private final float speed;
+    private final boolean loop;
+    private final float[] position = new float[3];
+
+    private int segment = 0;
+    private float segmentProgress = 0f;
+    private boolean finished = false;
+
+    /**
+     * @param waypoints flattened [x, y, z] triples, at least two points
+     * @param speed walking speed in meters per second
+     * @param loop whether to return to the first waypoint after the last one
+     */
+    public ScriptedWalkPath(float[] waypoints, float speed, boolean loop) {
+        if (waypoints.length < 6 || waypoints.length % 3 != 0) {
+            throw new IllegalArgumentException("Need at least two [x, y, z] waypoints");
+        }
+        this.waypoints = waypoints.clone();
+        this.speed = speed;
+        this.loop = loop;
+        System.arraycopy(waypoints, 0, position, 0, 3);
+    }
+
+    /**
+     * Move along the path.
+     * @param tpf elapsed time in seconds
+     */
+    public void advance(float tpf) {
+        float remaining = speed * tpf;
+        int segments = waypoints.length / 3 - 1;
+
+        while (remaining > 0f && !finished) {
+            int a = segment * 3;
+            int b = a + 3;
+            float length = distance(a, b);
+            float left = length - segmentProgress;
+
+            if (remaining < left) {
+                segmentProgress += remaining;
+                remaining = 0f;
+            } else {
+                remaining -= left;
+                segmentProgress = 0f;
+                segment++;
+                if (segment >= segments) {
+                    if (loop) {
+                        segment = 0;
+                    } else {
+                        segment = segments - 1;
+                        segmentProgress = distance(segment * 3, segment * 3 + 3);
+                        finished = true;
+                    }
+                }
+            }
+        }
+
+        int a = segment * 3;
+        int b = a + 3;
+        float length = distance(a, b);
+        float t = length > 0f ? segmentProgress / length : 0f;
+        for (int i = 0; i < 3; i++) {
+            position[i] = waypoints[a + i] + (waypoints[b + i] - waypoints[a + i]) * t;
+        }
+    }
+
+    /**
+     * Push the current position into the bridge as the simulated head pose.
+     */
+    public void applyTo(OpenXRBridge bridge) {
+        bridge.updateHeadPose(position[0], position[1], position[2], 0f, 0f, 0f);
+    }
+
+    private float distance(int a, int b) {
+        float dx = waypoints[b] - waypoints[a];
+        float dy = waypoints[b + 1] - waypoints[a + 1];
+        float dz = waypoints[b + 2] - waypoints[a + 2];
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    @Override
+    public float[] getHeadPosition() {
+        return position.clone();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+}
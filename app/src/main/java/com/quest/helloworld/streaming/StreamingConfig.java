@@ -0,0 +1,125 @@
+package com.quest.helloworld.streaming;
+
+/**
+ * Configuration for chunked world streaming.
+ * Uses the builder pattern, like {@link com.quest.helloworld.vr.VRSceneConfig}.
+ */
+public class StreamingConfig {
+
+    private final float chunkSize;
+    private final int loadRadius;
+    private final int unloadRadius;
+    private final float prefetchSeconds;
+    private final long memoryBudgetBytes;
+    private final long attachBudgetNanos;
+    private final int loaderThreads;
+    private final int maxPendingLoads;
+
+    private StreamingConfig(Builder builder) {
+        this.chunkSize = builder.chunkSize;
+        this.loadRadius = builder.loadRadius;
+        this.unloadRadius = Math.max(builder.unloadRadius, builder.loadRadius + 1);
+        this.prefetchSeconds = builder.prefetchSeconds;
+        this.memoryBudgetBytes = builder.memoryBudgetBytes;
+        this.attachBudgetNanos = builder.attachBudgetNanos;
+        this.loaderThreads = builder.loaderThreads;
+        this.maxPendingLoads = builder.maxPendingLoads;
+    }
+
+    /** Edge length of a square chunk on the XZ plane, in meters. */
+    public float getChunkSize() {
+        return chunkSize;
+    }
+
+    /** Chunks within this many chunks of the head (or the prefetch point) are loaded. */
+    public int getLoadRadius() {
+        return loadRadius;
+    }
+
+    /** Chunks further than this from both the head and the prefetch point are unloaded. */
+    public int getUnloadRadius() {
+        return unloadRadius;
+    }
+
+    /** How far ahead along the head velocity to prefetch, in seconds of travel. */
+    public float getPrefetchSeconds() {
+        return prefetchSeconds;
+    }
+
+    /** Upper bound on estimated mesh bytes held by resident chunks. */
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    /** Time cap for attach/detach work on the render thread per frame. */
+    public long getAttachBudgetNanos() {
+        return attachBudgetNanos;
+    }
+
+    public int getLoaderThreads() {
+        return loaderThreads;
+    }
+
+    /** Maximum number of chunk loads queued or running at once. */
+    public int getMaxPendingLoads() {
+        return maxPendingLoads;
+    }
+
+    /**
+     * Builder for creating StreamingConfig instances.
+     */
+    public static class Builder {
+        private float chunkSize = 16f;
+        private int loadRadius = 2;
+        private int unloadRadius = 4;
+        private float prefetchSeconds = 1.5f;
+        private long memoryBudgetBytes = 64L * 1024 * 1024;
+        private long attachBudgetNanos = 1_000_000L;  // 1 ms
+        private int loaderThreads = 1;
+        private int maxPendingLoads = 8;
+
+        public Builder setChunkSize(float chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public Builder setLoadRadius(int loadRadius) {
+            this.loadRadius = loadRadius;
+            return this;
+        }
+
+        public Builder setUnloadRadius(int unloadRadius) {
+            this.unloadRadius = unloadRadius;
+            return this;
+        }
+
+        public Builder setPrefetchSeconds(float prefetchSeconds) {
+            this.prefetchSeconds = prefetchSeconds;
+            return this;
+        }
+
+        public Builder setMemoryBudgetBytes(long memoryBudgetBytes) {
+            this.memoryBudgetBytes = memoryBudgetBytes;
+            return this;
+        }
+
+        public Builder setAttachBudgetMillis(float millis) {
+            this.attachBudgetNanos = (long) (millis * 1_000_000L);
+            return this;
+        }
+
+        public Builder setLoaderThreads(int loaderThreads) {
+            this.loaderThreads = loaderThreads;
+            return this;
+        }
+
+        public Builder setMaxPendingLoads(int maxPendingLoads) {
+            this.maxPendingLoads = maxPendingLoads;
+            return this;
+        }
+
+        public StreamingConfig build() {
+            return new StreamingConfig(this);
+        }
+    }
+}
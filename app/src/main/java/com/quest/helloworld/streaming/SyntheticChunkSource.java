@@ -0,0 +1,80 @@
+package com.quest.helloworld.streaming;
+
+import com.jme3.material.Material;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.shape.Box;
+
+import java.util.Random;
+
+/**
+ * Deterministic procedural world for exercising the streamer without assets.
+ * Each chunk contains a ground tile and a seeded number of boxes, and can
+ * optionally simulate I/O latency.
+ */
+public class SyntheticChunkSource implements ChunkSource {
+
+    private final float chunkSize;
+    private final int maxObjectsPerChunk;
+    private final long seed;
+    private final long latencyMillis;
+    private final Material material;
+
+    /**
+     * @param chunkSize chunk edge length, must match {@link StreamingConfig#getChunkSize()}
+     * @param maxObjectsPerChunk upper bound on boxes generated per chunk
+     * @param seed world seed
+     * @param latencyMillis artificial delay per chunk to simulate disk or network loading
+     * @param material shared material, or null when running without a renderer
+     */
+    public SyntheticChunkSource(float chunkSize, int maxObjectsPerChunk, long seed,
+                                long latencyMillis, Material material) {
+        this.chunkSize = chunkSize;
+        this.maxObjectsPerChunk = maxObjectsPerChunk;
+        this.seed = seed;
+        this.latencyMillis = latencyMillis;
+        this.material = material;
+    }
+
+    @Override
+    public Spatial loadChunk(int chunkX, int chunkZ) throws Exception {
+        if (latencyMillis > 0) {
+            Thread.sleep(latencyMillis);
+        }
+
+        Random random = new Random(seed ^ WorldChunk.key(chunkX, chunkZ) * 0x9E3779B97F4A7C15L);
+        float originX = chunkX * chunkSize;
+        float originZ = chunkZ * chunkSize;
+        float half = chunkSize / 2f;
+
+        Node node = new Node("Chunk_" + chunkX + "_" + chunkZ);
+
+        Geometry tile = new Geometry("Tile", new Box(half, 0.05f, half));
+        tile.setLocalTranslation(originX + half, -0.05f, originZ + half);
+        applyMaterial(tile);
+        node.attachChild(tile);
+
+        int objects = random.nextInt(maxObjectsPerChunk + 1);
+        for (int i = 0; i < objects; i++) {
+            float size = 0.2f + random.nextFloat() * 0.8f;
+            Geometry geo = new Geometry("Prop", new Box(size, size, size));
+            geo.setLocalTranslation(
+                    originX + random.nextFloat() * chunkSize,
+                    size,
+                    originZ + random.nextFloat() * chunkSize);
+            applyMaterial(geo);
+            node.attachChild(geo);
+        }
+
+        // Bring bounds up to date here rather than on the render thread
+        node.updateGeometricState();
+        return node;
+    }
+
+    private void applyMaterial(Geometry geo) {
+        if (material != null) {
+            geo.setMaterial(material);
+        }
+    }
+}
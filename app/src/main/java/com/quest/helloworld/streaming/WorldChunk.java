@@ -0,0 +1,141 @@
+package com.quest.helloworld.streaming;
+
+import com.jme3.scene.Spatial;
+
+/**
+ * A square region of the world on the XZ plane and its loaded content.
+ */
+public class WorldChunk {
+
+    /**
+     * Lifecycle of a chunk. Every transition happens on the render thread:
+     * a chunk stays LOADING after the loader thread fills in its content,
+     * until the render thread takes it from the loader and counts its bytes.
+     */
+    public enum State {
+        LOADING,
+        READY,
+        ATTACHED,
+        FAILED,
+        UNLOADED
+    }
+
+    private final int chunkX;
+    private final int chunkZ;
+    private volatile State state = State.LOADING;
+    private volatile Spatial content;
+    private volatile long estimatedBytes;
+    private volatile boolean loadFailed;
+    private volatile int loadFailures;
+
+    // Render-thread bookkeeping
+    private boolean wanted = true;
+    private float distance;
+    private long retryAt;
+
+    WorldChunk(int chunkX, int chunkZ) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+    }
+
+    /**
+     * Pack chunk coordinates into a single map key.
+     */
+    public static long key(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xffffffffL);
+    }
+
+    public long getKey() {
+        return key(chunkX, chunkZ);
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    public Spatial getContent() {
+        return content;
+    }
+
+    void setContent(Spatial content, long estimatedBytes) {
+        this.content = content;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * @return whether the source threw while loading this chunk
+     */
+    boolean isLoadFailed() {
+        return loadFailed;
+    }
+
+    void setLoadFailed() {
+        this.loadFailed = true;
+        this.loadFailures++;
+    }
+
+    void clearLoadFailed() {
+        this.loadFailed = false;
+    }
+
+    /**
+     * @return how many times loading this chunk has failed
+     */
+    int getLoadFailures() {
+        return loadFailures;
+    }
+
+    /**
+     * @return clock time after which a failed load is tried again
+     */
+    long getRetryAt() {
+        return retryAt;
+    }
+
+    void setRetryAt(long retryAt) {
+        this.retryAt = retryAt;
+    }
+
+    /**
+     * @return approximate vertex and index buffer bytes held by this chunk
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    boolean isWanted() {
+        return wanted;
+    }
+
+    void setWanted(boolean wanted) {
+        this.wanted = wanted;
+    }
+
+    /**
+     * @return distance in chunks to the nearer of the head and prefetch point
+     */
+    float getDistance() {
+        return distance;
+    }
+
+    void setDistance(float distance) {
+        this.distance = distance;
+    }
+
+    @Override
+    public String toString() {
+        return "WorldChunk(" + chunkX + ", " + chunkZ + ", " + state + ")";
+    }
+}
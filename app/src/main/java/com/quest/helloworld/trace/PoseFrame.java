@@ -0,0 +1,68 @@
+package com.quest.helloworld.trace;
+
+import com.quest.helloworld.vr.OpenXRBridge;
+
+/**
+ * One timestamped sample of head, controller and button state.
+ * Mutable and reused so recording and replay don't allocate per frame.
+ */
+public class PoseFrame {
+
+    /** Time since the start of the trace. */
+    public long timeMicros;
+
+    /** Head position [x, y, z] in meters. */
+    public final float[] headPosition = new float[3];
+
+    /** Head rotation [pitch, yaw, roll] in radians. */
+    public final float[] headRotation = new float[3];
+
+    /** Controller positions, [hand][x, y, z] with 0 = left, 1 = right. */
+    public final float[][] controllerPosition = new float[2][3];
+
+    /** Thumbstick values, [hand][x, y] ranging from -1 to 1. */
+    public final float[][] thumbstick = new float[2][2];
+
+    public final boolean[] trigger = new boolean[2];
+    public final boolean[] grip = new boolean[2];
+
+    /**
+     * Capture the bridge's current tracking state.
+     */
+    public void captureFrom(OpenXRBridge bridge, long timeMicros) {
+        this.timeMicros = timeMicros;
+        System.arraycopy(bridge.getHeadPosition(), 0, headPosition, 0, 3);
+        System.arraycopy(bridge.getHeadRotation(), 0, headRotation, 0, 3);
+        for (int hand = 0; hand < 2; hand++) {
+            System.arraycopy(bridge.getControllerPosition(hand), 0, controllerPosition[hand], 0, 3);
+            System.arraycopy(bridge.getThumbstick(hand), 0, thumbstick[hand], 0, 2);
+            trigger[hand] = bridge.isTriggerPressed(hand);
+            grip[hand] = bridge.isGripPressed(hand);
+        }
+    }
+
+    /**
+     * Push this sample into the bridge as the simulated tracking state.
+     */
+    public void applyTo(OpenXRBridge bridge) {
+        bridge.updateHeadPose(headPosition[0], headPosition[1], headPosition[2],
+                headRotation[0], headRotation[1], headRotation[2]);
+        for (int hand = 0; hand < 2; hand++) {
+            float[] pos = controllerPosition[hand];
+            bridge.updateControllerState(hand, pos[0], pos[1], pos[2],
+                    trigger[hand], grip[hand], thumbstick[hand][0], thumbstick[hand][1]);
+        }
+    }
+
+    public void copyFrom(PoseFrame other) {
+        timeMicros = other.timeMicros;
+        System.arraycopy(other.headPosition, 0, headPosition, 0, 3);
+        System.arraycopy(other.headRotation, 0, headRotation, 0, 3);
+        for (int hand = 0; hand < 2; hand++) {
+            System.arraycopy(other.controllerPosition[hand], 0, controllerPosition[hand], 0, 3);
+            System.arraycopy(other.thumbstick[hand], 0, thumbstick[hand], 0, 2);
+            trigger[hand] = other.trigger[hand];
+            grip[hand] = other.grip[hand];
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.quest.helloworld.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary layout of pose trace files.
+ *
+ * <pre>
+ * Header (32 bytes, little-endian):
+ *   int   magic          'QPT1'
+ *   short version
+ *   short recordSize
+ *   int   frameCount     patched when the recorder is closed
+ *   int   reserved
+ *   long  durationMicros time of the last frame
+ *   long  startEpochMillis wall clock time the recording started
+ *
+ * Record (64 bytes):
+ *   int   timeMicros     since the start of the trace
+ *   float headPosition[3], headRotation[3]
+ *   float leftPosition[3], rightPosition[3]
+ *   short thumbstick[4]  left x, y, right x, y quantized to [-32767, 32767]
+ *   byte  buttons        bit 0/1 trigger left/right, bit 2/3 grip left/right
+ *   byte  reserved[3]
+ * </pre>
+ *
+ * Fixed-size records allow random access by frame index and a 10 minute
+ * session at 72 Hz fits in under 3 MB.
+ */
+public final class PoseTraceFormat {
+
+    public static final int MAGIC = 0x31545051;  // "QPT1" read little-endian
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 64;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int FRAME_COUNT_OFFSET = 8;
+    static final int DURATION_OFFSET = 16;
+    static final int START_TIME_OFFSET = 24;
+
+    private static final float THUMBSTICK_SCALE = 32767f;
+
+    private PoseTraceFormat() {
+    }
+
+    static void writeHeader(ByteBuffer buf, int frameCount, long durationMicros, long startEpochMillis) {
+        buf.putInt(MAGIC);
+        buf.putShort(VERSION);
+        buf.putShort((short) RECORD_SIZE);
+        buf.putInt(frameCount);
+        buf.putInt(0);
+        buf.putLong(durationMicros);
+        buf.putLong(startEpochMillis);
+    }
+
+    /**
+     * Validate the header at the buffer's position.
+     */
+    static void checkHeader(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < HEADER_SIZE) {
+            throw new IOException("Pose trace too short for header");
+        }
+        int base = buf.position();
+        if (buf.getInt(base) != MAGIC) {
+            throw new IOException("Not a pose trace file");
+        }
+        short version = buf.getShort(base + 4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported pose trace version " + version);
+        }
+        if (buf.getShort(base + 6) != RECORD_SIZE) {
+            throw new IOException("Unexpected pose trace record size " + buf.getShort(base + 6));
+        }
+    }
+
+    /**
+     * Write one record at the buffer's position.
+     */
+    static void writeRecord(ByteBuffer buf, PoseFrame frame) {
+        buf.putInt((int) frame.timeMicros);
+        putFloats(buf, frame.headPosition);
+        putFloats(buf, frame.headRotation);
+        putFloats(buf, frame.controllerPosition[0]);
+        putFloats(buf, frame.controllerPosition[1]);
+        for (int hand = 0; hand < 2; hand++) {
+            buf.putShort(quantize(frame.thumbstick[hand][0]));
+            buf.putShort(quantize(frame.thumbstick[hand][1]));
+        }
+        int buttons = (frame.trigger[0] ? 1 : 0)
+                | (frame.trigger[1] ? 2 : 0)
+                | (frame.grip[0] ? 4 : 0)
+                | (frame.grip[1] ? 8 : 0);
+        buf.put((byte) buttons);
+        buf.put((byte) 0);
+        buf.put((byte) 0);
+        buf.put((byte) 0);
+    }
+
+    /**
+     * Read the record starting at an absolute offset without moving the buffer position.
+     */
+    static void readRecord(ByteBuffer buf, int offset, PoseFrame frame) {
+        frame.timeMicros = buf.getInt(offset) & 0xffffffffL;
+        int p = offset + 4;
+        p = getFloats(buf, p, frame.headPosition);
+        p = getFloats(buf, p, frame.headRotation);
+        p = getFloats(buf, p, frame.controllerPosition[0]);
+        p = getFloats(buf, p, frame.controllerPosition[1]);
+        for (int hand = 0; hand < 2; hand++) {
+            frame.thumbstick[hand][0] = buf.getShort(p) / THUMBSTICK_SCALE;
+            frame.thumbstick[hand][1] = buf.getShort(p + 2) / THUMBSTICK_SCALE;
+            p += 4;
+        }
+        int buttons = buf.get(p);
+        frame.trigger[0] = (buttons & 1) != 0;
+        frame.trigger[1] = (buttons & 2) != 0;
+        frame.grip[0] = (buttons & 4) != 0;
+        frame.grip[1] = (buttons & 8) != 0;
+    }
+
+    private static void putFloats(ByteBuffer buf, float[] values) {
+        for (float v : values) {
+            buf.putFloat(v);
+        }
+    }
+
+    private static int getFloats(ByteBuffer buf, int offset, float[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buf.getFloat(offset);
+            offset += 4;
+        }
+        return offset;
+    }
+
+    private static short quantize(float value) {
+        float clamped = Math.max(-1f, Math.min(1f, value));
+        return (short) Math.round(clamped * THUMBSTICK_SCALE);
+    }
+}
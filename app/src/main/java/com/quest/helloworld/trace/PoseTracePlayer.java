@@ -0,0 +1,130 @@
+package com.quest.helloworld.trace;
+
+import com.quest.helloworld.vr.OpenXRBridge;
+
+/**
+ * Feeds a recorded pose trace into {@link OpenXRBridge} frame by frame.
+ */
+public class PoseTracePlayer {
+
+    /**
+     * How replay advances.
+     */
+    public enum Mode {
+        /** Follow the recorded timestamps using the elapsed frame time. */
+        REAL_TIME,
+        /** One recorded frame per call, regardless of elapsed time. */
+        AS_FAST_AS_POSSIBLE
+    }
+
+    private final PoseTraceReader reader;
+    private final Mode mode;
+    private final boolean loop;
+    private final PoseFrame frame = new PoseFrame();
+
+    private int cursor = 0;
+    private boolean started = false;
+    private long elapsedMicros = 0;
+    private int loops = 0;
+    private boolean finished;
+
+    public PoseTracePlayer(PoseTraceReader reader, Mode mode, boolean loop) {
+        this.reader = reader;
+        this.mode = mode;
+        this.loop = loop;
+        this.finished = reader.getFrameCount() == 0;
+    }
+
+    /**
+     * Advance replay and push the current frame into the bridge.
+     * @param tpf elapsed time in seconds, ignored in AS_FAST_AS_POSSIBLE mode
+     * @return false once the trace has ended (never when looping)
+     */
+    public boolean advance(float tpf, OpenXRBridge bridge) {
+        if (!advance(tpf)) {
+            return false;
+        }
+        frame.applyTo(bridge);
+        return true;
+    }
+
+    /**
+     * Advance replay without a bridge; read the result with {@link #getCurrentFrame()}.
+     * @return false once the trace has ended (never when looping)
+     */
+    public boolean advance(float tpf) {
+        if (finished) {
+            return false;
+        }
+
+        int frameCount = reader.getFrameCount();
+        if (mode == Mode.AS_FAST_AS_POSSIBLE) {
+            int next = started ? cursor + 1 : 0;
+            if (next >= frameCount) {
+                if (!rewind()) {
+                    return false;
+                }
+                next = 0;
+            }
+            cursor = next;
+            started = true;
+            reader.read(cursor, frame);
+            return true;
+        }
+
+        elapsedMicros += (long) (tpf * 1_000_000.0);
+        if (elapsedMicros > reader.getDurationMicros()) {
+            if (!rewind()) {
+                // Hold the final pose for this last frame
+                reader.read(frameCount - 1, frame);
+                return true;
+            }
+        }
+        while (cursor + 1 < frameCount && reader.timeMicrosAt(cursor + 1) <= elapsedMicros) {
+            cursor++;
+        }
+        reader.read(cursor, frame);
+        return true;
+    }
+
+    private boolean rewind() {
+        if (!loop) {
+            finished = true;
+            return false;
+        }
+        loops++;
+        cursor = 0;
+        started = false;
+        elapsedMicros = 0;
+        return true;
+    }
+
+    /**
+     * Jump to a time in the trace.
+     */
+    public void seek(long timeMicros) {
+        // Position just before the frame so the next advance() lands on it in either mode
+        int index = reader.findFrame(timeMicros);
+        cursor = Math.max(index - 1, 0);
+        started = index > 0;
+        elapsedMicros = timeMicros;
+        finished = reader.getFrameCount() == 0;
+    }
+
+    public PoseFrame getCurrentFrame() {
+        return frame;
+    }
+
+    /** Index of the frame most recently read. */
+    public int getCursor() {
+        return cursor;
+    }
+
+    public int getLoops() {
+        return loops;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,101 @@
+package com.quest.helloworld.trace;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random access to a pose trace through a memory-mapped buffer.
+ * Reading a frame decodes directly from the mapping without copying the file.
+ */
+public class PoseTraceReader implements Closeable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int frameCount;
+    private final long durationMicros;
+    private final long startEpochMillis;
+
+    public PoseTraceReader(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Pose trace too large: " + size + " bytes");
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(PoseTraceFormat.BYTE_ORDER);
+            PoseTraceFormat.checkHeader(buffer);
+
+            // A recording that wasn't closed cleanly has a zero count; trust the file size then
+            int recorded = buffer.getInt(PoseTraceFormat.FRAME_COUNT_OFFSET);
+            int available = (int) ((size - PoseTraceFormat.HEADER_SIZE) / PoseTraceFormat.RECORD_SIZE);
+            this.frameCount = recorded > 0 ? Math.min(recorded, available) : available;
+            this.startEpochMillis = buffer.getLong(PoseTraceFormat.START_TIME_OFFSET);
+
+            PoseFrame last = new PoseFrame();
+            if (frameCount > 0) {
+                read(frameCount - 1, last);
+            }
+            this.durationMicros = last.timeMicros;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /** Timestamp of the last frame. */
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    /**
+     * Decode a frame by index.
+     */
+    public void read(int index, PoseFrame out) {
+        if (index < 0 || index >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + index + " of " + frameCount);
+        }
+        PoseTraceFormat.readRecord(buffer, PoseTraceFormat.HEADER_SIZE + index * PoseTraceFormat.RECORD_SIZE, out);
+    }
+
+    /**
+     * Timestamp of a frame without decoding the rest of it.
+     */
+    public long timeMicrosAt(int index) {
+        return buffer.getInt(PoseTraceFormat.HEADER_SIZE + index * PoseTraceFormat.RECORD_SIZE) & 0xffffffffL;
+    }
+
+    /**
+     * @return index of the last frame at or before the given time, 0 if none
+     */
+    public int findFrame(long timeMicros) {
+        int lo = 0;
+        int hi = frameCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (timeMicrosAt(mid) <= timeMicros) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,102 @@
+package com.quest.helloworld.trace;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes pose frames to a trace file in {@link PoseTraceFormat}.
+ * Records are staged in a direct buffer and written in large blocks so the
+ * per-frame cost is a handful of buffer puts.
+ */
+public class PoseTraceRecorder implements Closeable {
+
+    // 1024 records per write
+    private static final int BLOCK_SIZE = PoseTraceFormat.RECORD_SIZE * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer block;
+    private final long startEpochMillis;
+    private int frameCount = 0;
+    private long lastTimeMicros = 0;
+    private boolean closed = false;
+
+    public PoseTraceRecorder(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.block = ByteBuffer.allocateDirect(BLOCK_SIZE).order(PoseTraceFormat.BYTE_ORDER);
+        this.startEpochMillis = System.currentTimeMillis();
+
+        // Placeholder header, completed in close()
+        ByteBuffer header = ByteBuffer.allocate(PoseTraceFormat.HEADER_SIZE).order(PoseTraceFormat.BYTE_ORDER);
+        PoseTraceFormat.writeHeader(header, 0, 0, startEpochMillis);
+        header.flip();
+        writeFully(header);
+    }
+
+    /**
+     * Append a frame. Timestamps must not decrease.
+     */
+    public void record(PoseFrame frame) throws IOException {
+        if (closed) {
+            throw new IOException("Recorder is closed");
+        }
+        if (frame.timeMicros < lastTimeMicros) {
+            throw new IllegalArgumentException("Pose frame timestamps must not decrease");
+        }
+        if (frame.timeMicros > 0xffffffffL) {
+            throw new IOException("Pose trace exceeds maximum duration");
+        }
+
+        if (block.remaining() < PoseTraceFormat.RECORD_SIZE) {
+            flush();
+        }
+        PoseTraceFormat.writeRecord(block, frame);
+        lastTimeMicros = frame.timeMicros;
+        frameCount++;
+    }
+
+    /**
+     * Write staged records to the file.
+     */
+    public void flush() throws IOException {
+        block.flip();
+        writeFully(block);
+        block.clear();
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Flush remaining records and finalize the header.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(PoseTraceFormat.HEADER_SIZE).order(PoseTraceFormat.BYTE_ORDER);
+            PoseTraceFormat.writeHeader(header, frameCount, lastTimeMicros, startEpochMillis);
+            header.flip();
+            channel.position(0);
+            writeFully(header);
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeFully(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+}
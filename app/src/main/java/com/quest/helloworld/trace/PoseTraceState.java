@@ -0,0 +1,130 @@
+package com.quest.helloworld.trace;
+
+import android.util.Log;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.quest.helloworld.vr.OpenXRBridge;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * App state that records the bridge's tracking state to a pose trace, or
+ * replays a trace into the bridge, once per frame.
+ * Attach it before any state that reads tracking so replayed poses are
+ * visible in the same frame.
+ */
+public class PoseTraceState extends AbstractAppState {
+
+    private static final String TAG = "PoseTrace";
+
+    private final OpenXRBridge bridge;
+    private final File file;
+    private final boolean recording;
+    private final PoseTracePlayer.Mode replayMode;
+    private final boolean loop;
+
+    private final PoseFrame frame = new PoseFrame();
+    private PoseTraceRecorder recorder;
+    private PoseTraceReader reader;
+    private PoseTracePlayer player;
+    private long elapsedMicros = 0;
+
+    private PoseTraceState(OpenXRBridge bridge, File file, boolean recording,
+                           PoseTracePlayer.Mode replayMode, boolean loop) {
+        this.bridge = bridge;
+        this.file = file;
+        this.recording = recording;
+        this.replayMode = replayMode;
+        this.loop = loop;
+    }
+
+    /**
+     * Create a state that records every frame to the given file.
+     */
+    public static PoseTraceState record(OpenXRBridge bridge, File file) {
+        return new PoseTraceState(bridge, file, true, null, false);
+    }
+
+    /**
+     * Create a state that replays the given trace into the bridge.
+     */
+    public static PoseTraceState replay(OpenXRBridge bridge, File file, PoseTracePlayer.Mode mode, boolean loop) {
+        return new PoseTraceState(bridge, file, false, mode, loop);
+    }
+
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+
+        try {
+            if (recording) {
+                recorder = new PoseTraceRecorder(file);
+                Log.i(TAG, "Recording pose trace to " + file);
+            } else {
+                reader = new PoseTraceReader(file);
+                player = new PoseTracePlayer(reader, replayMode, loop);
+                Log.i(TAG, "Replaying pose trace " + file + " - " + reader.getFrameCount() + " frames, "
+                        + reader.getDurationMicros() / 1_000_000f + "s, " + replayMode);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open pose trace " + file + ": " + e.getMessage());
+            setEnabled(false);
+        }
+    }
+
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+
+        if (recording) {
+            elapsedMicros += (long) (tpf * 1_000_000.0);
+            frame.captureFrom(bridge, elapsedMicros);
+            try {
+                recorder.record(frame);
+            } catch (IOException e) {
+                Log.e(TAG, "Pose trace recording failed: " + e.getMessage());
+                closeQuietly();
+                setEnabled(false);
+            }
+        } else if (!player.advance(tpf, bridge)) {
+            Log.i(TAG, "Pose trace replay finished after " + reader.getFrameCount() + " frames");
+            setEnabled(false);
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (recorder != null) {
+                recorder.close();
+                Log.i(TAG, "Pose trace saved: " + recorder.getFrameCount() + " frames");
+                recorder = null;
+            }
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing pose trace: " + e.getMessage());
+        }
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * @return the replay player, or null when recording
+     */
+    public PoseTracePlayer getPlayer() {
+        return player;
+    }
+}
@@ -0,0 +1,107 @@
+package com.quest.helloworld.vr;
+
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Plane;
+import com.jme3.renderer.Camera;
+
+/**
+ * An eye camera that takes its view, projection and view-projection
+ * matrices from a {@link VRRenderer#computeEyeMatrices} batch as they are,
+ * instead of jME rebuilding them from the camera's location and rotation.
+ *
+ * The location, rotation and frustum planes are still kept up to date,
+ * since the render queue sorts by distance to the camera and culling,
+ * shadows and occlusion read its frame. They are read out of the batch's
+ * matrices too. Camera's own setters still work as usual, and rebuild
+ * everything in Java until the next batch.
+ */
+public class EyeCamera extends Camera {
+
+    // Camera's world plane order, which it keeps private
+    private static final int LEFT_PLANE = 0;
+    private static final int RIGHT_PLANE = 1;
+    private static final int BOTTOM_PLANE = 2;
+    private static final int TOP_PLANE = 3;
+    private static final int FAR_PLANE = 4;
+    private static final int NEAR_PLANE = 5;
+
+    public EyeCamera(Camera source) {
+        super(source.getWidth(), source.getHeight());
+        copyFrom(source);
+    }
+
+    /**
+     * Take one eye's block of a batch.
+     * @param matrices as written by {@link VRRenderer#computeEyeMatrices}
+     * @param base start of the eye's block, 0 or {@link VRRenderer#EYE_MATRICES_STRIDE}
+     */
+    public void setEyeMatrices(float[] matrices, int base) {
+        int view = base + VRRenderer.VIEW_OFFSET;
+        load(viewMatrix, matrices, view);
+        load(projectionMatrix, matrices, base + VRRenderer.PROJECTION_OFFSET);
+        load(viewProjectionMatrix, matrices, base + VRRenderer.VIEW_PROJECTION_OFFSET);
+
+        // The view's rotation rows are the eye's right, up and back axes. jME
+        // cameras look down +Z with +X to their left, so flip right and back.
+        float rightX = matrices[view], rightY = matrices[view + 4], rightZ = matrices[view + 8];
+        float upX = matrices[view + 1], upY = matrices[view + 5], upZ = matrices[view + 9];
+        float backX = matrices[view + 2], backY = matrices[view + 6], backZ = matrices[view + 10];
+        rotation.fromRotationMatrix(
+                -rightX, upX, -backX,
+                -rightY, upY, -backY,
+                -rightZ, upZ, -backZ);
+
+        // Eye position = -R * t, where the view's upper 3x3 is R transposed
+        float tx = matrices[view + 12];
+        float ty = matrices[view + 13];
+        float tz = matrices[view + 14];
+        location.set(
+                -(rightX * tx + upX * ty + backX * tz),
+                -(rightY * tx + upY * ty + backY * tz),
+                -(rightZ * tx + upZ * ty + backZ * tz));
+
+        updatePlanes();
+    }
+
+    /**
+     * Frustum planes from the view-projection matrix's rows, facing inward
+     * as jME's culling expects.
+     */
+    private void updatePlanes() {
+        Matrix4f m = viewProjectionMatrix;
+        setPlane(LEFT_PLANE, m.m30 + m.m00, m.m31 + m.m01, m.m32 + m.m02, m.m33 + m.m03);
+        setPlane(RIGHT_PLANE, m.m30 - m.m00, m.m31 - m.m01, m.m32 - m.m02, m.m33 - m.m03);
+        setPlane(BOTTOM_PLANE, m.m30 + m.m10, m.m31 + m.m11, m.m32 + m.m12, m.m33 + m.m13);
+        setPlane(TOP_PLANE, m.m30 - m.m10, m.m31 - m.m11, m.m32 - m.m12, m.m33 - m.m13);
+        setPlane(NEAR_PLANE, m.m30 + m.m20, m.m31 + m.m21, m.m32 + m.m22, m.m33 + m.m23);
+        setPlane(FAR_PLANE, m.m30 - m.m20, m.m31 - m.m21, m.m32 - m.m22, m.m33 - m.m23);
+    }
+
+    // a*x + b*y + c*z + d >= 0 inside; jME keeps normal . p - constant >= 0
+    private void setPlane(int index, float a, float b, float c, float d) {
+        float scale = 1f / (float) Math.sqrt(a * a + b * b + c * c);
+        Plane plane = worldPlane[index];
+        plane.setNormal(a * scale, b * scale, c * scale);
+        plane.setConstant(-d * scale);
+    }
+
+    /** Load a column-major matrix out of an array. */
+    private static void load(Matrix4f matrix, float[] array, int offset) {
+        matrix.m00 = array[offset];
+        matrix.m10 = array[offset + 1];
+        matrix.m20 = array[offset + 2];
+        matrix.m30 = array[offset + 3];
+        matrix.m01 = array[offset + 4];
+        matrix.m11 = array[offset + 5];
+        matrix.m21 = array[offset + 6];
+        matrix.m31 = array[offset + 7];
+        matrix.m02 = array[offset + 8];
+        matrix.m12 = array[offset + 9];
+        matrix.m22 = array[offset + 10];
+        matrix.m32 = array[offset + 11];
+        matrix.m03 = array[offset + 12];
+        matrix.m13 = array[offset + 13];
+        matrix.m23 = array[offset + 14];
+        matrix.m33 = array[offset + 15];
+    }
+}
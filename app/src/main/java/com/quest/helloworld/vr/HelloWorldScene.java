@@ -14,9 +14,17 @@ import com.jme3.math.FastMath;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
 import com.jme3.scene.Node;
 import com.jme3.scene.shape.Box;
 import com.jme3.scene.shape.Sphere;
+import com.quest.helloworld.jobs.JobPriority;
+import com.quest.helloworld.jobs.RenderJob;
+import com.quest.helloworld.jobs.RenderJobState;
+import com.quest.helloworld.memory.ResourceBudgetState;
+import com.quest.helloworld.mesh.MeshCompressor;
+
+import java.util.function.Supplier;
 
 import javax.inject.Inject;
 
@@ -31,6 +39,9 @@ public class HelloWorldScene extends AbstractAppState {
     
     private Node sceneNode;
     private AssetManager assetManager;
+    private ResourceBudgetState resourceBudget;
+    private RenderJobState renderJobs;
+    private MeshCompressor meshCompressor;
     private BitmapText helloText;
     private Geometry floatingCube;
     private float time = 0f;
@@ -45,6 +56,9 @@ public class HelloWorldScene extends AbstractAppState {
         super.initialize(stateManager, app);
         
         this.assetManager = app.getAssetManager();
+        this.resourceBudget = stateManager.getState(ResourceBudgetState.class);
+        this.renderJobs = stateManager.getState(RenderJobState.class);
+        this.meshCompressor = stateManager.getState(MeshCompressor.class);
         this.sceneNode = new Node("HelloWorldScene");
         
         // Setup the scene
@@ -117,14 +131,27 @@ public class HelloWorldScene extends AbstractAppState {
         cubeMat.setFloat("Shininess", 64f);
         cubeMat.setColor("Ambient", new ColorRGBA(0.2f, 0.1f, 0.05f, 1.0f));
         floatingCube.setMaterial(cubeMat);
+        compress(floatingCube);
         
         floatingCube.setLocalTranslation(2f, 0.5f, -3f);
         sceneNode.attachChild(floatingCube);
 
         // Create orbital spheres
-        createOrbitalSphere(-2f, 0f, -4f, 0.15f, new ColorRGBA(0.2f, 1.0f, 0.4f, 1.0f));  // Green
-        createOrbitalSphere(1.5f, 1.5f, -5f, 0.2f, new ColorRGBA(1.0f, 0.2f, 0.6f, 1.0f));  // Pink
-        createOrbitalSphere(-1f, -0.5f, -3.5f, 0.12f, new ColorRGBA(1.0f, 1.0f, 0.2f, 1.0f));  // Yellow
+        schedule("Green sphere", () -> createOrbitalSphere(-2f, 0f, -4f, 0.15f, new ColorRGBA(0.2f, 1.0f, 0.4f, 1.0f)));
+        schedule("Pink sphere", () -> createOrbitalSphere(1.5f, 1.5f, -5f, 0.2f, new ColorRGBA(1.0f, 0.2f, 0.6f, 1.0f)));
+        schedule("Yellow sphere", () -> createOrbitalSphere(-1f, -0.5f, -3.5f, 0.12f, new ColorRGBA(1.0f, 1.0f, 0.2f, 1.0f)));
+    }
+
+    /**
+     * Run decorative setup as a render job if the app has a scheduler, so it
+     * is spread over the first frames, or right away if not.
+     */
+    private void schedule(String name, Runnable task) {
+        if (renderJobs != null) {
+            renderJobs.submit(JobPriority.NORMAL, name, RenderJob.of(task));
+        } else {
+            task.run();
+        }
     }
 
     /**
@@ -141,9 +168,27 @@ public class HelloWorldScene extends AbstractAppState {
         mat.setFloat("Shininess", 32f);
         mat.setColor("Ambient", color.mult(0.3f));
         sphereGeo.setMaterial(mat);
+        compress(sphereGeo);
         
         sphereGeo.setLocalTranslation(x, y, z);
         sceneNode.attachChild(sphereGeo);
+        
+        // Let the resource budget evict and rebuild the mesh when it's out of view
+        if (resourceBudget != null) {
+            Supplier<Mesh> factory = () -> new Sphere(32, 32, radius);
+            resourceBudget.registerMeshFactory(sphereGeo,
+                    meshCompressor != null ? MeshCompressor.compressing(factory) : factory);
+        }
+    }
+
+    /**
+     * Swap in the geometry's compressed mesh and a material that decodes
+     * it, if the app compresses meshes.
+     */
+    private void compress(Geometry geometry) {
+        if (meshCompressor != null) {
+            meshCompressor.apply(geometry);
+        }
     }
 
     /**
@@ -159,6 +204,7 @@ public class HelloWorldScene extends AbstractAppState {
         groundMat.setColor("Diffuse", new ColorRGBA(0.15f, 0.15f, 0.2f, 1.0f));
         groundMat.setColor("Ambient", new ColorRGBA(0.05f, 0.05f, 0.08f, 1.0f));
         ground.setMaterial(groundMat);
+        compress(ground);
         
         ground.setLocalTranslation(0, -1.5f, -5f);
         sceneNode.attachChild(ground);
@@ -3,6 +3,8 @@ package com.quest.helloworld.vr;
 import android.app.Activity;
 import android.util.Log;
 
+import java.nio.ByteBuffer;
+
 /**
  * JNI bridge to native OpenXR functionality.
  * Provides head tracking, controller input, and VR session management.
@@ -11,8 +13,22 @@ public class OpenXRBridge {
     
     private static final String TAG = "OpenXRBridge";
     
-    // Load native library
+    private static boolean libraryLoaded = false;
+    
+    // Load native library on first use, unless startup already has
     static {
+        loadNativeLibrary();
+    }
+    
+    /**
+     * Load libquestvr if it isn't loaded yet. Startup calls this on a
+     * background thread so the main thread doesn't pay for it on first touch.
+     */
+    public static synchronized void loadNativeLibrary() {
+        if (libraryLoaded) {
+            return;
+        }
+        libraryLoaded = true;
         try {
             System.loadLibrary("questvr");
             Log.i(TAG, "Native library 'questvr' loaded successfully");
@@ -116,6 +132,15 @@ public class OpenXRBridge {
         return initialized && nativeIsTriggerPressed(hand);
     }
     
+    /**
+     * Check if grip is pressed.
+     * @param hand 0 for left, 1 for right
+     * @return true if pressed
+     */
+    public boolean isGripPressed(int hand) {
+        return initialized && nativeIsGripPressed(hand);
+    }
+    
     /**
      * Get thumbstick values.
      * @param hand 0 for left, 1 for right
@@ -135,6 +160,43 @@ public class OpenXRBridge {
         }
     }
     
+    /**
+     * Update controller state (for testing/simulation/replay).
+     * @param hand 0 for left, 1 for right
+     */
+    public void updateControllerState(int hand, float px, float py, float pz,
+                                      boolean trigger, boolean grip, float thumbX, float thumbY) {
+        if (initialized) {
+            nativeUpdateControllerState(hand, px, py, pz, trigger, grip, thumbX, thumbY);
+        }
+    }
+    
+    /**
+     * Register the buffer hand joints are published into, laid out as
+     * described in HandJoints. Keep a reference to it while registered.
+     * @param buffer direct buffer in native byte order, or null to unregister
+     * @return false if hand tracking is unavailable or the buffer is unusable
+     */
+    public boolean setHandJointBuffer(ByteBuffer buffer) {
+        try {
+            return nativeSetHandJointBuffer(buffer);
+        } catch (UnsatisfiedLinkError e) {
+            Log.w(TAG, "Native hand tracking not available");
+            return false;
+        }
+    }
+    
+    /**
+     * Publish both hands' joints into the registered buffer - a single JNI
+     * call per frame.
+     * @param timeNanos animation time for the simulated joint source; real
+     *                  tracking locates joints at the frame's predicted display time
+     * @return tracked-hand mask: bit 0 left, bit 1 right
+     */
+    public int updateHandJoints(long timeNanos) {
+        return initialized ? nativeUpdateHandJoints(timeNanos) : 0;
+    }
+    
     /**
      * Check if VR is initialized.
      */
@@ -151,8 +213,13 @@ public class OpenXRBridge {
     private native float[] nativeGetHeadRotation();
     private native float[] nativeGetControllerPosition(int hand);
     private native boolean nativeIsTriggerPressed(int hand);
+    private native boolean nativeIsGripPressed(int hand);
     private native float[] nativeGetThumbstick(int hand);
     private native void nativeUpdateHeadPose(float px, float py, float pz, float rx, float ry, float rz);
+    private native void nativeUpdateControllerState(int hand, float px, float py, float pz,
+                                                    boolean trigger, boolean grip, float thumbX, float thumbY);
+    private native boolean nativeSetHandJointBuffer(ByteBuffer buffer);
+    private native int nativeUpdateHandJoints(long timeNanos);
     private native boolean nativeIsInitialized();
 }
 
@@ -12,6 +12,16 @@ public class VRRenderer {
     public static final int LEFT_EYE = 0;
     public static final int RIGHT_EYE = 1;
     
+    /** Floats per eye written by computeEyeMatrices: view, projection, view-projection. */
+    public static final int EYE_MATRICES_STRIDE = 48;
+    
+    /** Offsets of each matrix within an eye's block. */
+    public static final int VIEW_OFFSET = 0;
+    public static final int PROJECTION_OFFSET = 16;
+    public static final int VIEW_PROJECTION_OFFSET = 32;
+    
+    private float[] fovTangents;
+    
     /**
      * Get recommended eye texture width.
      */
@@ -77,6 +87,120 @@ public class VRRenderer {
         }
     }
     
+    /**
+     * Get FOV tangents for both eyes.
+     * @return 8-element float array: left eye (left, right, up, down), then right eye;
+     *         all tangents are positive
+     */
+    public float[] getFovTangents() {
+        if (fovTangents == null) {
+            float[] tangents = new float[8];
+            try {
+                nativeGetFovTangents(tangents);
+            } catch (UnsatisfiedLinkError e) {
+                // Symmetric 90 degree fallback, matching createPerspectiveMatrix
+                java.util.Arrays.fill(tangents, 1.0f);
+            }
+            fovTangents = tangents;
+        }
+        return fovTangents.clone();
+    }
+    
+    /**
+     * Compute view, projection and view-projection matrices for both eyes in one call.
+     * Uses the native NEON implementation when available. Matrices follow the
+     * OpenGL/OpenXR convention where view space looks down -Z.
+     * @param headPose 7-element array: position x, y, z and orientation quaternion x, y, z, w
+     * @param nearClip near clipping plane distance
+     * @param farClip far clipping plane distance
+     * @param out 96-element array receiving, per eye (left then right), the view, projection
+     *            and view-projection matrices (4x4 column-major); see EYE_MATRICES_STRIDE
+     * @throws IllegalArgumentException if headPose or out is too short
+     */
+    public void computeEyeMatrices(float[] headPose, float nearClip, float farClip, float[] out) {
+        if (headPose.length < 7 || out.length < 2 * EYE_MATRICES_STRIDE) {
+            throw new IllegalArgumentException("Need a 7-float head pose and " + 2 * EYE_MATRICES_STRIDE
+                    + " floats out, got " + headPose.length + " and " + out.length);
+        }
+        if (fovTangents == null) {
+            getFovTangents();
+        }
+        float ipd = getIPD();
+        try {
+            nativeComputeEyeMatrices(headPose, ipd, fovTangents, nearClip, farClip, out);
+        } catch (UnsatisfiedLinkError e) {
+            computeEyeMatricesJava(headPose, ipd, fovTangents, nearClip, farClip, out);
+        }
+    }
+    
+    /**
+     * Java fallback for computeEyeMatrices, same math as the native reference implementation.
+     */
+    static void computeEyeMatricesJava(float[] pose, float ipd, float[] fov,
+                                       float nearClip, float farClip, float[] out) {
+        float x = pose[3], y = pose[4], z = pose[5], w = pose[6];
+        float xx = x * x, yy = y * y, zz = z * z;
+        float xy = x * y, xz = x * z, yz = y * z;
+        float wx = w * x, wy = w * y, wz = w * z;
+        
+        // Rotation matrix, row-major
+        float[] m = {
+            1.0f - 2.0f * (yy + zz), 2.0f * (xy - wz), 2.0f * (xz + wy),
+            2.0f * (xy + wz), 1.0f - 2.0f * (xx + zz), 2.0f * (yz - wx),
+            2.0f * (xz - wy), 2.0f * (yz + wx), 1.0f - 2.0f * (xx + yy)
+        };
+        
+        float range = farClip - nearClip;
+        float depthA = -(farClip + nearClip) / range;
+        float depthB = -(2.0f * farClip * nearClip) / range;
+        float halfIpd = ipd * 0.5f;
+        
+        for (int eye = 0; eye < 2; eye++) {
+            int base = eye * EYE_MATRICES_STRIDE;
+            int view = base + VIEW_OFFSET;
+            int proj = base + PROJECTION_OFFSET;
+            float offset = eye == LEFT_EYE ? -halfIpd : halfIpd;
+            float ex = pose[0] + m[0] * offset;
+            float ey = pose[1] + m[3] * offset;
+            float ez = pose[2] + m[6] * offset;
+            
+            // View: inverse of the rigid eye transform
+            for (int c = 0; c < 3; c++) {
+                for (int r = 0; r < 3; r++) {
+                    out[view + c * 4 + r] = m[c * 3 + r];
+                }
+                out[view + c * 4 + 3] = 0.0f;
+            }
+            for (int r = 0; r < 3; r++) {
+                out[view + 12 + r] = -(m[r] * ex + m[3 + r] * ey + m[6 + r] * ez);
+            }
+            out[view + 15] = 1.0f;
+            
+            // Projection from FOV tangents
+            float left = fov[eye * 4], right = fov[eye * 4 + 1];
+            float up = fov[eye * 4 + 2], down = fov[eye * 4 + 3];
+            java.util.Arrays.fill(out, proj, proj + 16, 0.0f);
+            out[proj] = 2.0f / (right + left);
+            out[proj + 5] = 2.0f / (up + down);
+            out[proj + 8] = (right - left) / (right + left);
+            out[proj + 9] = (up - down) / (up + down);
+            out[proj + 10] = depthA;
+            out[proj + 11] = -1.0f;
+            out[proj + 14] = depthB;
+            
+            // View-projection = projection * view
+            int vp = base + VIEW_PROJECTION_OFFSET;
+            for (int j = 0; j < 4; j++) {
+                for (int i = 0; i < 4; i++) {
+                    out[vp + j * 4 + i] = out[proj + i] * out[view + j * 4]
+                            + out[proj + 4 + i] * out[view + j * 4 + 1]
+                            + out[proj + 8 + i] * out[view + j * 4 + 2]
+                            + out[proj + 12 + i] * out[view + j * 4 + 3];
+                }
+            }
+        }
+    }
+    
     /**
      * Create a simple perspective projection matrix.
      */
@@ -99,5 +223,8 @@ public class VRRenderer {
     private native float nativeGetEyeOffset(int eye);
     private native float[] nativeGetProjectionMatrix(int eye, float nearClip, float farClip);
     private native float nativeGetIPD();
+    private native void nativeGetFovTangents(float[] out);
+    private native void nativeComputeEyeMatrices(float[] headPose, float ipd, float[] fovTangents,
+                                                 float nearClip, float farClip, float[] out);
 }
 
@@ -0,0 +1,94 @@
+// Headless JVM benchmarks for the app's frame loop - runs on a workstation, no headset needed
+plugins {
+    java
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_21
+    targetCompatibility = JavaVersion.VERSION_21
+}
+
+// The app's sources minus Android entry points, Dagger wiring and the JNI bridge.
+// This module supplies Java stand-ins for the bridge and the Android APIs under
+// src/main/java. The entry points and Dagger wiring have no stand-ins: benchmarks
+// build subsystems with constructors, and run the startup graph from StartupSteps.
+// Everything else native, e.g. ProgramBinaries, loads libquestvr through the
+// bridge, and with the stand-in reports itself unsupported.
+val appSources = tasks.register<Sync>("appSources") {
+    from("../app/src/main/java") {
+        exclude("com/quest/helloworld/MainActivity.java")
+        exclude("com/quest/helloworld/QuestHelloWorldApp.java")
+        exclude("com/quest/helloworld/di/**")
+        exclude("com/quest/helloworld/vr/OpenXRBridge.java")
+    }
+    into(layout.buildDirectory.dir("generated/appSources"))
+}
+
+sourceSets {
+    main {
+        java.srcDir(appSources)
+    }
+}
+
+dependencies {
+    implementation("org.jmonkeyengine:jme3-core:3.6.1-stable")
+    implementation("org.jmonkeyengine:jme3-effects:3.6.1-stable")
+    // Desktop asset loaders (PNG font pages) and custom context support
+    implementation("org.jmonkeyengine:jme3-desktop:3.6.1-stable")
+    implementation("javax.inject:javax.inject:1")
+}
+
+fun registerBenchmark(name: String, main: String, description: String) =
+    tasks.register<JavaExec>(name) {
+        group = "benchmark"
+        this.description = description
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set(main)
+        jvmArgs("-Xmx1g", "-Djava.awt.headless=true")
+    }
+
+// Pass options with --args, e.g. ./gradlew :benchmark:frameLoop --args="--frames 10000 --stereo"
+registerBenchmark("frameLoop", "com.quest.helloworld.benchmark.FrameLoopBenchmark",
+    "Runs QuestVRApplication headless and reports per-frame CPU time, allocation, draw calls and triangles")
+
+registerBenchmark("simulationJitter", "com.quest.helloworld.benchmark.SimulationJitterBenchmark",
+    "Compares render frame-time variance with the simulation inline and on its own thread, under steady and jittery load")
+
+registerBenchmark("handTracking", "com.quest.helloworld.benchmark.HandTrackingBenchmark",
+    "Measures the per-frame CPU cost of hand-joint transfer and GPU-skinned hands at 90 Hz")
+
+registerBenchmark("poseSync", "com.quest.helloworld.benchmark.PoseSyncBenchmark",
+    "Measures pose-sync bandwidth per user and codec cost for 2, 16 and 64 participants over loopback UDP")
+
+registerBenchmark("particles", "com.quest.helloworld.benchmark.ParticleBenchmark",
+    "Measures the CPU cost of simulating and uploading 50k struct-of-arrays particles and their draws per eye")
+
+registerBenchmark("assetLoad", "com.quest.helloworld.benchmark.AssetLoadBenchmark",
+    "Compares load time and heap use of a 200 MB asset set through jME's zip locator and the memory-mapped locator")
+
+registerBenchmark("renderJobs", "com.quest.helloworld.benchmark.RenderJobBenchmark",
+    "Replays a scripted level load through the frame-budgeted render job scheduler on a fake clock and checks its guarantees")
+
+registerBenchmark("shadows", "com.quest.helloworld.benchmark.ShadowBenchmark",
+    "Compares frame time and draw calls of per-eye shadow renderers and shared stereo cascades, and checks static caster caching")
+
+registerBenchmark("postProcess", "com.quest.helloworld.benchmark.PostProcessBenchmark",
+    "Compares full-screen passes, estimated memory traffic and frame time of per-eye post filters and the fused stack")
+
+registerBenchmark("occlusion", "com.quest.helloworld.benchmark.OcclusionBenchmark",
+    "Checks software occlusion culling against ray casts from the combined and each eye's viewpoint, and times raster and box tests")
+
+registerBenchmark("coldStart", "com.quest.helloworld.benchmark.ColdStartBenchmark",
+    "Launches the app from fresh JVMs to its first frame with serial and parallel startup, and breaks launch time down by phase")
+
+registerBenchmark("broadphase", "com.quest.helloworld.benchmark.BroadphaseBenchmark",
+    "Times the spatial hash broadphase on 10k moving spheres against brute force, and checks pairs and radius queries match")
+
+registerBenchmark("lifecycle", "com.quest.helloworld.benchmark.LifecycleBenchmark",
+    "Times resume to first frame with the GL context kept, lost and re-uploaded, and recreated from a scene snapshot")
+
+registerBenchmark("meshCompression", "com.quest.helloworld.benchmark.MeshCompressionBenchmark",
+    "Compresses scene meshes to quantized vertex formats, checks decoded vertices against the originals and reports bytes saved and ACMR")
+
+registerBenchmark("streaming", "com.quest.helloworld.benchmark.StreamingBenchmark",
+    "Streams a synthetic world around a scripted walk headless, checking chunks keep up with the head and resident memory accounting")
@@ -0,0 +1,7 @@
+package android.app;
+
+/**
+ * JVM stand-in for Android's Activity; only used as an opaque handle.
+ */
+public class Activity {
+}
@@ -0,0 +1,26 @@
+package android.content.res;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+
+/**
+ * JVM stand-in for Android's AssetFileDescriptor; never handed out.
+ */
+public class AssetFileDescriptor implements Closeable {
+
+    public FileDescriptor getFileDescriptor() {
+        throw new UnsupportedOperationException();
+    }
+
+    public long getStartOffset() {
+        throw new UnsupportedOperationException();
+    }
+
+    public long getLength() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,19 @@
+package android.content.res;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * JVM stand-in for Android's AssetManager - an APK with no assets.
+ */
+public final class AssetManager {
+
+    public AssetFileDescriptor openFd(String fileName) throws IOException {
+        throw new FileNotFoundException(fileName);
+    }
+
+    public InputStream open(String fileName) throws IOException {
+        throw new FileNotFoundException(fileName);
+    }
+}
@@ -0,0 +1,36 @@
+package android.os;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Stand-in for android.os.Debug on the JVM, answering the runtime stats the
+ * app reads from the JVM's garbage collectors, and thread CPU time from its
+ * thread bean.
+ */
+public final class Debug {
+
+    // Looking the beans up is far slower than ART's native stat call, so do it once
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private Debug() {
+    }
+
+    public static String getRuntimeStat(String statName) {
+        if ("art.gc.gc-count".equals(statName)) {
+            long count = 0;
+            for (GarbageCollectorMXBean gc : COLLECTORS) {
+                count += Math.max(gc.getCollectionCount(), 0);
+            }
+            return Long.toString(count);
+        }
+        return null;
+    }
+
+    public static long threadCpuTimeNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1L;
+    }
+}
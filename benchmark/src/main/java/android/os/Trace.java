@@ -0,0 +1,17 @@
+package android.os;
+
+/**
+ * Stand-in for android.os.Trace on the JVM. There's no system trace to
+ * write sections to; startup phases are timed by StartupTrace itself.
+ */
+public final class Trace {
+
+    private Trace() {
+    }
+
+    public static void beginSection(String sectionName) {
+    }
+
+    public static void endSection() {
+    }
+}
@@ -0,0 +1,21 @@
+package com.jme3.asset.plugins;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetLocator;
+import com.jme3.asset.AssetManager;
+
+/**
+ * JVM stand-in for jme3-android's APK asset locator, which finds nothing here.
+ */
+public class AndroidLocator implements AssetLocator {
+
+    @Override
+    public void setRootPath(String rootPath) {
+    }
+
+    @Override
+    public AssetInfo locate(AssetManager manager, AssetKey key) {
+        return null;
+    }
+}
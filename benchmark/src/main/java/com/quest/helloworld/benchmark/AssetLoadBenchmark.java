@@ -0,0 +1,404 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.asset.TextureKey;
+import com.jme3.asset.plugins.ZipLocator;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryLoader;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.plugins.ktx.KTXLoader;
+import com.jme3.util.BufferUtils;
+import com.quest.helloworld.asset.MappedKtxLoader;
+import com.quest.helloworld.asset.MappedMeshLoader;
+import com.quest.helloworld.asset.MappedZipLocator;
+import com.quest.helloworld.asset.MeshFile;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compares loading a large asset set through jME's stock path - ZipLocator
+ * streaming .j3o meshes and .ktx textures into BinaryLoader and KTXLoader -
+ * with the memory-mapped path: MappedZipLocator handing .qmesh meshes and
+ * the same .ktx files to MappedMeshLoader and MappedKtxLoader.
+ *
+ * Both sets hold the same meshes and images, stored uncompressed in a zip
+ * the way an OBB expansion file is built. Each run loads every asset and
+ * then reads every byte of every vertex and image buffer, as the GPU
+ * upload would, so mapped pages are really touched. Reported per path:
+ * wall time, heap allocated by the loading thread, peak heap, and the
+ * direct and mapped memory the loaded assets hold. The checksums of the
+ * two paths must match.
+ *
+ * Options:
+ * <pre>
+ *   --size-mb N   approximate asset set size (default 200)
+ *   --runs N      measured runs of each path, alternating (default 3)
+ *   --dir PATH    where to write the archives (default a temporary directory, deleted after)
+ * </pre>
+ */
+public class AssetLoadBenchmark {
+
+    private static final int GRID = 256;
+    private static final int TEXTURE_SIZE = 1024;
+    private static final int GL_UNSIGNED_BYTE = 0x1401;
+    private static final int GL_RGBA = 0x1908;
+    private static final int GL_RGBA8 = 0x8058;
+
+    // Reads of the buffer pools that must agree before a run's baseline is taken
+    private static final int SETTLE_READS = 3;
+    private static final long SETTLE_INTERVAL_MS = 20;
+    private static final long SETTLE_TIMEOUT_NANOS = 5_000_000_000L;
+
+    private int sizeMb = 200;
+    private int runs = 3;
+    private File dir;
+
+    private final List<String> meshes = new ArrayList<>();
+    private final List<String> textures = new ArrayList<>();
+    private int random = 0x3C6EF372;
+
+    public static void main(String[] args) throws Exception {
+        AssetLoadBenchmark benchmark = new AssetLoadBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--size-mb": sizeMb = Integer.parseInt(args[++i]); break;
+                case "--runs": runs = Integer.parseInt(args[++i]); break;
+                case "--dir": dir = new File(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        boolean temporary = dir == null;
+        if (temporary) {
+            dir = Files.createTempDirectory("asset-load").toFile();
+        }
+        File stock = new File(dir, "stock.zip");
+        File mapped = new File(dir, "main.1.com.quest.helloworld.obb");
+        try {
+            writeArchives(stock, mapped);
+            System.out.printf("%nAsset load benchmark - %d meshes, %d textures; stock archive %.1f MB, mapped %.1f MB%n%n",
+                    meshes.size(), textures.size(), stock.length() / 1048576f, mapped.length() / 1048576f);
+
+            Result stockResult = null;
+            Result mappedResult = null;
+            // First pass of each warms the JIT and the page cache
+            for (int i = 0; i <= runs; i++) {
+                Result s = load(stock, false);
+                Result m = load(mapped, true);
+                if (i > 0) {
+                    stockResult = Result.best(stockResult, s);
+                    mappedResult = Result.best(mappedResult, m);
+                }
+            }
+
+            System.out.printf("%-10s %10s %14s %12s %12s %12s%n",
+                    "", "load ms", "heap alloc MB", "peak heap MB", "direct MB", "mapped MB");
+            stockResult.print("stock");
+            mappedResult.print("mapped");
+            System.out.println();
+            System.out.printf("load time       %.2fx faster%n", stockResult.millis / mappedResult.millis);
+            System.out.printf("heap allocated  %.1f MB less%n", (stockResult.allocated - mappedResult.allocated) / 1048576f);
+            System.out.printf("peak heap       %.1f MB less%n", (stockResult.peakHeap - mappedResult.peakHeap) / 1048576f);
+            System.out.printf("(best of %d runs; peak heap is above the pre-load baseline)%n", runs);
+
+            if (stockResult.checksum != mappedResult.checksum) {
+                System.out.printf("FAIL: checksums differ - stock %016x, mapped %016x%n",
+                        stockResult.checksum, mappedResult.checksum);
+                return false;
+            }
+            System.out.printf("checksums match (%016x)%n", mappedResult.checksum);
+            return true;
+        } finally {
+            if (temporary) {
+                stock.delete();
+                mapped.delete();
+                dir.delete();
+            }
+        }
+    }
+
+    private Result load(File archive, boolean mapped) throws IOException {
+        DesktopAssetManager assets = new DesktopAssetManager(false);
+        if (mapped) {
+            assets.registerLocator(archive.getPath(), MappedZipLocator.class);
+            assets.registerLoader(MappedMeshLoader.class, MeshFile.EXTENSION);
+            assets.registerLoader(MappedKtxLoader.class, "ktx");
+        } else {
+            assets.registerLocator(archive.getPath(), ZipLocator.class);
+            assets.registerLoader(BinaryLoader.class, "j3o");
+            assets.registerLoader(KTXLoader.class, "ktx");
+        }
+
+        settleBufferPools();
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long heapBefore = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long directBefore = bufferPool("direct");
+        long mappedBefore = bufferPool("mapped");
+        long allocBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        List<Object> loaded = new ArrayList<>();
+        long checksum = 0;
+        String extension = mapped ? MeshFile.EXTENSION : "j3o";
+        for (String mesh : meshes) {
+            Mesh m = (Mesh) assets.loadAsset(new AssetKey<>(mesh + "." + extension));
+            loaded.add(m);
+            checksum = checksum * 31 + checksum(m);
+        }
+        for (String texture : textures) {
+            Image image = (Image) assets.loadAsset(new TextureKey(texture, false)).getImage();
+            loaded.add(image);
+            checksum = checksum * 31 + checksum(image.getData(0));
+        }
+
+        Result result = new Result();
+        result.millis = (System.nanoTime() - start) / 1e6f;
+        result.allocated = threads.getCurrentThreadAllocatedBytes() - allocBefore;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        result.peakHeap = Math.max(0, peak - heapBefore);
+        result.direct = bufferPool("direct") - directBefore;
+        result.mapped = bufferPool("mapped") - mappedBefore;
+        result.checksum = checksum;
+        loaded.clear();
+        assets.clearCache();
+        return result;
+    }
+
+    /**
+     * Collect until the previous run's direct and mapped buffers are gone.
+     * Their memory is freed by cleaners after the collection, not by it,
+     * so a baseline taken straight after System.gc() still counts them and
+     * this run's figure comes out low or negative.
+     */
+    private static void settleBufferPools() throws IOException {
+        long deadline = System.nanoTime() + SETTLE_TIMEOUT_NANOS;
+        long last = -1;
+        int steady = 0;
+        while (steady < SETTLE_READS && System.nanoTime() < deadline) {
+            System.gc();
+            try {
+                Thread.sleep(SETTLE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for buffers to be freed", e);
+            }
+            long used = bufferPool("direct") + bufferPool("mapped");
+            steady = used == last ? steady + 1 : 0;
+            last = used;
+        }
+    }
+
+    private static long bufferPool(String name) {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals(name)) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    // Reads every element, as the upload would
+    private static long checksum(Mesh mesh) {
+        long sum = 0;
+        for (VertexBuffer.Type type : VertexBuffer.Type.values()) {
+            VertexBuffer buffer = mesh.getBuffer(type);
+            if (buffer != null) {
+                sum = sum * 31 + checksum(buffer.getData());
+            }
+        }
+        return sum;
+    }
+
+    private static long checksum(Buffer data) {
+        long sum = 0;
+        int limit = data.limit();
+        if (data instanceof FloatBuffer) {
+            FloatBuffer floats = (FloatBuffer) data;
+            for (int i = 0; i < limit; i++) {
+                sum = sum * 31 + Float.floatToRawIntBits(floats.get(i));
+            }
+        } else if (data instanceof ShortBuffer) {
+            ShortBuffer shorts = (ShortBuffer) data;
+            for (int i = 0; i < limit; i++) {
+                sum = sum * 31 + shorts.get(i);
+            }
+        } else if (data instanceof IntBuffer) {
+            IntBuffer ints = (IntBuffer) data;
+            for (int i = 0; i < limit; i++) {
+                sum = sum * 31 + ints.get(i);
+            }
+        } else {
+            ByteBuffer bytes = ((ByteBuffer) data).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            int i = 0;
+            for (; i + 8 <= limit; i += 8) {
+                sum = sum * 31 + bytes.getLong(i);
+            }
+            for (; i < limit; i++) {
+                sum = sum * 31 + bytes.get(i);
+            }
+        }
+        return sum;
+    }
+
+    private void writeArchives(File stock, File mapped) throws IOException {
+        long budget = sizeMb * 1048576L;
+        long meshBytes = (long) GRID * GRID * 32 + (long) (GRID - 1) * (GRID - 1) * 12;
+        long textureBytes = (long) TEXTURE_SIZE * TEXTURE_SIZE * 4;
+        int meshCount = (int) Math.max(1, budget / 2 / meshBytes);
+        int textureCount = (int) Math.max(1, (budget - meshCount * meshBytes) / (textureBytes * 7 / 6));
+
+        try (ZipOutputStream stockZip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(stock)));
+             ZipOutputStream mappedZip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(mapped)))) {
+            for (int i = 0; i < meshCount; i++) {
+                String name = "Models/terrain" + i;
+                Mesh mesh = createMesh();
+                ByteArrayOutputStream j3o = new ByteArrayOutputStream();
+                BinaryExporter.getInstance().save(mesh, j3o);
+                putStored(stockZip, name + ".j3o", j3o.toByteArray());
+                ByteArrayOutputStream qmesh = new ByteArrayOutputStream();
+                MeshFile.write(mesh, qmesh);
+                putStored(mappedZip, name + "." + MeshFile.EXTENSION, qmesh.toByteArray());
+                meshes.add(name);
+            }
+            for (int i = 0; i < textureCount; i++) {
+                String name = "Textures/albedo" + i + ".ktx";
+                // Every third texture carries a mip chain, which the mapped loader has to gather
+                byte[] ktx = createKtx(i % 3 == 2);
+                putStored(stockZip, name, ktx);
+                putStored(mappedZip, name, ktx);
+                textures.add(name);
+            }
+        }
+    }
+
+    private Mesh createMesh() {
+        int vertices = GRID * GRID;
+        FloatBuffer positions = BufferUtils.createFloatBuffer(vertices * 3);
+        FloatBuffer normals = BufferUtils.createFloatBuffer(vertices * 3);
+        FloatBuffer texCoords = BufferUtils.createFloatBuffer(vertices * 2);
+        for (int z = 0; z < GRID; z++) {
+            for (int x = 0; x < GRID; x++) {
+                positions.put(x * 0.1f).put(nextFloat()).put(z * 0.1f);
+                normals.put(nextFloat() * 0.2f).put(1f).put(nextFloat() * 0.2f);
+                texCoords.put(x / (GRID - 1f)).put(z / (GRID - 1f));
+            }
+        }
+        ShortBuffer indices = BufferUtils.createShortBuffer((GRID - 1) * (GRID - 1) * 6);
+        for (int z = 0; z < GRID - 1; z++) {
+            for (int x = 0; x < GRID - 1; x++) {
+                int corner = z * GRID + x;
+                indices.put((short) corner).put((short) (corner + GRID)).put((short) (corner + 1));
+                indices.put((short) (corner + 1)).put((short) (corner + GRID)).put((short) (corner + GRID + 1));
+            }
+        }
+        Mesh mesh = new Mesh();
+        mesh.setBuffer(VertexBuffer.Type.Position, 3, positions);
+        mesh.setBuffer(VertexBuffer.Type.Normal, 3, normals);
+        mesh.setBuffer(VertexBuffer.Type.TexCoord, 2, texCoords);
+        mesh.setBuffer(VertexBuffer.Type.Index, 3, indices);
+        mesh.updateBound();
+        return mesh;
+    }
+
+    private byte[] createKtx(boolean mipmaps) {
+        int levels = mipmaps ? 31 - Integer.numberOfLeadingZeros(TEXTURE_SIZE) + 1 : 1;
+        int total = 64;
+        for (int level = 0, size = TEXTURE_SIZE; level < levels; level++, size = Math.max(1, size / 2)) {
+            total += 4 + size * size * 4;
+        }
+        ByteBuffer ktx = ByteBuffer.allocate(total).order(ByteOrder.LITTLE_ENDIAN);
+        ktx.put(new byte[] {(byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n', 0x1A, '\n'});
+        ktx.putInt(0x04030201).putInt(GL_UNSIGNED_BYTE).putInt(1).putInt(GL_RGBA).putInt(GL_RGBA8).putInt(GL_RGBA)
+                .putInt(TEXTURE_SIZE).putInt(TEXTURE_SIZE).putInt(0).putInt(0).putInt(1).putInt(levels).putInt(0);
+        for (int level = 0, size = TEXTURE_SIZE; level < levels; level++, size = Math.max(1, size / 2)) {
+            ktx.putInt(size * size * 4);
+            for (int i = 0; i < size * size; i++) {
+                ktx.putInt(nextInt() | 0xFF000000);
+            }
+        }
+        return ktx.array();
+    }
+
+    private static void putStored(ZipOutputStream zip, String name, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(data);
+        zip.closeEntry();
+    }
+
+    private int nextInt() {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return random;
+    }
+
+    private float nextFloat() {
+        return (nextInt() >>> 8) * 0x1.0p-24f;
+    }
+
+    private static class Result {
+        float millis;
+        long allocated;
+        long peakHeap;
+        long direct;
+        long mapped;
+        long checksum;
+
+        static Result best(Result a, Result b) {
+            return a == null || b.millis < a.millis ? b : a;
+        }
+
+        void print(String label) {
+            System.out.printf("%-10s %10.1f %14.1f %12.1f %12.1f %12.1f%n", label, millis,
+                    allocated / 1048576f, peakHeap / 1048576f, direct / 1048576f, mapped / 1048576f);
+        }
+    }
+}
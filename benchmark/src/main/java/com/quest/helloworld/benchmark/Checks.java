@@ -0,0 +1,32 @@
+package com.quest.helloworld.benchmark;
+
+/**
+ * The PASS, FAIL and SKIP lines a benchmark ends with. Each benchmark
+ * exits with status 1 if any of its checks failed.
+ */
+public final class Checks {
+
+    private Checks() {
+    }
+
+    /**
+     * Print the outcome of one check.
+     * @return whether it passed
+     */
+    public static boolean check(boolean ok, String what) {
+        System.out.println((ok ? "PASS  " : "FAIL  ") + what);
+        return ok;
+    }
+
+    /**
+     * A check that only holds when threads really run side by side, like
+     * work overlapping the frame. On a single core it is skipped and passes.
+     */
+    public static boolean checkParallel(boolean ok, String what) {
+        if (Runtime.getRuntime().availableProcessors() < 2) {
+            System.out.println("SKIP  " + what + " - needs a second core");
+            return true;
+        }
+        return check(ok, what);
+    }
+}
@@ -0,0 +1,249 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.system.AppSettings;
+import com.quest.helloworld.QuestVRApplication;
+import com.quest.helloworld.startup.StartupGraph;
+import com.quest.helloworld.startup.StartupSteps;
+import com.quest.helloworld.startup.StartupTrace;
+import com.quest.helloworld.vr.OpenXRBridge;
+import com.quest.helloworld.vr.VRRenderer;
+import com.quest.helloworld.vr.VRSceneConfig;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.quest.helloworld.benchmark.Checks.check;
+import static com.quest.helloworld.benchmark.Checks.checkParallel;
+
+/**
+ * Launches the app from a cold JVM, up to its first frame, and reports
+ * where the time goes phase by phase.
+ *
+ * Every run is a fresh child JVM, so class loading and static
+ * initialization are as cold as on a device. The child follows the
+ * launch sequence of the app: the app's {@link StartupSteps} graph, with
+ * plain constructors standing in for the Dagger component, then reflective instantiation of QuestVRApplication as
+ * AndroidHarness does, then initialization and the first frame against a
+ * headless context. Two modes are compared:
+ * <ul>
+ *   <li>serial - every startup step on the main thread before the app is
+ *       instantiated, as startup used to run</li>
+ *   <li>parallel - the graph on its startup threads while the main thread
+ *       goes on</li>
+ * </ul>
+ * Each run must reach its first frame with every step started after the
+ * steps it depends on finished. Parallel startup is only expected to be
+ * faster with a second core.
+ *
+ * Options:
+ * <pre>
+ *   --runs N       cold launches per mode (default 10)
+ * </pre>
+ */
+public class ColdStartBenchmark {
+
+    // Child output lines: phase name start end, and step dependency
+    private static final String PHASE = "PHASE";
+    private static final String AFTER = "AFTER";
+    private static final String MAIN = "main";
+    private static final String INSTANTIATE = "instantiate app";
+    private static final String FIRST_FRAME = "first frame";
+    private static final int STARTUP_THREADS = 2;
+
+    private int runs = 10;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--child")) {
+            launch(args[1].equals("parallel"));
+            return;
+        }
+        ColdStartBenchmark benchmark = new ColdStartBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs": runs = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        System.out.printf("%nCold start benchmark - %d fresh JVMs per mode, %d cores%n%n",
+                runs, Runtime.getRuntime().availableProcessors());
+
+        boolean pass = true;
+        Map<String, List<long[]>> serial = new LinkedHashMap<>();
+        Map<String, List<long[]>> parallel = new LinkedHashMap<>();
+        int serialDone = 0, parallelDone = 0;
+        List<String> orderViolations = new ArrayList<>();
+        // Alternate, so drift in the machine's load hits both modes alike
+        for (int i = 0; i < runs; i++) {
+            serialDone += launchChild("serial", serial, orderViolations) ? 1 : 0;
+            parallelDone += launchChild("parallel", parallel, orderViolations) ? 1 : 0;
+        }
+
+        System.out.printf("Median ms from JVM start%n");
+        System.out.printf("  %-24s %10s %10s   %10s %10s%n", "", "serial", "", "parallel", "");
+        System.out.printf("  %-24s %10s %10s   %10s %10s%n", "phase", "start", "length", "start", "length");
+        List<String> phases = new ArrayList<>(serial.keySet());
+        for (String phase : parallel.keySet()) {
+            if (!phases.contains(phase)) {
+                phases.add(phase);
+            }
+        }
+        for (String phase : phases) {
+            System.out.printf("  %-24s %s   %s%n", phase, cells(serial.get(phase)), cells(parallel.get(phase)));
+        }
+        System.out.println();
+
+        float serialFirst = median(serial.get(FIRST_FRAME), 0);
+        float parallelFirst = median(parallel.get(FIRST_FRAME), 0);
+        System.out.printf("First frame: serial %.1f ms, parallel %.1f ms (%+.1f%%)%n%n",
+                serialFirst, parallelFirst, 100f * (parallelFirst - serialFirst) / serialFirst);
+
+        pass &= check(serialDone == runs && parallelDone == runs,
+                String.format("every launch reached its first frame: %d + %d of %d + %d", serialDone, parallelDone, runs, runs));
+        pass &= check(orderViolations.isEmpty(),
+                "every step started after the steps it depends on" + (orderViolations.isEmpty() ? "" : ": " + orderViolations));
+        pass &= checkParallel(parallelFirst < serialFirst,
+                String.format("parallel startup reaches the first frame first: %.1f vs %.1f ms", parallelFirst, serialFirst));
+        return pass;
+    }
+
+    private static String cells(List<long[]> samples) {
+        if (samples == null) {
+            return String.format("%10s %10s", "-", "-");
+        }
+        return String.format("%10.1f %10.1f", median(samples, 0), median(samples, 1) - median(samples, 0));
+    }
+
+    /** Median of one column - 0 start, 1 end - in milliseconds. */
+    private static float median(List<long[]> samples, int column) {
+        if (samples == null || samples.isEmpty()) {
+            return Float.NaN;
+        }
+        long[] values = new long[samples.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = samples.get(i)[column];
+        }
+        Arrays.sort(values);
+        return values[values.length / 2] * 1e-6f;
+    }
+
+    /**
+     * Run one cold launch in a child JVM and collect its phases.
+     * @return false if it failed to reach the first frame
+     */
+    private static boolean launchChild(String mode, Map<String, List<long[]>> phases, List<String> orderViolations)
+            throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-Xmx1g", "-Djava.awt.headless=true",
+                "-cp", System.getProperty("java.class.path"),
+                ColdStartBenchmark.class.getName(), "--child", mode);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+
+        Map<String, long[]> run = new LinkedHashMap<>();
+        List<String[]> after = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length == 4 && fields[0].equals(PHASE)) {
+                    run.put(fields[1], new long[]{Long.parseLong(fields[2]), Long.parseLong(fields[3])});
+                } else if (fields.length == 3 && fields[0].equals(AFTER)) {
+                    after.add(new String[]{fields[1], fields[2]});
+                } else {
+                    System.out.println("  [" + mode + "] " + line);
+                }
+            }
+        }
+        if (!process.waitFor(2, TimeUnit.MINUTES) || process.exitValue() != 0) {
+            process.destroyForcibly();
+            return false;
+        }
+
+        for (String[] pair : after) {
+            long[] step = run.get(pair[0]);
+            long[] before = run.get(pair[1]);
+            if (step == null || before == null || step[0] < before[1]) {
+                orderViolations.add(mode + ": " + pair[0] + " before " + pair[1]);
+            }
+        }
+        for (Map.Entry<String, long[]> entry : run.entrySet()) {
+            phases.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(entry.getValue());
+        }
+        return run.containsKey(FIRST_FRAME);
+    }
+
+    /**
+     * The child: one launch from JVM start to the first frame, printing
+     * every phase and every step's dependencies.
+     */
+    private static void launch(boolean parallel) throws Exception {
+        long now = System.nanoTime();
+        long sinceStart = (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime()) * 1_000_000L;
+        StartupTrace trace = new StartupTrace(now - sinceStart);
+        trace.record("process start", now - sinceStart, now);
+        // Keep jME's per-launch loader warnings out of the report
+        Logger.getLogger("").setLevel(Level.SEVERE);
+
+        QuestVRApplication app;
+        StartupGraph graph;
+        try (StartupTrace.Span span = trace.begin(MAIN)) {
+            // The app's graph, with constructors in place of the Dagger component
+            graph = StartupSteps.create(
+                    () -> new VRSceneConfig.Builder().setSceneName("Quest Hello World").build(),
+                    OpenXRBridge::new, VRRenderer::new);
+            if (parallel) {
+                graph.startInBackground(STARTUP_THREADS, trace);
+            } else {
+                graph.runSerially(trace);
+            }
+            for (String step : graph.getOrder()) {
+                for (String before : graph.getDependencies(step)) {
+                    System.out.println(AFTER + "\t" + step + "\t" + before);
+                }
+            }
+
+            // What AndroidHarness does with the activity's appClass
+            try (StartupTrace.Span instantiate = trace.begin(INSTANTIATE)) {
+                app = (QuestVRApplication) Class.forName(QuestVRApplication.class.getName())
+                        .getDeclaredConstructor().newInstance();
+            }
+            AppSettings settings = new AppSettings(true);
+            HeadlessContext.configure(settings);
+            settings.setResolution(1680, 1760);
+            app.setSettings(settings);
+            app.setShowSettings(false);
+            app.setStartupTrace(trace);
+            app.start();
+        }
+        graph.awaitAll(1, TimeUnit.MINUTES);
+
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (trace.getPhase(FIRST_FRAME) == null && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        app.stop(true);
+
+        for (StartupTrace.Phase phase : trace.getPhases()) {
+            System.out.println(PHASE + "\t" + phase.name + "\t" + phase.startNanos + "\t" + phase.endNanos);
+        }
+        System.exit(trace.getPhase(FIRST_FRAME) != null ? 0 : 1);
+    }
+}
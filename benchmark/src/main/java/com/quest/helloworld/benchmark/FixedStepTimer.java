@@ -0,0 +1,54 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.system.Timer;
+
+/**
+ * Timer that advances by a fixed step every frame, so animation and replay
+ * are identical from run to run regardless of how fast frames execute.
+ */
+public class FixedStepTimer extends Timer {
+
+    private static final long RESOLUTION = 1_000_000_000L;
+
+    private final float tpf;
+    private final long stepTicks;
+    private long ticks = 0;
+
+    /**
+     * @param tpf seconds per frame, e.g. 1/72f for the Quest 3 default refresh rate
+     */
+    public FixedStepTimer(float tpf) {
+        this.tpf = tpf;
+        this.stepTicks = (long) (tpf * RESOLUTION);
+    }
+
+    @Override
+    public long getTime() {
+        return ticks;
+    }
+
+    @Override
+    public long getResolution() {
+        return RESOLUTION;
+    }
+
+    @Override
+    public float getFrameRate() {
+        return 1f / tpf;
+    }
+
+    @Override
+    public float getTimePerFrame() {
+        return tpf;
+    }
+
+    @Override
+    public void update() {
+        ticks += stepTicks;
+    }
+
+    @Override
+    public void reset() {
+        ticks = 0;
+    }
+}
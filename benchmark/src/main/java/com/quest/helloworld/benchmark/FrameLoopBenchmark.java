@@ -0,0 +1,216 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.math.FastMath;
+import com.quest.helloworld.QuestVRApplication;
+import com.quest.helloworld.perf.FrameProfiler;
+import com.quest.helloworld.perf.SampleWindow;
+import com.quest.helloworld.trace.PoseFrame;
+import com.quest.helloworld.trace.PoseTracePlayer;
+import com.quest.helloworld.trace.PoseTraceRecorder;
+import com.quest.helloworld.vr.HelloWorldScene;
+import com.quest.helloworld.vr.VRSceneConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Boots QuestVRApplication and HelloWorldScene against a headless context and
+ * runs the real frame loop for a fixed number of frames.
+ *
+ * Reports CPU time per frame split into update, culling and render-queue
+ * submission, plus allocation rate, draw calls and triangles. Head motion
+ * comes from a pose trace - a recorded one with --trace, otherwise a
+ * synthetic look-around - replayed one frame per update at a fixed 72 Hz
+ * step, so two runs do identical work.
+ *
+ * Options:
+ * <pre>
+ *   --frames N        measured frames (default 5000)
+ *   --warmup N        frames run before measuring, for JIT warm-up (default 1000)
+ *   --stereo          render side-by-side stereo instead of mono
+ *   --no-scene        don't attach HelloWorldScene
+ *   --hud             show the performance HUD
+ *   --trace FILE      replay this pose trace instead of the synthetic one
+ *   --max-p95-ms X    exit with status 1 if p95 frame time exceeds X
+ *   --max-alloc-kb X  exit with status 1 if allocation per frame exceeds X KB
+ * </pre>
+ */
+public class FrameLoopBenchmark {
+
+    private static final float TPF = 1f / 72f;
+
+    private int frames = 5000;
+    private int warmup = 1000;
+    private boolean stereo = false;
+    private boolean scene = true;
+    private boolean hud = false;
+    private File trace;
+    private float maxP95Ms = Float.NaN;
+    private float maxAllocKb = Float.NaN;
+
+    public static void main(String[] args) throws Exception {
+        FrameLoopBenchmark benchmark = new FrameLoopBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--frames": frames = Integer.parseInt(args[++i]); break;
+                case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                case "--stereo": stereo = true; break;
+                case "--no-scene": scene = false; break;
+                case "--hud": hud = true; break;
+                case "--trace": trace = new File(args[++i]); break;
+                case "--max-p95-ms": maxP95Ms = Float.parseFloat(args[++i]); break;
+                case "--max-alloc-kb": maxAllocKb = Float.parseFloat(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    /**
+     * @return false if a threshold was exceeded or the run did not complete
+     */
+    private boolean run() throws Exception {
+        File poseTrace = trace != null ? trace : writeSyntheticTrace(warmup + frames + 1);
+
+        // Quest 3 per-eye resolution; side by side when stereo
+        QuestVRApplication app = HeadlessRun.fixedStep(stereo ? 2 * 1680 : 1680, 1760, TPF);
+        app.setStereoEnabled(stereo);
+        app.setPerfHudVisible(hud);
+        app.setPoseTraceReplay(null, poseTrace, PoseTracePlayer.Mode.AS_FAST_AS_POSSIBLE);
+
+        MeasurementState measurement = new MeasurementState(warmup, frames);
+        long wallStart = System.nanoTime();
+        boolean completed = HeadlessRun.run(app, measurement, () -> {
+            if (scene) {
+                app.getStateManager().attach(new HelloWorldScene(new VRSceneConfig.Builder().build()));
+            }
+        });
+        float wallSeconds = (System.nanoTime() - wallStart) / 1e9f;
+
+        if (trace == null) {
+            poseTrace.delete();
+        }
+        if (!completed) {
+            System.err.println("Benchmark did not complete - see errors above");
+            return false;
+        }
+        return report(measurement, wallSeconds);
+    }
+
+    private boolean report(MeasurementState m, float wallSeconds) {
+        FrameProfiler profiler = m.profiler;
+        float allocKbPerFrame = m.getAllocatedBytes() / 1024f / frames;
+
+        System.out.println();
+        System.out.printf("Frame loop benchmark - %s, %s, %d frames after %d warm-up (%.1fs wall)%n",
+                stereo ? "stereo" : "mono",
+                (scene ? "QuestVRApplication + HelloWorldScene" : "QuestVRApplication") + (hud ? " + HUD" : ""),
+                frames, warmup, wallSeconds);
+        System.out.println();
+        System.out.printf("%-8s %8s %8s %8s %8s %8s   (ms, CPU)%n", "", "mean", "p50", "p95", "p99", "max");
+        printRow("frame", profiler.getFrameTimes());
+        printRow("update", profiler.getUpdateTimes());
+        printRow("cull", profiler.getCullTimes());
+        printRow("submit", profiler.getSubmitTimes());
+        System.out.println();
+        System.out.printf("draw calls / frame   %.1f%n", profiler.getAverageDrawCalls());
+        System.out.printf("triangles / frame    %.0f%n", profiler.getAverageTriangles());
+        System.out.printf("allocation           %.2f KB/frame, %.2f MB/s at 72 Hz%n",
+                allocKbPerFrame, allocKbPerFrame * 72f / 1024f);
+        System.out.printf("GC                   %d collections, %d ms%n", m.gcCount, m.gcMillis);
+
+        boolean pass = true;
+        float p95 = profiler.getFrameTimes().getPercentile(95);
+        if (!Float.isNaN(maxP95Ms) && p95 > maxP95Ms) {
+            System.out.printf("FAIL: p95 frame time %.3f ms exceeds %.3f ms%n", p95, maxP95Ms);
+            pass = false;
+        }
+        if (!Float.isNaN(maxAllocKb) && allocKbPerFrame > maxAllocKb) {
+            System.out.printf("FAIL: allocation %.2f KB/frame exceeds %.2f KB/frame%n", allocKbPerFrame, maxAllocKb);
+            pass = false;
+        }
+        return pass;
+    }
+
+    private static void printRow(String label, SampleWindow window) {
+        System.out.printf("%-8s %8.3f %8.3f %8.3f %8.3f %8.3f%n", label, window.getMean(),
+                window.getPercentile(50), window.getPercentile(95), window.getPercentile(99), window.getMax());
+    }
+
+    /**
+     * Write a trace of a user looking around and swaying, as head motion for the run.
+     */
+    static File writeSyntheticTrace(int frameCount) throws IOException {
+        File file = File.createTempFile("frameloop", ".qpt");
+        PoseFrame frame = new PoseFrame();
+        try (PoseTraceRecorder recorder = new PoseTraceRecorder(file)) {
+            for (int i = 0; i < frameCount; i++) {
+                float t = i * TPF;
+                frame.timeMicros = (long) (t * 1_000_000.0);
+                frame.headPosition[0] = 0.15f * FastMath.sin(t * 0.7f);
+                frame.headPosition[1] = 1.6f + 0.03f * FastMath.sin(t * 1.9f);
+                frame.headPosition[2] = 0.1f * FastMath.sin(t * 0.4f);
+                frame.headRotation[0] = 0.3f * FastMath.sin(t * FastMath.TWO_PI / 5f);
+                frame.headRotation[1] = 1.2f * FastMath.sin(t * FastMath.TWO_PI / 8f);
+                frame.headRotation[2] = 0f;
+                for (int hand = 0; hand < 2; hand++) {
+                    float side = hand == 0 ? -1f : 1f;
+                    frame.controllerPosition[hand][0] = frame.headPosition[0] + side * 0.3f;
+                    frame.controllerPosition[hand][1] = 1.0f + 0.1f * FastMath.sin(t * 1.3f + hand);
+                    frame.controllerPosition[hand][2] = -0.5f;
+                }
+                recorder.record(frame);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Samples GC across the measured frames.
+     */
+    private static class MeasurementState extends HeadlessRun.Measurement {
+
+        private long gcCountStart;
+        private long gcMillisStart;
+        private long gcCount;
+        private long gcMillis;
+
+        MeasurementState(int warmup, int frames) {
+            super(warmup, frames);
+        }
+
+        @Override
+        protected void warmedUp() {
+            gcCountStart = totalGcCount();
+            gcMillisStart = totalGcMillis();
+        }
+
+        @Override
+        protected void finish() {
+            gcCount = totalGcCount() - gcCountStart;
+            gcMillis = totalGcMillis() - gcMillisStart;
+        }
+
+        private static long totalGcCount() {
+            long count = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(gc.getCollectionCount(), 0);
+            }
+            return count;
+        }
+
+        private static long totalGcMillis() {
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                millis += Math.max(gc.getCollectionTime(), 0);
+            }
+            return millis;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AppStateManager;
+import com.quest.helloworld.QuestVRApplication;
+import com.quest.helloworld.hand.HandTrackingState;
+import com.quest.helloworld.perf.SampleWindow;
+
+/**
+ * Measures the CPU cost of hand tracking at 90 Hz: publishing both hands'
+ * joints through the bridge, computing the skinning matrices and refitting
+ * the bounds, plus what the two skinned hands add to a whole frame.
+ *
+ * Runs QuestVRApplication headless in stereo twice with a fixed 90 Hz step
+ * - once with the controller boxes, once with tracked hands - and compares
+ * frame time and allocation. The bridge stand-in publishes the same
+ * simulated hands as the native joint source.
+ *
+ * Options:
+ * <pre>
+ *   --frames N    measured frames per run (default 5000)
+ *   --warmup N    frames run before measuring (default 1000)
+ *   --max-ms X    exit with status 1 if the p99 hand update exceeds X ms (default 0.3)
+ * </pre>
+ */
+public class HandTrackingBenchmark {
+
+    private static final float TPF = 1f / 90f;
+
+    private int frames = 5000;
+    private int warmup = 1000;
+    private float maxMs = 0.3f;
+
+    public static void main(String[] args) throws Exception {
+        HandTrackingBenchmark benchmark = new HandTrackingBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--frames": frames = Integer.parseInt(args[++i]); break;
+                case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                case "--max-ms": maxMs = Float.parseFloat(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        System.out.printf("%nHand tracking benchmark - stereo, 90 Hz step, %d frames per run after %d warm-up%n%n",
+                frames, warmup);
+
+        MeasurementState controllers = runOnce(false);
+        MeasurementState hands = runOnce(true);
+        if (controllers == null || hands == null) {
+            System.err.println("Benchmark did not complete - see errors above");
+            return false;
+        }
+
+        System.out.printf("%-22s %8s %8s %8s %8s %12s%n", "", "mean", "p50", "p99", "max", "alloc/frame");
+        printRow("frame, controllers", controllers.profiler.getFrameTimes(),
+                controllers.getAllocatedBytes() / 1024f / frames);
+        printRow("frame, hands", hands.profiler.getFrameTimes(),
+                hands.getAllocatedBytes() / 1024f / frames);
+        SampleWindow update = hands.updateMs;
+        System.out.printf("%-22s %8.4f %8.4f %8.4f %8.4f   (ms, CPU)%n", "hand update", update.getMean(),
+                update.getPercentile(50), update.getPercentile(99), update.getMax());
+        System.out.println();
+
+        float frameDelta = hands.profiler.getFrameTimes().getMean() - controllers.profiler.getFrameTimes().getMean();
+        float budgetShare = update.getMean() / (TPF * 1000f) * 100f;
+        System.out.printf("hand update          %.4f ms mean = %.2f%% of the 11.1 ms frame at 90 Hz%n",
+                update.getMean(), budgetShare);
+        System.out.printf("whole-frame delta    %+.4f ms mean (update plus bone-array upload and two draws per eye)%n",
+                frameDelta);
+        System.out.printf("hands tracked        %s%n", hands.trackedMask == 0x3 ? "both" : "mask " + hands.trackedMask);
+
+        boolean pass = hands.trackedMask == 0x3;
+        float p99 = update.getPercentile(99);
+        if (p99 > maxMs) {
+            System.out.printf("FAIL: p99 hand update %.4f ms exceeds %.3f ms%n", p99, maxMs);
+            pass = false;
+        }
+        return pass;
+    }
+
+    private MeasurementState runOnce(boolean handTracking) throws Exception {
+        QuestVRApplication app = HeadlessRun.fixedStep(2 * 1680, 1760, TPF);
+        app.setStereoEnabled(true);
+        app.setHandTrackingEnabled(null, handTracking);
+
+        MeasurementState measurement = new MeasurementState(warmup, frames);
+        return HeadlessRun.run(app, measurement, null) ? measurement : null;
+    }
+
+    private static void printRow(String label, SampleWindow window, float allocKbPerFrame) {
+        System.out.printf("%-22s %8.4f %8.4f %8.4f %8.4f %9.2f KB%n", label, window.getMean(),
+                window.getPercentile(50), window.getPercentile(99), window.getMax(), allocKbPerFrame);
+    }
+
+    /**
+     * Samples the hands' update times across the measured frames.
+     */
+    private static class MeasurementState extends HeadlessRun.Measurement {
+
+        private final SampleWindow updateMs;
+        private HandTrackingState hands;
+        private int trackedMask;
+
+        MeasurementState(int warmup, int frames) {
+            super(warmup, frames);
+            this.updateMs = new SampleWindow(frames);
+        }
+
+        @Override
+        public void initialize(AppStateManager stateManager, Application app) {
+            super.initialize(stateManager, app);
+            hands = stateManager.getState(HandTrackingState.class);
+        }
+
+        @Override
+        protected void measuredFrame(int frame) {
+            if (hands != null) {
+                updateMs.add(hands.getUpdateTimes().getLast());
+            }
+        }
+
+        @Override
+        protected void finish() {
+            trackedMask = hands != null ? hands.getTrackedMask() : 0;
+        }
+    }
+}
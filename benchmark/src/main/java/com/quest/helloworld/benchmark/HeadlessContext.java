@@ -0,0 +1,84 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.input.KeyInput;
+import com.jme3.input.MouseInput;
+import com.jme3.input.dummy.DummyKeyInput;
+import com.jme3.input.dummy.DummyMouseInput;
+import com.jme3.renderer.Renderer;
+import com.jme3.system.AppSettings;
+import com.jme3.system.NullContext;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Null context that renders through {@link HeadlessRenderer} and provides
+ * dummy input devices, so app states that expect an InputManager work.
+ * Select it with {@link #configure(AppSettings)}; the frame loop runs on
+ * the context's own thread as fast as possible, or paced to the display
+ * rate when the settings give a positive frame rate.
+ */
+public class HeadlessContext extends NullContext {
+
+    private final HeadlessRenderer headlessRenderer = new HeadlessRenderer();
+
+    private final DummyKeyInput keyInput = new DummyKeyInput();
+    private final DummyMouseInput mouseInput = new DummyMouseInput();
+
+    private boolean paced = false;
+    private long nextFrameNanos = 0;
+
+    /**
+     * Point the settings at this context and turn off audio.
+     */
+    public static void configure(AppSettings settings) {
+        settings.setCustomRenderer(HeadlessContext.class);
+        settings.setAudioRenderer(null);
+        settings.setFrameRate(-1);
+    }
+
+    @Override
+    public void setSettings(AppSettings settings) {
+        super.setSettings(settings);
+        paced = settings.getFrameRate() > 0;
+    }
+
+    @Override
+    public Renderer getRenderer() {
+        return headlessRenderer;
+    }
+
+    @Override
+    public KeyInput getKeyInput() {
+        return keyInput;
+    }
+
+    @Override
+    public MouseInput getMouseInput() {
+        return mouseInput;
+    }
+
+    @Override
+    public boolean isRenderable() {
+        return true;
+    }
+
+    @Override
+    public void sync(int fps) {
+        // NullContext would otherwise throttle unpaced runs to 60 fps, and
+        // its millisecond sleeps drift too much to stand in for vsync
+        if (!paced) {
+            return;
+        }
+        long frameNanos = 1_000_000_000L / fps;
+        long now = System.nanoTime();
+        nextFrameNanos = nextFrameNanos == 0 ? now + frameNanos : nextFrameNanos + frameNanos;
+        if (nextFrameNanos <= now) {
+            // Missed the deadline - start the next frame now rather than bursting to catch up
+            nextFrameNanos = now;
+            return;
+        }
+        while (nextFrameNanos - System.nanoTime() > 0) {
+            LockSupport.parkNanos(nextFrameNanos - System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.material.RenderState;
+import com.jme3.math.ColorRGBA;
+import com.jme3.renderer.Caps;
+import com.jme3.renderer.Limits;
+import com.jme3.renderer.Renderer;
+import com.jme3.renderer.Statistics;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.shader.BufferObject;
+import com.jme3.shader.Shader;
+import com.jme3.shader.Uniform;
+import com.jme3.texture.FrameBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.util.ListMap;
+import com.jme3.util.NativeObject;
+import com.quest.helloworld.memory.MemorySizes;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Renderer that issues no GL calls but reports the capabilities of the
+ * Quest 3 GPU and records statistics the way GLRenderer does.
+ *
+ * jME skips rendering entirely for its own NullRenderer, so without this the
+ * culling and render-queue work the benchmark measures would never run.
+ * Materials still select techniques, generate shader sources and update
+ * uniforms; only the driver side is missing.
+ *
+ * Buffers, textures and shaders get ids when they're first uploaded, and
+ * {@link #resetGLObjects()} resets them all as losing the GL context does,
+ * so they're uploaded again. Uploads are counted.
+ */
+public class HeadlessRenderer implements Renderer {
+
+    private final EnumSet<Caps> caps = EnumSet.of(
+            Caps.OpenGLES20, Caps.OpenGLES30, Caps.OpenGLES31, Caps.OpenGLES32,
+            Caps.GLSL100, Caps.GLSL300, Caps.GLSL310, Caps.GLSL320,
+            Caps.FrameBuffer, Caps.FrameBufferMRT, Caps.FrameBufferMultisample, Caps.FrameBufferBlit,
+            Caps.Multisample, Caps.PackedDepthStencilBuffer, Caps.Depth24, Caps.DepthTexture,
+            Caps.NonPowerOfTwoTextures, Caps.MeshInstancing, Caps.VertexBufferArray, Caps.IntegerIndexBuffer,
+            Caps.VertexTextureFetch, Caps.TextureArray, Caps.FloatTexture, Caps.Rgba8, Caps.Srgb,
+            Caps.TextureCompressionETC1, Caps.TextureCompressionETC2, Caps.TextureFilterAnisotropic,
+            Caps.SeamlessCubemap, Caps.UnpackRowLength, Caps.BinaryShader, Caps.UniformBufferObject);
+
+    private final EnumMap<Limits, Integer> limits = new EnumMap<>(Limits.class);
+    private final Statistics statistics = new Statistics();
+
+    private Shader boundShader;
+    private FrameBuffer boundFrameBuffer;
+    private boolean alphaToCoverage = false;
+    private int defaultAnisotropicFilter = 1;
+    private boolean mainFrameBufferSrgb = false;
+    private boolean linearizeSrgbImages = false;
+
+    // Objects given ids, as jME's native object manager tracks them
+    private final List<NativeObject> created = new ArrayList<>();
+    private int nextId = 1;
+    private int uploads = 0;
+    private long uploadBytes = 0;
+
+    public HeadlessRenderer() {
+        // Typical mobile GLES 3.2 limits; anything not listed gets 16
+        for (Limits limit : Limits.values()) {
+            limits.put(limit, 16);
+        }
+        limits.put(Limits.FragmentUniformVectors, 256);
+        limits.put(Limits.VertexUniformVectors, 256);
+        limits.put(Limits.FrameBufferSamples, 4);
+        limits.put(Limits.FrameBufferAttachments, 8);
+        limits.put(Limits.FrameBufferMrtAttachments, 8);
+        limits.put(Limits.RenderBufferSize, 16384);
+        limits.put(Limits.TextureSize, 16384);
+        limits.put(Limits.CubemapSize, 16384);
+        limits.put(Limits.ColorTextureSamples, 4);
+        limits.put(Limits.DepthTextureSamples, 4);
+        limits.put(Limits.UniformBufferObjectMaxBlockSize, 65536);
+    }
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public EnumSet<Caps> getCaps() {
+        return caps;
+    }
+
+    @Override
+    public EnumMap<Limits, Integer> getLimits() {
+        return limits;
+    }
+
+    @Override
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public void invalidateState() {
+        boundShader = null;
+        boundFrameBuffer = null;
+    }
+
+    @Override
+    public void clearBuffers(boolean color, boolean depth, boolean stencil) {
+    }
+
+    @Override
+    public void setBackgroundColor(ColorRGBA color) {
+    }
+
+    @Override
+    public void applyRenderState(RenderState state) {
+    }
+
+    @Override
+    public void setDepthRange(float start, float end) {
+    }
+
+    @Override
+    public void postFrame() {
+    }
+
+    @Override
+    public void setViewPort(int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void setClipRect(int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void clearClipRect() {
+    }
+
+    @Override
+    public void setShader(Shader shader) {
+        if (shader.isUpdateNeeded()) {
+            // Where GLRenderer would compile and link
+            if (shader.getId() == NativeObject.INVALID_ID) {
+                create(shader);
+            }
+            shader.clearUpdateNeeded();
+            statistics.onNewShader();
+        }
+        // Consume uniform updates like GLRenderer.updateShaderUniforms
+        ListMap<String, Uniform> uniforms = shader.getUniformMap();
+        for (int i = 0; i < uniforms.size(); i++) {
+            Uniform uniform = uniforms.getValue(i);
+            if (uniform.isUpdateNeeded()) {
+                uniform.clearUpdateNeeded();
+                statistics.onUniformSet();
+            }
+        }
+        statistics.onShaderUse(shader, shader != boundShader);
+        boundShader = shader;
+    }
+
+    @Override
+    public void deleteShader(Shader shader) {
+    }
+
+    @Override
+    public void deleteShaderSource(Shader.ShaderSource source) {
+    }
+
+    @Override
+    public void copyFrameBuffer(FrameBuffer src, FrameBuffer dst, boolean copyDepth) {
+    }
+
+    @Override
+    public void copyFrameBuffer(FrameBuffer src, FrameBuffer dst, boolean copyColor, boolean copyDepth) {
+    }
+
+    @Override
+    public void setFrameBuffer(FrameBuffer fb) {
+        if (fb != null) {
+            statistics.onFrameBufferUse(fb, fb != boundFrameBuffer);
+        }
+        boundFrameBuffer = fb;
+    }
+
+    @Override
+    public void setMainFrameBufferOverride(FrameBuffer fb) {
+    }
+
+    @Override
+    public void readFrameBuffer(FrameBuffer fb, ByteBuffer byteBuf) {
+    }
+
+    @Override
+    public void readFrameBufferWithFormat(FrameBuffer fb, ByteBuffer byteBuf, Image.Format format) {
+    }
+
+    @Override
+    public void deleteFrameBuffer(FrameBuffer fb) {
+    }
+
+    @Override
+    public void setTexture(int unit, Texture tex) {
+        Image image = tex.getImage();
+        if (image.getId() == NativeObject.INVALID_ID) {
+            create(image);
+        }
+        if (image.isUpdateNeeded()) {
+            uploads++;
+            uploadBytes += MemorySizes.imageBytes(image);
+            image.clearUpdateNeeded();
+        }
+        statistics.onTextureUse(image, true);
+    }
+
+    @Override
+    public void modifyTexture(Texture tex, Image pixels, int x, int y) {
+    }
+
+    @Override
+    public void deleteImage(Image image) {
+    }
+
+    @Override
+    public void updateBufferData(VertexBuffer vb) {
+        if (vb.getId() == NativeObject.INVALID_ID) {
+            create(vb);
+        }
+        if (vb.isUpdateNeeded()) {
+            uploads++;
+            if (vb.getData() != null) {
+                uploadBytes += MemorySizes.bufferBytes(vb.getData());
+            }
+            vb.clearUpdateNeeded();
+        }
+    }
+
+    @Override
+    public void updateBufferData(BufferObject bo) {
+    }
+
+    @Override
+    public void deleteBuffer(VertexBuffer vb) {
+    }
+
+    @Override
+    public void deleteBuffer(BufferObject bo) {
+    }
+
+    @Override
+    public void renderMesh(Mesh mesh, int lod, int count, VertexBuffer[] instanceData) {
+        // Upload buffers like GLRenderer does before drawing
+        for (VertexBuffer vb : mesh.getBufferList()) {
+            updateBufferData(vb);
+        }
+        statistics.onMeshDrawn(mesh, lod, count);
+    }
+
+    @Override
+    public void resetGLObjects() {
+        for (NativeObject object : created) {
+            object.resetObject();
+        }
+        created.clear();
+        boundShader = null;
+        boundFrameBuffer = null;
+    }
+
+    @Override
+    public void cleanup() {
+    }
+
+    @Override
+    public void setDefaultAnisotropicFilter(int level) {
+        defaultAnisotropicFilter = level;
+    }
+
+    @Override
+    public void setAlphaToCoverage(boolean value) {
+        alphaToCoverage = value;
+    }
+
+    @Override
+    public void setMainFrameBufferSrgb(boolean srgb) {
+        mainFrameBufferSrgb = srgb;
+    }
+
+    @Override
+    public void setLinearizeSrgbImages(boolean linearize) {
+        linearizeSrgbImages = linearize;
+    }
+
+    @Override
+    public int[] generateProfilingTasks(int numTasks) {
+        return new int[numTasks];
+    }
+
+    @Override
+    public void startProfiling(int taskId) {
+    }
+
+    @Override
+    public void stopProfiling() {
+    }
+
+    @Override
+    public long getProfilingTime(int taskId) {
+        return 0;
+    }
+
+    @Override
+    public boolean isTaskResultAvailable(int taskId) {
+        return true;
+    }
+
+    @Override
+    public boolean getAlphaToCoverage() {
+        return alphaToCoverage;
+    }
+
+    @Override
+    public int getDefaultAnisotropicFilter() {
+        return defaultAnisotropicFilter;
+    }
+
+    @Override
+    public float getMaxLineWidth() {
+        return 1f;
+    }
+
+    @Override
+    public boolean isLinearizeSrgbImages() {
+        return linearizeSrgbImages;
+    }
+
+    @Override
+    public boolean isMainFrameBufferSrgb() {
+        return mainFrameBufferSrgb;
+    }
+
+    private void create(NativeObject object) {
+        object.setId(nextId++);
+        created.add(object);
+    }
+
+    /** Buffers and images sent to the GPU, first uploads and updates alike. */
+    public int getUploads() {
+        return uploads;
+    }
+
+    public long getUploadBytes() {
+        return uploadBytes;
+    }
+}
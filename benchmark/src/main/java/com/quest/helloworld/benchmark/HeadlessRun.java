@@ -0,0 +1,155 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.system.AppSettings;
+import com.quest.helloworld.QuestVRApplication;
+import com.quest.helloworld.perf.FrameProfiler;
+import com.quest.helloworld.perf.FrameProfilerState;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots QuestVRApplication against a {@link HeadlessContext} and runs the
+ * real frame loop for a warm-up and then a measured number of frames.
+ * A benchmark configures the application, and what it samples per frame
+ * goes in a {@link Measurement}; the run stops the application itself
+ * once the measurement has its frames.
+ */
+public final class HeadlessRun {
+
+    private HeadlessRun() {
+    }
+
+    /**
+     * An application at this resolution whose frames each advance time by
+     * tpf, run as fast as they render, so two runs do identical work.
+     */
+    public static QuestVRApplication fixedStep(int width, int height, float tpf) {
+        QuestVRApplication app = create(width, height, -1);
+        app.setTimer(new FixedStepTimer(tpf));
+        return app;
+    }
+
+    /**
+     * An application at this resolution paced to a display's frame rate,
+     * on the real clock.
+     */
+    public static QuestVRApplication paced(int width, int height, int frameRate) {
+        return create(width, height, frameRate);
+    }
+
+    private static QuestVRApplication create(int width, int height, int frameRate) {
+        QuestVRApplication app = new QuestVRApplication();
+        AppSettings settings = new AppSettings(true);
+        HeadlessContext.configure(settings);
+        settings.setFrameRate(frameRate);
+        settings.setResolution(width, height);
+        app.setSettings(settings);
+        app.setShowSettings(false);
+        return app;
+    }
+
+    /**
+     * Start the application and wait for the measurement's frames.
+     * @param setup run on the render thread once the application is
+     *              initialized, before the measurement is attached, or null
+     * @return whether every frame ran; if not, the errors are above
+     */
+    public static boolean run(QuestVRApplication app, Measurement measurement, Runnable setup)
+            throws InterruptedException {
+        app.enqueue(() -> {
+            if (setup != null) {
+                setup.run();
+            }
+            app.getStateManager().attach(measurement);
+        });
+        app.start();
+        return measurement.done.await(10, TimeUnit.MINUTES) && measurement.finished;
+    }
+
+    /**
+     * Counts frames, resets the profiler after warm-up and stops the
+     * application after the measured frames. Attached after the states it
+     * samples, so their update for a frame has run by its own. Allocation
+     * on the render thread is counted across the measured frames.
+     */
+    public abstract static class Measurement extends AbstractAppState {
+
+        protected final int warmup;
+        protected final int frames;
+        protected Application app;
+        protected FrameProfiler profiler;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private int frame = 0;
+        private long allocStart;
+        private long allocatedBytes;
+        private volatile boolean finished = false;
+
+        protected Measurement(int warmup, int frames) {
+            this.warmup = warmup;
+            this.frames = frames;
+        }
+
+        @Override
+        public void initialize(AppStateManager stateManager, Application app) {
+            super.initialize(stateManager, app);
+            this.app = app;
+            profiler = stateManager.getState(FrameProfilerState.class).getProfiler();
+        }
+
+        @Override
+        public final void update(float tpf) {
+            super.update(tpf);
+            frame++;
+
+            if (frame > warmup) {
+                measuredFrame(frame - warmup);
+            }
+            if (frame == warmup) {
+                profiler.reset(frames);
+                warmedUp();
+                allocStart = threads.getCurrentThreadAllocatedBytes();
+            } else if (frame == warmup + frames) {
+                allocatedBytes = threads.getCurrentThreadAllocatedBytes() - allocStart;
+                finish();
+                finished = true;
+                app.stop();
+                done.countDown();
+            }
+        }
+
+        /** The last frame of the warm-up, just after the profiler was reset. */
+        protected void warmedUp() {
+        }
+
+        /**
+         * Each measured frame, numbered from 1, the last one before
+         * {@link #finish()}.
+         */
+        protected void measuredFrame(int frame) {
+        }
+
+        /** The last measured frame, before the application stops. */
+        protected void finish() {
+        }
+
+        /** Bytes allocated on the render thread over the measured frames. */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public void cleanup() {
+            super.cleanup();
+            // Also release the main thread if the app shuts down early
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.app.LostFocusBehavior;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+import com.jme3.system.AppSettings;
+import com.quest.helloworld.QuestVRApplication;
+import com.quest.helloworld.jobs.RenderJobScheduler;
+import com.quest.helloworld.jobs.RenderJobState;
+import com.quest.helloworld.lifecycle.LifecycleState;
+import com.quest.helloworld.lifecycle.SceneSnapshot;
+import com.quest.helloworld.startup.StartupTrace;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.quest.helloworld.benchmark.Checks.check;
+
+/**
+ * Times resuming the app after a pause, the ways a headset doff and don can
+ * go, and checks the scene comes back as it was left.
+ *
+ * The app runs on a headless context paced to 72 Hz and is paused and
+ * resumed the way AndroidHarness does it, with the activity's calls into
+ * the app around the focus change. Three cases are compared:
+ * <ul>
+ *   <li>context kept - the GL context survived, nothing is uploaded</li>
+ *   <li>context lost - every GL object is reset as on a lost context, and
+ *       the scene is re-uploaded from its CPU-side copies</li>
+ *   <li>recreated - the process is gone; a new app is launched, builds the
+ *       scene and restores the snapshot saved on pause</li>
+ * </ul>
+ * Recreation runs in the same, warm JVM, so it is faster here than a cold
+ * process on a device.
+ *
+ * Options:
+ * <pre>
+ *   --cycles N     pause and resume cycles per case (default 20)
+ *   --pause-ms N   how long each pause lasts (default 50)
+ *   --recreates N  recreated launches (default 5)
+ * </pre>
+ */
+public class LifecycleBenchmark {
+
+    private static final String FIRST_FRAME = "first frame";
+    // Frames after the render jobs finish, for their content to be drawn
+    private static final int SETTLE_FRAMES = 10;
+    // Somewhere no sphere starts, to see it's restored
+    private static final Vector3f MOVED_SPHERE = new Vector3f(0.7f, 2f, -1f);
+    private static final float TOLERANCE = 1e-6f;
+
+    private int cycles = 20;
+    private int pauseMs = 50;
+    private int recreates = 5;
+
+    private File snapshotFile;
+    private StartupTrace lastTrace;
+
+    public static void main(String[] args) throws Exception {
+        LifecycleBenchmark benchmark = new LifecycleBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--cycles": cycles = Integer.parseInt(args[++i]); break;
+                case "--pause-ms": pauseMs = Integer.parseInt(args[++i]); break;
+                case "--recreates": recreates = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        System.out.printf("%nLifecycle benchmark - %d pause and resume cycles per case, %d ms pauses, %d recreations%n%n",
+                cycles, pauseMs, recreates);
+        // Keep jME's per-launch loader warnings out of the report
+        Logger.getLogger("").setLevel(Level.SEVERE);
+        snapshotFile = File.createTempFile("scene-snapshot", ".bin");
+        snapshotFile.deleteOnExit();
+
+        QuestVRApplication app = launch(false);
+        LifecycleState lifecycle = app.getStateManager().getState(LifecycleState.class);
+        HeadlessRenderer renderer = (HeadlessRenderer) app.getRenderer();
+        Spatial cube = app.getRootNode().getChild("Cube");
+        int geometries = countGeometries(app);
+
+        // Context kept: nothing should be uploaded again
+        float[] keptMs = new float[cycles];
+        int keptUploads = 0;
+        for (int i = 0; i < cycles; i++) {
+            int before = renderer.getUploads();
+            keptMs[i] = cycle(app, lifecycle, false);
+            keptUploads += renderer.getUploads() - before;
+        }
+
+        // Context lost: everything re-uploaded, nothing rebuilt
+        float[] lostMs = new float[cycles];
+        int lostUploads = 0;
+        long lostBytes = 0;
+        int missing = 0;
+        for (int i = 0; i < cycles; i++) {
+            int before = renderer.getUploads();
+            long bytesBefore = renderer.getUploadBytes();
+            lostMs[i] = cycle(app, lifecycle, true);
+            lostUploads += renderer.getUploads() - before;
+            lostBytes += renderer.getUploadBytes() - bytesBefore;
+            missing += lifecycle.getMissingCpuData();
+        }
+        boolean sameScene = app.getRootNode().getChild("Cube") == cube && countGeometries(app) == geometries;
+        int losses = lifecycle.getContextLossCount();
+
+        // Move a sphere before the last pause, so restoring it shows
+        execute(app, () -> sphereAt(app, new Vector3f(-1.5f, 1.2f, -2.5f)).setLocalTranslation(MOVED_SPHERE));
+        app.onActivityPause();
+        execute(app, () -> app.loseFocus());
+        app.stop(true);
+        SceneSnapshot saved = SceneSnapshot.read(snapshotFile);
+        SceneSnapshot decoded = SceneSnapshot.fromBytes(saved.toBytes());
+        boolean roundTrip = Arrays.equals(decoded.toBytes(), saved.toBytes())
+                && decoded.getObjects().size() == saved.getObjects().size();
+
+        // Recreated: a new app restoring the snapshot
+        float[] recreateMs = new float[recreates];
+        boolean restored = true;
+        for (int i = 0; i < recreates; i++) {
+            long start = System.nanoTime();
+            QuestVRApplication again = launch(true);
+            // The trace counts from the launch
+            recreateMs[i] = lastTrace.getPhase(FIRST_FRAME).endNanos * 1e-6f;
+
+            restored &= call(again, () -> sphereAt(again, MOVED_SPHERE)) != null;
+            // Pausing again saves how far the animation got, which carries on from the snapshot
+            float elapsed = (System.nanoTime() - start) * 1e-9f;
+            again.onActivityPause();
+            again.stop(true);
+            float time = SceneSnapshot.read(snapshotFile).getAnimationTime();
+            restored &= time >= saved.getAnimationTime() && time <= saved.getAnimationTime() + elapsed;
+            saved = SceneSnapshot.read(snapshotFile);
+        }
+
+        Arrays.sort(keptMs);
+        Arrays.sort(lostMs);
+        Arrays.sort(recreateMs);
+        float kept = keptMs[cycles / 2];
+        float lost = lostMs[cycles / 2];
+        float recreated = recreateMs[recreates / 2];
+        System.out.printf("Resume to first frame, ms             median        max%n");
+        System.out.printf("  context kept                     %10.1f %10.1f%n", kept, keptMs[cycles - 1]);
+        System.out.printf("  context lost, re-uploaded        %10.1f %10.1f%n", lost, lostMs[cycles - 1]);
+        System.out.printf("  recreated, snapshot restored     %10.1f %10.1f%n", recreated, recreateMs[recreates - 1]);
+        System.out.printf("Re-uploaded per lost context: %d buffers and textures, %.1f KB%n",
+                lostUploads / cycles, lostBytes / 1024f / cycles);
+        System.out.printf("Snapshot: %d bytes, %d objects%n%n", lifecycle.getSnapshotBytes(), saved.getObjects().size());
+
+        boolean pass = true;
+        pass &= check(keptUploads == 0, "resuming with the context kept uploads nothing: " + keptUploads + " uploads");
+        pass &= check(losses == cycles && lostUploads > 0 && missing == 0,
+                String.format("every lost context was detected and re-uploaded from CPU copies: %d of %d, %d missing",
+                        losses, cycles, missing));
+        pass &= check(sameScene, "the scene was not rebuilt after losing the context");
+        pass &= check(lost < recreated,
+                String.format("re-uploading resumes faster than recreating: %.1f vs %.1f ms", lost, recreated));
+        pass &= check(roundTrip, "snapshot decodes to what was saved");
+        pass &= check(restored, String.format("%d recreated apps restored the moved object and carried on the animation time",
+                recreates));
+        return pass;
+    }
+
+    /**
+     * Launch the app and wait for its scene to settle after the first frame.
+     */
+    private QuestVRApplication launch(boolean restore) throws Exception {
+        StartupTrace trace = new StartupTrace(System.nanoTime());
+        QuestVRApplication app = new QuestVRApplication();
+        AppSettings settings = new AppSettings(true);
+        HeadlessContext.configure(settings);
+        settings.setFrameRate(72);
+        settings.setResolution(1680, 1760);
+        app.setSettings(settings);
+        app.setShowSettings(false);
+        app.setLostFocusBehavior(LostFocusBehavior.PauseOnLostFocus);
+        app.setStartupTrace(trace);
+        app.setSnapshotFile(snapshotFile, restore);
+        app.start();
+        lastTrace = trace;
+
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (trace.getPhase(FIRST_FRAME) == null) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("App didn't render its first frame");
+            }
+            Thread.sleep(1);
+        }
+        // Render jobs build the rest of the scene over the next frames
+        RenderJobScheduler jobs = app.getStateManager().getState(RenderJobState.class).getScheduler();
+        while (call(app, jobs::getQueueDepth) > 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < SETTLE_FRAMES; i++) {
+            call(app, () -> Boolean.TRUE);
+        }
+        return app;
+    }
+
+    /**
+     * Pause and resume as MainActivity and AndroidHarness do.
+     * @return milliseconds from resume to the first frame after it
+     */
+    private float cycle(QuestVRApplication app, LifecycleState lifecycle, boolean loseContext) throws Exception {
+        int resumes = lifecycle.getResumeCount();
+        app.onActivityPause();
+        execute(app, () -> app.loseFocus());
+        Thread.sleep(pauseMs);
+
+        app.onActivityResume();
+        if (loseContext) {
+            // What OGLESContext does when the surface comes back with a new context
+            app.enqueue(() -> app.getRenderer().resetGLObjects());
+        }
+        app.enqueue(() -> app.gainFocus());
+        while (lifecycle.getResumeCount() == resumes) {
+            Thread.sleep(0, 100_000);
+        }
+        return lifecycle.getResumeMs().getLast();
+    }
+
+    private static <T> T call(QuestVRApplication app, Callable<T> task) throws Exception {
+        return app.enqueue(task).get();
+    }
+
+    private static void execute(QuestVRApplication app, Runnable task) throws Exception {
+        call(app, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    private static Spatial sphereAt(QuestVRApplication app, Vector3f location) {
+        for (Spatial child : app.getRootNode().getChildren()) {
+            if ("Sphere".equals(child.getName()) && child.getLocalTranslation().distance(location) < TOLERANCE) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static int countGeometries(QuestVRApplication app) throws Exception {
+        return call(app, () -> {
+            int[] count = {0};
+            app.getRootNode().depthFirstTraversal(spatial -> count[0]++);
+            return count[0];
+        });
+    }
+}
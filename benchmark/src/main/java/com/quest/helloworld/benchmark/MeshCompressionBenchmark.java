@@ -0,0 +1,337 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.scene.shape.Box;
+import com.jme3.scene.shape.Sphere;
+import com.jme3.shader.plugins.ShaderAssetKey;
+import com.jme3.system.AppSettings;
+import com.quest.helloworld.QuestVRApplication;
+import com.quest.helloworld.asset.GeneratedAssetLocator;
+import com.quest.helloworld.jobs.RenderJobScheduler;
+import com.quest.helloworld.jobs.RenderJobState;
+import com.quest.helloworld.mesh.CompressedMesh;
+import com.quest.helloworld.mesh.MeshCompressor;
+import com.quest.helloworld.mesh.CompressedMaterials;
+import com.quest.helloworld.shadow.StereoShadowMode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.quest.helloworld.benchmark.Checks.check;
+
+/**
+ * Compresses the meshes the app and HelloWorldScene build, and checks
+ * every vertex decodes to within a quantization step of the original.
+ *
+ * Each mesh is reported with its bytes before and after, and with ACMR -
+ * vertices shaded per triangle on a 16-entry FIFO cache - before and after
+ * its triangles are reordered, which must keep every triangle and its
+ * winding. The app is then run headless with compression on and shared
+ * stereo shadows, so the generated material definitions are parsed and
+ * their vertex shaders loaded for the lit, shadow and unshaded techniques,
+ * and the scene's mesh bytes are compared with an uncompressed run.
+ * Without a GPU, the generated shaders are checked as text, not compiled.
+ *
+ * Options:
+ * <pre>
+ *   --segments N  rings and radial samples of the large sphere (default 128)
+ *   --frames N    frames the compressed app renders (default 120)
+ * </pre>
+ */
+public class MeshCompressionBenchmark {
+
+    private static final int SETTLE_FRAMES = 10;
+    // Floor, cube, four spheres and two controllers
+    private static final int APP_GEOMETRIES = 8;
+    // Normals: well under what shading can show
+    private static final float NORMAL_TOLERANCE_DEGREES = 0.01f;
+    // Texture coordinates in [0, 1]: half a half-float step at 1
+    private static final float TEXCOORD_TOLERANCE = 1f / 2048f;
+    private static final Pattern GENERATED_VERTEX_SHADER = Pattern.compile("VertexShader[^:\\n]*:\\s*(Generated/\\S+)");
+
+    private int segments = 128;
+    private int frames = 120;
+
+    public static void main(String[] args) throws Exception {
+        MeshCompressionBenchmark benchmark = new MeshCompressionBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--segments": segments = Integer.parseInt(args[++i]); break;
+                case "--frames": frames = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        System.out.printf("%nMesh compression benchmark - scene meshes and a %dx%d sphere, %d frames of the app%n%n",
+                segments, segments, frames);
+        Logger.getLogger("").setLevel(Level.SEVERE);
+
+        Map<String, Mesh> meshes = new LinkedHashMap<>();
+        meshes.put("Floor box", new Box(5f, 0.05f, 5f));
+        meshes.put("Cube", new Box(0.3f, 0.3f, 0.3f));
+        meshes.put("Controller box", new Box(0.03f, 0.02f, 0.1f));
+        meshes.put("Sphere 24x24", new Sphere(24, 24, 0.15f));
+        meshes.put("Ground box", new Box(10f, 0.05f, 10f));
+        meshes.put("Sphere 32x32", new Sphere(32, 32, 0.2f));
+        meshes.put("Sphere " + segments + "x" + segments, new Sphere(segments, segments, 1f));
+
+        System.out.printf("Mesh                 verts   tris    bytes before  after  saved   ACMR before after"
+                + "   ms   max error: position       normal   texcoord%n");
+        boolean decoded = true;
+        boolean sameTriangles = true;
+        boolean cacheBetter = true;
+        boolean smaller = true;
+        float worstPosition = 0f;
+        float worstNormal = 0f;
+        float worstTexCoord = 0f;
+        float largeAcmrBefore = 0f;
+        float largeAcmrAfter = 0f;
+        for (Map.Entry<String, Mesh> entry : meshes.entrySet()) {
+            Mesh original = entry.getValue();
+            long start = System.nanoTime();
+            CompressedMesh compressed = MeshCompressor.compress(original);
+            float ms = (System.nanoTime() - start) * 1e-6f;
+
+            Errors errors = compare(original, compressed);
+            decoded &= errors.position <= errors.positionTolerance
+                    && errors.normalDegrees <= NORMAL_TOLERANCE_DEGREES
+                    && errors.texCoord <= TEXCOORD_TOLERANCE;
+            sameTriangles &= Arrays.equals(triangles(original), triangles(compressed.getMesh()));
+            cacheBetter &= compressed.getAcmrAfter() <= compressed.getAcmrBefore();
+            smaller &= compressed.getSavedBytes() > 0;
+            worstPosition = Math.max(worstPosition, errors.position / errors.positionTolerance);
+            worstNormal = Math.max(worstNormal, errors.normalDegrees);
+            worstTexCoord = Math.max(worstTexCoord, errors.texCoord);
+            largeAcmrBefore = compressed.getAcmrBefore();
+            largeAcmrAfter = compressed.getAcmrAfter();
+
+            System.out.printf("%-18s %7d %6d %11d %7d %5.0f%%   %9.3f %5.3f %6.1f   %13.4f mm %7.4f deg %10.6f%n",
+                    entry.getKey(), original.getVertexCount(), original.getTriangleCount(),
+                    compressed.getOriginalBytes(), compressed.getCompressedBytes(),
+                    100f * compressed.getSavedBytes() / compressed.getOriginalBytes(),
+                    compressed.getAcmrBefore(), compressed.getAcmrAfter(), ms,
+                    errors.position * 1000f, errors.normalDegrees, errors.texCoord);
+        }
+
+        // What the resource budget's factory rebuilds must fit the material set up for the first one
+        CompressedMesh first = MeshCompressor.compress(new Sphere(24, 24, 0.15f));
+        CompressedMesh rebuilt = MeshCompressor.compress(new Sphere(24, 24, 0.15f));
+        boolean rebuildsSame = first.getCenter().equals(rebuilt.getCenter())
+                && first.getExtent().equals(rebuilt.getExtent())
+                && first.getMesh().getBuffer(VertexBuffer.Type.Position).getData()
+                        .equals(rebuilt.getMesh().getBuffer(VertexBuffer.Type.Position).getData());
+
+        int[] generated = new int[1];
+        MeshCompressor compressor = runApp(frames, generated);
+        AssetManager assetManager = new DesktopAssetManager(true);
+        GeneratedAssetLocator.register(assetManager);
+        Map<String, String> shaders = generatedVertexShaders(assetManager);
+        List<String> undecoded = new ArrayList<>();
+        for (Map.Entry<String, String> shader : shaders.entrySet()) {
+            if (!readsOnlyDecoded(shader.getValue())) {
+                undecoded.add(shader.getKey());
+            }
+        }
+        System.out.printf("%nApp: %s%n", compressor.summary());
+        System.out.printf("Generated vertex shaders: %s%n%n", shaders.keySet());
+
+        boolean pass = true;
+        pass &= check(decoded, String.format("decoded vertices match the originals: positions within %.2f of a "
+                        + "quantization step, normals within %.4f deg, texture coordinates within %.6f",
+                worstPosition, worstNormal, worstTexCoord));
+        pass &= check(sameTriangles, "reordering kept every triangle and its winding");
+        pass &= check(cacheBetter && largeAcmrAfter < largeAcmrBefore,
+                String.format("reordering never shaded more vertices, %.3f -> %.3f ACMR on the large sphere",
+                        largeAcmrBefore, largeAcmrAfter));
+        pass &= check(smaller, "every mesh got smaller");
+        pass &= check(rebuildsSame, "a rebuilt mesh compresses to the same bound and data");
+        pass &= check(compressor.getGeometryCount() == APP_GEOMETRIES && generated[0] == APP_GEOMETRIES,
+                String.format("the app drew %d of %d geometries compressed for %d frames with shadows",
+                        generated[0], APP_GEOMETRIES, frames));
+        pass &= check(!shaders.isEmpty() && undecoded.isEmpty(),
+                "generated vertex shaders read positions and normals only through their decoders"
+                        + (undecoded.isEmpty() ? "" : ": not " + undecoded));
+        return pass;
+    }
+
+    private static class Errors {
+        float position;
+        float positionTolerance;
+        float normalDegrees;
+        float texCoord;
+    }
+
+    /**
+     * Largest difference between each original vertex and what its
+     * compressed one decodes to.
+     */
+    private static Errors compare(Mesh original, CompressedMesh compressed) {
+        Errors errors = new Errors();
+        // A whole step on the longest axis; rounding alone is half of it
+        errors.positionTolerance = Math.max(compressed.getExtent().x,
+                Math.max(compressed.getExtent().y, compressed.getExtent().z)) / 32767f;
+        FloatBuffer positions = original.getFloatBuffer(VertexBuffer.Type.Position);
+        FloatBuffer normals = original.getFloatBuffer(VertexBuffer.Type.Normal);
+        FloatBuffer texCoords = original.getFloatBuffer(VertexBuffer.Type.TexCoord);
+        Vector3f expected = new Vector3f();
+        Vector3f actual = new Vector3f();
+        Vector2f uv = new Vector2f();
+        for (int v = 0; v < original.getVertexCount(); v++) {
+            expected.set(positions.get(v * 3), positions.get(v * 3 + 1), positions.get(v * 3 + 2));
+            compressed.decodePosition(v, actual);
+            errors.position = Math.max(errors.position, Math.max(Math.abs(expected.x - actual.x),
+                    Math.max(Math.abs(expected.y - actual.y), Math.abs(expected.z - actual.z))));
+
+            expected.set(normals.get(v * 3), normals.get(v * 3 + 1), normals.get(v * 3 + 2)).normalizeLocal();
+            compressed.decodeNormal(v, actual);
+            // From the chord, as acos of a float dot product can't resolve angles this small
+            float chord = Math.min(expected.distance(actual), 2f);
+            errors.normalDegrees = Math.max(errors.normalDegrees, (float) Math.toDegrees(2 * Math.asin(chord / 2)));
+
+            compressed.decodeTexCoord(v, uv);
+            errors.texCoord = Math.max(errors.texCoord, Math.max(Math.abs(texCoords.get(v * 2) - uv.x),
+                    Math.abs(texCoords.get(v * 2 + 1) - uv.y)));
+        }
+        return errors;
+    }
+
+    /**
+     * The mesh's triangles, each started at its lowest index so winding is
+     * kept, in a fixed order.
+     */
+    private static long[] triangles(Mesh mesh) {
+        IndexBuffer indices = mesh.getIndexBuffer();
+        long[] triangles = new long[indices.size() / 3];
+        for (int t = 0; t < triangles.length; t++) {
+            int a = indices.get(3 * t);
+            int b = indices.get(3 * t + 1);
+            int c = indices.get(3 * t + 2);
+            while (a > b || a > c) {
+                int first = a;
+                a = b;
+                b = c;
+                c = first;
+            }
+            triangles[t] = (long) a << 42 | (long) b << 21 | c;
+        }
+        Arrays.sort(triangles);
+        return triangles;
+    }
+
+    /**
+     * Run the app with compression on until its scene is built, then for
+     * some frames.
+     * @param generated receives the number of geometries drawn with generated materials
+     * @return the app's compressor
+     */
+    private static MeshCompressor runApp(int frames, int[] generated) throws Exception {
+        QuestVRApplication app = new QuestVRApplication();
+        AppSettings settings = new AppSettings(true);
+        HeadlessContext.configure(settings);
+        settings.setFrameRate(-1);
+        settings.setResolution(1680, 1760);
+        app.setSettings(settings);
+        app.setShowSettings(false);
+        app.setMeshCompression(true);
+        app.setShadowMode(StereoShadowMode.SHARED);
+        app.start();
+        try {
+            waitForScene(app);
+            for (int i = 0; i < frames; i++) {
+                call(app, () -> Boolean.TRUE);
+            }
+            return call(app, () -> {
+                app.getRootNode().depthFirstTraversal(spatial -> {
+                    if (spatial instanceof Geometry && ((Geometry) spatial).getMaterial().getMaterialDef()
+                            .getAssetName().startsWith(GeneratedAssetLocator.ROOT)) {
+                        generated[0]++;
+                    }
+                });
+                return app.getStateManager().getState(MeshCompressor.class);
+            });
+        } finally {
+            app.stop(true);
+        }
+    }
+
+    private static void waitForScene(QuestVRApplication app) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (app.getStateManager().getState(RenderJobState.class) == null) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("App didn't initialize");
+            }
+            Thread.sleep(1);
+        }
+        RenderJobScheduler jobs = app.getStateManager().getState(RenderJobState.class).getScheduler();
+        while (call(app, jobs::getQueueDepth) > 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < SETTLE_FRAMES; i++) {
+            call(app, () -> Boolean.TRUE);
+        }
+    }
+
+    private static <T> T call(QuestVRApplication app, Callable<T> task) throws Exception {
+        return app.enqueue(task).get();
+    }
+
+    /**
+     * The vertex shaders of the generated variants of the definitions the
+     * app uses, by name, with their imports in place.
+     */
+    private static Map<String, String> generatedVertexShaders(AssetManager assetManager) throws IOException {
+        Map<String, String> shaders = new LinkedHashMap<>();
+        for (String definition : new String[] {"Common/MatDefs/Light/Lighting.j3md", "Common/MatDefs/Misc/Unshaded.j3md"}) {
+            String text;
+            String generated = CompressedMaterials.definition(assetManager, definition);
+            try (InputStream in = assetManager.locateAsset(new AssetKey<>(generated)).openStream()) {
+                text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            Matcher matcher = GENERATED_VERTEX_SHADER.matcher(text);
+            while (matcher.find()) {
+                shaders.computeIfAbsent(matcher.group(1),
+                        // ShaderAssetKey is a raw AssetKey; widening it keeps loadAsset checked
+                        name -> (String) assetManager.loadAsset((AssetKey<?>) new ShaderAssetKey(name, true)));
+            }
+        }
+        return shaders;
+    }
+
+    /**
+     * Whether the attributes are only read inside their decoders.
+     */
+    private static boolean readsOnlyDecoded(String shader) {
+        String source = shader
+                .replaceAll("(?s)attribute vec3 inPosition;.*?\\n}\\n", "")
+                .replaceAll("(?s)attribute vec2 inNormal;.*?\\n}\\n", "");
+        return !source.matches("(?s).*\\bin(Position|Normal)\\b.*") && source.contains("decodePosition()");
+    }
+}
@@ -0,0 +1,503 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.quest.helloworld.occlusion.OccludeeSet;
+import com.quest.helloworld.occlusion.OcclusionCuller;
+import com.quest.helloworld.occlusion.OcclusionCullingState;
+import com.quest.helloworld.shadow.StereoFrustum;
+
+import java.util.Random;
+
+import static com.quest.helloworld.benchmark.Checks.check;
+import static com.quest.helloworld.benchmark.Checks.checkParallel;
+
+/**
+ * Checks the software occlusion culler's accuracy against a ray-cast
+ * reference and measures its throughput, on a dense synthetic interior:
+ * a grid of rooms joined by doorways, walls as occluders, and props
+ * scattered through the rooms as occludees. Pure JVM - jME's Camera
+ * supplies the eye and combined matrices, nothing renders.
+ *
+ * Accuracy: from random standing viewpoints, every prop's visibility is
+ * found by casting rays from the viewpoint to points on the prop's
+ * faces against the walls. From the combined viewpoint the culler
+ * rasterized from, it must never hide a prop a ray reaches: that's its
+ * conservative guarantee. From each eye, a prop hidden from the combined
+ * viewpoint behind the eyes can show past a door frame; those are
+ * counted, without and with the eyes' parallax allowed for. With it, the
+ * only misses left are props seen through a line of doorways whose far
+ * opening is behind a nearer wall from the combined viewpoint, which
+ * must stay under one in two hundred props an eye sees. Efficiency is
+ * the share of props hidden from the combined viewpoint that the culler
+ * hides, with parallax allowed for.
+ *
+ * Throughput: rasterization time, box-test time per box, and how long
+ * the test waits for the raster thread when a stand-in scene update of
+ * about the raster's length runs in between. The overlap only shows up
+ * in wall time with a second core.
+ *
+ * Options:
+ * <pre>
+ *   --boxes N      props (default 10000)
+ *   --rooms N      rooms along each side (default 8)
+ *   --views N      viewpoints for the accuracy check (default 24)
+ *   --frames N     frames measured for throughput (default 2000)
+ *   --size WxH     buffer size (default 256x256)
+ *   --seed N       scene and viewpoint seed (default 41)
+ * </pre>
+ */
+public class OcclusionBenchmark {
+
+    private static final float ROOM = 4f;
+    private static final float WALL_HEIGHT = 3f;
+    private static final float WALL_HALF_THICKNESS = 0.1f;
+    private static final float DOOR_HALF_WIDTH = 0.5f;
+    private static final float DOOR_HEIGHT = 2.1f;
+    private static final float EYE_HEIGHT = 1.6f;
+    private static final float IPD = 0.063f;
+    private static final float NEAR = 0.1f;
+    private static final float FAR = 100f;
+    // Rays per face side to each prop's faces
+    private static final int SAMPLES = 6;
+
+    // Keeps the stand-in update from being optimized away
+    private static volatile double sink;
+
+    private int boxCount = 10000;
+    private int rooms = 8;
+    private int views = 24;
+    private int frames = 2000;
+    private int width = 256;
+    private int height = 256;
+    private long seed = 41;
+
+    // Walls, as boxes
+    private float[] wallMin = new float[0];
+    private float[] wallMax = new float[0];
+    private int wallCount = 0;
+    // Wall indices along each grid line, per room segment: [line][segment]
+    private int[][][] wallsAlongX;
+    private int[][][] wallsAlongZ;
+
+    // Props
+    private float[] propCenter;
+    private float[] propExtent;
+
+    public static void main(String[] args) throws Exception {
+        OcclusionBenchmark benchmark = new OcclusionBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--boxes": boxCount = Integer.parseInt(args[++i]); break;
+                case "--rooms": rooms = Integer.parseInt(args[++i]); break;
+                case "--views": views = Integer.parseInt(args[++i]); break;
+                case "--frames": frames = Integer.parseInt(args[++i]); break;
+                case "--size":
+                    String[] size = args[++i].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                    break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        Random random = new Random(seed);
+        buildWalls();
+        buildProps(random);
+        OcclusionCuller culler = new OcclusionCuller(width, height);
+        addOccluders(culler);
+
+        System.out.printf("%nOcclusion benchmark - %dx%d rooms, %d wall boxes (%d triangles), %d props, %dx%d buffer%n%n",
+                rooms, rooms, wallCount, wallCount * 12, boxCount, width, height);
+
+        OccludeeSet props = new OccludeeSet(boxCount);
+        for (int i = 0; i < boxCount; i++) {
+            props.add(propCenter[i * 3], propCenter[i * 3 + 1], propCenter[i * 3 + 2],
+                    propExtent[i * 3], propExtent[i * 3 + 1], propExtent[i * 3 + 2]);
+        }
+        Viewpoint[] viewpoints = new Viewpoint[views];
+        for (int v = 0; v < views; v++) {
+            viewpoints[v] = new Viewpoint(random);
+        }
+        // Accuracy
+        boolean[] culled = new boolean[boxCount];
+        boolean[] culledParallax = new boolean[boxCount];
+        long inFrustum = 0, referenceHidden = 0, hidden = 0, hiddenParallax = 0, combinedFalse = 0;
+        long eyeVisible = 0, eyeFalse = 0, eyeFalseParallax = 0;
+        float parallax = 0f;
+        for (Viewpoint view : viewpoints) {
+            float[] vp = view.matrix(view.combined);
+            culler.beginRaster(vp);
+            boolean[] visible = new boolean[boxCount];
+            culler.test(props, 0f, visible);
+            for (int i = 0; i < boxCount; i++) {
+                culled[i] = !visible[i];
+            }
+            culler.test(props, view.parallax, visible);
+            for (int i = 0; i < boxCount; i++) {
+                culledParallax[i] = !visible[i];
+            }
+            parallax += view.parallax / views;
+
+            float[] leftVp = view.matrix(view.left);
+            float[] rightVp = view.matrix(view.right);
+            for (int i = 0; i < boxCount; i++) {
+                int reference = visibility(i, view.combined.getLocation(), vp);
+                if (reference == OUTSIDE) {
+                    continue;
+                }
+                inFrustum++;
+                if (culled[i]) {
+                    hidden++;
+                }
+                if (culledParallax[i]) {
+                    hiddenParallax++;
+                }
+                if (reference == HIDDEN) {
+                    referenceHidden++;
+                } else if (culled[i] || culledParallax[i]) {
+                    combinedFalse++;
+                }
+                // Only culled props can be false culls for an eye
+                boolean seenByEye = (culled[i] || culledParallax[i])
+                        && (visibility(i, view.left.getLocation(), leftVp) == VISIBLE
+                        || visibility(i, view.right.getLocation(), rightVp) == VISIBLE);
+                if (seenByEye) {
+                    eyeFalse += culled[i] ? 1 : 0;
+                    eyeFalseParallax += culledParallax[i] ? 1 : 0;
+                }
+            }
+            for (int i = 0; i < boxCount; i++) {
+                if (visibility(i, view.left.getLocation(), leftVp) == VISIBLE
+                        || visibility(i, view.right.getLocation(), rightVp) == VISIBLE) {
+                    eyeVisible++;
+                }
+            }
+        }
+        float efficiency = referenceHidden > 0 ? (float) hiddenParallax / referenceHidden : 0f;
+        System.out.printf("Accuracy over %d viewpoints, eye parallax %.1f px per 1/m on average%n", views, parallax);
+        System.out.printf("  in combined frustum      %8d props%n", inFrustum);
+        System.out.printf("  hidden (ray cast)        %8d  %5.1f%%%n", referenceHidden, 100f * referenceHidden / inFrustum);
+        System.out.printf("  culled, combined only    %8d  %5.1f%% of hidden%n", hidden, 100f * hidden / Math.max(1, referenceHidden));
+        System.out.printf("  ... allowing parallax    %8d  %5.1f%%%n", hiddenParallax, 100f * efficiency);
+        System.out.printf("  false culls, combined    %8d%n", combinedFalse);
+        System.out.printf("  false culls, per eye     %8d  %6.3f%% of props an eye sees%n", eyeFalse,
+                100f * eyeFalse / Math.max(1, eyeVisible));
+        System.out.printf("  ... allowing parallax    %8d  %6.3f%%%n", eyeFalseParallax,
+                100f * eyeFalseParallax / Math.max(1, eyeVisible));
+        System.out.println();
+
+        // Throughput
+        culler.resetStatistics();
+        boolean[] visible = new boolean[boxCount];
+        long testNanos = 0, serialNanos = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            Viewpoint view = viewpoints[frame % views];
+            long start = System.nanoTime();
+            culler.beginRaster(view.matrix(view.combined));
+            culler.awaitRaster();
+            long t = System.nanoTime();
+            culler.test(props, view.parallax, visible);
+            testNanos += System.nanoTime() - t;
+            serialNanos += System.nanoTime() - start;
+        }
+        float rasterMs = culler.getRasterNanos() * 1e-6f / frames;
+        float testMs = testNanos * 1e-6f / frames;
+        System.out.printf("Throughput over %d frames%n", frames);
+        System.out.printf("  raster                   %8.3f ms/frame%n", rasterMs);
+        System.out.printf("  test                     %8.3f ms/frame, %.1f ns/box%n", testMs, testNanos / (float) frames / boxCount);
+        System.out.printf("  serial                   %8.3f ms/frame%n", serialNanos * 1e-6f / frames);
+
+        // Raster alongside a stand-in scene update as long as the raster
+        culler.resetStatistics();
+        long updateNanos = (long) (rasterMs * 1e6f);
+        long overlappedNanos = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            Viewpoint view = viewpoints[frame % views];
+            long start = System.nanoTime();
+            culler.beginRaster(view.matrix(view.combined));
+            sink += sceneUpdate(updateNanos);
+            culler.test(props, view.parallax, visible);
+            overlappedNanos += System.nanoTime() - start;
+        }
+        float waitMs = culler.getWaitNanos() * 1e-6f / frames;
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("  with %.3f ms update      %8.3f ms/frame, waited %.3f ms on the raster (%d cores)%n",
+                updateNanos * 1e-6f, overlappedNanos * 1e-6f / frames, waitMs, cores);
+        System.out.println(culler.summary());
+        System.out.println();
+
+        boolean pass = true;
+        pass &= check(combinedFalse == 0, "no visible prop culled from the combined viewpoint");
+        pass &= check(efficiency >= 0.5f, String.format("culled %.1f%% of hidden props allowing parallax", 100f * efficiency));
+        pass &= check(eyeFalseParallax <= eyeVisible / 200,
+                String.format("props culled that an eye sees: %d of %d", eyeFalseParallax, eyeVisible));
+        pass &= check(testNanos / (float) frames < 2e6f,
+                String.format("%d boxes tested in %.3f ms", boxCount, testMs));
+        pass &= checkParallel(waitMs < 0.25f * rasterMs,
+                String.format("raster overlapped the update: waited %.3f of %.3f ms", waitMs, rasterMs));
+        culler.shutdown();
+        return pass;
+    }
+
+    /** Spins for about the given time, like a scene update would. */
+    private static double sceneUpdate(long nanos) {
+        long end = System.nanoTime() + nanos;
+        double x = 0;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 100; i++) {
+                x += Math.sqrt(i + x);
+            }
+        }
+        return x;
+    }
+
+    // Scene
+
+    private void buildWalls() {
+        int lines = rooms + 1;
+        wallsAlongX = new int[lines][rooms][];
+        wallsAlongZ = new int[lines][rooms][];
+        for (int line = 0; line < lines; line++) {
+            boolean outer = line == 0 || line == rooms;
+            float at = line * ROOM;
+            for (int segment = 0; segment < rooms; segment++) {
+                float from = segment * ROOM;
+                wallsAlongZ[line][segment] = wallSegment(true, at, from, outer);
+                wallsAlongX[line][segment] = wallSegment(false, at, from, outer);
+            }
+        }
+    }
+
+    /**
+     * One room's side of wall, with a doorway in the middle unless outer.
+     * @param alongZ wall runs along z, at x = at; else along x at z = at
+     */
+    private int[] wallSegment(boolean alongZ, float at, float from, boolean outer) {
+        float to = from + ROOM;
+        if (outer) {
+            return new int[]{addWall(alongZ, at, from, to, 0f, WALL_HEIGHT)};
+        }
+        float mid = from + ROOM * 0.5f;
+        return new int[]{
+                addWall(alongZ, at, from, mid - DOOR_HALF_WIDTH, 0f, WALL_HEIGHT),
+                addWall(alongZ, at, mid + DOOR_HALF_WIDTH, to, 0f, WALL_HEIGHT),
+                addWall(alongZ, at, mid - DOOR_HALF_WIDTH, mid + DOOR_HALF_WIDTH, DOOR_HEIGHT, WALL_HEIGHT)};
+    }
+
+    private int addWall(boolean alongZ, float at, float from, float to, float bottom, float top) {
+        if ((wallCount + 1) * 3 > wallMin.length) {
+            wallMin = java.util.Arrays.copyOf(wallMin, Math.max(96, wallMin.length * 2));
+            wallMax = java.util.Arrays.copyOf(wallMax, wallMin.length);
+        }
+        int o = wallCount * 3;
+        wallMin[o] = alongZ ? at - WALL_HALF_THICKNESS : from;
+        wallMax[o] = alongZ ? at + WALL_HALF_THICKNESS : to;
+        wallMin[o + 1] = bottom;
+        wallMax[o + 1] = top;
+        wallMin[o + 2] = alongZ ? from : at - WALL_HALF_THICKNESS;
+        wallMax[o + 2] = alongZ ? to : at + WALL_HALF_THICKNESS;
+        return wallCount++;
+    }
+
+    /** Every wall as a unit cube scaled and moved into place. */
+    private void addOccluders(OcclusionCuller culler) {
+        float[] cube = {
+                -1, -1, -1, 1, -1, -1, 1, 1, -1, -1, 1, -1,
+                -1, -1, 1, 1, -1, 1, 1, 1, 1, -1, 1, 1};
+        int[] faces = {
+                0, 2, 1, 0, 3, 2, 4, 5, 6, 4, 6, 7, 0, 1, 5, 0, 5, 4,
+                3, 6, 2, 3, 7, 6, 0, 4, 7, 0, 7, 3, 1, 2, 6, 1, 6, 5};
+        float[] transform = new float[12];
+        for (int w = 0; w < wallCount; w++) {
+            int id = culler.addOccluder(cube, faces);
+            int o = w * 3;
+            transform[0] = (wallMax[o] - wallMin[o]) * 0.5f;
+            transform[3] = (wallMax[o] + wallMin[o]) * 0.5f;
+            transform[5] = (wallMax[o + 1] - wallMin[o + 1]) * 0.5f;
+            transform[7] = (wallMax[o + 1] + wallMin[o + 1]) * 0.5f;
+            transform[10] = (wallMax[o + 2] - wallMin[o + 2]) * 0.5f;
+            transform[11] = (wallMax[o + 2] + wallMin[o + 2]) * 0.5f;
+            culler.setTransform(id, transform);
+        }
+    }
+
+    /** Props stand clear of the walls, so rays only pass walls at grid lines. */
+    private void buildProps(Random random) {
+        propCenter = new float[boxCount * 3];
+        propExtent = new float[boxCount * 3];
+        float margin = WALL_HALF_THICKNESS + 0.05f;
+        for (int i = 0; i < boxCount; i++) {
+            float ex = 0.05f + random.nextFloat() * 0.25f;
+            float ey = 0.05f + random.nextFloat() * 0.25f;
+            float ez = 0.05f + random.nextFloat() * 0.25f;
+            float roomX = random.nextInt(rooms) * ROOM;
+            float roomZ = random.nextInt(rooms) * ROOM;
+            propExtent[i * 3] = ex;
+            propExtent[i * 3 + 1] = ey;
+            propExtent[i * 3 + 2] = ez;
+            propCenter[i * 3] = roomX + margin + ex + random.nextFloat() * (ROOM - 2 * (margin + ex));
+            propCenter[i * 3 + 1] = ey + random.nextFloat() * 1.8f;
+            propCenter[i * 3 + 2] = roomZ + margin + ez + random.nextFloat() * (ROOM - 2 * (margin + ez));
+        }
+    }
+
+    // Ray-cast reference
+
+    private static final int OUTSIDE = 0;
+    private static final int HIDDEN = 1;
+    private static final int VISIBLE = 2;
+
+    private final float[] sample = new float[3];
+
+    /**
+     * Whether any ray from the eye reaches a point on the prop's faces
+     * that face it, inside the view; OUTSIDE if no such point is in view.
+     */
+    private int visibility(int prop, Vector3f eye, float[] viewProjection) {
+        boolean inView = false;
+        for (int axis = 0; axis < 3; axis++) {
+            float c = propCenter[prop * 3 + axis];
+            float e = propExtent[prop * 3 + axis];
+            float eyeAt = axis == 0 ? eye.x : axis == 1 ? eye.y : eye.z;
+            if (Math.abs(eyeAt - c) <= e) {
+                continue;
+            }
+            // The face toward the eye on this axis
+            float face = eyeAt > c ? c + e : c - e;
+            int u = (axis + 1) % 3;
+            int v = (axis + 2) % 3;
+            for (int i = 0; i < SAMPLES; i++) {
+                for (int j = 0; j < SAMPLES; j++) {
+                    sample[axis] = face;
+                    sample[u] = propCenter[prop * 3 + u] + propExtent[prop * 3 + u] * (2f * i / (SAMPLES - 1) - 1f);
+                    sample[v] = propCenter[prop * 3 + v] + propExtent[prop * 3 + v] * (2f * j / (SAMPLES - 1) - 1f);
+                    if (!inFrustum(sample, viewProjection)) {
+                        continue;
+                    }
+                    inView = true;
+                    if (!blocked(eye, sample)) {
+                        return VISIBLE;
+                    }
+                }
+            }
+        }
+        return inView ? HIDDEN : OUTSIDE;
+    }
+
+    private static boolean inFrustum(float[] p, float[] m) {
+        float x = m[0] * p[0] + m[1] * p[1] + m[2] * p[2] + m[3];
+        float y = m[4] * p[0] + m[5] * p[1] + m[6] * p[2] + m[7];
+        float z = m[8] * p[0] + m[9] * p[1] + m[10] * p[2] + m[11];
+        float w = m[12] * p[0] + m[13] * p[1] + m[14] * p[2] + m[15];
+        return w > 0f && Math.abs(x) <= w && Math.abs(y) <= w && Math.abs(z) <= w;
+    }
+
+    /**
+     * Whether a wall stops the segment. Eyes and props keep clear of the
+     * walls, so the segment can only meet walls where it crosses a grid line.
+     */
+    private boolean blocked(Vector3f eye, float[] target) {
+        return blockedAcross(eye.x, eye.z, target[0], target[2], wallsAlongZ, eye, target)
+                || blockedAcross(eye.z, eye.x, target[2], target[0], wallsAlongX, eye, target);
+    }
+
+    /**
+     * @param a0 start along the axis the lines are spaced on
+     * @param b0 start along the lines
+     */
+    private boolean blockedAcross(float a0, float b0, float a1, float b1, int[][][] walls,
+                                  Vector3f eye, float[] target) {
+        int first = (int) Math.ceil(Math.min(a0, a1) / ROOM);
+        int last = (int) Math.floor(Math.max(a0, a1) / ROOM);
+        for (int line = Math.max(0, first); line <= Math.min(rooms, last); line++) {
+            float t = (line * ROOM - a0) / (a1 - a0);
+            float b = b0 + t * (b1 - b0);
+            int segment = (int) Math.floor(b / ROOM);
+            for (int s = Math.max(0, segment - 1); s <= Math.min(rooms - 1, segment + 1); s++) {
+                for (int wall : walls[line][s]) {
+                    if (segmentHitsBox(eye, target, wall)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean segmentHitsBox(Vector3f from, float[] to, int wall) {
+        float tMin = 0f, tMax = 1f;
+        for (int axis = 0; axis < 3; axis++) {
+            float start = axis == 0 ? from.x : axis == 1 ? from.y : from.z;
+            float delta = to[axis] - start;
+            float lo = wallMin[wall * 3 + axis];
+            float hi = wallMax[wall * 3 + axis];
+            if (Math.abs(delta) < 1e-9f) {
+                if (start < lo || start > hi) {
+                    return false;
+                }
+                continue;
+            }
+            float t0 = (lo - start) / delta;
+            float t1 = (hi - start) / delta;
+            tMin = Math.max(tMin, Math.min(t0, t1));
+            tMax = Math.min(tMax, Math.max(t0, t1));
+            if (tMin > tMax) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A standing pose in a random room, with both eyes' cameras and the
+     * combined camera around them. Symmetric 90 degree eye frusta, the
+     * fallback the app uses without a headset.
+     */
+    private class Viewpoint {
+        final Camera left = new Camera(width, height);
+        final Camera right = new Camera(width, height);
+        final Camera combined = new Camera(width, height);
+        final float parallax;
+        private final float[] matrix = new float[16];
+
+        Viewpoint(Random random) {
+            float margin = 0.5f;
+            Vector3f head = new Vector3f(
+                    random.nextInt(rooms) * ROOM + margin + random.nextFloat() * (ROOM - 2 * margin),
+                    EYE_HEIGHT,
+                    random.nextInt(rooms) * ROOM + margin + random.nextFloat() * (ROOM - 2 * margin));
+            Quaternion rotation = new Quaternion().fromAngles(
+                    (random.nextFloat() - 0.5f) * 0.4f, random.nextFloat() * FastMath.TWO_PI, 0f);
+            // A camera's x axis points to its left
+            Vector3f offset = rotation.mult(Vector3f.UNIT_X).multLocal(IPD * 0.5f);
+            setup(left, head.add(offset), rotation);
+            setup(right, head.subtract(offset), rotation);
+            StereoFrustum.fit(left, right, combined);
+            Vector3f store = new Vector3f();
+            parallax = Math.max(OcclusionCullingState.parallax(combined, left, width, height, store),
+                    OcclusionCullingState.parallax(combined, right, width, height, store));
+        }
+
+        private void setup(Camera camera, Vector3f location, Quaternion rotation) {
+            camera.setParallelProjection(false);
+            camera.setFrustum(NEAR, FAR, -NEAR, NEAR, NEAR, -NEAR);
+            camera.setFrame(location, rotation);
+        }
+
+        float[] matrix(Camera camera) {
+            camera.getViewProjectionMatrix().get(matrix, true);
+            return matrix.clone();
+        }
+    }
+}
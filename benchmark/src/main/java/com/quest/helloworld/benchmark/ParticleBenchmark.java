@@ -0,0 +1,229 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AppStateManager;
+import com.quest.helloworld.QuestVRApplication;
+import com.quest.helloworld.particle.ParticleBuffer;
+import com.quest.helloworld.particle.ParticleMesh;
+import com.quest.helloworld.particle.ParticleState;
+import com.quest.helloworld.perf.SampleWindow;
+
+import java.lang.management.ManagementFactory;
+
+import static com.quest.helloworld.benchmark.Checks.check;
+
+/**
+ * Measures the CPU cost of the struct-of-arrays particle system at 90 Hz.
+ *
+ * First the particle loop on its own: simulate and compact a full buffer,
+ * respawn what expired and write the vertex buffer, with short lifetimes
+ * so a few percent of the particles die and are replaced every frame.
+ * Then QuestVRApplication headless in stereo with and without the ambient
+ * particle field, comparing frame time, allocation and draw calls - the
+ * field should add exactly one draw per eye. Both the loop and the app's
+ * own particle update are held to the same p95, in thread CPU time, so a
+ * frame where the thread was descheduled doesn't count the wait.
+ *
+ * The loop must not allocate. Anything it allocated itself would be at
+ * least an object header every frame, so the check allows under a byte a
+ * frame: the JVM loads a class now and then when freshly compiled code
+ * first takes a path, and those few hundred bytes aren't the loop's.
+ *
+ * Options:
+ * <pre>
+ *   --particles N  particles kept alive (default 50000)
+ *   --frames N     measured frames per run (default 3000)
+ *   --warmup N     frames run before measuring (default 1000, past the JIT's final tier)
+ *   --max-ms X     fail if the p95 particle update, in the loop or the app, exceeds X ms (default 1.5)
+ * </pre>
+ */
+public class ParticleBenchmark {
+
+    private static final float TPF = 1f / 90f;
+    private static final float FADE_TIME = 0.2f;
+
+    private int particles = 50000;
+    private int frames = 3000;
+    private int warmup = 1000;
+    private float maxMs = 1.5f;
+
+    private int random = 0x2545F491;
+
+    public static void main(String[] args) throws Exception {
+        ParticleBenchmark benchmark = new ParticleBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--particles": particles = Integer.parseInt(args[++i]); break;
+                case "--frames": frames = Integer.parseInt(args[++i]); break;
+                case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                case "--max-ms": maxMs = Float.parseFloat(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        System.out.printf("%nParticle benchmark - %d particles, 90 Hz step, %d frames per run after %d warm-up%n%n",
+                particles, frames, warmup);
+        boolean pass = runLoop();
+        System.out.println();
+        pass &= runApp();
+        return pass;
+    }
+
+    private boolean runLoop() {
+        ParticleBuffer buffer = new ParticleBuffer(particles);
+        ParticleMesh mesh = new ParticleMesh(particles);
+        while (buffer.getCount() < particles) {
+            spawn(buffer, true);
+        }
+        SampleWindow simulateMs = new SampleWindow(frames);
+        SampleWindow writeMs = new SampleWindow(frames);
+        SampleWindow totalMs = new SampleWindow(frames);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long expired = 0;
+        long allocStart = 0;
+
+        for (int frame = 0; frame < warmup + frames; frame++) {
+            if (frame == warmup) {
+                allocStart = threads.getCurrentThreadAllocatedBytes();
+            }
+            long start = threads.getCurrentThreadCpuTime();
+            int died = buffer.update(TPF, 0f, -0.5f, 0f, 0.3f);
+            while (buffer.getCount() < particles) {
+                spawn(buffer, false);
+            }
+            long simulated = threads.getCurrentThreadCpuTime();
+            mesh.write(buffer, FADE_TIME, FADE_TIME);
+            long end = threads.getCurrentThreadCpuTime();
+            if (frame >= warmup) {
+                simulateMs.add((simulated - start) * 1e-6f);
+                writeMs.add((end - simulated) * 1e-6f);
+                totalMs.add((end - start) * 1e-6f);
+                expired += died;
+            }
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocStart;
+
+        System.out.printf("Particle loop, no renderer (ms, thread CPU)%n");
+        System.out.printf("%-26s %8s %8s %8s %8s %8s%n", "", "mean", "p50", "p95", "p99", "max");
+        printRow("simulate + respawn", simulateMs, "");
+        printRow("vertex write", writeMs, "");
+        printRow("total", totalMs, "");
+        System.out.printf("expired per frame          %.0f (%.1f%%)%n",
+                (float) expired / frames, 100f * expired / frames / particles);
+        System.out.printf("uploaded per frame         %d KB%n", mesh.getUploadBytes() / 1024);
+        System.out.printf("allocated                  %d bytes over %d frames%n", allocated, frames);
+
+        boolean pass = true;
+        pass &= check(totalMs.getPercentile(95) <= maxMs,
+                String.format("loop: p95 particle update %.3f ms, %.1f ms allowed", totalMs.getPercentile(95), maxMs));
+        pass &= check(allocated < frames,
+                String.format("loop: %d bytes allocated over %d frames, under a byte a frame", allocated, frames));
+        return pass;
+    }
+
+    private boolean runApp() throws Exception {
+        MeasurementState empty = runOnce(0);
+        MeasurementState dust = runOnce(particles);
+        if (empty == null || dust == null) {
+            System.err.println("Benchmark did not complete - see errors above");
+            return false;
+        }
+
+        System.out.printf("Stereo app, ambient particles (ms; the update in thread CPU)%n");
+        System.out.printf("%-26s %8s %8s %8s %8s %8s %12s%n", "", "mean", "p50", "p95", "p99", "max", "alloc/frame");
+        printRow("frame, no particles", empty.profiler.getFrameTimes(),
+                String.format(" %9.2f KB", empty.getAllocatedBytes() / 1024f / frames));
+        printRow("frame, particles", dust.profiler.getFrameTimes(),
+                String.format(" %9.2f KB", dust.getAllocatedBytes() / 1024f / frames));
+        printRow("particle update", dust.updateMs, "");
+        System.out.println();
+
+        float frameDelta = dust.profiler.getFrameTimes().getMean() - empty.profiler.getFrameTimes().getMean();
+        float drawDelta = dust.profiler.getAverageDrawCalls() - empty.profiler.getAverageDrawCalls();
+        System.out.printf("live particles             %d%n", dust.count);
+        System.out.printf("whole-frame delta          %+.4f ms mean (update plus upload and two point draws)%n", frameDelta);
+        System.out.printf("draw calls per frame       %.1f -> %.1f (%+.1f, two eyes)%n",
+                empty.profiler.getAverageDrawCalls(), dust.profiler.getAverageDrawCalls(), drawDelta);
+
+        boolean pass = true;
+        pass &= check(dust.updateMs.getPercentile(95) <= maxMs,
+                String.format("app: p95 particle update %.3f ms, %.1f ms allowed", dust.updateMs.getPercentile(95),
+                        maxMs));
+        pass &= check(Math.abs(drawDelta - 2f) <= 0.01f,
+                String.format("app: particles added %.1f draws per frame, one per eye", drawDelta));
+        pass &= check(dust.count >= particles * 0.99f,
+                String.format("app: %d of %d particles alive", dust.count, particles));
+        return pass;
+    }
+
+    private MeasurementState runOnce(int count) throws Exception {
+        QuestVRApplication app = HeadlessRun.fixedStep(2 * 1680, 1760, TPF);
+        app.setStereoEnabled(true);
+        app.setAmbientParticles(count);
+
+        MeasurementState measurement = new MeasurementState(warmup, frames);
+        return HeadlessRun.run(app, measurement, null) ? measurement : null;
+    }
+
+    // Sparks: short lives so the loop compacts and respawns every frame
+    private void spawn(ParticleBuffer buffer, boolean staggered) {
+        float life = range(0.5f, 2f);
+        buffer.emit(range(-1f, 1f), range(0f, 2f), range(-3f, -1f),
+                range(-1f, 1f), range(0f, 2f), range(-1f, 1f),
+                staggered ? range(0f, life) : 0f, life, range(0.005f, 0.02f),
+                ParticleBuffer.packColor(1f, range(0.4f, 0.8f), 0.2f, 1f));
+    }
+
+    private float range(float min, float max) {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return min + (max - min) * ((random >>> 8) * 0x1.0p-24f);
+    }
+
+    private static void printRow(String label, SampleWindow window, String suffix) {
+        System.out.printf("%-26s %8.4f %8.4f %8.4f %8.4f %8.4f%s%n", label, window.getMean(), window.getPercentile(50),
+                window.getPercentile(95), window.getPercentile(99), window.getMax(), suffix);
+    }
+
+    /**
+     * Samples particle update times across the measured frames.
+     */
+    private static class MeasurementState extends HeadlessRun.Measurement {
+
+        private final SampleWindow updateMs;
+        private ParticleState particles;
+        private int count;
+
+        MeasurementState(int warmup, int frames) {
+            super(warmup, frames);
+            this.updateMs = new SampleWindow(frames);
+        }
+
+        @Override
+        public void initialize(AppStateManager stateManager, Application app) {
+            super.initialize(stateManager, app);
+            particles = stateManager.getState(ParticleState.class);
+        }
+
+        @Override
+        protected void measuredFrame(int frame) {
+            if (particles != null) {
+                updateMs.add(particles.getUpdateTimes().getLast());
+            }
+        }
+
+        @Override
+        protected void finish() {
+            count = particles != null ? particles.getCount() : 0;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.quest.helloworld.benchmark;
+
+import com.quest.helloworld.hand.HandJoints;
+import com.quest.helloworld.net.PoseSyncClient;
+import com.quest.helloworld.net.PoseSyncServer;
+import com.quest.helloworld.net.UserPose;
+import com.quest.helloworld.perf.SampleWindow;
+import com.quest.helloworld.vr.OpenXRBridge;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Measures pose-sync bandwidth and codec cost with several simulated
+ * participants on one machine, talking to the stand-in server over loopback UDP.
+ *
+ * Every participant has its own bridge stand-in moving head and controllers
+ * along a different path, and its own client socket. Each 72 Hz tick, all
+ * participants send their pose, the server relays everyone to everyone,
+ * and the clients decode - stepped on one thread as fast as it runs, so the
+ * figures are per simulated second. Runs without and with hands for each
+ * participant count, and checks what participant 0 decodes against what
+ * participant 1 sent. Allocation per tick comes from the bridge stand-in's
+ * getters and the server socket's sender addresses; the codec allocates nothing.
+ *
+ * Options:
+ * <pre>
+ *   --participants LIST   comma-separated participant counts (default 2,16,64)
+ *   --seconds N           simulated seconds measured per run (default 20)
+ *   --warmup N            simulated seconds run before measuring (default 3)
+ *   --max-tick-ms X       exit with status 1 if the server's mean tick exceeds X ms (default 7,
+ *                         half the 72 Hz period)
+ * </pre>
+ */
+public class PoseSyncBenchmark {
+
+    private static final float RATE = 72f;
+    private static final long TICK_NANOS = (long) (1e9 / RATE);
+
+    // Bytes the same state takes as raw floats: head and controllers as position and
+    // quaternion, four thumbstick floats and a button byte; hands as the joint buffer
+    private static final int RAW_POSE_BYTES = 3 * 7 * Float.BYTES + 4 * Float.BYTES + 1;
+    private static final int RAW_HANDS_BYTES = 2 * HandJoints.HAND_FLOATS * Float.BYTES;
+
+    // IPv4 plus UDP headers per datagram
+    private static final int UDP_OVERHEAD_BYTES = 28;
+
+    // Quantization error bounds: half a position step, and rotations a little over
+    // half a step of the smallest-three component, as an angle
+    private static final float MAX_POSITION_ERROR_MM = 0.5f;
+    private static final float MAX_ROTATION_ERROR_DEG = 0.2f;
+    private static final float MAX_JOINT_ERROR_MM = 5f;
+
+    private int[] participants = {2, 16, 64};
+    private int seconds = 20;
+    private int warmup = 3;
+    private float maxTickMs = 7f;
+
+    public static void main(String[] args) throws Exception {
+        PoseSyncBenchmark benchmark = new PoseSyncBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--participants":
+                    String[] counts = args[++i].split(",");
+                    participants = new int[counts.length];
+                    for (int c = 0; c < counts.length; c++) {
+                        participants[c] = Integer.parseInt(counts[c].trim());
+                    }
+                    break;
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                case "--max-tick-ms": maxTickMs = Float.parseFloat(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        System.out.printf("%nPose sync benchmark - %.0f Hz, %d simulated seconds per run after %d warm-up, loopback UDP%n",
+                RATE, seconds, warmup);
+        System.out.printf("raw floats: %d B/pose, %d B with hands%n%n", RAW_POSE_BYTES, RAW_POSE_BYTES + RAW_HANDS_BYTES);
+        System.out.printf("%-12s %9s %9s %9s %8s %8s %8s %8s %9s %8s %8s%n", "", "up B/pose", "up KB/s", "down KB/s",
+                "enc us", "dec us", "srv enc", "srv dec", "tick ms", "alloc/t", "vs raw");
+
+        boolean pass = true;
+        for (boolean hands : new boolean[]{false, true}) {
+            for (int count : participants) {
+                Result result = runOnce(count, hands);
+                printRow(result);
+                pass &= check(result);
+            }
+        }
+        System.out.println();
+        System.out.println("up/down KB/s are per participant, payload plus IPv4/UDP headers; enc/dec are per pose,");
+        System.out.println("client side including quantization; srv enc is per relayed entry; alloc/t is bytes per tick,");
+        System.out.println("all participants and the server together");
+        return pass;
+    }
+
+    private Result runOnce(int count, boolean hands) throws Exception {
+        Result result = new Result(count, hands, seconds * (int) RATE);
+        try (PoseSyncServer server = new PoseSyncServer(0)) {
+            InetSocketAddress address = server.getAddress();
+            Participant[] users = new Participant[count];
+            for (int i = 0; i < count; i++) {
+                users[i] = new Participant(i, address, hands);
+            }
+
+            int warmupTicks = warmup * (int) RATE;
+            int ticks = warmupTicks + seconds * (int) RATE;
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long allocStart = 0;
+            UserPose decoded = new UserPose();
+
+            for (int tick = 0; tick < ticks; tick++) {
+                if (tick == warmupTicks) {
+                    server.resetMetrics();
+                    for (Participant user : users) {
+                        user.client.resetMetrics();
+                    }
+                    allocStart = threads.getCurrentThreadAllocatedBytes();
+                }
+                long timeNanos = tick * TICK_NANOS;
+                for (Participant user : users) {
+                    user.step(timeNanos);
+                }
+
+                long start = System.nanoTime();
+                server.poll();
+                server.tick();
+                float tickMs = (System.nanoTime() - start) * 1e-6f;
+
+                for (Participant user : users) {
+                    user.client.poll();
+                }
+                if (tick >= warmupTicks) {
+                    result.tickMs.add(tickMs);
+                    // Participant 1's pose reached participant 0 through this tick's snapshot
+                    if (users[0].client.getRemotePose(1, decoded)) {
+                        result.compare(users[1].pose, decoded);
+                    } else {
+                        result.missing++;
+                    }
+                }
+            }
+            result.allocatedBytes = threads.getCurrentThreadAllocatedBytes() - allocStart;
+
+            long up = 0, down = 0, upPackets = 0, downPackets = 0, dropped = server.getPacketsDropped();
+            float encode = 0f, decode = 0f;
+            for (Participant user : users) {
+                PoseSyncClient client = user.client;
+                up += client.getBytesSent();
+                down += client.getBytesReceived();
+                upPackets += result.ticks;
+                downPackets += client.getPacketsReceived();
+                dropped += client.getPacketsDropped();
+                encode += client.getEncodeMicros();
+                decode += client.getDecodeMicros();
+                client.close();
+            }
+            result.upBytesPerPose = up / (float) upPackets;
+            result.upKbPerSecond = (up + upPackets * UDP_OVERHEAD_BYTES) / 1024f / count / seconds;
+            result.downKbPerSecond = (down + downPackets * UDP_OVERHEAD_BYTES) / 1024f / count / seconds;
+            result.encodeMicros = encode / count;
+            result.decodeMicros = count > 1 ? decode / count : 0f;
+            result.serverEncodeMicros = server.getEncodeMicros();
+            result.serverDecodeMicros = server.getDecodeMicros();
+            result.dropped = dropped;
+        }
+        return result;
+    }
+
+    private static void printRow(Result r) {
+        String label = r.count + (r.hands ? " + hands" : " users");
+        float raw = RAW_POSE_BYTES + (r.hands ? RAW_HANDS_BYTES : 0);
+        System.out.printf("%-12s %9.1f %9.2f %9.2f %8.2f %8.2f %8.2f %8.2f %9.3f %8d %7.1fx%n", label,
+                r.upBytesPerPose, r.upKbPerSecond, r.downKbPerSecond, r.encodeMicros, r.decodeMicros,
+                r.serverEncodeMicros, r.serverDecodeMicros, r.tickMs.getMean(),
+                r.allocatedBytes / r.ticks, raw / r.upBytesPerPose);
+    }
+
+    private boolean check(Result r) {
+        boolean pass = true;
+        String label = r.count + " participants" + (r.hands ? " with hands" : "");
+        if (r.dropped > 0 || r.missing > 0) {
+            System.out.printf("FAIL: %s - %d packets dropped, %d ticks without a remote pose%n", label, r.dropped, r.missing);
+            pass = false;
+        }
+        if (r.positionErrorMm > MAX_POSITION_ERROR_MM || r.rotationErrorDeg > MAX_ROTATION_ERROR_DEG
+                || r.jointErrorMm > MAX_JOINT_ERROR_MM) {
+            System.out.printf("FAIL: %s - decode error %.3f mm, %.3f deg, hand joints %.3f mm%n", label,
+                    r.positionErrorMm, r.rotationErrorDeg, r.jointErrorMm);
+            pass = false;
+        }
+        if (r.tickMs.getMean() > maxTickMs) {
+            System.out.printf("FAIL: %s - mean server tick %.3f ms exceeds %.3f ms%n", label, r.tickMs.getMean(), maxTickMs);
+            pass = false;
+        }
+        if (pass) {
+            System.out.printf("     decode error %.3f mm, %.3f deg%s%n", r.positionErrorMm, r.rotationErrorDeg,
+                    r.hands ? String.format(", hand joints %.3f mm", r.jointErrorMm) : "");
+        }
+        return pass;
+    }
+
+    /**
+     * One simulated headset: a bridge stand-in driven along its own path,
+     * optionally publishing hands, and a client sending its pose.
+     */
+    private static class Participant {
+
+        private final int id;
+        private final boolean hands;
+        private final OpenXRBridge bridge = new OpenXRBridge();
+        private final PoseSyncClient client;
+        private final UserPose pose = new UserPose();
+        private final ByteBuffer jointBuffer;
+        private final FloatBuffer joints;
+        private final float[] jointValues = new float[2 * HandJoints.HAND_FLOATS];
+
+        Participant(int id, InetSocketAddress server, boolean hands) throws Exception {
+            this.id = id;
+            this.hands = hands;
+            bridge.initialize(null);
+            client = new PoseSyncClient(id, server);
+            if (hands) {
+                jointBuffer = HandJoints.allocateBuffer();
+                bridge.setHandJointBuffer(jointBuffer);
+                joints = jointBuffer.duplicate().order(jointBuffer.order()).position(HandJoints.HEADER_BYTES)
+                        .slice().order(jointBuffer.order()).asFloatBuffer();
+            } else {
+                jointBuffer = null;
+                joints = null;
+            }
+        }
+
+        void step(long timeNanos) throws Exception {
+            float t = timeNanos * 1e-9f;
+            float phase = id * 0.7f;
+            float x = 0.5f * (float) Math.sin(0.3f * t + phase) + (id % 8) - 4f;
+            float z = 0.5f * (float) Math.cos(0.2f * t + phase) - (id / 8) * 1.5f;
+            float y = 1.6f + 0.03f * (float) Math.sin(1.3f * t + phase);
+            float yaw = 1.2f * (float) Math.sin(0.4f * t + phase);
+            float pitch = 0.25f * (float) Math.sin(0.9f * t + phase);
+            float roll = 0.05f * (float) Math.sin(0.6f * t + phase);
+            bridge.updateHeadPose(x, y, z, pitch, yaw, roll);
+
+            for (int hand = 0; hand < 2; hand++) {
+                float side = hand == 0 ? -1f : 1f;
+                float swing = (float) Math.sin(1.5f * t + phase + hand);
+                boolean trigger = Math.sin(0.5f * t + phase + hand) > 0.8;
+                bridge.updateControllerState(hand, x + side * 0.3f + 0.1f * swing, y - 0.5f + 0.15f * swing,
+                        z - 0.4f + 0.1f * (float) Math.cos(1.1f * t + phase), trigger, false,
+                        trigger ? 0.5f * swing : 0f, 0f);
+            }
+
+            pose.captureFrom(bridge);
+            if (hands) {
+                int mask = bridge.updateHandJoints(timeNanos);
+                joints.get(0, jointValues);
+                pose.setHands(jointValues, mask);
+            }
+            client.send(pose);
+        }
+    }
+
+    private static class Result {
+
+        final int count;
+        final boolean hands;
+        final int ticks;
+        final SampleWindow tickMs;
+
+        float upBytesPerPose;
+        float upKbPerSecond;
+        float downKbPerSecond;
+        float encodeMicros;
+        float decodeMicros;
+        float serverEncodeMicros;
+        float serverDecodeMicros;
+        long allocatedBytes;
+        long dropped;
+        int missing;
+
+        float positionErrorMm;
+        float rotationErrorDeg;
+        float jointErrorMm;
+
+        Result(int count, boolean hands, int ticks) {
+            this.count = count;
+            this.hands = hands;
+            this.ticks = ticks;
+            this.tickMs = new SampleWindow(ticks);
+        }
+
+        void compare(UserPose sent, UserPose decoded) {
+            positionErrorMm = Math.max(positionErrorMm, distanceMm(sent.headPosition, 0, decoded.headPosition, 0));
+            rotationErrorDeg = Math.max(rotationErrorDeg, angleDeg(sent.headRotation, 0, decoded.headRotation, 0));
+            for (int hand = 0; hand < 2; hand++) {
+                positionErrorMm = Math.max(positionErrorMm,
+                        distanceMm(sent.controllerPosition[hand], 0, decoded.controllerPosition[hand], 0));
+            }
+            if (hands) {
+                for (int i = 0; i < 2 * HandJoints.COUNT; i++) {
+                    int o = i * HandJoints.JOINT_FLOATS;
+                    jointErrorMm = Math.max(jointErrorMm, distanceMm(sent.handJoints, o, decoded.handJoints, o));
+                }
+            }
+        }
+
+        // Per-axis quantization error is at most half a step, so compare the largest axis
+        private static float distanceMm(float[] a, int ai, float[] b, int bi) {
+            float max = 0f;
+            for (int i = 0; i < 3; i++) {
+                max = Math.max(max, Math.abs(a[ai + i] - b[bi + i]));
+            }
+            return max * 1000f;
+        }
+
+        private static float angleDeg(float[] a, int ai, float[] b, int bi) {
+            float dot = Math.abs(a[ai] * b[bi] + a[ai + 1] * b[bi + 1] + a[ai + 2] * b[bi + 2] + a[ai + 3] * b[bi + 3]);
+            return (float) Math.toDegrees(2.0 * Math.acos(Math.min(1f, dot)));
+        }
+    }
+}
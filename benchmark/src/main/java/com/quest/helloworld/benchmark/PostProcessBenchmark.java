@@ -0,0 +1,154 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.post.SceneProcessor;
+import com.jme3.renderer.ViewPort;
+import com.quest.helloworld.QuestVRApplication;
+import com.quest.helloworld.perf.FrameProfiler;
+import com.quest.helloworld.perf.SampleWindow;
+import com.quest.helloworld.post.FusedPostProcessor;
+import com.quest.helloworld.post.PostPassPlan;
+import com.quest.helloworld.post.PostProcessMode;
+
+import static com.quest.helloworld.benchmark.Checks.check;
+
+/**
+ * Runs QuestVRApplication headless in stereo at Quest 3 resolution with
+ * no post-processing, stock filters on each eye viewport, and the fused
+ * stack, and compares full-screen passes, estimated memory traffic and
+ * frame CPU time.
+ *
+ * There is no GPU here: the headless renderer issues no GL calls, so GPU
+ * time can't be measured and traffic comes from {@link PostPassPlan}. The
+ * pass counts are measured, though - every pass is one draw, so each
+ * mode's extra draws per frame must match its plan - and the generated
+ * material definitions and shaders go through jME's real loaders and
+ * #import handling. Checked: both plans match the draws, and the fused
+ * stack runs fewer passes with less traffic.
+ *
+ * Options:
+ * <pre>
+ *   --frames N   measured frames per run (default 2000)
+ *   --warmup N   frames run before measuring (default 500)
+ * </pre>
+ */
+public class PostProcessBenchmark {
+
+    private static final float TPF = 1f / 72f;
+    private static final int EYE_WIDTH = 1680;
+    private static final int EYE_HEIGHT = 1760;
+
+    private int frames = 2000;
+    private int warmup = 500;
+
+    public static void main(String[] args) throws Exception {
+        PostProcessBenchmark benchmark = new PostProcessBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--frames": frames = Integer.parseInt(args[++i]); break;
+                case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        System.out.printf("%nPost-processing benchmark - stereo %dx%d per eye, %d frames per run after %d warm-up%n%n",
+                EYE_WIDTH, EYE_HEIGHT, frames, warmup);
+
+        MeasurementState off = runOnce(PostProcessMode.OFF);
+        MeasurementState perViewport = runOnce(PostProcessMode.PER_VIEWPORT);
+        MeasurementState fused = runOnce(PostProcessMode.FUSED);
+        if (off == null || perViewport == null || fused == null || fused.post == null) {
+            System.err.println("Benchmark did not complete - see errors above");
+            return false;
+        }
+
+        PostPassPlan fusedPlan = fused.post.getPlan();
+        PostPassPlan stockPlan = fused.post.getPerViewportPlan();
+        float offDraws = off.profiler.getAverageDrawCalls();
+        float stockPasses = perViewport.profiler.getAverageDrawCalls() - offDraws;
+        float fusedPasses = fused.profiler.getAverageDrawCalls() - offDraws;
+
+        System.out.printf("%-14s %8s %8s %8s %12s %12s%n", "", "mean", "p95", "p99", "passes", "MB/frame");
+        printRow("off", off.profiler, 0f, 0);
+        printRow("per viewport", perViewport.profiler, stockPasses, stockPlan.getBytes());
+        printRow("fused", fused.profiler, fusedPasses, fusedPlan.getBytes());
+        System.out.println("(frame CPU ms; passes = extra draws per frame; traffic estimated)");
+        System.out.println();
+        printPlan(stockPlan);
+        printPlan(fusedPlan);
+        System.out.println(fused.post.summary());
+        System.out.println();
+
+        boolean pass = true;
+        pass &= check(Math.abs(stockPasses - stockPlan.getPassCount()) < 0.01f,
+                String.format("per-viewport filters ran %.1f passes per frame, plan says %d",
+                        stockPasses, stockPlan.getPassCount()));
+        pass &= check(Math.abs(fusedPasses - fusedPlan.getPassCount()) < 0.01f,
+                String.format("fused stack ran %.1f passes per frame, plan says %d",
+                        fusedPasses, fusedPlan.getPassCount()));
+        pass &= check(fusedPlan.getFullResolutionPasses() == 1,
+                "fused stack touches full resolution once, for both eyes");
+        pass &= check(fusedPlan.getBytes() < stockPlan.getBytes(),
+                String.format("fused traffic %.0f%% of per-viewport filters",
+                        100f * fusedPlan.getBytes() / stockPlan.getBytes()));
+        return pass;
+    }
+
+    private MeasurementState runOnce(PostProcessMode mode) throws Exception {
+        QuestVRApplication app = HeadlessRun.fixedStep(2 * EYE_WIDTH, EYE_HEIGHT, TPF);
+        app.setStereoEnabled(true);
+        app.setPostProcessMode(mode);
+
+        MeasurementState measurement = new MeasurementState(warmup, frames);
+        return HeadlessRun.run(app, measurement, null) ? measurement : null;
+    }
+
+    private static void printRow(String label, FrameProfiler profiler, float passes, long bytes) {
+        SampleWindow window = profiler.getFrameTimes();
+        System.out.printf("%-14s %8.3f %8.3f %8.3f %12.1f %12.1f%n", label, window.getMean(),
+                window.getPercentile(95), window.getPercentile(99), passes, bytes / (1024f * 1024f));
+    }
+
+    private static void printPlan(PostPassPlan plan) {
+        System.out.println(plan.summary());
+        for (PostPassPlan.Pass pass : plan.getPasses()) {
+            System.out.printf("    %-20s %5d x %-5d %8.1f MB%n", pass.getName(), pass.getWidth(), pass.getHeight(),
+                    pass.getBytes() / (1024f * 1024f));
+        }
+    }
+
+    /**
+     * Finds the fused processor once warm-up has set up the viewports.
+     */
+    private static class MeasurementState extends HeadlessRun.Measurement {
+
+        private FusedPostProcessor post;
+
+        MeasurementState(int warmup, int frames) {
+            super(warmup, frames);
+        }
+
+        @Override
+        protected void warmedUp() {
+            post = findFusedProcessor(app.getRenderManager().getMainView("RightEye"));
+        }
+
+        private static FusedPostProcessor findFusedProcessor(ViewPort viewPort) {
+            if (viewPort == null) {
+                return null;
+            }
+            for (SceneProcessor processor : viewPort.getProcessors()) {
+                if (processor instanceof FusedPostProcessor) {
+                    return (FusedPostProcessor) processor;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.quest.helloworld.benchmark;
+
+import com.quest.helloworld.jobs.JobHandle;
+import com.quest.helloworld.jobs.JobPriority;
+import com.quest.helloworld.jobs.JobSchedulerConfig;
+import com.quest.helloworld.jobs.RenderJob;
+import com.quest.helloworld.jobs.RenderJobScheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.quest.helloworld.benchmark.Checks.check;
+
+/**
+ * Replays a scripted level load through the render-thread job scheduler
+ * on a fake clock, and compares its frame times with running the same
+ * work the moment it is requested.
+ *
+ * The script, at 72 Hz: a burst of material creations, mesh uploads split
+ * into 64 KB steps, and decorative attaches, then a trickle of urgent
+ * attaches and a few cancelled jobs. Every step advances the fake clock by
+ * its scripted cost and the rest of each frame takes a random 6-12 ms, so
+ * the run is exactly repeatable. Checked:
+ * <ul>
+ *   <li>the run replays identically - same step order, same metrics</li>
+ *   <li>no frame runs past its budget by more than one step</li>
+ *   <li>every resumable upload finishes with all of its steps</li>
+ *   <li>the burst's high-priority jobs finish before low-priority ones start</li>
+ *   <li>cancelled jobs never step and everything else completes</li>
+ * </ul>
+ * Then the real per-step overhead of the scheduler is measured.
+ *
+ * Options:
+ * <pre>
+ *   --frames N   frames to simulate (default 600)
+ *   --seed N     seed of the frame-time script (default 1)
+ * </pre>
+ */
+public class RenderJobBenchmark {
+
+    private static final float FRAME_RATE = 72f;
+    private static final long FRAME_NANOS = (long) (1_000_000_000L / FRAME_RATE);
+    private static final long MS = 1_000_000L;
+
+    private static final int MATERIALS = 120;
+    private static final long MATERIAL_NANOS = 400_000L;
+    private static final int UPLOADS = 24;
+    private static final int UPLOAD_STEPS = 16;     // 1 MB in 64 KB steps
+    private static final long UPLOAD_STEP_NANOS = 150_000L;
+    private static final int DECORATIONS = 80;
+    private static final long DECORATION_NANOS = 100_000L;
+    private static final long URGENT_NANOS = 200_000L;
+    private static final long OVERSIZED_NANOS = 3 * MS;
+
+    private int frames = 600;
+    private long seed = 1;
+
+    public static void main(String[] args) {
+        RenderJobBenchmark benchmark = new RenderJobBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--frames": frames = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() {
+        System.out.printf("%nRender job benchmark - %d frames at %.0f Hz, fake clock, seed %d%n%n",
+                frames, FRAME_RATE, seed);
+
+        Run scheduled = new Run(true);
+        Run again = new Run(true);
+        Run immediate = new Run(false);
+        scheduled.play();
+        again.play();
+        immediate.play();
+
+        System.out.printf("%-12s %12s %12s %14s %12s%n", "", "worst frame", "p99 frame",
+                String.format("frames > %.1f", FRAME_NANOS * 1e-6f), "last job at");
+        immediate.printRow("immediate");
+        scheduled.printRow("scheduled");
+        RenderJobScheduler s = scheduled.scheduler;
+        System.out.println();
+        System.out.println(s.summary());
+        System.out.printf("max queue depth %d, %d steps over %d busy frames, %d frames carried work over%n",
+                s.getMaxQueueDepth(), s.getStepsRun(), s.getBusyFrames(), s.getCarryOverFrames());
+        System.out.println();
+
+        boolean pass = true;
+        pass &= check(scheduled.trace.equals(again.trace) && s.summary().equals(again.scheduler.summary()),
+                "replay is deterministic (" + scheduled.trace.size() + " steps)");
+        pass &= check(scheduled.worstOverrun <= OVERSIZED_NANOS,
+                String.format("overruns bounded by one step (worst %.2f ms, largest step %.2f ms)",
+                        scheduled.worstOverrun * 1e-6f, OVERSIZED_NANOS * 1e-6f));
+        pass &= check(scheduled.uploadsComplete(),
+                "resumable uploads finished in " + UPLOAD_STEPS + " steps each");
+        pass &= check(scheduled.lastHighStep < scheduled.firstLowStep,
+                "burst HIGH jobs finished before LOW jobs started (step " + scheduled.lastHighStep
+                        + " < " + scheduled.firstLowStep + ")");
+        pass &= check(scheduled.cancelledClean(), "cancelled jobs never stepped");
+        pass &= check(scheduled.allFinished(), "every job finished within " + frames + " frames");
+        pass &= check(scheduled.overBudgetFrames < immediate.overBudgetFrames,
+                "fewer frames over budget than running work immediately");
+
+        System.out.println();
+        measureOverhead();
+        return pass;
+    }
+
+    /**
+     * One replay of the script, through the scheduler or with every job run
+     * to completion as soon as it is submitted.
+     */
+    private class Run {
+        final boolean useScheduler;
+        final RenderJobScheduler scheduler;
+        final List<String> trace = new ArrayList<>();
+        final List<JobHandle> handles = new ArrayList<>();
+        final List<JobHandle> uploads = new ArrayList<>();
+        final List<JobHandle> cancelled = new ArrayList<>();
+        final float[] frameMs = new float[frames];
+
+        long now = 0;
+        long worstOverrun = 0;
+        int overBudgetFrames = 0;
+        int lastJobFrame = -1;
+        int frame;
+        int lastHighStep = -1;
+        int firstLowStep = Integer.MAX_VALUE;
+        private long random;
+
+        Run(boolean useScheduler) {
+            this.useScheduler = useScheduler;
+            this.scheduler = new RenderJobScheduler(
+                    new JobSchedulerConfig.Builder().setFrameRate(FRAME_RATE).build(), () -> now);
+            this.random = seed * 0x9E3779B97F4A7C15L + 1;
+        }
+
+        void play() {
+            for (frame = 0; frame < frames; frame++) {
+                long frameStart = now;
+                scheduler.beginFrame();
+                submitScripted();
+                // Everything else the frame does
+                now += 6 * MS + nextLong(6 * MS);
+
+                if (useScheduler) {
+                    scheduler.runFrame();
+                    long overrun = scheduler.getLastUsedNanos() - scheduler.getLastBudgetNanos();
+                    worstOverrun = Math.max(worstOverrun, overrun);
+                    if (scheduler.getLastSteps() > 0) {
+                        lastJobFrame = frame;
+                    }
+                }
+
+                long frameNanos = now - frameStart;
+                frameMs[frame] = frameNanos * 1e-6f;
+                if (frameNanos > FRAME_NANOS) {
+                    overBudgetFrames++;
+                }
+                // Wait for the next refresh, or miss it
+                now = frameStart + (frameNanos + FRAME_NANOS - 1) / FRAME_NANOS * FRAME_NANOS;
+            }
+        }
+
+        private void submitScripted() {
+            if (frame == 0) {
+                for (int i = 0; i < DECORATIONS; i++) {
+                    submit(JobPriority.LOW, "decoration" + i, cost(DECORATION_NANOS, "decoration" + i, JobPriority.LOW));
+                }
+                for (int i = 0; i < MATERIALS; i++) {
+                    submit(JobPriority.NORMAL, "material" + i, cost(MATERIAL_NANOS, "material" + i, JobPriority.NORMAL));
+                }
+                for (int i = 0; i < UPLOADS; i++) {
+                    uploads.add(submit(JobPriority.HIGH, "upload" + i, upload("upload" + i)));
+                }
+            }
+            if (frame > 0 && frame % 10 == 0 && frame <= 200) {
+                submit(JobPriority.HIGH, "urgent" + frame, cost(URGENT_NANOS, "urgent" + frame, JobPriority.HIGH));
+            }
+            if (frame == 30) {
+                // A step nobody split - the scheduler can only count the overrun
+                submit(JobPriority.NORMAL, "oversized", cost(OVERSIZED_NANOS, "oversized", JobPriority.NORMAL));
+            }
+            if (frame == 5 && useScheduler) {
+                // Submitted and cancelled before the next frame runs them
+                for (int i = 0; i < 5; i++) {
+                    JobHandle handle = submit(JobPriority.LOW, "cancelled" + i,
+                            cost(DECORATION_NANOS, "cancelled" + i, JobPriority.LOW));
+                    handle.cancel();
+                    cancelled.add(handle);
+                }
+            }
+        }
+
+        private JobHandle submit(JobPriority priority, String name, RenderJob job) {
+            if (useScheduler) {
+                JobHandle handle = scheduler.submit(priority, name, job);
+                handles.add(handle);
+                return handle;
+            }
+            while (!job.step()) {
+                // Run to completion the moment it's requested
+            }
+            lastJobFrame = frame;
+            return null;
+        }
+
+        private RenderJob cost(long nanos, String name, JobPriority priority) {
+            return () -> {
+                record(name, priority);
+                now += nanos;
+                return true;
+            };
+        }
+
+        private RenderJob upload(String name) {
+            int[] uploaded = {0};
+            return () -> {
+                record(name + "/" + uploaded[0], JobPriority.HIGH);
+                now += UPLOAD_STEP_NANOS;
+                return ++uploaded[0] == UPLOAD_STEPS;
+            };
+        }
+
+        private void record(String step, JobPriority priority) {
+            int index = trace.size();
+            trace.add(frame + ":" + step);
+            // Only the level-load burst is ordered against the LOW jobs
+            if (priority == JobPriority.HIGH && step.startsWith("upload")) {
+                lastHighStep = index;
+            } else if (priority == JobPriority.LOW) {
+                firstLowStep = Math.min(firstLowStep, index);
+            }
+        }
+
+        boolean uploadsComplete() {
+            for (JobHandle upload : uploads) {
+                if (upload.getState() != JobHandle.State.DONE || upload.getSteps() != UPLOAD_STEPS) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean cancelledClean() {
+            for (JobHandle handle : cancelled) {
+                if (handle.getState() != JobHandle.State.CANCELLED || handle.getSteps() != 0) {
+                    return false;
+                }
+            }
+            return !cancelled.isEmpty();
+        }
+
+        boolean allFinished() {
+            for (JobHandle handle : handles) {
+                if (!handle.isFinished() || handle.getState() == JobHandle.State.FAILED) {
+                    return false;
+                }
+            }
+            return scheduler.getQueueDepth() == 0;
+        }
+
+        void printRow(String label) {
+            float[] sorted = frameMs.clone();
+            Arrays.sort(sorted);
+            System.out.printf("%-12s %9.2f ms %9.2f ms %14d %12s%n", label, sorted[sorted.length - 1],
+                    sorted[(int) Math.ceil(sorted.length * 0.99) - 1], overBudgetFrames, "frame " + lastJobFrame);
+        }
+
+        private long nextLong(long bound) {
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            return Math.floorMod(random, bound);
+        }
+    }
+
+    /**
+     * Real-clock cost of the scheduler itself, with empty single-step jobs.
+     */
+    private static void measureOverhead() {
+        RenderJobScheduler scheduler = new RenderJobScheduler(new JobSchedulerConfig.Builder()
+                .setFrameRate(FRAME_RATE).setMaxBudgetMillis(1000f).build());
+        RenderJob empty = () -> true;
+        int jobs = 200_000;
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < jobs; i++) {
+                scheduler.submit(JobPriority.NORMAL, "empty", empty);
+            }
+            long start = System.nanoTime();
+            do {
+                scheduler.runFrame();
+            } while (scheduler.getQueueDepth() > 0);
+            long elapsed = System.nanoTime() - start;
+            if (round == 2) {
+                System.out.printf("scheduler overhead: %.0f ns per job (submit excluded, real clock)%n",
+                        (double) elapsed / jobs);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.app.SimpleApplication;
+import com.jme3.post.SceneProcessor;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue.ShadowMode;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.quest.helloworld.QuestVRApplication;
+import com.quest.helloworld.perf.FrameProfiler;
+import com.quest.helloworld.perf.SampleWindow;
+import com.quest.helloworld.shadow.StereoShadowMode;
+import com.quest.helloworld.shadow.StereoShadowRenderer;
+import com.quest.helloworld.trace.PoseTracePlayer;
+
+import java.io.File;
+
+import static com.quest.helloworld.benchmark.Checks.check;
+
+/**
+ * Runs QuestVRApplication headless in stereo with the sun unshadowed,
+ * shadowed by a stock renderer on each eye viewport, and shadowed by the
+ * shared stereo renderer, and compares frame CPU time and draw calls.
+ *
+ * Head motion is the frame loop benchmark's synthetic look-around, so the
+ * shared cascades have to follow the head and occasionally re-center. The
+ * turning cube and the tracked controllers cast into every cascade, so in
+ * this scene each cascade re-renders every frame; so before measuring,
+ * the shared run takes them out of the shadow pass for a while and counts
+ * how many renders the remaining static casters are spared. Checked: the
+ * shared mode draws less and costs less CPU per frame than the
+ * per-viewport one, and with only static casters the maps are re-rendered
+ * just when a cascade re-centers.
+ *
+ * Options:
+ * <pre>
+ *   --frames N   measured frames per run (default 3000)
+ *   --warmup N   frames run before measuring (default 1000)
+ * </pre>
+ */
+public class ShadowBenchmark {
+
+    private static final float TPF = 1f / 72f;
+    private static final int STATIC_FRAMES = 500;
+    private static final int SHADOW_SPLITS = 2;     // as QuestVRApplication configures it
+
+    private int frames = 3000;
+    private int warmup = 1000;
+
+    public static void main(String[] args) throws Exception {
+        ShadowBenchmark benchmark = new ShadowBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--frames": frames = Integer.parseInt(args[++i]); break;
+                case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        System.out.printf("%nShadow benchmark - stereo, 72 Hz step, %d frames per run after %d warm-up%n%n",
+                frames, warmup);
+
+        File trace = FrameLoopBenchmark.writeSyntheticTrace(warmup + frames + STATIC_FRAMES + 1);
+        MeasurementState off = runOnce(StereoShadowMode.OFF, trace);
+        MeasurementState perViewport = runOnce(StereoShadowMode.PER_VIEWPORT, trace);
+        MeasurementState shared = runOnce(StereoShadowMode.SHARED, trace);
+        trace.delete();
+        if (off == null || perViewport == null || shared == null) {
+            System.err.println("Benchmark did not complete - see errors above");
+            return false;
+        }
+
+        System.out.printf("%-14s %8s %8s %8s %8s %12s%n", "", "mean", "p50", "p95", "p99", "draws/frame");
+        printRow("off", off.profiler);
+        printRow("per viewport", perViewport.profiler);
+        printRow("shared", shared.profiler);
+        System.out.println("(frame CPU ms)");
+        System.out.println();
+
+        float offMs = off.profiler.getFrameTimes().getMean();
+        float perViewportMs = perViewport.profiler.getFrameTimes().getMean() - offMs;
+        float sharedMs = shared.profiler.getFrameTimes().getMean() - offMs;
+        System.out.printf("shadow cost    per viewport %+.3f ms, shared %+.3f ms, saved %.3f ms/frame%n",
+                perViewportMs, sharedMs, perViewportMs - sharedMs);
+        System.out.println(shared.measuredSummary);
+        System.out.printf("static casters only, %d frames: %d cascade renders, %d skipped, %d re-centers%n",
+                STATIC_FRAMES, shared.staticRenders, shared.staticSkips, shared.staticShifts);
+        System.out.println();
+
+        boolean pass = true;
+        pass &= check(shared.profiler.getAverageDrawCalls() < perViewport.profiler.getAverageDrawCalls(),
+                String.format("shared draws less than per viewport (%.1f vs %.1f per frame)",
+                        shared.profiler.getAverageDrawCalls(), perViewport.profiler.getAverageDrawCalls()));
+        pass &= check(sharedMs < perViewportMs, "shared shadows cost less frame time than per viewport");
+        // Plus one render per cascade as the moving casters leave it
+        pass &= check(shared.staticSkips > 0 && shared.staticRenders <= shared.staticShifts + SHADOW_SPLITS,
+                "static casters cached - maps re-rendered only when a cascade re-centered");
+        return pass;
+    }
+
+    private MeasurementState runOnce(StereoShadowMode mode, File trace) throws Exception {
+        QuestVRApplication app = HeadlessRun.fixedStep(2 * 1680, 1760, TPF);
+        app.setStereoEnabled(true);
+        app.setShadowMode(mode);
+        app.setPoseTraceReplay(null, trace, PoseTracePlayer.Mode.AS_FAST_AS_POSSIBLE);
+
+        MeasurementState measurement = new MeasurementState(warmup, frames,
+                mode == StereoShadowMode.SHARED ? STATIC_FRAMES : 0);
+        return HeadlessRun.run(app, measurement, null) ? measurement : null;
+    }
+
+    private static void printRow(String label, FrameProfiler profiler) {
+        SampleWindow window = profiler.getFrameTimes();
+        System.out.printf("%-14s %8.3f %8.3f %8.3f %8.3f %12.1f%n", label, window.getMean(),
+                window.getPercentile(50), window.getPercentile(95), window.getPercentile(99),
+                profiler.getAverageDrawCalls());
+    }
+
+    /**
+     * After warm-up, optionally runs the shared renderer with only static
+     * casters first, then resets the profiler and the renderer's statistics
+     * and stops the application after the measured frames.
+     */
+    private static class MeasurementState extends HeadlessRun.Measurement {
+
+        private final int movingFrames;
+        private final int staticFrames;
+
+        private StereoShadowRenderer shadows;
+        private String measuredSummary;
+        private int staticRenders;
+        private int staticSkips;
+        private int staticShifts;
+
+        MeasurementState(int warmup, int frames, int staticFrames) {
+            super(warmup, staticFrames + frames);
+            this.movingFrames = frames;
+            this.staticFrames = staticFrames;
+        }
+
+        @Override
+        protected void warmedUp() {
+            shadows = findSharedRenderer(app.getRenderManager().getMainView("LeftEye"));
+            if (shadows != null && staticFrames > 0) {
+                setMovingCasters(ShadowMode.Receive);
+            }
+            startPhase();
+        }
+
+        @Override
+        protected void measuredFrame(int frame) {
+            if (frame == staticFrames) {
+                if (shadows != null) {
+                    staticRenders = shadows.getCascadeRenders();
+                    staticSkips = shadows.getCascadeSkips();
+                    staticShifts = shadows.getCascadeShifts();
+                    setMovingCasters(null);
+                }
+                startPhase();
+            }
+        }
+
+        @Override
+        protected void finish() {
+            if (shadows != null) {
+                measuredSummary = shadows.summary();
+            }
+        }
+
+        private void startPhase() {
+            profiler.reset(movingFrames);
+            if (shadows != null) {
+                shadows.resetStatistics();
+            }
+        }
+
+        /**
+         * Take the turning cube and the controllers out of the shadow pass,
+         * or with null put them back.
+         */
+        private void setMovingCasters(ShadowMode mode) {
+            Node root = ((SimpleApplication) app).getRootNode();
+            setShadowMode(root.getChild("Cube"), mode != null ? mode : ShadowMode.CastAndReceive);
+            setShadowMode(root.getChild("LeftController"), mode != null ? mode : ShadowMode.Cast);
+            setShadowMode(root.getChild("RightController"), mode != null ? mode : ShadowMode.Cast);
+        }
+
+        private static void setShadowMode(Spatial spatial, ShadowMode mode) {
+            if (spatial != null) {
+                spatial.setShadowMode(mode);
+            }
+        }
+
+        private static StereoShadowRenderer findSharedRenderer(ViewPort viewPort) {
+            if (viewPort == null) {
+                return null;
+            }
+            for (SceneProcessor processor : viewPort.getProcessors()) {
+                if (processor instanceof StereoShadowRenderer) {
+                    return (StereoShadowRenderer) processor;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import com.quest.helloworld.QuestVRApplication;
+import com.quest.helloworld.perf.SampleWindow;
+import com.quest.helloworld.sim.Simulation;
+import com.quest.helloworld.sim.SimulationRunner;
+import com.quest.helloworld.sim.SimulationState;
+
+import java.util.Random;
+
+/**
+ * Compares render frame times with the simulation inline on the render
+ * thread against the simulation on its own thread, with a steady and a
+ * deliberately jittery simulation load.
+ *
+ * Each run boots QuestVRApplication headless, paced to 72 Hz like the
+ * headset's display, and adds a field of orbiting boxes driven by a 60 Hz
+ * {@link SimulationState}. The jittery load stalls random ticks for several
+ * milliseconds, the way a physics step with a burst of contacts or a
+ * blocking call in game logic would.
+ *
+ * Options:
+ * <pre>
+ *   --frames N          measured frames per run (default 1500)
+ *   --warmup N          frames run before measuring (default 300)
+ *   --entities N        simulated boxes (default 500)
+ *   --spike-chance P    probability a jittery tick stalls (default 0.1)
+ *   --spike-ms MIN MAX  stall length range in ms (default 5 25)
+ * </pre>
+ */
+public class SimulationJitterBenchmark {
+
+    private static final int FRAME_RATE = 72;
+    private static final float FRAME_BUDGET_MS = 1000f / FRAME_RATE;
+    private static final float TICK_RATE = 60f;
+
+    private int frames = 1500;
+    private int warmup = 300;
+    private int entities = 500;
+    private float spikeChance = 0.1f;
+    private float spikeMinMs = 5f;
+    private float spikeMaxMs = 25f;
+
+    public static void main(String[] args) throws Exception {
+        SimulationJitterBenchmark benchmark = new SimulationJitterBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--frames": frames = Integer.parseInt(args[++i]); break;
+                case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                case "--entities": entities = Integer.parseInt(args[++i]); break;
+                case "--spike-chance": spikeChance = Float.parseFloat(args[++i]); break;
+                case "--spike-ms":
+                    spikeMinMs = Float.parseFloat(args[++i]);
+                    spikeMaxMs = Float.parseFloat(args[++i]);
+                    break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        System.out.printf("%nSimulation jitter benchmark - %d entities at %.0f Hz, render paced to %d Hz, "
+                        + "%d frames per run after %d warm-up%n",
+                entities, TICK_RATE, FRAME_RATE, frames, warmup);
+        System.out.printf("Jittery load: %.0f%% of ticks stall %.0f-%.0f ms; %d CPUs available%n%n",
+                spikeChance * 100f, spikeMinMs, spikeMaxMs, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-18s %7s %7s %7s %7s %7s %8s %7s   %s%n",
+                "", "mean", "stddev", "p50", "p99", "max", "over", "held", "(frame CPU ms)");
+
+        boolean completed = true;
+        for (boolean jittery : new boolean[]{false, true}) {
+            for (SimulationState.Mode mode : SimulationState.Mode.values()) {
+                completed &= runOnce(mode, jittery);
+            }
+        }
+        System.out.println();
+        System.out.printf("over = frames exceeding the %.1f ms budget at %d Hz; held = frames that showed "
+                + "entities at a stale tick because the next one was late%n", FRAME_BUDGET_MS, FRAME_RATE);
+        return completed;
+    }
+
+    private boolean runOnce(SimulationState.Mode mode, boolean jittery) throws Exception {
+        QuestVRApplication app = HeadlessRun.paced(1680, 1760, FRAME_RATE);
+        OrbitSimulation simulation = new OrbitSimulation(entities,
+                jittery ? spikeChance : 0f, spikeMinMs, spikeMaxMs);
+        SimulationState state = new SimulationState(simulation, TICK_RATE, mode, 0f);
+        MeasurementState measurement = new MeasurementState(warmup, frames);
+        boolean completed = HeadlessRun.run(app, measurement, () -> {
+            attachBoxes(app, state, entities);
+            app.getStateManager().attach(state);
+        });
+        String label = mode.name().toLowerCase() + (jittery ? ", jittery" : ", steady");
+        if (!completed) {
+            System.out.printf("%-18s did not complete - see errors above%n", label);
+            return false;
+        }
+
+        SampleWindow frameMs = measurement.profiler.getFrameTimes();
+        SimulationRunner runner = state.getRunner();
+        System.out.printf("%-18s %7.3f %7.3f %7.3f %7.3f %7.3f %8d %7d   sim %s%n", label,
+                frameMs.getMean(), frameMs.getStandardDeviation(), frameMs.getPercentile(50),
+                frameMs.getPercentile(99), frameMs.getMax(), measurement.overBudget, measurement.heldFrames,
+                runner.summary());
+        return true;
+    }
+
+    private static void attachBoxes(SimpleApplication app, SimulationState state, int count) {
+        Node field = new Node("SimulatedBoxes");
+        Box box = new Box(0.03f, 0.03f, 0.03f);
+        Material material = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+        material.setColor("Color", ColorRGBA.Cyan);
+        for (int i = 0; i < count; i++) {
+            Geometry geometry = new Geometry("Body" + i, box);
+            geometry.setMaterial(material);
+            field.attachChild(geometry);
+            state.bind(i, geometry);
+        }
+        app.getRootNode().attachChild(field);
+    }
+
+    /**
+     * Boxes orbiting the user at different radii, heights and speeds, plus
+     * an optional random stall per tick.
+     */
+    private static class OrbitSimulation implements Simulation {
+
+        private final int count;
+        private final float spikeChance;
+        private final float spikeMinMs;
+        private final float spikeMaxMs;
+        private final Random random = new Random(31);
+        private final Quaternion rotation = new Quaternion();
+
+        private final float[] angle;
+        private final float[] speed;
+        private final float[] radius;
+        private final float[] height;
+        private float time = 0f;
+
+        OrbitSimulation(int count, float spikeChance, float spikeMinMs, float spikeMaxMs) {
+            this.count = count;
+            this.spikeChance = spikeChance;
+            this.spikeMinMs = spikeMinMs;
+            this.spikeMaxMs = spikeMaxMs;
+            angle = new float[count];
+            speed = new float[count];
+            radius = new float[count];
+            height = new float[count];
+            for (int i = 0; i < count; i++) {
+                angle[i] = random.nextFloat() * FastMath.TWO_PI;
+                speed[i] = 0.2f + random.nextFloat() * 0.8f;
+                radius[i] = 1.5f + random.nextFloat() * 3f;
+                height[i] = 0.5f + random.nextFloat() * 2f;
+            }
+        }
+
+        @Override
+        public int getEntityCount() {
+            return count;
+        }
+
+        @Override
+        public void step(float dt) {
+            time += dt;
+            for (int i = 0; i < count; i++) {
+                angle[i] = (angle[i] + speed[i] * dt) % FastMath.TWO_PI;
+            }
+            if (spikeChance > 0f && random.nextFloat() < spikeChance) {
+                float ms = spikeMinMs + random.nextFloat() * (spikeMaxMs - spikeMinMs);
+                long until = System.nanoTime() + (long) (ms * 1_000_000f);
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        @Override
+        public void writeTransforms(float[] positions, float[] rotations) {
+            for (int i = 0; i < count; i++) {
+                int p = i * 3;
+                positions[p] = radius[i] * FastMath.cos(angle[i]);
+                positions[p + 1] = height[i] + 0.1f * FastMath.sin(time * speed[i] * 3f);
+                positions[p + 2] = radius[i] * FastMath.sin(angle[i]);
+
+                rotation.fromAngles(0f, -angle[i], 0f);
+                int r = i * 4;
+                rotations[r] = rotation.getX();
+                rotations[r + 1] = rotation.getY();
+                rotations[r + 2] = rotation.getZ();
+                rotations[r + 3] = rotation.getW();
+            }
+        }
+    }
+
+    /**
+     * Counts frames over budget and held frames across the measured frames.
+     */
+    private static class MeasurementState extends HeadlessRun.Measurement {
+
+        private SimulationState simulation;
+        private long heldStart;
+        private int overBudget = 0;
+        private long heldFrames;
+
+        MeasurementState(int warmup, int frames) {
+            super(warmup, frames);
+        }
+
+        @Override
+        public void initialize(AppStateManager stateManager, Application app) {
+            super.initialize(stateManager, app);
+            simulation = stateManager.getState(SimulationState.class);
+        }
+
+        @Override
+        protected void warmedUp() {
+            heldStart = simulation.getHeldFrames();
+        }
+
+        @Override
+        protected void measuredFrame(int frame) {
+            if (profiler.getFrameTimes().getLast() > FRAME_BUDGET_MS) {
+                // Previous frame's time - recorded at its EndFrame
+                overBudget++;
+            }
+        }
+
+        @Override
+        protected void finish() {
+            heldFrames = simulation.getHeldFrames() - heldStart;
+        }
+    }
+}
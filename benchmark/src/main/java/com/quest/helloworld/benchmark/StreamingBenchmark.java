@@ -0,0 +1,213 @@
+package com.quest.helloworld.benchmark;
+
+import com.jme3.scene.Node;
+import com.quest.helloworld.memory.MemorySizes;
+import com.quest.helloworld.perf.SampleWindow;
+import com.quest.helloworld.streaming.ChunkStreamer;
+import com.quest.helloworld.streaming.ScriptedWalkPath;
+import com.quest.helloworld.streaming.StreamingConfig;
+import com.quest.helloworld.streaming.SyntheticChunkSource;
+import com.quest.helloworld.streaming.WorldChunk;
+
+import java.util.concurrent.locks.LockSupport;
+
+import static com.quest.helloworld.benchmark.Checks.check;
+
+/**
+ * Streams a synthetic world around a scripted walk, headless, and checks
+ * the streamer keeps up with the head and its memory accounting holds.
+ *
+ * A {@link ChunkStreamer} is driven at 72 Hz in real time by a
+ * {@link ScriptedWalkPath} looping around a square, with chunks built by a
+ * {@link SyntheticChunkSource} on the loader threads. No renderer is
+ * involved: the chunks have no materials and the world node is never
+ * drawn. Two runs are made:
+ * <ul>
+ *   <li>walk - walking pace, with disk-like latency per chunk</li>
+ *   <li>sprint - many times walking pace, loads finishing at once on
+ *       several threads, and a budget small enough that distant chunks
+ *       are evicted while loads keep finishing</li>
+ * </ul>
+ * After each walk the head stands still until streaming settles, when the
+ * resident bytes must equal what's attached to the world node.
+ *
+ * Options:
+ * <pre>
+ *   --seconds N    length of each run (default 15)
+ *   --chunk F      chunk size in meters (default 8)
+ *   --seed N       world seed (default 26)
+ * </pre>
+ */
+public class StreamingBenchmark {
+
+    private static final float TPF = 1f / 72f;
+    private static final long FRAME_NANOS = (long) (TPF * 1e9f);
+    private static final int LOAD_RADIUS = 3;
+    private static final int MAX_OBJECTS = 40;
+    private static final float ATTACH_BUDGET_MS = 1f;
+    // Frames the head may stand in a chunk that isn't attached yet, e.g. at the start
+    private static final float MISSING_TOLERANCE = 0.02f;
+    private static final float SETTLE_SECONDS = 5f;
+
+    private int seconds = 15;
+    private float chunkSize = 8f;
+    private long seed = 26;
+
+    public static void main(String[] args) {
+        StreamingBenchmark benchmark = new StreamingBenchmark();
+        benchmark.parse(args);
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                case "--chunk": chunkSize = Float.parseFloat(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private boolean run() {
+        System.out.printf("%nStreaming benchmark - %.0f m chunks, load radius %d, up to %d props per chunk, %d s per run at 72 Hz%n%n",
+                chunkSize, LOAD_RADIUS, MAX_OBJECTS, seconds);
+
+        Run walk = new Run("walk", 2f, 20, 1, 64L * 1024 * 1024);
+        Run sprint = new Run("sprint", 12f, 0, 4, 896L * 1024);
+        walk.stream();
+        sprint.stream();
+
+        System.out.printf("%-8s %7s %7s %7s %7s %7s %9s %9s %9s %8s %8s%n", "", "loaded", "unload", "evict",
+                "failed", "missed", "peak KB", "budget KB", "final KB", "p99 ms", "max ms");
+        walk.print();
+        sprint.print();
+        System.out.println();
+
+        boolean pass = true;
+        for (Run run : new Run[] {walk, sprint}) {
+            pass &= check(run.minResident >= 0 && run.undercounted == 0,
+                    String.format("%s: resident bytes never fell below what's attached (lowest %d bytes)",
+                            run.name, run.minResident));
+            pass &= check(run.settled && run.finalResident == run.finalAttached,
+                    String.format("%s: once settled, resident bytes match the attached chunks: %d vs %d",
+                            run.name, run.finalResident, run.finalAttached));
+            pass &= check(run.failures == 0, run.name + ": every chunk loaded");
+            pass &= check(run.sceneMs.getPercentile(99) <= ATTACH_BUDGET_MS,
+                    String.format("%s: attach and detach within %.1f ms a frame: p99 %.3f ms",
+                            run.name, ATTACH_BUDGET_MS, run.sceneMs.getPercentile(99)));
+        }
+        pass &= check(walk.missed <= walk.frames * MISSING_TOLERANCE,
+                String.format("walk: the chunk underfoot was attached on all but %d of %d frames",
+                        walk.missed, walk.frames));
+        pass &= check(sprint.evicted > 0 && sprint.peakResident <= sprint.budget,
+                String.format("sprint: %d chunks evicted, peak %.0f KB within the %.0f KB budget",
+                        sprint.evicted, sprint.peakResident / 1024f, sprint.budget / 1024f));
+        return pass;
+    }
+
+    /**
+     * One real-time walk around the square, then standing still until
+     * nothing is loading or waiting to attach.
+     */
+    private class Run {
+
+        private final String name;
+        private final long budget;
+        private final ChunkStreamer streamer;
+        private final ScriptedWalkPath path;
+        private final Node world = new Node("World");
+        private final int frames = seconds * 72;
+        private final SampleWindow sceneMs = new SampleWindow(frames);
+
+        private long minResident = Long.MAX_VALUE;
+        private long peakResident = 0;
+        private int undercounted = 0;
+        private int missed = 0;
+        private boolean settled = false;
+        private long finalResident;
+        private long finalAttached;
+        private int loaded, unloaded, evicted, failures;
+
+        Run(String name, float speed, long latencyMillis, int loaderThreads, long budget) {
+            this.name = name;
+            this.budget = budget;
+            StreamingConfig config = new StreamingConfig.Builder()
+                    .setChunkSize(chunkSize)
+                    .setLoadRadius(LOAD_RADIUS)
+                    .setUnloadRadius(LOAD_RADIUS + 2)
+                    .setMemoryBudgetBytes(budget)
+                    .setAttachBudgetMillis(ATTACH_BUDGET_MS)
+                    .setLoaderThreads(loaderThreads)
+                    .setMaxPendingLoads(4 * loaderThreads + 4)
+                    .build();
+            SyntheticChunkSource source = new SyntheticChunkSource(chunkSize, MAX_OBJECTS, seed, latencyMillis, null);
+            // Two sides of a square, ending diagonally across from the start
+            float side = speed * seconds / 2f;
+            path = new ScriptedWalkPath(new float[] {
+                    0f, 1.6f, 0f,
+                    side, 1.6f, 0f,
+                    side, 1.6f, side,
+                    0f, 1.6f, side,
+                    0f, 1.6f, 0f}, speed, true);
+            streamer = new ChunkStreamer(config, source, path, world);
+        }
+
+        void stream() {
+            long next = System.nanoTime();
+            for (int frame = 0; frame < frames; frame++) {
+                path.advance(TPF);
+                streamer.update(TPF);
+                sceneMs.add(streamer.getLastFrameSceneNanos() * 1e-6f);
+                account(frame % 8 == 0);
+
+                float[] head = path.getHeadPosition();
+                WorldChunk underfoot = streamer.getChunk((int) Math.floor(head[0] / chunkSize),
+                        (int) Math.floor(head[2] / chunkSize));
+                if (underfoot == null || underfoot.getState() != WorldChunk.State.ATTACHED) {
+                    missed++;
+                }
+                next += FRAME_NANOS;
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+
+            // Stand still and let the loaders and attach queue drain
+            for (int frame = 0; frame < SETTLE_SECONDS * 72 && !settled; frame++) {
+                streamer.update(TPF);
+                account(true);
+                settled = streamer.getPendingLoads() == 0 && streamer.getAttachQueueSize() == 0
+                        && streamer.getDetachQueueSize() == 0;
+                next += FRAME_NANOS;
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+            finalResident = streamer.getResidentBytes();
+            finalAttached = MemorySizes.spatialMeshBytes(world);
+            loaded = streamer.getChunksLoaded();
+            unloaded = streamer.getChunksUnloaded();
+            evicted = streamer.getChunksEvicted();
+            failures = streamer.getLoadFailures();
+            streamer.shutdown();
+        }
+
+        /**
+         * Resident bytes cover every attached chunk and those waiting to be
+         * attached or detached, so never less than what's under the world node.
+         */
+        private void account(boolean compareAttached) {
+            long resident = streamer.getResidentBytes();
+            minResident = Math.min(minResident, resident);
+            peakResident = Math.max(peakResident, resident);
+            if (compareAttached && streamer.getDetachQueueSize() == 0
+                    && resident < MemorySizes.spatialMeshBytes(world)) {
+                undercounted++;
+            }
+        }
+
+        void print() {
+            System.out.printf("%-8s %7d %7d %7d %7d %7d %9.0f %9.0f %9.0f %8.3f %8.3f%n", name, loaded, unloaded,
+                    evicted, failures, missed, peakResident / 1024f, budget / 1024f, finalResident / 1024f,
+                    sceneMs.getPercentile(99), sceneMs.getMax());
+        }
+    }
+}
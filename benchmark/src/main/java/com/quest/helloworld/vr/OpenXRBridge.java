@@ -0,0 +1,205 @@
+package com.quest.helloworld.vr;
+
+import android.app.Activity;
+
+import com.quest.helloworld.hand.HandJoints;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pure Java stand-in for the JNI OpenXR bridge, used by the headless benchmarks.
+ *
+ * Mirrors the public API and the behaviour of the native simulation in
+ * openxr_bridge.cpp, including returning a fresh array from each getter so
+ * allocation measurements match the device.
+ */
+public class OpenXRBridge {
+
+    private boolean initialized = false;
+
+    // Simulated tracking state, same defaults as the native VRState
+    private float headPosX = 0f;
+    private float headPosY = 1.6f;
+    private float headPosZ = 0f;
+    private float headRotX = 0f;
+    private float headRotY = 0f;
+    private float headRotZ = 0f;
+
+    private final float[][] handPos = {{-0.3f, 1.0f, -0.5f}, {0.3f, 1.0f, -0.5f}};
+    private final boolean[] trigger = new boolean[2];
+    private final boolean[] grip = new boolean[2];
+    private final float[][] thumbstick = new float[2][2];
+    
+    private final SimulatedHandJoints simulatedHands = new SimulatedHandJoints();
+    private ByteBuffer handJointBuffer;
+
+    /**
+     * Nothing to load - the simulation is plain Java.
+     */
+    public static void loadNativeLibrary() {
+    }
+
+    /**
+     * Initialize the VR system.
+     * @param activity ignored, may be null
+     * @return always true
+     */
+    public boolean initialize(Activity activity) {
+        initialized = true;
+        headPosY = 1.6f;
+        return true;
+    }
+
+    /**
+     * Shutdown the VR system.
+     */
+    public void shutdown() {
+        initialized = false;
+    }
+
+    /**
+     * Begin a new VR frame. Call at start of render loop.
+     * @return true if frame should be rendered
+     */
+    public boolean beginFrame() {
+        return initialized;
+    }
+
+    /**
+     * End the VR frame. Call at end of render loop.
+     */
+    public void endFrame() {
+    }
+
+    /**
+     * Get the current head position.
+     * @return float array [x, y, z] in meters
+     */
+    public float[] getHeadPosition() {
+        if (!initialized) return new float[]{0, 1.6f, 0};
+        return new float[]{headPosX, headPosY, headPosZ};
+    }
+
+    /**
+     * Get the current head rotation.
+     * @return float array [pitch, yaw, roll] in radians
+     */
+    public float[] getHeadRotation() {
+        if (!initialized) return new float[]{0, 0, 0};
+        return new float[]{headRotX, headRotY, headRotZ};
+    }
+
+    /**
+     * Get controller position.
+     * @param hand 0 for left, 1 for right
+     * @return float array [x, y, z] in meters
+     */
+    public float[] getControllerPosition(int hand) {
+        if (!initialized) {
+            return hand == 0 ? new float[]{-0.3f, 1.0f, -0.5f} : new float[]{0.3f, 1.0f, -0.5f};
+        }
+        float[] pos = handPos[hand == 0 ? 0 : 1];
+        return new float[]{pos[0], pos[1], pos[2]};
+    }
+
+    /**
+     * Check if trigger is pressed.
+     * @param hand 0 for left, 1 for right
+     * @return true if pressed
+     */
+    public boolean isTriggerPressed(int hand) {
+        return initialized && trigger[hand == 0 ? 0 : 1];
+    }
+
+    /**
+     * Check if grip is pressed.
+     * @param hand 0 for left, 1 for right
+     * @return true if pressed
+     */
+    public boolean isGripPressed(int hand) {
+        return initialized && grip[hand == 0 ? 0 : 1];
+    }
+
+    /**
+     * Get thumbstick values.
+     * @param hand 0 for left, 1 for right
+     * @return float array [x, y] ranging from -1 to 1
+     */
+    public float[] getThumbstick(int hand) {
+        if (!initialized) return new float[]{0, 0};
+        float[] values = thumbstick[hand == 0 ? 0 : 1];
+        return new float[]{values[0], values[1]};
+    }
+
+    /**
+     * Update head pose (for testing/simulation).
+     */
+    public void updateHeadPose(float px, float py, float pz, float rx, float ry, float rz) {
+        if (initialized) {
+            headPosX = px;
+            headPosY = py;
+            headPosZ = pz;
+            headRotX = rx;
+            headRotY = ry;
+            headRotZ = rz;
+        }
+    }
+
+    /**
+     * Update controller state (for testing/simulation/replay).
+     * @param hand 0 for left, 1 for right
+     */
+    public void updateControllerState(int hand, float px, float py, float pz,
+                                      boolean trigger, boolean grip, float thumbX, float thumbY) {
+        if (initialized) {
+            int h = hand == 0 ? 0 : 1;
+            handPos[h][0] = px;
+            handPos[h][1] = py;
+            handPos[h][2] = pz;
+            this.trigger[h] = trigger;
+            this.grip[h] = grip;
+            thumbstick[h][0] = thumbX;
+            thumbstick[h][1] = thumbY;
+        }
+    }
+
+    /**
+     * Register the buffer hand joints are published into, laid out as
+     * described in HandJoints. Keep a reference to it while registered.
+     * @param buffer direct buffer in native byte order, or null to unregister
+     * @return false if the buffer is unusable
+     */
+    public boolean setHandJointBuffer(ByteBuffer buffer) {
+        handJointBuffer = null;
+        if (buffer == null) {
+            return true;
+        }
+        if (!buffer.isDirect() || buffer.capacity() < HandJoints.BUFFER_BYTES) {
+            return false;
+        }
+        handJointBuffer = buffer;
+        return true;
+    }
+    
+    /**
+     * Publish both hands' joints into the registered buffer - a single JNI
+     * call per frame.
+     * @param timeNanos animation time for the simulated joint source; real
+     *                  tracking locates joints at the frame's predicted display time
+     * @return tracked-hand mask: bit 0 left, bit 1 right
+     */
+    public int updateHandJoints(long timeNanos) {
+        if (!initialized || handJointBuffer == null) {
+            return 0;
+        }
+        // Simulated hands hang where the controllers are
+        return simulatedHands.publish(handJointBuffer, handPos, timeNanos);
+    }
+    
+    /**
+     * Check if VR is initialized.
+     */
+    public boolean isInitialized() {
+        return initialized;
+    }
+}
@@ -0,0 +1,147 @@
+package com.quest.helloworld.vr;
+
+import com.quest.helloworld.hand.HandJoints;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Java port of simulateHandJoints() in hand_tracking.cpp, so the bridge
+ * stand-in publishes the same hands as the native simulation.
+ *
+ * Writes with absolute puts into scratch arrays it owns, so publishing
+ * does not allocate.
+ */
+class SimulatedHandJoints {
+
+    private static final float TWO_PI = 6.28318530718f;
+    private static final float CURL_PERIOD_SECONDS = 3.0f;
+    private static final float MAX_CURL_RADIANS = 1.3f;
+
+    // Finger each joint belongs to (0 = thumb), and its share of the finger's curl
+    private static final int[] FINGER = {
+        -1, -1,
+        0, 0, 0, 0,
+        1, 1, 1, 1, 1,
+        2, 2, 2, 2, 2,
+        3, 3, 3, 3, 3,
+        4, 4, 4, 4, 4,
+    };
+
+    private static final float[] FLEX = {
+        0.0f, 0.0f,
+        0.3f, 0.5f, 0.5f, 0.0f,
+        0.0f, 1.0f, 1.1f, 0.7f, 0.0f,
+        0.0f, 1.0f, 1.1f, 0.7f, 0.0f,
+        0.0f, 1.0f, 1.1f, 0.7f, 0.0f,
+        0.0f, 1.0f, 1.1f, 0.7f, 0.0f,
+    };
+
+    private final float[] joints = new float[HandJoints.HAND_FLOATS];
+    private final float[] curl = new float[5];
+    private final float[] yaw = new float[4];
+    private final float[] pitch = new float[4];
+    private final float[] roll = new float[4];
+    private final float[] yawPitch = new float[4];
+    private final float[] flex = new float[4];
+    private final float[] offset = new float[3];
+    private final float[] rotated = new float[3];
+
+    private int sequence = 0;
+
+    /**
+     * Publish both hands into the buffer, laid out as in HandJoints.
+     * @return the tracked-hand mask written to the header
+     */
+    int publish(ByteBuffer buffer, float[][] wrist, long timeNanos) {
+        for (int hand = 0; hand < 2; hand++) {
+            simulate(hand, wrist[hand], timeNanos);
+            int base = HandJoints.HEADER_BYTES + hand * HandJoints.HAND_FLOATS * Float.BYTES;
+            for (int i = 0; i < HandJoints.HAND_FLOATS; i++) {
+                buffer.putFloat(base + i * Float.BYTES, joints[i]);
+            }
+        }
+        int mask = 0x3;
+        buffer.putInt(HandJoints.TRACKED_MASK_OFFSET, mask);
+        buffer.putLong(HandJoints.TIME_OFFSET, timeNanos);
+        buffer.putInt(HandJoints.SEQUENCE_OFFSET, ++sequence);
+        return mask;
+    }
+
+    private void simulate(int hand, float[] wrist, long timeNanos) {
+        float t = (float) (timeNanos * 1e-9);
+        float mirror = hand == HandJoints.LEFT ? -1.0f : 1.0f;
+        float phase = hand == HandJoints.LEFT ? TWO_PI * 0.5f : 0.0f;
+
+        quatAxisAngle(0f, 1f, 0f, 0.25f * (float) Math.sin(0.5f * t + phase), yaw);
+        quatAxisAngle(1f, 0f, 0f, 0.2f * (float) Math.sin(0.7f * t), pitch);
+        quatAxisAngle(0f, 0f, 1f, -0.3f * mirror, roll);
+        quatMul(yaw, 0, pitch, 0, yawPitch, 0);
+
+        for (int finger = 0; finger < 5; finger++) {
+            float wave = TWO_PI * t / CURL_PERIOD_SECONDS + 0.5f * finger + phase;
+            curl[finger] = (0.5f - 0.5f * (float) Math.cos(wave)) * MAX_CURL_RADIANS;
+        }
+
+        int root = HandJoints.WRIST * HandJoints.JOINT_FLOATS;
+        joints[root] = wrist[0];
+        joints[root + 1] = wrist[1];
+        joints[root + 2] = wrist[2];
+        quatMul(yawPitch, 0, roll, 0, joints, root + HandJoints.ORIENTATION_OFFSET);
+        joints[root + HandJoints.RADIUS_OFFSET] = HandJoints.restRadius(HandJoints.WRIST);
+
+        for (int joint = 0; joint < HandJoints.COUNT; joint++) {
+            if (joint == HandJoints.WRIST) {
+                continue;
+            }
+            int parent = HandJoints.parentOf(joint);
+            int p = parent * HandJoints.JOINT_FLOATS;
+            int o = joint * HandJoints.JOINT_FLOATS;
+            // Mirroring the rest position already flips X for the left hand
+            offset[0] = HandJoints.restX(hand, joint) - HandJoints.restX(hand, parent);
+            offset[1] = HandJoints.restY(joint) - HandJoints.restY(parent);
+            offset[2] = HandJoints.restZ(joint) - HandJoints.restZ(parent);
+            quatRotate(joints, p + HandJoints.ORIENTATION_OFFSET, offset, rotated);
+
+            joints[o] = joints[p] + rotated[0];
+            joints[o + 1] = joints[p + 1] + rotated[1];
+            joints[o + 2] = joints[p + 2] + rotated[2];
+            int finger = FINGER[joint];
+            if (finger >= 0 && FLEX[joint] != 0.0f) {
+                quatAxisAngle(1f, 0f, 0f, -curl[finger] * FLEX[joint], flex);
+                quatMul(joints, p + HandJoints.ORIENTATION_OFFSET, flex, 0, joints, o + HandJoints.ORIENTATION_OFFSET);
+            } else {
+                System.arraycopy(joints, p + HandJoints.ORIENTATION_OFFSET, joints, o + HandJoints.ORIENTATION_OFFSET, 4);
+            }
+            joints[o + HandJoints.RADIUS_OFFSET] = HandJoints.restRadius(joint);
+        }
+    }
+
+    private static void quatAxisAngle(float ax, float ay, float az, float angle, float[] out) {
+        float s = (float) Math.sin(angle * 0.5f);
+        out[0] = ax * s;
+        out[1] = ay * s;
+        out[2] = az * s;
+        out[3] = (float) Math.cos(angle * 0.5f);
+    }
+
+    // out = a * b; out may alias neither input
+    private static void quatMul(float[] a, int ai, float[] b, int bi, float[] out, int oi) {
+        float ax = a[ai], ay = a[ai + 1], az = a[ai + 2], aw = a[ai + 3];
+        float bx = b[bi], by = b[bi + 1], bz = b[bi + 2], bw = b[bi + 3];
+        out[oi] = aw * bx + ax * bw + ay * bz - az * by;
+        out[oi + 1] = aw * by - ax * bz + ay * bw + az * bx;
+        out[oi + 2] = aw * bz + ax * by - ay * bx + az * bw;
+        out[oi + 3] = aw * bw - ax * bx - ay * by - az * bz;
+    }
+
+    // out = q * v * q^-1
+    private static void quatRotate(float[] q, int qi, float[] v, float[] out) {
+        float x = q[qi], y = q[qi + 1], z = q[qi + 2], w = q[qi + 3];
+        float tx = 2.0f * (y * v[2] - z * v[1]);
+        float ty = 2.0f * (z * v[0] - x * v[2]);
+        float tz = 2.0f * (x * v[1] - y * v[0]);
+        out[0] = v[0] + w * tx + (y * tz - z * ty);
+        out[1] = v[1] + w * ty + (z * tx - x * tz);
+        out[2] = v[2] + w * tz + (x * ty - y * tx);
+    }
+}
@@ -17,4 +17,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "QuestHelloWorld"
 include(":app")
+include(":benchmark")
 